@@ -1,17 +1,19 @@
 package com.rosanova.iot.timer.cleanup;
 
 
+import com.rosanova.iot.timer.error.Result;
 import com.rosanova.iot.timer.monitor.Monitor;
 import com.rosanova.iot.timer.monitor.repository.MonitorRepository;
 import com.rosanova.iot.timer.timer.repository.TimerRepository;
 import com.rosanova.iot.timer.utils.TimerUtils;
-import com.rosanova.iot.timer.utils.impl.HashMapInt;
+import com.rosanova.iot.timer.utils.impl.HashSetInt;
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
+import com.rosanova.iot.timer.utils.impl.UnitFileWriter;
 import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
@@ -19,6 +21,8 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -45,14 +49,29 @@ public class CleanUp implements SmartInitializingSingleton {
     private final static String EXTENSION = ".timer" ;
     private final TimerUtils fileSystemUtils;
 
+    private final SagaJournal journal;
+
+    public CleanUp(ReentrantLock ioLock,
+                   MonitorRepository monitorRepository,
+                   TimerRepository timerRepository,
+                   String tmpDir,
+                   String timerDirectory,
+                   String monitorDirectory,
+                   ExecutorService executor,
+                   TimerUtils fileSystemUtils) {
+        this(ioLock, monitorRepository, timerRepository, tmpDir, timerDirectory, monitorDirectory, executor, fileSystemUtils, SagaJournal.disabled());
+    }
+
+    @Autowired
     public CleanUp(ReentrantLock ioLock,
-                   @Autowired MonitorRepository monitorRepository,
-                   @Autowired TimerRepository timerRepository,
+                   MonitorRepository monitorRepository,
+                   TimerRepository timerRepository,
                    @Value("${tmp.directory}") String tmpDir,
                    @Value("${systemd.directory}") String timerDirectory,
                    @Value("${systemd.monitor.directory}") String monitorDirectory,
                    ExecutorService executor,
-                   @Qualifier("timerDefault") TimerUtils fileSystemUtils) {
+                   @Qualifier("timerDefault") TimerUtils fileSystemUtils,
+                   SagaJournal journal) {
 
         this.monitorRepository = monitorRepository;
         this.timerRepository = timerRepository;
@@ -62,18 +81,25 @@ public class CleanUp implements SmartInitializingSingleton {
         this.monitorDir = Paths.get(monitorDirectory);
         this.ioLock = ioLock;
         this.fileSystemUtils = fileSystemUtils;
+        this.journal = journal;
 
     }
     //metodo di pulizia richiamato all' avvio e che viene avviato solo dopo che tutto i @PostConstruct dei bean singleton sono avviati
     @Override
     public void afterSingletonsInstantiated() {
 
+        // journal pulito o operazioni aperte già recuperate da JournalRecovery: il filesystem è coerente con il database
+        if (journal.isConsistent()) {
+            System.out.println("SISTEMA PRONTO: journal delle operazioni coerente, scansione di avvio non necessaria");
+            return;
+        }
+
         System.out.println("SISTEMA PRONTO: Controllo integrità e Cleanup in corso...");
         cleanUpMethod();
     }
 
 
-    @Scheduled(cron = "0 0 21 * * *")
+    // scansione completa delle directory: all'avvio senza journal coerente e come ripiego di UnitDirectoryReconciler
     public void cleanUpMethod() {
         boolean lock = false;
         try {
@@ -85,8 +111,8 @@ public class CleanUp implements SmartInitializingSingleton {
                 return;
             }
 
-            HashMapInt timerToRemain = new HashMapInt();
-            HashMapInt timerMonitoRoRemain = new HashMapInt();
+            HashSetInt timerToRemain = new HashSetInt();
+            HashSetInt timerMonitoRoRemain = new HashSetInt();
 
             timerRepository.addEndTimesToMap(timerToRemain);
             Monitor monitor = monitorRepository.getMonitor();
@@ -153,7 +179,11 @@ public class CleanUp implements SmartInitializingSingleton {
     }
 
 
-    public void deleteFiledFromTimerDirectory(Path dir, HashMapInt myMap, String extension) {
+    public void deleteFiledFromTimerDirectory(Path dir, HashSetInt myMap, String extension) {
+
+        // i timer orfani vengono raccolti e disattivati con un solo comando systemctl prima della cancellazione
+        List<Path> orphanFiles = new ArrayList<>();
+        List<String> orphanNames = new ArrayList<>();
 
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
 
@@ -173,14 +203,21 @@ public class CleanUp implements SmartInitializingSingleton {
 
                         filename = entry.getFileName().toString();
 
+                        // file temporaneo di una scrittura interrotta da un crash, mai diventato una unit
+                        if (UnitFileWriter.isTempFile(filename)) {
+                            Files.deleteIfExists(entry);
+                            continue;
+                        }
+
                         if (filename.length() > extension.length() && filename.regionMatches(filename.length() - extension.length(), extension, 0, extension.length())) {
 
                             filename = filename.substring(0, filename.length() - extension.length());
 
                             int fileId = Integer.parseInt(filename);
 
-                            if (!myMap.search(fileId)) {
-                                Files.delete(entry);
+                            if (!myMap.contains(fileId)) {
+                                orphanFiles.add(entry);
+                                orphanNames.add(filename);
                             }
 
                         } else {
@@ -189,7 +226,7 @@ public class CleanUp implements SmartInitializingSingleton {
 
                     } catch (NumberFormatException e) {
                         System.err.println("STATO INCONSISTENTE DURANTE LA CANCELLAZIONE: LA CARTELLA DOVREBBE CONTENERE SOLO ELEMENTI CON NOMI NUMERICI; DOVRESTI CONTROLLARE");
-                    } catch (IOException e){
+                    } catch (IOException e) {
                         System.err.println("ERRORE DURANTE LE OPERAZIONI SU SINGOLO FILE");
                     }
 
@@ -197,6 +234,31 @@ public class CleanUp implements SmartInitializingSingleton {
         } catch (Exception e) {
             System.err.println("Errore durante la lettura della directory: " + e.getMessage());
         }
+
+        if (orphanFiles.isEmpty() || isInterrupted()) return;
+
+        removeOrphans(orphanFiles, orphanNames);
+    }
+
+    /**
+     * Disattiva i timer orfani con un solo comando systemctl e ne cancella i file; il chiamante deve possedere il lock IO
+     */
+    public void removeOrphans(List<Path> orphanFiles, List<String> orphanNames) {
+
+        try {
+            if (fileSystemUtils.deactivateSystemdTimers(orphanNames) == Result.ERROR)
+                System.err.println("ERRORE DURANTE LA DISATTIVAZIONE DEI TIMER ORFANI: " + orphanNames);
+        } catch (Exception e) {
+            System.err.println("ERRORE DURANTE LA DISATTIVAZIONE DEI TIMER ORFANI: " + e.getMessage());
+        }
+
+        for (Path orphan : orphanFiles) {
+            try {
+                Files.deleteIfExists(orphan);
+            } catch (IOException e) {
+                System.err.println("ERRORE DURANTE LE OPERAZIONI SU SINGOLO FILE");
+            }
+        }
     }
 
     public boolean isInterrupted (){
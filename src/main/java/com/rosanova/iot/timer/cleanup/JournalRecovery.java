@@ -0,0 +1,90 @@
+package com.rosanova.iot.timer.cleanup;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.monitor.service.MonitorServiceImpl;
+import com.rosanova.iot.timer.timer.service.TimerService;
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
+import jakarta.annotation.PostConstruct;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * All'avvio riprende solo le operazioni di timer e monitor rimaste aperte nel journal,
+ * prima che CleanUp decida se serve la scansione completa delle directory.
+ * Durante l'esecuzione riprova periodicamente, sotto il lock condiviso, le operazioni rimaste da recuperare:
+ * quelle fallite all'avvio e quelle il cui rollback è fallito. Finché restano aperte il journal non riparte dall'inizio.
+ */
+@Component
+@Profile("!test")
+public class JournalRecovery {
+
+    private final SagaJournal journal;
+    private final TimerService timerService;
+    private final MonitorServiceImpl monitorService;
+    private final ReentrantLock ioLock;
+
+    public JournalRecovery(SagaJournal journal, TimerService timerService, MonitorServiceImpl monitorService, ReentrantLock ioLock) {
+        this.journal = journal;
+        this.timerService = timerService;
+        this.monitorService = monitorService;
+        this.ioLock = ioLock;
+    }
+
+    @PostConstruct
+    public void onStartup() {
+        recover();
+    }
+
+    /**
+     * @return il numero di operazioni che non è stato possibile recuperare
+     */
+    public int recover() {
+
+        int failed = 0;
+
+        for (SagaJournal.Entry entry : journal.getPending()) {
+
+            Result result = switch (entry.kind()) {
+                case TIMER_INSERT, TIMER_REMOVE -> timerService.recover(entry);
+                case MONITOR_START, MONITOR_STOP, MONITOR_START_SWAP, MONITOR_STOP_SWAP, MONITOR_SCHEDULE_SWAP -> monitorService.recover(entry);
+            };
+
+            if (result == Result.SUCCESS) {
+                journal.recovered(entry.id());
+            } else {
+                System.err.println("ERRORE RECUPERO OPERAZIONE DAL JOURNAL: " + entry.kind() + " " + entry.id());
+                failed++;
+            }
+        }
+
+        return failed;
+    }
+
+    /**
+     * Nuovo tentativo sulle operazioni da recuperare; se il lock è occupato da un'altra operazione si riprova al giro successivo.
+     * @return il numero di operazioni ancora da recuperare, -1 se il lock non è stato acquisito
+     */
+    @Scheduled(initialDelayString = "${journal.retry.ms:300000}", fixedDelayString = "${journal.retry.ms:300000}")
+    public int retryPending() {
+
+        List<SagaJournal.Entry> pending = journal.getPending();
+        if (pending.isEmpty()) return 0;
+
+        boolean locked = false;
+        try {
+            locked = ioLock.tryLock(1, TimeUnit.SECONDS);
+            if (!locked) return -1;
+            return recover();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        } finally {
+            if (locked) ioLock.unlock();
+        }
+    }
+}
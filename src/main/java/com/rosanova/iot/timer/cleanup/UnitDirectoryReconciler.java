@@ -0,0 +1,360 @@
+package com.rosanova.iot.timer.cleanup;
+
+import com.rosanova.iot.timer.monitor.Monitor;
+import com.rosanova.iot.timer.monitor.repository.MonitorRepository;
+import com.rosanova.iot.timer.timer.repository.TimerRepository;
+import com.rosanova.iot.timer.utils.TimerUtils;
+import com.rosanova.iot.timer.utils.impl.HashSetInt;
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Riconciliazione incrementale delle directory dei timer tramite WatchService.
+ * Tiene in memoria i nomi delle unit presenti nelle directory systemd e verifica contro il database
+ * solo i nomi toccati dagli eventi, sotto il lock IO: le saghe di timer e monitor creano file prima di
+ * aggiornare il database, quindi la verifica avviene solo quando nessuna operazione è in corso.
+ * Gli eventi vicini nel tempo sono verificati insieme dopo un breve periodo di quiete.
+ * La scansione completa di CleanUp resta come ripiego: su OVERFLOW degli eventi e, di notte, solo se il watcher non è attivo.
+ */
+@Component
+@Profile("!test")
+public class UnitDirectoryReconciler implements SmartInitializingSingleton {
+
+    private static final String EXTENSION = ".timer";
+    private static final int NOT_A_UNIT = -1;
+    private static final long COLLECT_MAX_MILLIS = 10_000;
+
+    private final CleanUp cleanUp;
+    private final TimerRepository timerRepository;
+    private final MonitorRepository monitorRepository;
+    private final TimerUtils fileSystemUtils;
+    private final ReentrantLock ioLock;
+    private final SagaJournal journal;
+    private final Path tmpDir;
+    private final Path timerDir;
+    private final Path monitorDir;
+    private final long quietMillis;
+
+    // stato letto e scritto solo dal thread del reconciler (o dal chiamante nei test)
+    private final HashSetInt timerUnits = new HashSetInt();
+    private final HashSetInt monitorUnits = new HashSetInt();
+    private final HashSetInt pendingTimers = new HashSetInt();
+    private final HashSetInt pendingMonitors = new HashSetInt();
+    private final HashSetInt pendingTmp = new HashSetInt();
+    private boolean overflow = false;
+
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong orphansRemoved = new AtomicLong();
+    private final AtomicLong sweeps = new AtomicLong();
+
+    private WatchService watchService;
+    private volatile Thread watcher;
+
+    public UnitDirectoryReconciler(CleanUp cleanUp,
+                                   TimerRepository timerRepository,
+                                   MonitorRepository monitorRepository,
+                                   @Qualifier("timerDefault") TimerUtils fileSystemUtils,
+                                   ReentrantLock ioLock,
+                                   SagaJournal journal,
+                                   @Value("${tmp.directory}") String tmpDir,
+                                   @Value("${systemd.directory}") String timerDirectory,
+                                   @Value("${systemd.monitor.directory}") String monitorDirectory,
+                                   @Value("${cleanup.watch.quiet.millis:2000}") long quietMillis) {
+        this.cleanUp = cleanUp;
+        this.timerRepository = timerRepository;
+        this.monitorRepository = monitorRepository;
+        this.fileSystemUtils = fileSystemUtils;
+        this.ioLock = ioLock;
+        this.journal = journal;
+        this.tmpDir = Paths.get(tmpDir);
+        this.timerDir = Paths.get(timerDirectory);
+        this.monitorDir = Paths.get(monitorDirectory);
+        this.quietMillis = quietMillis;
+    }
+
+    // dopo JournalRecovery (@PostConstruct): i file di backup in tmp non servono più a nessun recupero
+    @Override
+    public void afterSingletonsInstantiated() {
+        start();
+    }
+
+    public void start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            // registrazione prima della lettura iniziale: un file creato nel mezzo produce comunque un evento
+            for (Path dir : List.of(timerDir, monitorDir, tmpDir))
+                dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            scan(timerDir, timerUnits);
+            scan(monitorDir, monitorUnits);
+        } catch (IOException e) {
+            System.err.println("RICONCILIAZIONE DELLE DIRECTORY NON DISPONIBILE, RESTA LA SCANSIONE NOTTURNA: " + e.getMessage());
+            closeWatchService();
+            return;
+        }
+
+        Thread thread = new Thread(this::watchLoop, "unit-reconciler");
+        thread.setDaemon(true);
+        watcher = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = watcher;
+        watcher = null;
+        closeWatchService();
+        if (thread != null) thread.interrupt();
+    }
+
+    // ripiego della vecchia pulizia notturna, necessario solo se il watcher non è attivo
+    @Scheduled(cron = "0 0 21 * * *")
+    public void fallbackSweep() {
+        if (isWatching()) return;
+        sweeps.incrementAndGet();
+        cleanUp.cleanUpMethod();
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+
+                // con verifiche in sospeso (lock non ottenuto) si riprova dopo il periodo di quiete anche senza eventi
+                WatchKey key = hasPending() ? watchService.poll(quietMillis, TimeUnit.MILLISECONDS) : watchService.take();
+
+                long deadline = System.currentTimeMillis() + COLLECT_MAX_MILLIS;
+
+                while (key != null) {
+                    collect(key);
+                    if (System.currentTimeMillis() > deadline) break;
+                    key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS);
+                }
+
+                reconcile();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // chiusura del contesto
+        } catch (Exception e) {
+            System.err.println("ERRORE RICONCILIAZIONE DIRECTORY, RESTA LA SCANSIONE NOTTURNA: " + e.getMessage());
+        } finally {
+            watcher = null;
+        }
+    }
+
+    private void collect(WatchKey key) {
+
+        Path dir = (Path) key.watchable();
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            onEvent(dir, event.kind(), event.kind() == OVERFLOW ? null : (Path) event.context());
+        }
+
+        if (!key.reset()) {
+            System.err.println("DIRECTORY NON PIù OSSERVABILE: " + dir);
+            overflow = true;
+        }
+    }
+
+    void onEvent(Path dir, WatchEvent.Kind<?> kind, Path file) {
+
+        events.incrementAndGet();
+
+        if (kind == OVERFLOW) {
+            overflow = true;
+            return;
+        }
+
+        int name = unitName(file);
+        if (name == NOT_A_UNIT) return;
+
+        boolean present = kind != ENTRY_DELETE;
+
+        if (dir.equals(timerDir)) {
+            track(timerUnits, name, present);
+            pendingTimers.add(name);
+        } else if (dir.equals(monitorDir)) {
+            track(monitorUnits, name, present);
+            pendingMonitors.add(name);
+        } else if (dir.equals(tmpDir)) {
+            if (present) pendingTmp.add(name);
+            else pendingTmp.remove(name);
+        }
+    }
+
+    /**
+     * Verifica i nomi toccati dagli eventi raccolti.
+     * @return false se le verifiche restano in sospeso (lock non ottenuto o errore)
+     */
+    boolean reconcile() {
+
+        if (overflow) {
+            overflow = false;
+            pendingTimers.clear();
+            pendingMonitors.clear();
+            pendingTmp.clear();
+            sweeps.incrementAndGet();
+            cleanUp.cleanUpMethod();
+            try {
+                scan(timerDir, timerUnits);
+                scan(monitorDir, monitorUnits);
+            } catch (IOException e) {
+                System.err.println("ERRORE LETTURA DIRECTORY DOPO LA SCANSIONE COMPLETA: " + e.getMessage());
+            }
+            return true;
+        }
+
+        if (!hasPending()) return true;
+
+        boolean lock = false;
+
+        try {
+            lock = ioLock.tryLock(10L, TimeUnit.SECONDS);
+
+            if (!lock) return false;
+
+            HashSetInt expectedTimers = new HashSetInt();
+            timerRepository.addEndTimesToMap(expectedTimers);
+
+            int removed = removeOrphans(timerDir, timerUnits, pendingTimers, expectedTimers);
+
+            Monitor monitor = monitorRepository.getMonitor();
+
+            if (monitor != null) {
+                HashSetInt expectedMonitors = new HashSetInt(2);
+                expectedMonitors.add(monitor.getStart());
+                expectedMonitors.add(monitor.getStop());
+                removed += removeOrphans(monitorDir, monitorUnits, pendingMonitors, expectedMonitors);
+            } else {
+                // senza riga monitor non si può decidere quali unit siano orfane
+                System.err.println("RICONCILIAZIONE MONITOR SALTATA: MONITOR NON PRESENTE NEL DATABASE");
+                pendingMonitors.clear();
+            }
+
+            // un'operazione rimasta aperta nel journal potrebbe ancora aver bisogno dei file spostati in tmp
+            if (journal.getOpen() == 0) deleteTmp();
+
+            if (removed > 0) fileSystemUtils.timerReload();
+
+            return true;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            System.err.println("ERRORE DURANTE LA RICONCILIAZIONE DELLE DIRECTORY: " + e.getMessage());
+            return false;
+        } finally {
+            if (lock) ioLock.unlock();
+        }
+    }
+
+    private int removeOrphans(Path dir, HashSetInt units, HashSetInt pending, HashSetInt expected) {
+
+        List<Path> orphanFiles = new ArrayList<>();
+        List<String> orphanNames = new ArrayList<>();
+
+        pending.forEach(name -> {
+            boolean present = units.contains(name);
+            if (present && !expected.contains(name)) {
+                orphanFiles.add(dir.resolve(name + EXTENSION));
+                orphanNames.add(String.valueOf(name));
+            } else if (!present && expected.contains(name)) {
+                System.err.println("STATO INCONSISTENTE: UNIT " + name + " PRESENTE NEL DATABASE MA NON IN " + dir);
+            }
+        });
+
+        pending.clear();
+
+        if (orphanFiles.isEmpty()) return 0;
+
+        cleanUp.removeOrphans(orphanFiles, orphanNames);
+
+        for (String name : orphanNames) units.remove(Integer.parseInt(name));
+        orphansRemoved.addAndGet(orphanFiles.size());
+
+        return orphanFiles.size();
+    }
+
+    private void deleteTmp() {
+        pendingTmp.forEach(name -> {
+            try {
+                Files.deleteIfExists(tmpDir.resolve(name + EXTENSION));
+            } catch (IOException e) {
+                System.err.println("ERRORE DURANTE LE OPERAZIONI SU SINGOLO FILE");
+            }
+        });
+        pendingTmp.clear();
+    }
+
+    private boolean hasPending() {
+        return overflow || !pendingTimers.isEmpty() || !pendingMonitors.isEmpty() || !pendingTmp.isEmpty();
+    }
+
+    private static void track(HashSetInt units, int name, boolean present) {
+        if (present) units.add(name);
+        else units.remove(name);
+    }
+
+    private static void scan(Path dir, HashSetInt units) throws IOException {
+        units.clear();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path entry : stream) {
+                int name = unitName(entry.getFileName());
+                if (name != NOT_A_UNIT) units.add(name);
+            }
+        }
+    }
+
+    private static int unitName(Path file) {
+
+        String filename = file.toString();
+
+        if (filename.length() <= EXTENSION.length() || !filename.endsWith(EXTENSION)) return NOT_A_UNIT;
+
+        try {
+            int name = Integer.parseInt(filename, 0, filename.length() - EXTENSION.length(), 10);
+            return name < 0 ? NOT_A_UNIT : name;
+        } catch (NumberFormatException e) {
+            return NOT_A_UNIT;
+        }
+    }
+
+    private void closeWatchService() {
+        try {
+            if (watchService != null) watchService.close();
+        } catch (IOException e) {
+            System.err.println("ERRORE CHIUSURA WATCH SERVICE: " + e.getMessage());
+        }
+    }
+
+    public boolean isWatching() {
+        return watcher != null;
+    }
+
+    public long getEvents() {
+        return events.get();
+    }
+
+    public long getOrphansRemoved() {
+        return orphansRemoved.get();
+    }
+
+    public long getSweeps() {
+        return sweeps.get();
+    }
+}
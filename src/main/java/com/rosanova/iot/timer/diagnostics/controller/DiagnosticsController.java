@@ -0,0 +1,133 @@
+package com.rosanova.iot.timer.diagnostics.controller;
+
+import com.rosanova.iot.timer.diagnostics.dto.HmacProviderDto;
+import com.rosanova.iot.timer.diagnostics.dto.LoginMetricsDto;
+import com.rosanova.iot.timer.diagnostics.dto.ReloadMetricsDto;
+import com.rosanova.iot.timer.diagnostics.dto.SchedulerMetricsDto;
+import com.rosanova.iot.timer.diagnostics.dto.SystemctlMetricsDto;
+import com.rosanova.iot.timer.diagnostics.dto.TokenCacheDto;
+import com.rosanova.iot.timer.security.LoginRateLimiter;
+import com.rosanova.iot.timer.security.VerifiedTokenCache;
+import com.rosanova.iot.timer.user.service.impl.BCryptCostCalibrator;
+import com.rosanova.iot.timer.user.service.impl.LoginVerificationExecutor;
+import com.rosanova.iot.timer.utils.impl.AlarmScheduler;
+import com.rosanova.iot.timer.utils.impl.DaemonReloadCoalescer;
+import com.rosanova.iot.timer.utils.impl.HMACSHA256SignatureProvider;
+import com.rosanova.iot.timer.utils.impl.LatencyHistogram;
+import com.rosanova.iot.timer.utils.impl.SystemctlExecutor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("/authenticated/api/v1/diagnostics")
+@RequiredArgsConstructor
+@CrossOrigin("*")
+@RegisterReflectionForBinding({HmacProviderDto.class, LoginMetricsDto.class, ReloadMetricsDto.class, SchedulerMetricsDto.class, SystemctlMetricsDto.class, TokenCacheDto.class})
+public class DiagnosticsController {
+
+    private final DaemonReloadCoalescer reloadCoalescer;
+
+    private final SystemctlExecutor systemctlExecutor;
+
+    // presente solo con il profilo inprocess
+    private final ObjectProvider<AlarmScheduler> alarmScheduler;
+
+    private final HMACSHA256SignatureProvider hmacProvider;
+
+    private final VerifiedTokenCache tokenCache;
+
+    private final BCryptCostCalibrator costCalibrator;
+
+    private final LoginRateLimiter loginRateLimiter;
+
+    private final LoginVerificationExecutor loginExecutor;
+
+    // daemon-reload richiesti dai servizi rispetto a quelli eseguiti davvero
+    @GetMapping("/reload")
+    public ResponseEntity<ReloadMetricsDto> getReloadMetrics() {
+        return ResponseEntity.ok(new ReloadMetricsDto(
+                reloadCoalescer.getRequested(),
+                reloadCoalescer.getExecuted(),
+                reloadCoalescer.getWindowMillis()));
+    }
+
+    // ritardo degli scatti dello scheduler in processo rispetto all'orario programmato
+    @GetMapping("/scheduler")
+    public ResponseEntity<SchedulerMetricsDto> getSchedulerMetrics() {
+        AlarmScheduler scheduler = alarmScheduler.getIfAvailable();
+        if (scheduler == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(new SchedulerMetricsDto(
+                scheduler.size(),
+                scheduler.getFired(),
+                scheduler.getLatenessPercentileMicros(0.5),
+                scheduler.getLatenessPercentileMicros(0.99),
+                scheduler.getMaxLatenessMicros()));
+    }
+
+    // latenze dei comandi systemctl per tipo di comando
+    @GetMapping("/systemctl")
+    public ResponseEntity<List<SystemctlMetricsDto>> getSystemctlMetrics() {
+        List<SystemctlMetricsDto> metrics = new ArrayList<>();
+        for (SystemctlExecutor.Command command : SystemctlExecutor.Command.values()) {
+            LatencyHistogram latency = systemctlExecutor.getLatency(command);
+            metrics.add(new SystemctlMetricsDto(
+                    command.name(),
+                    latency.getCount(),
+                    systemctlExecutor.getFailures(command),
+                    systemctlExecutor.getTimeouts(command),
+                    latency.getPercentileMicros(0.5),
+                    latency.getPercentileMicros(0.99),
+                    latency.getMaxMicros()));
+        }
+        return ResponseEntity.ok(metrics);
+    }
+
+    // implementazione HMAC scelta all'avvio e costo misurato della verifica di un token
+    @GetMapping("/hmac")
+    public ResponseEntity<HmacProviderDto> getHmacProvider() {
+        return ResponseEntity.ok(new HmacProviderDto(
+                hmacProvider.getRequested().name(),
+                hmacProvider.getProvider().name(),
+                hmacProvider.getSelectedNanosPerOperation(),
+                hmacProvider.getJavaNanosPerOperation(),
+                hmacProvider.getJcaNanosPerOperation(),
+                hmacProvider.isJcaIdentical()));
+    }
+
+    // cache dei token verificati del filtro di autenticazione
+    @GetMapping("/token-cache")
+    public ResponseEntity<TokenCacheDto> getTokenCache() {
+        return ResponseEntity.ok(new TokenCacheDto(
+                tokenCache.getCapacity(),
+                tokenCache.size(),
+                tokenCache.getHits(),
+                tokenCache.getMisses(),
+                tokenCache.getEvictions(),
+                tokenCache.getHitRatio()));
+    }
+
+    // costo BCrypt calibrato all'avvio, latenze di login e tentativi respinti
+    @GetMapping("/login")
+    public ResponseEntity<LoginMetricsDto> getLoginMetrics() {
+        LatencyHistogram latency = costCalibrator.getLoginLatency();
+        return ResponseEntity.ok(new LoginMetricsDto(
+                costCalibrator.getTargetCost(),
+                costCalibrator.getBudgetMillis(),
+                costCalibrator.getCalibratedMicros(),
+                costCalibrator.getRehashes(),
+                latency.getCount(),
+                latency.getPercentileMicros(0.5),
+                latency.getPercentileMicros(0.99),
+                latency.getMaxMicros(),
+                loginRateLimiter.getLimited(),
+                loginExecutor.getRejected(),
+                loginExecutor.getThreads(),
+                loginExecutor.getMaxRunning()));
+    }
+}
@@ -0,0 +1,21 @@
+package com.rosanova.iot.timer.diagnostics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HmacProviderDto {
+    String requested;
+    String selected;
+    long selectedNanosPerOperation;
+    // -1 se non misurato
+    long javaNanosPerOperation;
+    long jcaNanosPerOperation;
+    // JCA produce gli stessi token dell'implementazione in Java
+    boolean jcaIdentical;
+}
@@ -0,0 +1,27 @@
+package com.rosanova.iot.timer.diagnostics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginMetricsDto {
+    int bcryptCost;
+    long budgetMillis;
+    // durata di una verifica al costo scelto, -1 se non calibrato
+    long calibratedMicros;
+    long rehashes;
+    long logins;
+    long p50Micros;
+    long p99Micros;
+    long maxMicros;
+    // tentativi respinti con 429 dal limite per client e dalla coda delle verifiche
+    long rateLimited;
+    long verifyRejected;
+    int verifyThreads;
+    int verifyMaxRunning;
+}
@@ -0,0 +1,16 @@
+package com.rosanova.iot.timer.diagnostics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReloadMetricsDto {
+    long requested;
+    long executed;
+    long windowMillis;
+}
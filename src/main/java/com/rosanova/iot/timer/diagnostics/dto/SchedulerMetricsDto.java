@@ -0,0 +1,18 @@
+package com.rosanova.iot.timer.diagnostics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SchedulerMetricsDto {
+    int timers;
+    long fired;
+    long p50LatenessMicros;
+    long p99LatenessMicros;
+    long maxLatenessMicros;
+}
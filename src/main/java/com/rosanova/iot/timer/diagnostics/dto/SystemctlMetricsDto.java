@@ -0,0 +1,20 @@
+package com.rosanova.iot.timer.diagnostics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SystemctlMetricsDto {
+    String command;
+    long count;
+    long failures;
+    long timeouts;
+    long p50Micros;
+    long p99Micros;
+    long maxMicros;
+}
@@ -0,0 +1,19 @@
+package com.rosanova.iot.timer.diagnostics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenCacheDto {
+    int capacity;
+    int size;
+    long hits;
+    long misses;
+    long evictions;
+    double hitRatio;
+}
@@ -0,0 +1,31 @@
+package com.rosanova.iot.timer.monitor;
+
+/**
+ * Copia immutabile della riga monitor_timer tenuta in memoria dal repository.
+ * version cresce a ogni modifica pubblicata ed è usata come ETag per le GET condizionali.
+ */
+public record MonitorSnapshot(boolean present, long id, int start, int stop, long version) {
+
+    public static MonitorSnapshot empty(long version) {
+        return new MonitorSnapshot(false, 0, 0, 0, version);
+    }
+
+    public static MonitorSnapshot of(Monitor monitor, long version) {
+        return monitor == null ? empty(version) : new MonitorSnapshot(true, monitor.getId(), monitor.getStart(), monitor.getStop(), version);
+    }
+
+    public MonitorSnapshot withSchedule(int start, int stop) {
+        return new MonitorSnapshot(present, id, start, stop, version + 1);
+    }
+
+    /**
+     * @return una nuova istanza di Monitor, null se la tabella è vuota; chi la riceve può modificarla senza toccare lo snapshot
+     */
+    public Monitor toMonitor() {
+        return present ? new Monitor(id, start, stop) : null;
+    }
+
+    public String eTag() {
+        return "\"" + version + "\"";
+    }
+}
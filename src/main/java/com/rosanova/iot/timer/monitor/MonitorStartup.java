@@ -14,7 +14,6 @@ import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.beans.Transient;
-import java.time.Duration;
 
 
 @Component
@@ -56,33 +55,19 @@ public class MonitorStartup {
         String stopString = String.valueOf(STOP);
         String startString = String.valueOf(START);
 
-        Duration durationStart = Duration.ofMillis(START);
-
-        String startDate = String.format("%02d:%02d:%02d",
-                durationStart.toHours(),
-                durationStart.toMinutesPart(),
-                durationStart.toSecondsPart());
-
-        Duration durationStop = Duration.ofMillis(STOP);
-
-        String stopDate = String.format("%02d:%02d:%02d",
-                durationStop.toHours(),
-                durationStop.toMinutesPart(),
-                durationStop.toSecondsPart());
-
         try {
 
 
 
             step++;
 
-            if (monitorTurnOnUtils.createSystemdTimerUnit(startString,startDate,startString.substring(0,startString.length()-3)) == Result.ERROR)
+            if (monitorTurnOnUtils.createSystemdTimerUnit(startString,START,startString.substring(0,startString.length()-3)) == Result.ERROR)
                 throw new MonitorServiceException("errore creazione timer start");
 
 
             step++;
 
-            if (monitorTurnOffUtils.createSystemdTimerUnit(stopString,stopDate,stopString.substring(0,stopString.length()-3)) == Result.ERROR)
+            if (monitorTurnOffUtils.createSystemdTimerUnit(stopString,STOP,stopString.substring(0,stopString.length()-3)) == Result.ERROR)
                 throw new MonitorServiceException("errore creazione timer stop");
 
 
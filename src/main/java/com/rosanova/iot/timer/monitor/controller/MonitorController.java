@@ -1,15 +1,18 @@
 package com.rosanova.iot.timer.monitor.controller;
 
 
+import com.rosanova.iot.timer.monitor.dto.MonitorScheduleRequest;
 import com.rosanova.iot.timer.monitor.dto.MonitorUpdateRequest;
 import com.rosanova.iot.timer.error.Result;
 import com.rosanova.iot.timer.monitor.Monitor;
+import com.rosanova.iot.timer.monitor.MonitorSnapshot;
 import com.rosanova.iot.timer.monitor.service.MonitorServiceImpl;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @CrossOrigin("*")
 @RestController
@@ -19,6 +22,15 @@ public class MonitorController {
 
     private final MonitorServiceImpl monitorService;
 
+    // start e stop insieme: un solo lock, un solo daemon-reload, rollback di entrambi in caso di errore
+    @PutMapping
+    public ResponseEntity<?> updateSchedule(@Valid @RequestBody MonitorScheduleRequest request) {
+
+        Result result = monitorService.updateMonitorSynchronized(request.getStart(), request.getStop());
+
+        return buildServiceResponse(result, "Start e stop monitor aggiornati con successo", "Errore nell'aggiornamento di start e stop (Lock occupato, valori non validi o errore di sistema)");
+    }
+
     @PutMapping("/start")
     public ResponseEntity<?> updateStart(@Valid @RequestBody MonitorUpdateRequest request) {
 
@@ -41,9 +53,12 @@ public class MonitorController {
         return buildServiceResponse(result, "Stop monitor aggiornato con successo", "Errore nell'aggiornamento dello stop (Lock occupato o errore di sistema)");
     }
 
+    // GET condizionale: con If-None-Match uguale alla versione dello snapshot risponde 304 senza corpo
     @GetMapping("/monitor")
-    public ResponseEntity<Monitor> getMonitor() {
-        return ResponseEntity.ok( monitorService.getMonitor());
+    public ResponseEntity<Monitor> getMonitor(WebRequest request) {
+        MonitorSnapshot snapshot = monitorService.getMonitorSnapshot();
+        if (request.checkNotModified(snapshot.eTag())) return null;
+        return ResponseEntity.ok().eTag(snapshot.eTag()).body(snapshot.toMonitor());
     }
 
     // Helper per costruire la risposta basata sul Result del Service
@@ -0,0 +1,16 @@
+package com.rosanova.iot.timer.monitor.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+@Data
+public class MonitorScheduleRequest {
+    @Min(value = 1000, message = "Lo start deve essere almeno 1000 millisecondi")
+    @Max(value = 86_400_000, message = "Lo start deve essere inferiore alle 24 ore")
+    private int start;
+
+    @Min(value = 1000, message = "Lo stop deve essere almeno 1000 millisecondi")
+    @Max(value = 86_400_000, message = "Lo stop deve essere inferiore alle 24 ore")
+    private int stop;
+}
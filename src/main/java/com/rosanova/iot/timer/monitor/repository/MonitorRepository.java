@@ -1,13 +1,16 @@
 package com.rosanova.iot.timer.monitor.repository;
 
 import com.rosanova.iot.timer.monitor.Monitor;
+import com.rosanova.iot.timer.monitor.MonitorSnapshot;
 
 public interface MonitorRepository {
     int save(Monitor monitor);
     int count();
     Monitor getMonitor();
+    MonitorSnapshot getMonitorSnapshot();
     int updateStart(long id, int newStart);
     int updateStop(long id, int newStop);
+    int updateSchedule(long id, int newStart, int newStop);
     int deleteById(long id);
     boolean existsMonitor();
     boolean isStartBeforeStop(long id);
@@ -2,24 +2,89 @@ package com.rosanova.iot.timer.monitor.repository;
 
 
 import com.rosanova.iot.timer.monitor.Monitor;
+import com.rosanova.iot.timer.monitor.MonitorSnapshot;
+import jakarta.annotation.PostConstruct;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
-
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * La riga del monitor è tenuta in memoria come snapshot immutabile, caricato una volta all'avvio:
+ * le letture non interrogano il database. Ogni scrittura aggiorna lo snapshot dopo il commit
+ * (subito se non c'è una transazione attiva), così una transazione annullata non lascia valori mai salvati.
+ */
 @Repository
 public class MonitorRepositoryImpl implements MonitorRepository {
 
     private final JdbcTemplate jdbcTemplate;
 
+    private final AtomicReference<MonitorSnapshot> snapshot = new AtomicReference<>();
+
     public MonitorRepositoryImpl(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    @PostConstruct
+    public void init() {
+        try {
+            loadSnapshot();
+        } catch (RuntimeException e) {
+            // lo snapshot sarà caricato alla prima lettura
+            System.err.println("ERRORE CARICAMENTO MONITOR: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rilegge la riga dal database e pubblica un nuovo snapshot.
+     * La prima versione parte dall'orologio, così un ETag ricevuto prima di un riavvio non coincide.
+     */
+    public void loadSnapshot() {
+        Monitor monitor = selectMonitor();
+        snapshot.updateAndGet(current -> MonitorSnapshot.of(monitor, current == null ? System.currentTimeMillis() : current.version() + 1));
+    }
+
+    // Esegue l'azione dopo il commit della transazione corrente, subito se non c'è una transazione
+    private void afterCommit(Runnable publish) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+
+    // modifica dello snapshot senza rileggere la riga; se in memoria c'è un altro monitor si ricarica dal database
+    private void writeThrough(long id, UnaryOperator<MonitorSnapshot> change) {
+        afterCommit(() -> {
+            MonitorSnapshot current = snapshot.get();
+            if (current == null || !current.present() || current.id() != id) loadSnapshot();
+            else snapshot.updateAndGet(change);
+        });
+    }
+
+    public MonitorSnapshot getMonitorSnapshot() {
+        MonitorSnapshot current = snapshot.get();
+        if (current != null) return current;
+        loadSnapshot();
+        return snapshot.get();
+    }
+
     // Aggiungere un monitor
     public int save(Monitor monitor) {
         String sql = "INSERT INTO monitor_timer (start, stop) VALUES (?, ?)";
-        return jdbcTemplate.update(sql, monitor.getStart(), monitor.getStop());
+        int rows = jdbcTemplate.update(sql, monitor.getStart(), monitor.getStop());
+        // l'id è assegnato dal database: si rilegge la riga
+        afterCommit(this::loadSnapshot);
+        return rows;
     }
 
     // Vedere quanti monitor ci sono
@@ -28,8 +93,12 @@ public class MonitorRepositoryImpl implements MonitorRepository {
         return jdbcTemplate.queryForObject(sql, Integer.class);
     }
 
-    // ottenere il monitor
+    // ottenere il monitor, dallo snapshot in memoria
     public Monitor getMonitor() {
+        return getMonitorSnapshot().toMonitor();
+    }
+
+    private Monitor selectMonitor() {
         String sql = "SELECT id, start, stop FROM monitor_timer LIMIT 1";
         List<Monitor> results = jdbcTemplate.query(sql, (rs, rowNum) -> {
             Monitor m = new Monitor();
@@ -45,19 +114,33 @@ public class MonitorRepositoryImpl implements MonitorRepository {
     // Modificare lo start
     public int updateStart(long id, int newStart) {
         String sql = "UPDATE monitor_timer SET start = ? WHERE id = ?";
-        return jdbcTemplate.update(sql, newStart, id);
+        int rows = jdbcTemplate.update(sql, newStart, id);
+        if (rows > 0) writeThrough(id, current -> current.withSchedule(newStart, current.stop()));
+        return rows;
     }
 
     // Modificare lo stop
     public int updateStop(long id, int newStop) {
         String sql = "UPDATE monitor_timer SET stop = ? WHERE id = ?";
-        return jdbcTemplate.update(sql, newStop, id);
+        int rows = jdbcTemplate.update(sql, newStop, id);
+        if (rows > 0) writeThrough(id, current -> current.withSchedule(current.start(), newStop));
+        return rows;
+    }
+
+    // Modificare start e stop con un solo statement
+    public int updateSchedule(long id, int newStart, int newStop) {
+        String sql = "UPDATE monitor_timer SET start = ?, stop = ? WHERE id = ?";
+        int rows = jdbcTemplate.update(sql, newStart, newStop, id);
+        if (rows > 0) writeThrough(id, current -> current.withSchedule(newStart, newStop));
+        return rows;
     }
 
     // Cancellazione per ID
     public int deleteById(long id) {
         String sql = "DELETE FROM monitor_timer WHERE id = ?";
-        return jdbcTemplate.update(sql, id);
+        int rows = jdbcTemplate.update(sql, id);
+        if (rows > 0) afterCommit(this::loadSnapshot);
+        return rows;
     }
 
     public boolean existsMonitor() {
@@ -82,5 +165,6 @@ public class MonitorRepositoryImpl implements MonitorRepository {
     public void deleteAll() {
         String sql = "DELETE FROM monitor_timer";
          jdbcTemplate.update(sql);
+         afterCommit(this::loadSnapshot);
     }
 }
\ No newline at end of file
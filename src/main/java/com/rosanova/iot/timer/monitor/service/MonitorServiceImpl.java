@@ -3,12 +3,16 @@ package com.rosanova.iot.timer.monitor.service;
 import com.rosanova.iot.timer.error.MonitorServiceException;
 import com.rosanova.iot.timer.error.Result;
 import com.rosanova.iot.timer.monitor.Monitor;
+import com.rosanova.iot.timer.monitor.MonitorSnapshot;
 import com.rosanova.iot.timer.monitor.repository.MonitorRepository;
 import com.rosanova.iot.timer.utils.TimerUtils;
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
+import com.rosanova.iot.timer.utils.impl.UnitResults;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -19,12 +23,33 @@ public class MonitorServiceImpl {
     private final TimerUtils monitorTurnOnUtils;
     private final TimerUtils monitorTurnOffUtils;
     private final ReentrantLock sharedLock;
+    private final SagaJournal journal;
+    private final boolean singleReloadSwap;
 
-    public MonitorServiceImpl(ReentrantLock sharedLock, MonitorRepository repository, @Qualifier("monitorOn") TimerUtils monitorTurnOnUtils, @Qualifier("monitorShutdown") TimerUtils monitorTurnOffUtils) {
+    // passi della sostituzione con un solo reload, SWAP_DONE = operazione conclusa
+    private static final int SWAP_DONE = 6;
+
+    public MonitorServiceImpl(ReentrantLock sharedLock, MonitorRepository repository, TimerUtils monitorTurnOnUtils, TimerUtils monitorTurnOffUtils) {
+        this(sharedLock, repository, monitorTurnOnUtils, monitorTurnOffUtils, SagaJournal.disabled());
+    }
+
+    public MonitorServiceImpl(ReentrantLock sharedLock, MonitorRepository repository, TimerUtils monitorTurnOnUtils, TimerUtils monitorTurnOffUtils, SagaJournal journal) {
+        this(sharedLock, repository, monitorTurnOnUtils, monitorTurnOffUtils, journal, false);
+    }
+
+    /**
+     * @param singleReloadSwap true: nuovo timer scritto accanto al vecchio, un solo daemon-reload e sostituzione con swapSystemdTimer;
+     *                         false: disattivazione, cancellazione, creazione, reload e attivazione in sequenza
+     * **/
+    @Autowired
+    public MonitorServiceImpl(ReentrantLock sharedLock, MonitorRepository repository, @Qualifier("monitorOn") TimerUtils monitorTurnOnUtils, @Qualifier("monitorShutdown") TimerUtils monitorTurnOffUtils, SagaJournal journal,
+                              @Value("${monitor.swap.single.reload:true}") boolean singleReloadSwap) {
         this.repository = repository;
         this.monitorTurnOnUtils = monitorTurnOnUtils;
         this.monitorTurnOffUtils = monitorTurnOffUtils;
         this.sharedLock = sharedLock;
+        this.journal = journal;
+        this.singleReloadSwap = singleReloadSwap;
     }
 
     public Result updateMonitorStartSynchronized( int start ){
@@ -63,6 +88,7 @@ public class MonitorServiceImpl {
     public Result updateMonitorStart(int start) {
 
         int step = 0;
+        int operation = 0;
 
         Monitor monitor;
 
@@ -79,15 +105,12 @@ public class MonitorServiceImpl {
 
         if (start == monitor.getStart()) return Result.SUCCESS;
 
+        if (singleReloadSwap) return swapSchedule(monitorTurnOnUtils, SagaJournal.Kind.MONITOR_START_SWAP, monitor, monitor.getStart(), start);
+
         String prevStart = String.valueOf(monitor.getStart());
         String nowStart = String.valueOf(start);
 
-        Duration duration = Duration.ofMillis(start);
-
-        String startDate = String.format("%02d:%02d:%02d",
-                duration.toHours(),
-                duration.toMinutesPart(),
-                duration.toSecondsPart());
+        operation = journal.begin(SagaJournal.Kind.MONITOR_START, monitor.getStart(), start);
 
         try {
 
@@ -98,34 +121,46 @@ public class MonitorServiceImpl {
             if (monitorTurnOnUtils.deactivateSystemdTimer(prevStart) == Result.ERROR)
                 throw new MonitorServiceException("errore nella disattivazione del vecchio timer di accenzione");
 
+            journal.step(operation, step);
+
 
             step++;
 
             if (monitorTurnOnUtils.deleteSystemdTimerUnit(prevStart) == Result.ERROR)
                 throw new MonitorServiceException("errore nella cancellazione del vecchio timer di accenzione");
 
+            journal.step(operation, step);
+
 
             step++;
 
-            if (monitorTurnOnUtils.createSystemdTimerUnit(nowStart, startDate, nowStart.substring(0,nowStart.length()-3)) == Result.ERROR)
+            if (monitorTurnOnUtils.createSystemdTimerUnit(nowStart, start, nowStart.substring(0,nowStart.length()-3)) == Result.ERROR)
                 throw new MonitorServiceException("errore nella creazione del nuovo timer di accenzione");
 
+            journal.step(operation, step);
+
             step++;
 
             if (monitorTurnOnUtils.timerReload() == Result.ERROR)
                 throw new MonitorServiceException("errore nel system reload");
 
+            journal.step(operation, step);
+
             step++;
 
             if (monitorTurnOnUtils.activateSystemdTimer(nowStart) == Result.ERROR)
                 throw new MonitorServiceException("errore nell' attivazione del nuovo timer");
 
+            journal.step(operation, step);
+
             step++;
 
             repository.updateStart(monitor.getId(), start);
 
             step++;
 
+            journal.end(operation);
+
 
             return Result.SUCCESS;
 
@@ -151,8 +186,11 @@ public class MonitorServiceImpl {
                     if(monitorTurnOnUtils.timerReload() == Result.ERROR)
                         throw new MonitorServiceException("errore rimer reload");
 
+                    journal.end(operation);
+
                 } catch (Exception rollbackError) {
                     System.err.println("ERRORE CRITICO: Fallimento durante il rollback: " + rollbackError.getMessage());
+                    journal.failed(operation);
                 }
 
             }
@@ -164,9 +202,334 @@ public class MonitorServiceImpl {
         return repository.getMonitor();
     }
 
+    public MonitorSnapshot getMonitorSnapshot(){
+        return repository.getMonitorSnapshot();
+    }
+
+    /**
+     * Recupero all'avvio di un aggiornamento di start o stop rimasto aperto nel journal.
+     * L'aggiornamento del database è l'ultimo passo: se il monitor ha già il nuovo valore l'operazione è completa,
+     * altrimenti viene eseguito il rollback considerando tentato anche il passo successivo all'ultimo registrato.
+     */
+    public Result recover(SagaJournal.Entry entry) {
+
+        if (entry.kind() == SagaJournal.Kind.MONITOR_SCHEDULE_SWAP) return recoverSchedule(entry);
+
+        boolean isSwap = entry.kind() == SagaJournal.Kind.MONITOR_START_SWAP || entry.kind() == SagaJournal.Kind.MONITOR_STOP_SWAP;
+        boolean isStart = entry.kind() == SagaJournal.Kind.MONITOR_START || entry.kind() == SagaJournal.Kind.MONITOR_START_SWAP;
+
+        if (!isSwap && !isStart && entry.kind() != SagaJournal.Kind.MONITOR_STOP) return Result.ERROR;
+
+        TimerUtils utils = isStart ? monitorTurnOnUtils : monitorTurnOffUtils;
+        String prev = String.valueOf(entry.names()[0]);
+        String now = String.valueOf(entry.names()[1]);
+        int step = entry.step() + 1;
+
+        try {
+            Monitor monitor = repository.getMonitor();
+
+            if (monitor == null) return Result.ERROR;
+
+            if ((isStart ? monitor.getStart() : monitor.getStop()) == entry.names()[1]) return Result.SUCCESS;
+
+            if (isSwap) return compensateSwap(utils, prev, now, step);
+
+            // il nuovo timer potrebbe non essere mai stato attivato, l'esito è ignorato
+            if (step >= 5) utils.deactivateSystemdTimer(now);
+
+            if (step >= 3 && utils.reversSystemdTimerUnitInsert(now) == Result.ERROR) return Result.ERROR;
+
+            if (step >= 2 && utils.reverseDeleteSystemdTimerUnit(prev) == Result.ERROR) return Result.ERROR;
+
+            if (utils.activateSystemdTimer(prev) == Result.ERROR) return Result.ERROR;
+
+            return utils.timerReload();
+
+        } catch (Exception e) {
+            System.err.println("ERRORE RECUPERO OPERAZIONE MONITOR: " + e.getMessage());
+            return Result.ERROR;
+        }
+    }
+
+    // start e stop aggiornati insieme: completa solo se il database ha già entrambi i nuovi valori
+    private Result recoverSchedule(SagaJournal.Entry entry) {
+
+        int[] names = entry.names();
+
+        try {
+            Monitor monitor = repository.getMonitor();
+
+            if (monitor == null || names.length != 4) return Result.ERROR;
+
+            if (monitor.getStart() == names[1] && monitor.getStop() == names[3]) return Result.SUCCESS;
+
+            return compensateSchedule(String.valueOf(names[0]), String.valueOf(names[1]), String.valueOf(names[2]), String.valueOf(names[3]), entry.step() + 1);
+
+        } catch (Exception e) {
+            System.err.println("ERRORE RECUPERO OPERAZIONE MONITOR: " + e.getMessage());
+            return Result.ERROR;
+        }
+    }
+
+    /**
+     * Sostituzione del timer di start o stop con un solo daemon-reload esplicito:
+     * 1 scrittura del nuovo .timer accanto al vecchio, 2 disattivazione del vecchio e attivazione del nuovo insieme
+     * (swapSystemdTimer, enable ricarica da solo la configurazione e carica il nuovo file), 3 spostamento del vecchio file
+     * nella directory temporanea, 4 daemon-reload che scarica la vecchia unit ormai senza file, 5 aggiornamento del database.
+     * I processi systemctl restano tre come nel percorso in sequenza: cambia solo che disable ed enable sono in parallelo
+     * e che il vecchio timer resta attivo finché il nuovo non parte.
+     * Ogni passo completato è registrato nel journal, in caso di errore compensateSwap annulla i passi tentati.
+     */
+    private Result swapSchedule(TimerUtils utils, SagaJournal.Kind kind, Monitor monitor, int prevValue, int value) {
+
+        int step = 0;
+
+        String prev = String.valueOf(prevValue);
+        String now = String.valueOf(value);
+
+        int operation = journal.begin(kind, prevValue, value);
+
+        try {
+
+            step++;
+
+            if (utils.createSystemdTimerUnit(now, value, now.substring(0, now.length() - 3)) == Result.ERROR)
+                throw new MonitorServiceException("errore nella creazione del nuovo timer");
+
+            journal.step(operation, step);
+
+            step++;
+
+            UnitResults swapped = utils.swapSystemdTimer(prev, now);
+            if (swapped.overall() == Result.ERROR)
+                throw new MonitorServiceException("errore nella sostituzione del timer " + swapped.failed());
+
+            journal.step(operation, step);
+
+            step++;
+
+            if (utils.deleteSystemdTimerUnit(prev) == Result.ERROR)
+                throw new MonitorServiceException("errore nella cancellazione del vecchio timer");
+
+            journal.step(operation, step);
+
+            step++;
+
+            if (utils.timerReload() == Result.ERROR)
+                throw new MonitorServiceException("errore nel system reload");
+
+            journal.step(operation, step);
+
+            step++;
+
+            if (kind == SagaJournal.Kind.MONITOR_START_SWAP) repository.updateStart(monitor.getId(), value);
+            else repository.updateStop(monitor.getId(), value);
+
+            step++;
+
+            journal.end(operation);
+
+            return Result.SUCCESS;
+
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            throw new MonitorServiceException("errore nella sostituzione del timer del monitor");
+        } finally {
+            if (step < SWAP_DONE) {
+                if (compensateSwap(utils, prev, now, step) == Result.SUCCESS) journal.end(operation);
+                else {
+                    System.err.println("ERRORE CRITICO: Fallimento durante il rollback della sostituzione del timer");
+                    journal.failed(operation);
+                }
+            }
+        }
+    }
+
+    /**
+     * Annulla i passi di swapSchedule fino a step compreso (l'ultimo tentato), con un daemon-reload finale.
+     */
+    private Result compensateSwap(TimerUtils utils, String prev, String now, int step) {
+
+        if (undoSwap(utils, prev, now, step) == Result.ERROR) return Result.ERROR;
+
+        // prima dell'enable systemd non ha mai visto il nuovo file
+        return step >= 2 ? reload(utils) : Result.SUCCESS;
+    }
+
+    /**
+     * Annulla i passi di una sostituzione senza daemon-reload, il chiamante ne esegue uno alla fine.
+     * Il ripristino del vecchio timer usa a sua volta swapSystemdTimer; il nuovo potrebbe non essere mai stato attivato,
+     * per questo conta solo l'esito della riattivazione del vecchio.
+     */
+    private Result undoSwap(TimerUtils utils, String prev, String now, int step) {
+        try {
+
+            if (step >= 3 && utils.reverseDeleteSystemdTimerUnit(prev) == Result.ERROR) return Result.ERROR;
+
+            if (step >= 2 && utils.swapSystemdTimer(now, prev).get(prev) == Result.ERROR) return Result.ERROR;
+
+            if (step >= 1 && utils.reversSystemdTimerUnitInsert(now) == Result.ERROR) return Result.ERROR;
+
+            return Result.SUCCESS;
+
+        } catch (Exception e) {
+            System.err.println("ERRORE ROLLBACK SOSTITUZIONE TIMER MONITOR: " + e.getMessage());
+            return Result.ERROR;
+        }
+    }
+
+    private static Result reload(TimerUtils utils) {
+        try {
+            return utils.timerReload();
+        } catch (Exception e) {
+            System.err.println("ERRORE RELOAD ROLLBACK TIMER MONITOR: " + e.getMessage());
+            return Result.ERROR;
+        }
+    }
+
+    public Result updateMonitorSynchronized(int start, int stop) {
+
+        boolean resultLock = false;
+
+        try {
+            resultLock = sharedLock.tryLock(100L, TimeUnit.MILLISECONDS);
+            if (!resultLock) return Result.ERROR;
+            updateMonitor(start, stop);
+            return Result.SUCCESS;
+        } catch (Exception e) {
+            return Result.ERROR;
+        } finally {
+            if (resultLock) sharedLock.unlock();
+        }
+
+    }
+
+    /**
+     * Aggiornamento di start e stop insieme: la coppia di valori è validata insieme, poi i passi di swapSchedule sono
+     * applicati alle due unit con un solo daemon-reload finale e un solo aggiornamento del database.
+     * Un valore uguale a quello attuale non tocca la sua unit. Se un passo fallisce entrambe le sostituzioni vengono annullate.
+     */
+    public Result updateMonitor(int start, int stop) {
+
+        int step = 0;
+
+        Monitor monitor;
+
+        try {
+            monitor = repository.getMonitor();
+        } catch (Exception e) {
+            System.err.println("ERRORE DATABASE UPDATE MONITOR:" + e.getMessage());
+            throw new MonitorServiceException("ERRORE DATABASE UPDATE MONITOR");
+        }
+
+        if (monitor == null) throw new MonitorServiceException("Monitor è nullo");
+
+        if (start >= stop) throw new MonitorServiceException("valori di start e stop non validi");
+
+        boolean startChanged = start != monitor.getStart();
+        boolean stopChanged = stop != monitor.getStop();
+
+        if (!startChanged && !stopChanged) return Result.SUCCESS;
+
+        String prevStart = String.valueOf(monitor.getStart());
+        String nowStart = String.valueOf(start);
+        String prevStop = String.valueOf(monitor.getStop());
+        String nowStop = String.valueOf(stop);
+
+        // daemon-reload vale per tutto il manager utente: un solo reload scarica le vecchie unit di entrambe le directory
+        TimerUtils reloadUtils = startChanged ? monitorTurnOnUtils : monitorTurnOffUtils;
+
+        int operation = journal.begin(SagaJournal.Kind.MONITOR_SCHEDULE_SWAP, monitor.getStart(), start, monitor.getStop(), stop);
+
+        try {
+
+            step++;
+
+            if (startChanged && monitorTurnOnUtils.createSystemdTimerUnit(nowStart, start, nowStart.substring(0, nowStart.length() - 3)) == Result.ERROR)
+                throw new MonitorServiceException("errore nella creazione del nuovo timer di accensione");
+
+            if (stopChanged && monitorTurnOffUtils.createSystemdTimerUnit(nowStop, stop, nowStop.substring(0, nowStop.length() - 3)) == Result.ERROR)
+                throw new MonitorServiceException("errore nella creazione del nuovo timer di spegnimento");
+
+            journal.step(operation, step);
+
+            step++;
+
+            if (startChanged) {
+                UnitResults swapped = monitorTurnOnUtils.swapSystemdTimer(prevStart, nowStart);
+                if (swapped.overall() == Result.ERROR)
+                    throw new MonitorServiceException("errore nella sostituzione del timer di accensione " + swapped.failed());
+            }
+
+            if (stopChanged) {
+                UnitResults swapped = monitorTurnOffUtils.swapSystemdTimer(prevStop, nowStop);
+                if (swapped.overall() == Result.ERROR)
+                    throw new MonitorServiceException("errore nella sostituzione del timer di spegnimento " + swapped.failed());
+            }
+
+            journal.step(operation, step);
+
+            step++;
+
+            if (startChanged && monitorTurnOnUtils.deleteSystemdTimerUnit(prevStart) == Result.ERROR)
+                throw new MonitorServiceException("errore nella cancellazione del vecchio timer di accensione");
+
+            if (stopChanged && monitorTurnOffUtils.deleteSystemdTimerUnit(prevStop) == Result.ERROR)
+                throw new MonitorServiceException("errore nella cancellazione del vecchio timer di spegnimento");
+
+            journal.step(operation, step);
+
+            step++;
+
+            if (reloadUtils.timerReload() == Result.ERROR)
+                throw new MonitorServiceException("errore nel system reload");
+
+            journal.step(operation, step);
+
+            step++;
+
+            repository.updateSchedule(monitor.getId(), start, stop);
+
+            step++;
+
+            journal.end(operation);
+
+            return Result.SUCCESS;
+
+        } catch (Exception e) {
+            System.err.println(e.getMessage());
+            throw new MonitorServiceException("errore nell'aggiornamento di start e stop del monitor");
+        } finally {
+            if (step < SWAP_DONE) {
+                if (compensateSchedule(prevStart, nowStart, prevStop, nowStop, step) == Result.SUCCESS) journal.end(operation);
+                else {
+                    System.err.println("ERRORE CRITICO: Fallimento durante il rollback dell'aggiornamento di start e stop");
+                    journal.failed(operation);
+                }
+            }
+        }
+    }
+
+    /**
+     * Annulla i passi di updateMonitor su entrambe le unit modificate, anche se una delle due non si ripristina, poi un solo reload
+     */
+    private Result compensateSchedule(String prevStart, String nowStart, String prevStop, String nowStop, int step) {
+
+        boolean startChanged = !prevStart.equals(nowStart);
+        boolean stopChanged = !prevStop.equals(nowStop);
+
+        Result start = startChanged ? undoSwap(monitorTurnOnUtils, prevStart, nowStart, step) : Result.SUCCESS;
+        Result stop = stopChanged ? undoSwap(monitorTurnOffUtils, prevStop, nowStop, step) : Result.SUCCESS;
+
+        if (start == Result.ERROR || stop == Result.ERROR) return Result.ERROR;
+
+        return step >= 2 ? reload(startChanged ? monitorTurnOnUtils : monitorTurnOffUtils) : Result.SUCCESS;
+    }
+
     public Result updateMonitorStop(int stop) {
 
         int step = 0;
+        int operation = 0;
 
         Monitor monitor;
 
@@ -184,15 +547,12 @@ public class MonitorServiceImpl {
 
         if (stop == monitor.getStop()) return Result.SUCCESS;
 
+        if (singleReloadSwap) return swapSchedule(monitorTurnOffUtils, SagaJournal.Kind.MONITOR_STOP_SWAP, monitor, monitor.getStop(), stop);
+
         String prevStop = String.valueOf(monitor.getStop());
         String nowStop = String.valueOf(stop);
 
-        Duration duration = Duration.ofMillis(stop);
-
-        String stopDate = String.format("%02d:%02d:%02d",
-                duration.toHours(),
-                duration.toMinutesPart(),
-                duration.toSecondsPart());
+        operation = journal.begin(SagaJournal.Kind.MONITOR_STOP, monitor.getStop(), stop);
 
         try {
 
@@ -203,34 +563,46 @@ public class MonitorServiceImpl {
             if (monitorTurnOffUtils.deactivateSystemdTimer(prevStop) == Result.ERROR)
                 throw new MonitorServiceException("error");
 
+            journal.step(operation, step);
+
 
             step++;
 
             if (monitorTurnOffUtils.deleteSystemdTimerUnit(prevStop) == Result.ERROR)
                 throw new MonitorServiceException("error");
 
+            journal.step(operation, step);
+
 
             step++;
 
-            if (monitorTurnOffUtils.createSystemdTimerUnit(nowStop, stopDate,nowStop.substring(0,nowStop.length()-3)) == Result.ERROR)
+            if (monitorTurnOffUtils.createSystemdTimerUnit(nowStop, stop, nowStop.substring(0,nowStop.length()-3)) == Result.ERROR)
                 throw new MonitorServiceException("error");
 
+            journal.step(operation, step);
+
             step++;
 
             if (monitorTurnOffUtils.timerReload() == Result.ERROR)
                 throw new MonitorServiceException("error");
 
+            journal.step(operation, step);
+
             step++;
 
             if (monitorTurnOffUtils.activateSystemdTimer(nowStop) == Result.ERROR)
                 throw new MonitorServiceException("error");
 
+            journal.step(operation, step);
+
             step++;
 
             repository.updateStop(monitor.getId(), stop);
 
             step++;
 
+            journal.end(operation);
+
 
             return Result.SUCCESS;
 
@@ -256,8 +628,11 @@ public class MonitorServiceImpl {
                     if(monitorTurnOffUtils.timerReload() == Result.ERROR)
                         throw new MonitorServiceException("error");
 
+                    journal.end(operation);
+
                 } catch (Exception rollbackError) {
                     System.err.println("ERRORE CRITICO: Fallimento durante il rollback: " + rollbackError.getMessage());
+                    journal.failed(operation);
                 }
 
             }
@@ -0,0 +1,88 @@
+package com.rosanova.iot.timer.operation;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.timer.dto.TimerInsertDto;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Modifica dei timer accettata dalla coda e in attesa del thread scrittore.
+ * Il risultato è null finché l'operazione è in coda; completion si completa con l'operazione stessa.
+ */
+public class Operation {
+
+    public enum Type { INSERT, BATCH, REMOVE }
+
+    private final long id;
+    private final Type type;
+    private final TimerInsertDto timer;
+    private final List<TimerInsertDto> timers;
+    private final long timerId;
+    private final CompletableFuture<Operation> completion = new CompletableFuture<>();
+
+    private volatile Result result;
+    private volatile String message;
+
+    private Operation(long id, Type type, TimerInsertDto timer, List<TimerInsertDto> timers, long timerId) {
+        this.id = id;
+        this.type = type;
+        this.timer = timer;
+        this.timers = timers;
+        this.timerId = timerId;
+    }
+
+    public static Operation insert(long id, TimerInsertDto timer) {
+        return new Operation(id, Type.INSERT, timer, null, 0);
+    }
+
+    public static Operation batch(long id, List<TimerInsertDto> timers) {
+        return new Operation(id, Type.BATCH, null, timers, 0);
+    }
+
+    public static Operation remove(long id, long timerId) {
+        return new Operation(id, Type.REMOVE, null, null, timerId);
+    }
+
+    public void complete(Result result, String message) {
+        this.message = message;
+        this.result = result;
+        completion.complete(this);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public TimerInsertDto getTimer() {
+        return timer;
+    }
+
+    public List<TimerInsertDto> getTimers() {
+        return timers;
+    }
+
+    public long getTimerId() {
+        return timerId;
+    }
+
+    public Result getResult() {
+        return result;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isDone() {
+        return result != null;
+    }
+
+    public CompletableFuture<Operation> getCompletion() {
+        return completion;
+    }
+}
@@ -0,0 +1,41 @@
+package com.rosanova.iot.timer.operation.controller;
+
+import com.rosanova.iot.timer.operation.Operation;
+import com.rosanova.iot.timer.operation.dto.OperationDto;
+import com.rosanova.iot.timer.operation.service.OperationQueue;
+import lombok.RequiredArgsConstructor;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/authenticated/api/v1/operations")
+@RequiredArgsConstructor
+@CrossOrigin("*")
+@RegisterReflectionForBinding(OperationDto.class)
+public class OperationController {
+
+    private static final long WAIT_MAX_MILLIS = 30_000;
+
+    private final OperationQueue operationQueue;
+
+    // con wait > 0 la risposta arriva al completamento dell'operazione o allo scadere dell'attesa (long polling)
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<OperationDto>> getOperation(@PathVariable long id, @RequestParam(defaultValue = "0") long wait) {
+
+        Operation operation = operationQueue.find(id);
+
+        if (operation == null) return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+
+        if (wait <= 0 || operation.isDone())
+            return CompletableFuture.completedFuture(ResponseEntity.ok(OperationDto.of(operation)));
+
+        // copia: il timeout di questa richiesta non deve completare l'operazione per gli altri
+        return operation.getCompletion().copy()
+                .completeOnTimeout(operation, Math.min(wait, WAIT_MAX_MILLIS), TimeUnit.MILLISECONDS)
+                .thenApply(done -> ResponseEntity.ok(OperationDto.of(done)));
+    }
+}
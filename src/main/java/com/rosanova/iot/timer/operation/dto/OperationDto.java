@@ -0,0 +1,24 @@
+package com.rosanova.iot.timer.operation.dto;
+
+import com.rosanova.iot.timer.operation.Operation;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperationDto {
+    long id;
+    String type;
+    // PENDING finché l'operazione è in coda, poi SUCCESS o ERROR
+    String status;
+    String message;
+
+    public static OperationDto of(Operation operation) {
+        String status = operation.isDone() ? operation.getResult().name() : "PENDING";
+        return new OperationDto(operation.getId(), operation.getType().name(), status, operation.getMessage());
+    }
+}
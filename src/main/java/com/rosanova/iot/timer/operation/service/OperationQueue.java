@@ -0,0 +1,225 @@
+package com.rosanova.iot.timer.operation.service;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.operation.Operation;
+import com.rosanova.iot.timer.timer.dto.TimerInsertDto;
+import com.rosanova.iot.timer.timer.service.TimerService;
+import com.rosanova.iot.timer.utils.impl.MpscRingBuffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Coda delle modifiche ai timer con un solo thread scrittore.
+ * Le richieste HTTP accodano l'operazione e rispondono subito, lo scrittore attende il lock condiviso
+ * invece di fallire dopo 100 ms come i metodi *Synchronized.
+ * Gli inserimenti singoli consecutivi vengono eseguiti insieme con insertTimers (un solo daemon-reload);
+ * se il gruppo fallisce ogni inserimento è ripetuto da solo, così ogni operazione riceve il proprio esito.
+ * Le operazioni concluse restano consultabili in una tabella circolare indicizzata dall'id.
+ */
+@Component
+public class OperationQueue {
+
+    private static final int BATCH_MAX = 40;
+
+    private final TimerService timerService;
+    private final ReentrantLock sharedLock;
+    private final MpscRingBuffer<Operation> queue;
+    private final AtomicReferenceArray<Operation> history;
+    private final int historyMask;
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private volatile boolean running;
+    private volatile Thread writer;
+
+    public OperationQueue(TimerService timerService, ReentrantLock sharedLock,
+                          @Value("${operation.queue.capacity:256}") int capacity,
+                          @Value("${operation.history.size:1024}") int historySize) {
+        this.timerService = timerService;
+        this.sharedLock = sharedLock;
+        this.queue = new MpscRingBuffer<>(capacity);
+        int size = Integer.highestOneBit(Math.max(2, historySize) - 1) << 1;
+        this.history = new AtomicReferenceArray<>(size);
+        this.historyMask = size - 1;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        Thread thread = new Thread(this::writerLoop, "timer-operation-writer");
+        thread.setDaemon(true);
+        writer = thread;
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        Thread thread = writer;
+        if (thread == null) return;
+        LockSupport.unpark(thread);
+        thread.join(5_000);
+    }
+
+    /**
+     * @return l'operazione accodata o null se la coda è piena
+     */
+    public Operation submitInsert(TimerInsertDto timer) {
+        return submit(Operation.insert(ids.incrementAndGet(), timer));
+    }
+
+    public Operation submitBatch(List<TimerInsertDto> timers) {
+        return submit(Operation.batch(ids.incrementAndGet(), timers));
+    }
+
+    public Operation submitRemove(long timerId) {
+        return submit(Operation.remove(ids.incrementAndGet(), timerId));
+    }
+
+    /**
+     * @return l'operazione con questo id, null se sconosciuta o già sovrascritta nello storico
+     */
+    public Operation find(long id) {
+        Operation operation = history.get((int) (id & historyMask));
+        return operation != null && operation.getId() == id ? operation : null;
+    }
+
+    private Operation submit(Operation operation) {
+        if (!running && writer != null) return null;
+
+        if (!queue.offer(operation)) {
+            rejected.incrementAndGet();
+            return null;
+        }
+
+        history.set((int) (operation.getId() & historyMask), operation);
+        LockSupport.unpark(writer);
+        return operation;
+    }
+
+    private void writerLoop() {
+        while (running) {
+            if (drain() == 0) LockSupport.park(this);
+        }
+
+        Operation left;
+        while ((left = queue.poll()) != null) left.complete(Result.ERROR, "servizio in chiusura");
+    }
+
+    /**
+     * Esegue tutte le operazioni presenti in coda; da chiamare solo dal thread scrittore.
+     * @return il numero di operazioni eseguite
+     */
+    public int drain() {
+
+        int executed = 0;
+        Operation next = queue.poll();
+
+        while (next != null) {
+
+            if (next.getType() != Operation.Type.INSERT) {
+                execute(next);
+                executed++;
+                next = queue.poll();
+                continue;
+            }
+
+            List<Operation> inserts = new ArrayList<>();
+            inserts.add(next);
+            next = queue.poll();
+
+            while (next != null && next.getType() == Operation.Type.INSERT && inserts.size() < BATCH_MAX) {
+                inserts.add(next);
+                next = queue.poll();
+            }
+
+            executeInserts(inserts);
+            executed += inserts.size();
+        }
+
+        return executed;
+    }
+
+    private void executeInserts(List<Operation> inserts) {
+
+        if (inserts.size() == 1) {
+            execute(inserts.get(0));
+            return;
+        }
+
+        List<TimerInsertDto> timers = new ArrayList<>(inserts.size());
+        for (Operation operation : inserts) timers.add(operation.getTimer());
+
+        sharedLock.lock();
+        try {
+            if (timerService.insertTimers(timers) == Result.SUCCESS) {
+                coalesced.addAndGet(inserts.size());
+                for (Operation operation : inserts)
+                    operation.complete(Result.SUCCESS, "Timer creato: " + operation.getTimer().getName());
+                return;
+            }
+        } catch (Exception e) {
+            System.err.println("inserimento di gruppo fallito, ripeto singolarmente: " + e.getMessage());
+        } finally {
+            sharedLock.unlock();
+        }
+
+        for (Operation operation : inserts) execute(operation);
+    }
+
+    private void execute(Operation operation) {
+        switch (operation.getType()) {
+            case INSERT -> {
+                TimerInsertDto timer = operation.getTimer();
+                run(operation, () -> timerService.insertTimer(timer.getName(), timer.getTime(), timer.getSymphonyDuration()),
+                        "Timer creato: " + timer.getName());
+            }
+            case BATCH -> run(operation, () -> timerService.insertTimers(operation.getTimers()),
+                    "Timer creati: " + operation.getTimers().size());
+            case REMOVE -> run(operation, () -> timerService.removeTimer(operation.getTimerId()),
+                    "Timer " + operation.getTimerId() + " rimosso correttamente");
+        }
+    }
+
+    private void run(Operation operation, Supplier<Result> action, String successMessage) {
+        sharedLock.lock();
+        try {
+            Result result = action.get();
+            operation.complete(result == Result.SUCCESS ? Result.SUCCESS : Result.ERROR,
+                    result == Result.SUCCESS ? successMessage : "Errore logico durante l'operazione");
+        } catch (Exception e) {
+            System.err.println("errore operazione " + operation.getType() + " " + operation.getId() + ": " + e.getMessage());
+            operation.complete(Result.ERROR, e.getMessage());
+        } finally {
+            sharedLock.unlock();
+        }
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    public int getCapacity() {
+        return queue.capacity();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    // inserimenti singoli completati all'interno di un gruppo
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+}
@@ -0,0 +1,167 @@
+package com.rosanova.iot.timer.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limite dei tentativi di login per client, con chiave l'indirizzo remoto.
+ * Ogni client ha un token bucket di login.rate.burst gettoni che si ricarica di uno ogni login.rate.refill.ms.
+ * Lo stato del bucket è ridotto a un solo long, l'istante in cui il bucket tornerebbe pieno (forma GCRA):
+ * un tentativo è ammesso se il bucket ha ancora almeno un gettone, cioè se quell'istante non è oltre now + (burst - 1) * refill.
+ * Tabella a indirizzamento aperto di dimensione fissa con soli array di primitivi, nessun oggetto per client:
+ * una voce con bucket già pieno equivale a una voce vuota e può essere riusata, se tutte le voci della sequenza
+ * di ricerca sono attive viene sostituita quella più vicina a ricaricarsi.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private static final int MAX_PROBES = 8;
+
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int mask;
+    private final int burst;
+    private final long refillNanos;
+    private final long toleranceNanos;
+
+    // 0 = voce vuota
+    private final long[] keys;
+    // istante (System.nanoTime) in cui il bucket del client torna pieno
+    private final long[] fullAt;
+
+    private long allowed = 0;
+    private long limited = 0;
+    private long evictions = 0;
+
+    public LoginRateLimiter(@Value("${login.rate.clients:256}") int clients,
+                            @Value("${login.rate.burst:5}") int burst,
+                            @Value("${login.rate.refill.ms:10000}") long refillMillis) {
+        int size = Integer.highestOneBit(Math.max(MAX_PROBES, clients) - 1) << 1;
+        this.mask = size - 1;
+        this.burst = Math.max(1, burst);
+        this.refillNanos = Math.max(1, refillMillis) * NANOS_PER_MILLI;
+        this.toleranceNanos = (this.burst - 1) * refillNanos;
+        this.keys = new long[size];
+        this.fullAt = new long[size];
+    }
+
+    public int tryAcquire(String remoteAddress) {
+        return tryAcquire(remoteAddress, System.nanoTime());
+    }
+
+    /**
+     * Consuma un gettone del client.
+     * @return 0 se il tentativo è ammesso, altrimenti i secondi (almeno 1) dopo i quali ci sarà un gettone, per Retry-After
+     */
+    public synchronized int tryAcquire(String remoteAddress, long now) {
+
+        long key = keyOf(remoteAddress);
+        int slot = slotOf(key, now);
+
+        long bucketFullAt = keys[slot] == key ? Math.max(fullAt[slot], now) : now;
+
+        if (bucketFullAt - now > toleranceNanos) {
+            limited++;
+            long waitNanos = bucketFullAt - now - toleranceNanos;
+            return (int) Math.max(1, (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+        }
+
+        keys[slot] = key;
+        fullAt[slot] = bucketFullAt + refillNanos;
+        allowed++;
+        return 0;
+    }
+
+    // voce del client, oppure la prima vuota o già ricaricata, oppure quella che si ricarica per prima
+    private int slotOf(long key, long now) {
+
+        int start = mix(key) & mask;
+        int reusable = -1;
+        int oldest = start;
+
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = (start + probe) & mask;
+            if (keys[slot] == key) return slot;
+            if (reusable == -1 && (keys[slot] == 0 || fullAt[slot] - now <= 0)) reusable = slot;
+            if (fullAt[slot] - fullAt[oldest] < 0) oldest = slot;
+        }
+
+        if (reusable != -1) return reusable;
+
+        evictions++;
+        return oldest;
+    }
+
+    /**
+     * IPv4 come intero senza allocazioni, gli altri indirizzi con un hash FNV-1a a 64 bit dei caratteri.
+     */
+    public static long keyOf(String address) {
+        if (address == null) return 1;
+
+        long ipv4 = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        boolean isIpv4 = true;
+
+        for (int i = 0, length = address.length(); i < length && isIpv4; i++) {
+            char c = address.charAt(i);
+            if (c >= '0' && c <= '9' && digits < 3) {
+                octet = octet * 10 + (c - '0');
+                digits++;
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                ipv4 = (ipv4 << 8) | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                isIpv4 = false;
+            }
+            if (octet > 255) isIpv4 = false;
+        }
+
+        // bit 32 acceso: 0.0.0.0 resta diverso dalla voce vuota
+        if (isIpv4 && dots == 3 && digits > 0) return (1L << 32) | (ipv4 << 8) | octet;
+
+        long hash = FNV_OFFSET;
+        for (int i = 0, length = address.length(); i < length; i++) {
+            hash ^= address.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // i valori fino a 2^33 sono degli IPv4
+        return hash | (1L << 63);
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public long getRefillMillis() {
+        return refillNanos / NANOS_PER_MILLI;
+    }
+
+    public synchronized long getAllowed() {
+        return allowed;
+    }
+
+    public synchronized long getLimited() {
+        return limited;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
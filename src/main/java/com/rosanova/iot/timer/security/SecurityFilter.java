@@ -7,14 +7,17 @@ import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 @Component
-@RequiredArgsConstructor
 public class SecurityFilter extends OncePerRequestFilter {
 
     private final static String TOKEN_NAME = "TIMER_SESSION_TOKEN";
@@ -23,9 +26,50 @@ public class SecurityFilter extends OncePerRequestFilter {
     private static final int TOKEN_LENGTH = 57; // key + timestamp
     private static final String URL_PROTECTED_PATH = "/authenticated";
     private static final int TIMESTAP_LENGTH_PLUS_ONE = 13;
+    private static final String COOKIE_HEADER = "Cookie";
+    private static final int MAC_LENGTH = 32;
+    private static final int ENCODED_MAC_LENGTH = 44; // 43 caratteri base64url + '='
+    public static final int TOKEN_VALID = 0;
+
+    // MAC ricevuto e MAC ricalcolato, riutilizzati per thread
+    private static final ThreadLocal<byte[]> SENT_MAC = ThreadLocal.withInitial(() -> new byte[MAC_LENGTH]);
+    private static final ThreadLocal<byte[]> EXPECTED_MAC = ThreadLocal.withInitial(() -> new byte[MAC_LENGTH]);
+
+    private static final byte[] BASE64_URL = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_URL, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) BASE64_URL[alphabet.charAt(i)] = (byte) i;
+    }
 
     private final HMACSHA256SignatureUtil hashingUtil;
 
+    // token già verificati, null = HMAC ricalcolato a ogni richiesta
+    private final VerifiedTokenCache tokenCache;
+
+    // età oltre la quale un token valido viene sostituito da uno nuovo con Set-Cookie, Long.MAX_VALUE = mai
+    private final long renewAfterMillis;
+
+    public SecurityFilter(HMACSHA256SignatureUtil hashingUtil) {
+        this(hashingUtil, null);
+    }
+
+    public SecurityFilter(HMACSHA256SignatureUtil hashingUtil, VerifiedTokenCache tokenCache) {
+        this(hashingUtil, tokenCache, 1);
+    }
+
+    /**
+     * @param renewFraction frazione della durata del token dopo la quale la sessione viene rinnovata senza nuovo login,
+     *                      fuori da (0, 1) il rinnovo è disabilitato
+     */
+    @Autowired
+    public SecurityFilter(HMACSHA256SignatureUtil hashingUtil, VerifiedTokenCache tokenCache, @Value("${security.token.renew.fraction:0.5}") double renewFraction) {
+        this.hashingUtil = hashingUtil;
+        this.tokenCache = tokenCache;
+        this.renewAfterMillis = renewFraction > 0 && renewFraction < 1 ? (long) (TOKEN_DURATION * renewFraction) : Long.MAX_VALUE;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) {
 
@@ -42,6 +86,25 @@ public class SecurityFilter extends OncePerRequestFilter {
                 return;
             }
 
+            // percorso diretto: il token è letto dall'header Cookie senza Cookie[], substring o String del MAC
+            String cookieHeader = request.getHeader(COOKIE_HEADER);
+            int tokenStart = findToken(cookieHeader);
+
+            if (tokenStart >= 0) {
+                int status = verifyToken(cookieHeader, tokenStart);
+
+                if (status != TOKEN_VALID) {
+                    response.sendError(status);
+                    return;
+                }
+
+                renewIfAging(response, parseTimestamp(cookieHeader, tokenStart));
+
+                filterChain.doFilter(request, response);
+                return;
+            }
+
+            // header assente o in una forma non riconosciuta (valore tra virgolette, più header): cookie letti dal container
             Cookie[] cookies = request.getCookies();
 
             String token = null;
@@ -91,6 +154,8 @@ public class SecurityFilter extends OncePerRequestFilter {
                 return;
             }
 
+            renewIfAging(response, timeToCheck);
+
             filterChain.doFilter(request, response);
 
         }catch (Exception e){
@@ -99,6 +164,165 @@ public class SecurityFilter extends OncePerRequestFilter {
         }
     }
 
+    /**
+     * Verifica del token di TOKEN_LENGTH caratteri che inizia in start:
+     * timestamp letto sul posto, MAC base64url decodificato e confrontato in tempo costante come byte grezzi, nessuna allocazione.
+     * Un token presente nella cache dei token verificati salta il calcolo dell'HMAC.
+     * @return TOKEN_VALID, SC_UNAUTHORIZED per token non valido, SC_FORBIDDEN per token scaduto o generato nel futuro
+     */
+    public int verifyToken(CharSequence token, int start) {
+
+        long timeToCheck = parseTimestamp(token, start);
+
+        if (timeToCheck < 0) return HttpServletResponse.SC_UNAUTHORIZED;
+
+        byte[] sentMac = SENT_MAC.get();
+
+        if (!decodeMac(token, start + TIMESTAP_LENGTH_PLUS_ONE, sentMac)) return HttpServletResponse.SC_UNAUTHORIZED;
+
+        long now = getCurrentTimeMillis();
+
+        // token già verificato: resta da controllare solo la scadenza
+        if (tokenCache != null && tokenCache.find(timeToCheck, sentMac) >= 0) return checkExpiration(now, timeToCheck);
+
+        byte[] expectedMac = EXPECTED_MAC.get();
+
+        hashingUtil.computeHMACSHA256(token, start, TIMESTAP_LENGTH_PLUS_ONE, expectedMac);
+
+        if (!compareBytes(sentMac, expectedMac)) return HttpServletResponse.SC_UNAUTHORIZED;
+
+        int status = checkExpiration(now, timeToCheck);
+
+        if (tokenCache != null && status == TOKEN_VALID) tokenCache.put(timeToCheck, sentMac, timeToCheck + TOKEN_DURATION, now);
+
+        return status;
+    }
+
+    private static int checkExpiration(long now, long timeToCheck) {
+
+        long expiration = now - timeToCheck;
+
+        // stesso controllo del percorso con Cookie[]: scaduto o generato "nel futuro"
+        if (expiration > TOKEN_DURATION || expiration < 0) return HttpServletResponse.SC_FORBIDDEN;
+
+        return TOKEN_VALID;
+    }
+
+    /**
+     * @return il timestamp di 13 cifre del token letto sul posto, -1 se contiene altri caratteri
+     */
+    private static long parseTimestamp(CharSequence token, int start) {
+        long time = 0;
+
+        for (int i = 0; i < TIMESTAP_LENGTH_PLUS_ONE; i++) {
+            char c = token.charAt(start + i);
+            if (c < '0' || c > '9') return -1;
+            time = time * 10 + (c - '0');
+        }
+
+        return time;
+    }
+
+    /**
+     * Sessione scorrevole: un token valido oltre renewAfterMillis viene sostituito con uno nuovo nella risposta,
+     * con gli stessi attributi del cookie del login, così una sessione attiva non richiede un nuovo login con BCrypt.
+     */
+    private void renewIfAging(HttpServletResponse response, long issuedAt) {
+
+        if (renewAfterMillis == Long.MAX_VALUE) return;
+
+        long now = getCurrentTimeMillis();
+
+        if (now - issuedAt < renewAfterMillis) return;
+
+        response.addHeader(HttpHeaders.SET_COOKIE, renewedCookie(now));
+    }
+
+    public String renewedCookie(long now) {
+
+        String time = String.valueOf(now);
+        StringBuilder token = new StringBuilder(TOKEN_LENGTH);
+        for (int i = time.length(); i < TIMESTAP_LENGTH_PLUS_ONE; i++) token.append('0');
+        token.append(time);
+
+        String timestamp = token.toString();
+        token.append(hashingUtil.computeHMACSHA256(timestamp));
+
+        return ResponseCookie.from(TOKEN_NAME, token.toString())
+                .httpOnly(true)
+                .path("/")
+                .maxAge(TOKEN_DURATION / 1000)
+                .build()
+                .toString();
+    }
+
+    /**
+     * @return la posizione del valore del cookie TOKEN_NAME nell'header, -1 se assente o di lunghezza diversa da TOKEN_LENGTH
+     */
+    public static int findToken(String cookieHeader) {
+
+        if (cookieHeader == null) return -1;
+
+        int length = cookieHeader.length();
+        int i = 0;
+
+        while (i < length) {
+            while (i < length && (cookieHeader.charAt(i) == ' ' || cookieHeader.charAt(i) == '\t')) i++;
+
+            int end = cookieHeader.indexOf(';', i);
+            if (end < 0) end = length;
+
+            if (cookieHeader.regionMatches(i, TOKEN_NAME, 0, TOKEN_NAME.length())
+                    && i + TOKEN_NAME.length() < end
+                    && cookieHeader.charAt(i + TOKEN_NAME.length()) == '=') {
+
+                int start = i + TOKEN_NAME.length() + 1;
+                int valueEnd = end;
+                while (valueEnd > start && (cookieHeader.charAt(valueEnd - 1) == ' ' || cookieHeader.charAt(valueEnd - 1) == '\t')) valueEnd--;
+
+                return valueEnd - start == TOKEN_LENGTH ? start : -1;
+            }
+
+            i = end + 1;
+        }
+
+        return -1;
+    }
+
+    // base64url con padding canonico: 43 caratteri, i 2 bit finali a zero, poi '='
+    private static boolean decodeMac(CharSequence token, int start, byte[] mac) {
+
+        int bits = 0;
+        int buffered = 0;
+        int out = 0;
+
+        for (int i = 0; i < ENCODED_MAC_LENGTH - 1; i++) {
+            char c = token.charAt(start + i);
+            int value = c < 128 ? BASE64_URL[c] : -1;
+            if (value < 0) return false;
+
+            bits = (bits << 6) | value;
+            buffered += 6;
+
+            if (buffered >= 8) {
+                buffered -= 8;
+                mac[out++] = (byte) (bits >>> buffered);
+            }
+        }
+
+        return (bits & 0x3) == 0 && token.charAt(start + ENCODED_MAC_LENGTH - 1) == '=';
+    }
+
+    public boolean compareBytes(byte[] sentMac, byte[] mac) {
+        int diff = 0;
+
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            diff |= sentMac[i] ^ mac[i];
+        }
+
+        return diff == 0;
+    }
+
     public long getCurrentTimeMillis(){
         return System.currentTimeMillis();
     }
@@ -0,0 +1,135 @@
+package com.rosanova.iot.timer.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token di sessione con MAC già verificato, per non ricalcolare l'HMAC a ogni richiesta dello stesso client.
+ * La chiave è il token in byte (timestamp e MAC decodificato), il valore la scadenza del token.
+ * Solo i token con MAC valido vengono inseriti: un token falso non può riempire la cache.
+ * Array di dimensione fissa senza oggetti per voce, sostituzione con algoritmo clock:
+ * una voce usata dopo l'ultimo passaggio della lancetta ha una seconda possibilità, le voci scadute sono le prime a uscire.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final int MAC_LENGTH = 32;
+
+    private final int capacity;
+
+    private final long[] times;
+    private final byte[] macs;
+    // 0 = voce vuota: la scadenza di un token è sempre successiva al suo timestamp
+    private final long[] expiries;
+    private final boolean[] referenced;
+
+    private int hand = 0;
+    private int size = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public VerifiedTokenCache(@Value("${security.token.cache.size:64}") int capacity) {
+        this.capacity = Math.max(1, capacity);
+        times = new long[this.capacity];
+        macs = new byte[this.capacity * MAC_LENGTH];
+        expiries = new long[this.capacity];
+        referenced = new boolean[this.capacity];
+    }
+
+    /**
+     * @return la scadenza del token se il MAC è già stato verificato, -1 altrimenti
+     */
+    public synchronized long find(long time, byte[] mac) {
+
+        for (int i = 0; i < capacity; i++) {
+            if (expiries[i] != 0 && times[i] == time && sameMac(i, mac)) {
+                referenced[i] = true;
+                hits++;
+                return expiries[i];
+            }
+        }
+
+        misses++;
+        return -1;
+    }
+
+    /**
+     * Registra un token con MAC verificato; se la cache è piena sostituisce la prima voce scaduta o non usata di recente.
+     */
+    public synchronized void put(long time, byte[] mac, long expiry, long now) {
+
+        for (int i = 0; i < capacity; i++) {
+            if (expiries[i] != 0 && times[i] == time && sameMac(i, mac)) {
+                expiries[i] = expiry;
+                referenced[i] = true;
+                return;
+            }
+        }
+
+        int slot = victim(now);
+
+        if (expiries[slot] == 0) size++;
+        else evictions++;
+
+        times[slot] = time;
+        System.arraycopy(mac, 0, macs, slot * MAC_LENGTH, MAC_LENGTH);
+        expiries[slot] = expiry;
+        referenced[slot] = false;
+    }
+
+    // al più due giri: nel primo la lancetta azzera i bit di riferimento, nel secondo trova di sicuro una voce
+    private int victim(long now) {
+        for (int step = 0; step < 2 * capacity; step++) {
+            int slot = hand;
+            hand = (hand + 1) % capacity;
+
+            if (expiries[slot] == 0 || expiries[slot] < now || !referenced[slot]) return slot;
+
+            referenced[slot] = false;
+        }
+        return hand;
+    }
+
+    // confronto in tempo costante anche sulla cache
+    private boolean sameMac(int slot, byte[] mac) {
+        int offset = slot * MAC_LENGTH;
+        int diff = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) diff |= macs[offset + i] ^ mac[i];
+        return diff == 0;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < capacity; i++) {
+            expiries[i] = 0;
+            referenced[i] = false;
+        }
+        size = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -1,8 +1,11 @@
 package com.rosanova.iot.timer.synchronization;
 
+import com.rosanova.iot.timer.utils.impl.AlarmScheduler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 
+import java.time.ZoneId;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.locks.ReentrantLock;
@@ -19,4 +22,11 @@ public class MultithreadSynchronization {
     ExecutorService getPoolThread(){
         return Executors.newFixedThreadPool(3);
     }
+
+    // esecuzione degli allarmi del backend in processo: ogni scatto su un virtual thread, il thread dello scheduler non si blocca mai
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @Profile("inprocess")
+    AlarmScheduler getAlarmScheduler(){
+        return new AlarmScheduler(Executors.newVirtualThreadPerTaskExecutor(), ZoneId.systemDefault());
+    }
 }
@@ -5,8 +5,6 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.time.LocalDateTime;
-
 @Getter
 @Setter
 @AllArgsConstructor
@@ -21,4 +19,11 @@ public class Timer {
     int startTime;
 
     int endTime;
+
+    // durata della sinfonia, necessaria per ricreare il timer senza il file unit
+    int symphony;
+
+    public Timer(long id, String timerName, int startTime, int endTime) {
+        this(id, timerName, startTime, endTime, 30);
+    }
 }
@@ -0,0 +1,74 @@
+package com.rosanova.iot.timer.timer;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.timer.repository.TimerRepository;
+import com.rosanova.iot.timer.utils.TimerUtils;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Con il backend transitorio e con quello in processo i timer non sopravvivono al riavvio:
+ * all'avvio vengono ricreati a partire dai record della tabella timer.
+ */
+@Component
+@Profile("(transient | inprocess) & !test")
+public class TimerStartup {
+
+    private final TimerRepository repository;
+    private final TimerUtils timerUtils;
+
+    public TimerStartup(@Autowired TimerRepository repository, @Qualifier("timerDefault") TimerUtils timerUtils) {
+        this.repository = repository;
+        this.timerUtils = timerUtils;
+    }
+
+    @PostConstruct
+    public void onStartup() {
+        restoreTimers();
+    }
+
+    /**
+     * @return il numero di timer che non è stato possibile ricreare
+     */
+    public int restoreTimers() {
+
+        int failed = 0;
+
+        List<Timer> timers;
+
+        try {
+            timers = repository.findAll();
+        } catch (RuntimeException e) {
+            System.err.println("ERRORE DATABASE LETTURA TIMER ALL'AVVIO: " + e.getMessage());
+            return -1;
+        }
+
+        for (Timer timer : timers) {
+
+            int median = timer.getStartTime() == 0 ? timer.getEndTime() - 20_000 : timer.getStartTime() + 20_000;
+
+            String nameFile = String.valueOf(median);
+
+            try {
+                // un timer rimasto attivo da un avvio precedente del servizio impedirebbe la creazione, l'esito è ignorato
+                timerUtils.deactivateSystemdTimer(nameFile);
+
+                if (timerUtils.createSystemdTimerUnit(nameFile, median, String.valueOf(timer.getSymphony())) == Result.ERROR
+                        || timerUtils.activateSystemdTimer(nameFile) == Result.ERROR) {
+                    System.err.println("ERRORE RIPRISTINO TIMER: " + nameFile);
+                    failed++;
+                }
+            } catch (RuntimeException e) {
+                System.err.println("ERRORE RIPRISTINO TIMER: " + nameFile + " " + e.getMessage());
+                failed++;
+            }
+        }
+
+        return failed;
+    }
+}
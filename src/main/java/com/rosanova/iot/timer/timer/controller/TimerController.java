@@ -1,47 +1,63 @@
 package com.rosanova.iot.timer.timer.controller;
 
-import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.operation.Operation;
+import com.rosanova.iot.timer.operation.dto.OperationDto;
+import com.rosanova.iot.timer.operation.service.OperationQueue;
 import com.rosanova.iot.timer.timer.Timer;
+import com.rosanova.iot.timer.timer.dto.TimerBatchInsertDto;
 import com.rosanova.iot.timer.timer.dto.TimerInsertDto;
 import com.rosanova.iot.timer.timer.service.TimerService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
 @RequestMapping("/authenticated/api/v1/timers")
 @RequiredArgsConstructor
 @CrossOrigin("*")
-@RegisterReflectionForBinding(Timer.class)
+@RegisterReflectionForBinding({Timer.class, OperationDto.class})
 public class TimerController {
 
+    private static final String OPERATIONS_PATH = "/authenticated/api/v1/operations/";
+
     private final TimerService timerService;
 
+    private final OperationQueue operationQueue;
+
+    // le modifiche sono accodate: 202 con l'id da consultare su /operations/{id}
     @PostMapping
     public ResponseEntity<?> createTimer(@RequestBody @Valid TimerInsertDto timer) {
+        return accepted(operationQueue.submitInsert(timer));
+    }
 
-            Result result = timerService.insertTimerSynchronized(timer.getName(), timer.getTime(), timer.getSymphonyDuration());
-            if (result == Result.SUCCESS) {
-                return ResponseEntity.status(HttpStatus.CREATED).body("Timer creato: " + timer.getName());
-            }
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore logico durante l'inserimento");
-
+    @PostMapping("/batch")
+    public ResponseEntity<?> createTimers(@RequestBody @Valid TimerBatchInsertDto batch) {
+        return accepted(operationQueue.submitBatch(batch.getTimers()));
     }
 
     @DeleteMapping()
     public ResponseEntity<?> deleteTimer(@RequestParam Long id) {
+        return accepted(operationQueue.submitRemove(id));
+    }
+
+    private ResponseEntity<?> accepted(Operation operation) {
 
-            Result result = timerService.removeTimerSynchronized(id);
-            if (result == Result.SUCCESS) {
-                return ResponseEntity.ok("Timer " + id + " rimosso correttamente");
-            }
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Errore durante la rimozione");
+        if (operation == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Coda delle operazioni piena");
+        }
 
+        return ResponseEntity.accepted()
+                .location(URI.create(OPERATIONS_PATH + operation.getId()))
+                .body(OperationDto.of(operation));
     }
 
     @GetMapping
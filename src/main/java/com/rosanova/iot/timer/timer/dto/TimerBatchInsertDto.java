@@ -0,0 +1,16 @@
+package com.rosanova.iot.timer.timer.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class TimerBatchInsertDto {
+
+    @NotEmpty(message = "La lista dei timer non può essere vuota")
+    @Size(max = 40, message = "Non si possono inserire più di 40 timer")
+    private List<@Valid TimerInsertDto> timers;
+}
@@ -3,12 +3,21 @@ package com.rosanova.iot.timer.timer.repository.impl;
 import com.rosanova.iot.timer.timer.Timer;
 import com.rosanova.iot.timer.timer.dto.CheckTimerInsertValidity;
 import com.rosanova.iot.timer.timer.repository.TimerRepository;
-import com.rosanova.iot.timer.utils.impl.HashMapInt;
+import com.rosanova.iot.timer.utils.impl.HashSetInt;
+import com.rosanova.iot.timer.utils.impl.IntervalIndexInt;
+import jakarta.annotation.PostConstruct;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
@@ -18,14 +27,70 @@ public class TimerRepositoryImpl implements TimerRepository {
 
     private final JdbcTemplate jdbcTemplate;
 
+    // copia in memoria degli intervalli della tabella timer, usata per i controlli di sovrapposizione
+    private final IntervalIndexInt index = new IntervalIndexInt(64);
+
     public TimerRepositoryImpl(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    @PostConstruct
+    public void init() {
+        addSymphonyColumnIfMissing();
+        loadIndex();
+    }
+
+    /**
+     * I database creati prima della colonna symphony non vengono aggiornati da CREATE TABLE IF NOT EXISTS
+     */
+    public void addSymphonyColumnIfMissing() {
+        try {
+            jdbcTemplate.queryForList("SELECT symphony FROM timer LIMIT 1");
+        } catch (DataAccessException e) {
+            jdbcTemplate.execute("ALTER TABLE timer ADD COLUMN symphony INTEGER NOT NULL DEFAULT 30");
+        }
+    }
+
+    /**
+     * Ricostruisce l'indice degli intervalli leggendo l'intera tabella timer.
+     * Richiamato all'avvio, dopo l'inizializzazione dello schema.
+     */
+    public void loadIndex() {
+        String sql = "SELECT id, start_time, end_time FROM timer";
+        synchronized (index) {
+            index.clear();
+            jdbcTemplate.query(sql, rs -> {
+                index.add(rs.getLong("id"), rs.getInt("start_time"), rs.getInt("end_time"));
+            });
+        }
+    }
+
     @CacheEvict(value = "timers", allEntries = true)
     public void insert(Timer timer) {
-        String sql = "INSERT INTO timer (timer_name, start_time, end_time) VALUES (?, ?, ?)";
-        jdbcTemplate.update(sql, timer.getTimerName(), timer.getStartTime(), timer.getEndTime());
+        String sql = "INSERT INTO timer (timer_name, start_time, end_time, symphony) VALUES (?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, new String[]{"id"});
+            ps.setString(1, timer.getTimerName());
+            ps.setInt(2, timer.getStartTime());
+            ps.setInt(3, timer.getEndTime());
+            ps.setInt(4, timer.getSymphony());
+            return ps;
+        }, keyHolder);
+
+        long id = keyHolder.getKey().longValue();
+        timer.setId(id);
+
+        synchronized (index) {
+            index.add(id, timer.getStartTime(), timer.getEndTime());
+        }
+
+        // se la transazione viene annullata l'intervallo non deve restare nell'indice
+        onRollback(() -> {
+            synchronized (index) {
+                index.removeById(id);
+            }
+        });
     }
 
     /**
@@ -35,7 +100,24 @@ public class TimerRepositoryImpl implements TimerRepository {
     @CacheEvict(value = "timers", allEntries = true)
     public void deleteById(long id) {
         String sql = "DELETE FROM timer WHERE id = ?";
-        jdbcTemplate.update(sql, id);
+        if (jdbcTemplate.update(sql, id) == 0) return;
+
+        int start;
+        int end;
+
+        synchronized (index) {
+            int position = index.find(id);
+            if (position < 0) return;
+            start = index.startAt(position);
+            end = index.endAt(position);
+            index.removeAt(position);
+        }
+
+        onRollback(() -> {
+            synchronized (index) {
+                index.add(id, start, end);
+            }
+        });
     }
 
     // --- OPERAZIONI DI LETTURA (Utilizza la cache) ---
@@ -56,9 +138,20 @@ public class TimerRepositoryImpl implements TimerRepository {
         return results.isEmpty() ? null : results.get(0);
     }
     /**
-     * Ritorna un CheckTimerInsertValidity per il conteggio delle sovrapposizioni e il numero massimo di timers
+     * Ritorna un CheckTimerInsertValidity per il conteggio delle sovrapposizioni e il numero massimo di timers.
+     * Il calcolo avviene sull'indice in memoria in O(log n), senza interrogare il database.
      */
     public CheckTimerInsertValidity countOverlapsAndMaxTimers(int startToCheck, int endToCheck) {
+        synchronized (index) {
+            return new CheckTimerInsertValidity(index.size(), index.countOverlaps(startToCheck, endToCheck));
+        }
+    }
+
+    /**
+     * Stesso risultato di countOverlapsAndMaxTimers calcolato con una scansione della tabella timer.
+     * Mantenuto come riferimento per i test di coerenza e i benchmark.
+     */
+    public CheckTimerInsertValidity countOverlapsAndMaxTimersFromDatabase(int startToCheck, int endToCheck) {
         CheckTimerInsertValidity validity = new CheckTimerInsertValidity();
         String sql = "SELECT COUNT(*) AS total_timers, COUNT(CASE WHEN ? <= end_time AND ? >= start_time THEN 1 END) AS overlaps FROM timer";
         return jdbcTemplate.query(sql, (rs) -> {
@@ -74,16 +167,22 @@ public class TimerRepositoryImpl implements TimerRepository {
 
 
     /**
-     * Preleva i dati e li inserisce in una HashMap esistente tramite ResultSet
+     * Inserisce i tempi mediani (nomi dei file unit) di tutti i timer nell'insieme, calcolati direttamente nella query
      */
-    public void addEndTimesToMap(HashMapInt targetMap) {
-        String sql = "SELECT id, start_time, end_time FROM timer";
-        jdbcTemplate.query(sql, rs -> {
+    public void addEndTimesToMap(HashSetInt targetMap) {
+        String sql = "SELECT CASE WHEN start_time = 0 THEN end_time - 20000 ELSE start_time + 20000 END FROM timer";
+        jdbcTemplate.query(sql, (ResultSetExtractor<Integer>) rs -> targetMap.addAll(rs, 1));
+    }
+
+    // Esegue l'azione solo se la transazione corrente non va a buon fine, senza transazione non fa nulla
+    private void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
 
-            int start = rs.getInt("start_time");
-            int end = rs.getInt("end_time");
-            int median = start == 0 ? end - 20_000 : start + 20_000;
-            targetMap.add(median);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) action.run();
+            }
         });
     }
 
@@ -94,6 +193,7 @@ public class TimerRepositoryImpl implements TimerRepository {
         t.setTimerName(rs.getString("timer_name"));
         t.setStartTime(rs.getInt("start_time"));
         t.setEndTime(rs.getInt("end_time"));
+        t.setSymphony(rs.getInt("symphony"));
         return t;
     }
 }
@@ -2,6 +2,8 @@ package com.rosanova.iot.timer.timer.service;
 
 import com.rosanova.iot.timer.error.Result;
 import com.rosanova.iot.timer.timer.Timer;
+import com.rosanova.iot.timer.timer.dto.TimerInsertDto;
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
 
 import java.util.List;
 
@@ -9,4 +11,10 @@ public interface TimerService {
     List<Timer> getAllTimers();
     Result removeTimerSynchronized(long id);
     Result insertTimerSynchronized(String name, int time, int symphony);
+    Result insertTimersSynchronized(List<TimerInsertDto> timers);
+    // varianti senza lock, il chiamante deve già possedere il lock condiviso
+    Result insertTimer(String name, int time, int symphony);
+    Result insertTimers(List<TimerInsertDto> timers);
+    Result removeTimer(long id);
+    Result recover(SagaJournal.Entry entry);
 }
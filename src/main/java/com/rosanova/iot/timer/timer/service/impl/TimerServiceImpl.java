@@ -4,19 +4,33 @@ import com.rosanova.iot.timer.error.Result;
 import com.rosanova.iot.timer.error.TimerServiceException;
 import com.rosanova.iot.timer.timer.Timer;
 import com.rosanova.iot.timer.timer.dto.CheckTimerInsertValidity;
+import com.rosanova.iot.timer.timer.dto.TimerInsertDto;
 import com.rosanova.iot.timer.timer.repository.TimerRepository;
 import com.rosanova.iot.timer.timer.service.TimerService;
 import com.rosanova.iot.timer.utils.TimerUtils;
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
+import com.rosanova.iot.timer.utils.impl.UnitResults;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.time.Duration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Le operazioni sui timer sono saga in tre fasi: prenotazione nel database in una transazione breve,
+ * effetti su systemd fuori da ogni transazione, conferma o compensazione in una seconda transazione breve.
+ * Nessuna transazione SQLite resta aperta durante i processi systemctl e le fsync.
+ */
 @Service
 public class TimerServiceImpl implements TimerService {
 
@@ -28,12 +42,43 @@ public class TimerServiceImpl implements TimerService {
 
     private final int MAX_MILLS_DAY = 86_400_000;
 
+    private final int MAX_TIMERS = 40;
+
     private final ReentrantLock sharedLock;
 
-    public TimerServiceImpl(@Autowired  TimerRepository repository, @Qualifier("timerDefault") TimerUtils timerUtils, @Autowired ReentrantLock sharedLock) {
+    private final SagaJournal journal;
+
+    private final TransactionOperations transactions;
+
+    public TimerServiceImpl(TimerRepository repository, TimerUtils timerUtils, ReentrantLock sharedLock) {
+        this(repository, timerUtils, sharedLock, SagaJournal.disabled());
+    }
+
+    public TimerServiceImpl(TimerRepository repository, TimerUtils timerUtils, ReentrantLock sharedLock, SagaJournal journal) {
+        this(repository, timerUtils, sharedLock, journal, TransactionOperations.withoutTransaction());
+    }
+
+    @Autowired
+    public TimerServiceImpl(TimerRepository repository, @Qualifier("timerDefault") TimerUtils timerUtils, ReentrantLock sharedLock, SagaJournal journal, PlatformTransactionManager transactionManager) {
+        this(repository, timerUtils, sharedLock, journal, shortTransactions(transactionManager));
+    }
+
+    /**
+     * @param transactions esecuzione delle fasi di prenotazione, conferma e compensazione, ognuna in una propria transazione
+     */
+    public TimerServiceImpl(TimerRepository repository, TimerUtils timerUtils, ReentrantLock sharedLock, SagaJournal journal, TransactionOperations transactions) {
         this.repository = repository;
         this.timerUtils = timerUtils;
         this.sharedLock = sharedLock;
+        this.journal = journal;
+        this.transactions = transactions;
+    }
+
+    // REQUIRES_NEW: la fase viene confermata subito anche se il chiamante ha una transazione aperta
+    private static TransactionOperations shortTransactions(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
     }
 
     public Result insertTimerSynchronized(String name, int time, int symphony){
@@ -53,6 +98,23 @@ public class TimerServiceImpl implements TimerService {
         }
     }
 
+    public Result insertTimersSynchronized(List<TimerInsertDto> timers){
+        boolean lock = false;
+
+        try {
+            lock = sharedLock.tryLock(100L, TimeUnit.MILLISECONDS);
+
+            if(!lock) return Result.ERROR;
+
+            return insertTimers(timers);
+        }catch (Exception e){
+            System.err.println("errore inserimento timers" + e.getMessage());
+            return Result.ERROR;
+        }finally {
+            if(lock) sharedLock.unlock();
+        }
+    }
+
     public Result removeTimerSynchronized(long id){
         boolean lock = false;
 
@@ -70,46 +132,44 @@ public class TimerServiceImpl implements TimerService {
         }
     }
 
-    @Transactional(rollbackFor = Exception.class)
     public Result insertTimer(String name, int time, int symphony) {
 
         int step = 0;
+        int operation = 0;
+        boolean reserved = false;
         Result result = Result.SUCCESS;
         int start = Math.max(0, time - PILLOW_TIME );
         int end = Math.min(MAX_MILLS_DAY, time + PILLOW_TIME);
 
         String symphonyDuration = String.valueOf(symphony);
 
-        Duration duration = Duration.ofMillis(time);
-
-// Trasforma in formato HH:mm:ss senza fusi orari di mezzo
-        String onCalendar = String.format("%02d:%02d:%02d",
-                duration.toHours(),
-                duration.toMinutesPart(),
-                duration.toSecondsPart());
-
-
         String nameFile = String.valueOf(time);
 
-
+        Timer timer = new Timer();
+        timer.setEndTime(end);
+        timer.setStartTime(start);
+        timer.setTimerName(name);
+        timer.setSymphony(symphony);
 
 
         try {
             CheckTimerInsertValidity check = repository.countOverlapsAndMaxTimers(start, end);
 
-            if (check.getOverlaps() > 0 || check.getTotal() >= 40) throw new RuntimeException();
+            if (check.getOverlaps() > 0 || check.getTotal() >= MAX_TIMERS) throw new RuntimeException();
 
-            Timer timer = new Timer();
-            timer.setEndTime(end);
-            timer.setStartTime(start);
-            timer.setTimerName(name);
+            operation = journal.begin(SagaJournal.Kind.TIMER_INSERT, time);
 
-            repository.insert(timer);
+            // prenotazione: il record occupa l'intervallo e viene confermato prima dei comandi systemd
+            transactions.executeWithoutResult(status -> repository.insert(timer));
 
-            result = timerUtils.createSystemdTimerUnit(nameFile, onCalendar,symphonyDuration);
+            reserved = true;
+
+            result = timerUtils.createSystemdTimerUnit(nameFile, time, symphonyDuration);
 
             step++;
 
+            journal.step(operation, step);
+
             if (result == Result.ERROR) throw new RuntimeException();
 
 
@@ -118,6 +178,8 @@ public class TimerServiceImpl implements TimerService {
 
             step++;
 
+            journal.step(operation, step);
+
             if (result == Result.ERROR) throw new RuntimeException();
 
 
@@ -134,6 +196,8 @@ public class TimerServiceImpl implements TimerService {
             return result;
 
         } catch (Exception e) {
+            // anche un'eccezione lanciata da timerUtils deve portare alla compensazione: la prenotazione è già confermata
+            result = Result.ERROR;
             throw new TimerServiceException(e.getMessage());
         }finally {
 
@@ -146,11 +210,17 @@ public class TimerServiceImpl implements TimerService {
                     if (step > 0 && timerUtils.reversSystemdTimerUnitInsert(nameFile) == Result.ERROR) reverseError = Result.ERROR;
                     if (step > 1 && timerUtils.timerReload() == Result.ERROR) reverseError = Result.ERROR;
 
+                    // compensazione della prenotazione in una seconda transazione
+                    if (reserved) transactions.executeWithoutResult(status -> repository.deleteById(timer.getId()));
 
                     if(reverseError == Result.ERROR) throw new RuntimeException();
                 }
+
+                // un rollback fallito lascia l'operazione aperta nel journal, JournalRecovery la riprende periodicamente
+                journal.end(operation);
             }catch (Exception e){
                 System.err.println("fatal Error Rollback"+e.getMessage());
+                journal.failed(operation);
             }
 
         }
@@ -158,10 +228,131 @@ public class TimerServiceImpl implements TimerService {
     }
 
 
-    @Transactional(rollbackFor = Exception.class)
+    /**
+     * Inserimento tutto o niente di una lista di timer:
+     * validazione in memoria di tutta la lista, scrittura dei file con una sola barriera di fsync,
+     * un solo daemon-reload e un solo systemctl enable --now per tutte le unit.
+     */
+    public Result insertTimers(List<TimerInsertDto> timers) {
+
+        int step = 0;
+        int operation = 0;
+        Result result = Result.SUCCESS;
+        int size = timers.size();
+
+        List<Timer> inserted = new ArrayList<>(size);
+        List<String> nameFiles = new ArrayList<>(size);
+        List<String> symphonies = new ArrayList<>(size);
+
+        try {
+            if (size == 0) throw new TimerServiceException("lista timer vuota");
+
+            int[] times = new int[size];
+            // orari nell'ordine della lista, times viene ordinato per il controllo delle sovrapposizioni
+            int[] unitTimes = new int[size];
+
+            for (int i = 0; i < size; i++) {
+                TimerInsertDto dto = timers.get(i);
+                int time = dto.getTime();
+                times[i] = time;
+
+                CheckTimerInsertValidity check = repository.countOverlapsAndMaxTimers(Math.max(0, time - PILLOW_TIME), Math.min(MAX_MILLS_DAY, time + PILLOW_TIME));
+
+                if (check.getOverlaps() > 0) throw new TimerServiceException("timer sovrapposto a uno esistente");
+                if (check.getTotal() + size > MAX_TIMERS) throw new TimerServiceException("numero massimo di timer superato");
+
+                nameFiles.add(String.valueOf(time));
+                unitTimes[i] = time;
+                symphonies.add(String.valueOf(dto.getSymphonyDuration()));
+            }
+
+            // sovrapposizioni all'interno della lista: ordinati per orario basta confrontare i vicini
+            Arrays.sort(times);
+            for (int i = 1; i < size; i++) {
+                if (Math.max(0, times[i] - PILLOW_TIME) <= Math.min(MAX_MILLS_DAY, times[i - 1] + PILLOW_TIME))
+                    throw new TimerServiceException("timer sovrapposti nella lista");
+            }
+
+            operation = journal.begin(SagaJournal.Kind.TIMER_INSERT, times);
+
+            // prenotazione di tutta la lista in una sola transazione breve
+            transactions.executeWithoutResult(status -> {
+                for (TimerInsertDto dto : timers) {
+                    int time = dto.getTime();
+                    Timer timer = new Timer();
+                    timer.setEndTime(Math.min(MAX_MILLS_DAY, time + PILLOW_TIME));
+                    timer.setStartTime(Math.max(0, time - PILLOW_TIME));
+                    timer.setTimerName(dto.getName());
+                    timer.setSymphony(dto.getSymphonyDuration());
+
+                    repository.insert(timer);
+                    inserted.add(timer);
+                }
+            });
+
+            result = timerUtils.createSystemdTimerUnits(nameFiles, unitTimes, symphonies);
+
+            step++;
+
+            journal.step(operation, step);
+
+            if (result == Result.ERROR) throw new TimerServiceException("errore creazione file timer");
+
+            result = timerUtils.timerReload();
+
+            step++;
+
+            journal.step(operation, step);
+
+            if (result == Result.ERROR) throw new TimerServiceException("errore durante daemon-Reload");
+
+            UnitResults activation = timerUtils.activateSystemdTimersDetailed(nameFiles);
+
+            result = activation.overall();
+
+            step++;
+
+            if (result == Result.ERROR) throw new TimerServiceException("errore attivazione timers " + activation.failed());
+
+            return result;
+
+        } catch (Exception e) {
+            result = Result.ERROR;
+            throw new TimerServiceException(e.getMessage());
+        } finally {
+
+            Result reverseError = Result.SUCCESS;
+
+            try {
+                if (result == Result.ERROR) {
+
+                    if (step > 2 && timerUtils.deactivateSystemdTimers(nameFiles) == Result.ERROR) reverseError = Result.ERROR;
+                    if (step > 0 && timerUtils.reversSystemdTimerUnitInserts(nameFiles) == Result.ERROR) reverseError = Result.ERROR;
+                    if (step > 1 && timerUtils.timerReload() == Result.ERROR) reverseError = Result.ERROR;
+
+                    // compensazione della prenotazione in una seconda transazione
+                    transactions.executeWithoutResult(status -> {
+                        for (Timer timer : inserted) {
+                            repository.deleteById(timer.getId());
+                        }
+                    });
+
+                    if (reverseError == Result.ERROR) throw new RuntimeException();
+                }
+
+                journal.end(operation);
+            } catch (Exception e) {
+                System.err.println("fatal Error Rollback" + e.getMessage());
+                journal.failed(operation);
+            }
+
+        }
+    }
+
     public Result removeTimer(long id) {
         Result result = Result.SUCCESS;
         int step = 0;
+        int operation = 0;
         String filename = null;
 
         try{
@@ -172,11 +363,14 @@ public class TimerServiceImpl implements TimerService {
         int median = timerToDelete.getStartTime() == 0 ? timerToDelete.getEndTime() - 20_000 : timerToDelete.getStartTime() + 20_000;
 
         filename = String.valueOf(median);
-        repository.deleteById(id);
+
+        operation = journal.begin(SagaJournal.Kind.TIMER_REMOVE, median);
 
         result = timerUtils.deactivateSystemdTimer(filename);
         step++;
 
+        journal.step(operation, step);
+
         if (result == Result.ERROR) throw new TimerServiceException("timer non disattivato");
 
 
@@ -184,6 +378,8 @@ public class TimerServiceImpl implements TimerService {
         result = timerUtils.deleteSystemdTimerUnit(filename);
         step++;
 
+        journal.step(operation, step);
+
         if (result == Result.ERROR) throw new TimerServiceException("timer fisico non cancellato");
 
 
@@ -192,9 +388,16 @@ public class TimerServiceImpl implements TimerService {
 
         if (result == Result.ERROR) throw new TimerServiceException("errore durante daemon-Reload");
 
+        // conferma: il record viene cancellato solo dopo che systemd non usa più il timer
+        result = confirmRemoval(id);
+
+        if (result == Result.ERROR) throw new TimerServiceException("errore cancellazione timer dal database");
+
         return result;
 
         } catch (Exception e) {
+            // timer trovato: un'eccezione di timerUtils va compensata come un ERROR
+            if (filename != null) result = Result.ERROR;
             throw new TimerServiceException(e.getMessage());
         }finally {
 
@@ -210,8 +413,11 @@ public class TimerServiceImpl implements TimerService {
 
                     if(reverseError == Result.ERROR) throw new RuntimeException();
                 }
+
+                journal.end(operation);
             }catch (Exception e){
                 System.err.println("fatal Error Rollback"+e.getMessage());
+                journal.failed(operation);
             }
 
         }
@@ -219,6 +425,76 @@ public class TimerServiceImpl implements TimerService {
 
     }
 
+    private Result confirmRemoval(long id) {
+        try {
+            transactions.executeWithoutResult(status -> repository.deleteById(id));
+            return Result.SUCCESS;
+        } catch (RuntimeException e) {
+            System.err.println("errore cancellazione timer" + e.getMessage());
+            return Result.ERROR;
+        }
+    }
+
+    /**
+     * Recupero all'avvio di un'operazione rimasta aperta nel journal.
+     * Il passo successivo all'ultimo registrato può essere stato eseguito prima dell'arresto, quindi viene considerato tentato.
+     * Un inserimento non terminato viene annullato; una cancellazione, che rimuove il record solo come ultimo passo,
+     * viene annullata se il record è ancora presente.
+     * Gli esiti di systemctl sulle unit che potrebbero non essere mai state attivate vengono ignorati.
+     */
+    public Result recover(SagaJournal.Entry entry) {
+
+        int attempted = entry.step() + 1;
+
+        List<String> nameFiles = new ArrayList<>(entry.names().length);
+        for (int name : entry.names()) nameFiles.add(String.valueOf(name));
+
+        Result result = Result.SUCCESS;
+
+        try {
+            Set<String> inDatabase = new HashSet<>();
+            List<Timer> stored = repository.findAll();
+            for (Timer timer : stored) inDatabase.add(String.valueOf(medianOf(timer)));
+
+            switch (entry.kind()) {
+                case TIMER_INSERT -> {
+                    if (attempted > 2) timerUtils.deactivateSystemdTimers(nameFiles);
+                    if (timerUtils.reversSystemdTimerUnitInserts(nameFiles) == Result.ERROR) result = Result.ERROR;
+                    if (attempted > 1 && timerUtils.timerReload() == Result.ERROR) result = Result.ERROR;
+
+                    transactions.executeWithoutResult(status -> {
+                        for (Timer timer : stored) {
+                            if (nameFiles.contains(String.valueOf(medianOf(timer)))) repository.deleteById(timer.getId());
+                        }
+                    });
+                }
+                case TIMER_REMOVE -> {
+                    String filename = nameFiles.get(0);
+
+                    if (!inDatabase.contains(filename)) {
+                        if (attempted < 2) timerUtils.deactivateSystemdTimer(filename);
+                        if (timerUtils.deleteSystemdTimerUnit(filename) == Result.ERROR) result = Result.ERROR;
+                    } else {
+                        if (attempted > 1 && timerUtils.reverseDeleteSystemdTimerUnit(filename) == Result.ERROR) result = Result.ERROR;
+                        if (timerUtils.activateSystemdTimer(filename) == Result.ERROR) result = Result.ERROR;
+                    }
+
+                    if (timerUtils.timerReload() == Result.ERROR) result = Result.ERROR;
+                }
+                default -> result = Result.ERROR;
+            }
+        } catch (Exception e) {
+            System.err.println("ERRORE RECUPERO OPERAZIONE TIMER: " + e.getMessage());
+            return Result.ERROR;
+        }
+
+        return result;
+    }
+
+    private int medianOf(Timer timer) {
+        return timer.getStartTime() == 0 ? timer.getEndTime() - PILLOW_TIME : timer.getStartTime() + PILLOW_TIME;
+    }
+
     @Override
     public List<Timer> getAllTimers() {
         return repository.findAll();
@@ -3,6 +3,7 @@ package com.rosanova.iot.timer.user;
 import com.rosanova.iot.timer.error.Result;
 import com.rosanova.iot.timer.error.UserServiceException;
 import com.rosanova.iot.timer.user.repository.UserRepository;
+import com.rosanova.iot.timer.user.service.impl.BCryptCostCalibrator;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,11 +22,19 @@ public class Startup {
     private String password;
     private String reset;
     private UserRepository repository;
+    // null: costo predefinito di BCrypt
+    private BCryptCostCalibrator costCalibrator;
 
-    public Startup(@Value("${user.password}") String password, @Value("${user.reset}") String reset, @Autowired UserRepository repository){
+    public Startup(String password, String reset, UserRepository repository){
+            this(password, reset, repository, null);
+    };
+
+    @Autowired
+    public Startup(@Value("${user.password}") String password, @Value("${user.reset}") String reset, UserRepository repository, BCryptCostCalibrator costCalibrator){
             this.password = password;
             this.reset = reset;
             this.repository = repository;
+            this.costCalibrator = costCalibrator;
     };
 
     @PostConstruct
@@ -68,7 +77,7 @@ public class Startup {
     }
 
     public String hashPassword(String password){
-        return BCrypt.hashpw(password, BCrypt.gensalt());
+        return BCrypt.hashpw(password, costCalibrator == null ? BCrypt.gensalt() : costCalibrator.gensalt());
     }
 
 }
@@ -1,9 +1,12 @@
 package com.rosanova.iot.timer.user.controller;
 
 import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.security.LoginRateLimiter;
 import com.rosanova.iot.timer.user.dto.LoginRequestDto;
 import com.rosanova.iot.timer.user.dto.LoginReturnDto;
 import com.rosanova.iot.timer.user.service.UserService;
+import com.rosanova.iot.timer.user.service.impl.LoginVerificationExecutor;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -11,6 +14,9 @@ import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
@@ -22,11 +28,28 @@ public class LoginController {
 
     private final UserService userService;
 
+    private final LoginRateLimiter rateLimiter;
+
+    private final LoginVerificationExecutor verificationExecutor;
+
+    // tentativi oltre il limite del client o delle verifiche contemporanee: 429 immediato, senza calcolare BCrypt
+    // verifica non conclusa entro login.verify.timeout.ms: 503 con Retry-After, il thread di Tomcat non resta bloccato
     @PostMapping("/login")
-    public ResponseEntity<Boolean> login(@RequestBody LoginRequestDto request) {
+    public ResponseEntity<Boolean> login(@RequestBody LoginRequestDto request, HttpServletRequest httpRequest) {
         try {
 
-            LoginReturnDto dto = userService.login(request.getUsername(), request.getPassword());
+            int retryAfter = rateLimiter.tryAcquire(httpRequest.getRemoteAddr());
+            if (retryAfter > 0) return tooManyRequests(retryAfter);
+
+            CompletableFuture<LoginReturnDto> login = verificationExecutor.submit(() -> userService.login(request.getUsername(), request.getPassword()));
+            if (login == null) return tooManyRequests(1);
+
+            LoginReturnDto dto;
+            try {
+                dto = verificationExecutor.await(login);
+            } catch (TimeoutException e) {
+                return unavailable(1);
+            }
 
             if (dto.getResult() == Result.SUCCESS) {
                 ResponseCookie cookie = ResponseCookie.from(NAME_TOKEN, dto.getToken())
@@ -39,10 +62,25 @@ public class LoginController {
             } else if (dto.getResult() == Result.BAD_REQUEST) {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(false);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(false);
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(false);
         }
 
         return null;
     }
+
+    private ResponseEntity<Boolean> tooManyRequests(int retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(false);
+    }
+
+    private ResponseEntity<Boolean> unavailable(int retryAfterSeconds) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(false);
+    }
 }
@@ -11,6 +11,8 @@ public interface UserRepository {
     List<User> findAllUsers();
     User findById(long id);
     void updateUser(long id, String password);
+    // aggiorna solo se la password salvata è ancora oldPassword, true se la riga è stata modificata
+    boolean updateUserIfUnchanged(long id, String oldPassword, String password);
     int findNumberOfUsers();
     void deleteAllUsers();
 }
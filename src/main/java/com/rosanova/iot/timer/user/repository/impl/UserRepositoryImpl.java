@@ -34,6 +34,13 @@ public class UserRepositoryImpl implements UserRepository {
         jdbcTemplate.update(sql, password, id);
     }
 
+    // ✅ update password only if not changed in the meantime
+    @CacheEvict(value = "users", allEntries = true)
+    public boolean updateUserIfUnchanged(long id, String oldPassword, String password) {
+        String sql = "UPDATE user_timer SET password = ? WHERE id = ? AND password = ?";
+        return jdbcTemplate.update(sql, password, id, oldPassword) == 1;
+    }
+
     // ✅ Delete a user by ID
     @CacheEvict(value = "users", allEntries = true)
     public void deleteUserById(long id) {
@@ -0,0 +1,203 @@
+package com.rosanova.iot.timer.user.service.impl;
+
+import com.rosanova.iot.timer.utils.impl.LatencyHistogram;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Costo BCrypt adattato all'hardware: all'avvio misura checkpw a costi crescenti a partire da user.bcrypt.cost.min
+ * e sceglie il più alto la cui verifica resta entro user.bcrypt.budget.ms (al massimo user.bcrypt.cost.max).
+ * Ogni costo raddoppia il tempo, quindi la misura si ferma appena il costo successivo supererebbe il budget.
+ * Se anche il minimo lo supera resta il minimo, che non viene mai abbassato.
+ * Ogni costo è misurato con la mediana di SAMPLES verifiche, così il rumore dell'avvio non sposta la scelta.
+ * Gli hash salvati vengono ricalcolati dopo un login riuscito solo se il loro costo è sotto il minimo configurato
+ * o si allontana di più di uno dal costo calibrato: un cambio di un solo livello tra due avvii non riscrive le password.
+ * Il ricalcolo gira su un unico thread in background, uno alla volta. Tiene anche l'istogramma delle latenze di login.
+ */
+@Component
+public class BCryptCostCalibrator {
+
+    // costo di BCrypt.gensalt() senza argomenti, usato finché la calibrazione non è eseguita
+    public static final int DEFAULT_COST = 10;
+
+    private static final int BCRYPT_MIN_COST = 4;
+    private static final int BCRYPT_MAX_COST = 31;
+
+    private static final String SAMPLE_PASSWORD = "calibrazione-bcrypt";
+
+    // verifiche per costo, ne viene presa la mediana
+    private static final int SAMPLES = 3;
+
+    // differenza di costo tollerata senza ricalcolare l'hash salvato
+    private static final int REHASH_TOLERANCE = 1;
+
+    private final long budgetMillis;
+    private final int minCost;
+    private final int maxCost;
+
+    private volatile int targetCost;
+    private volatile long calibratedMicros = -1;
+
+    private final LatencyHistogram loginLatency = new LatencyHistogram();
+
+    private final ExecutorService rehashExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bcrypt-rehash");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rehashPending = new AtomicBoolean(false);
+    private final AtomicLong rehashes = new AtomicLong();
+
+    public BCryptCostCalibrator(@Value("${user.bcrypt.budget.ms:250}") long budgetMillis,
+                                @Value("${user.bcrypt.cost.min:8}") int minCost,
+                                @Value("${user.bcrypt.cost.max:14}") int maxCost) {
+        this.budgetMillis = budgetMillis;
+        this.minCost = Math.max(BCRYPT_MIN_COST, Math.min(minCost, BCRYPT_MAX_COST));
+        this.maxCost = Math.max(this.minCost, Math.min(maxCost, BCRYPT_MAX_COST));
+        this.targetCost = Math.max(this.minCost, Math.min(DEFAULT_COST, this.maxCost));
+    }
+
+    /**
+     * @return il costo scelto
+     */
+    @PostConstruct
+    public int calibrate() {
+        long budgetMicros = budgetMillis * 1000;
+        int cost = minCost;
+        long micros = measure(cost);
+
+        while (cost < maxCost && micros * 2 <= budgetMicros) {
+            cost++;
+            micros = measure(cost);
+        }
+
+        // la misura al costo scelto può sforare il budget per rumore: se non è il minimo si torna indietro di uno
+        if (micros > budgetMicros && cost > minCost) {
+            cost--;
+            micros /= 2;
+        }
+
+        targetCost = cost;
+        calibratedMicros = micros;
+        return cost;
+    }
+
+    // mediana della durata di SAMPLES checkpw corrette al costo indicato
+    private static long measure(int cost) {
+        String hash = BCrypt.hashpw(SAMPLE_PASSWORD, BCrypt.gensalt(cost));
+        long[] samples = new long[SAMPLES];
+
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            boolean matches = BCrypt.checkpw(SAMPLE_PASSWORD, hash);
+            samples[i] = (System.nanoTime() - start) / 1000;
+            if (!matches) System.err.println("CALIBRAZIONE BCRYPT: VERIFICA FALLITA AL COSTO " + cost);
+        }
+
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+
+    public String gensalt() {
+        return BCrypt.gensalt(targetCost);
+    }
+
+    /**
+     * @return il costo di un hash BCrypt ($2a$NN$...), -1 se il formato non è riconosciuto
+     */
+    public static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$' || hash.charAt(6) != '$') return -1;
+        char tens = hash.charAt(4);
+        char units = hash.charAt(5);
+        if (tens < '0' || tens > '9' || units < '0' || units > '9') return -1;
+        return (tens - '0') * 10 + (units - '0');
+    }
+
+    /**
+     * @return true se l'hash è BCrypt valido con un costo sotto il minimo o lontano più di REHASH_TOLERANCE da quello calibrato
+     */
+    public boolean needsRehash(String hash) {
+        int cost = costOf(hash);
+        if (cost == -1) return false;
+        return cost < minCost || Math.abs(cost - targetCost) > REHASH_TOLERANCE;
+    }
+
+    /**
+     * Esegue il ricalcolo in background; se ce n'è già uno in corso la richiesta viene scartata,
+     * il login successivo la ripresenterà.
+     * @return true se il ricalcolo è stato accettato
+     */
+    public boolean rehashInBackground(Runnable rehash) {
+        if (!rehashPending.compareAndSet(false, true)) return false;
+        try {
+            rehashExecutor.execute(() -> {
+                try {
+                    rehash.run();
+                    rehashes.incrementAndGet();
+                } catch (RuntimeException e) {
+                    System.err.println("ERRORE RICALCOLO HASH PASSWORD: " + e.getMessage());
+                } finally {
+                    rehashPending.set(false);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            rehashPending.set(false);
+            return false;
+        }
+    }
+
+    public void recordLogin(long micros) {
+        loginLatency.record(micros);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rehashExecutor.shutdown();
+    }
+
+    public int getTargetCost() {
+        return targetCost;
+    }
+
+    public int getMinCost() {
+        return minCost;
+    }
+
+    public int getMaxCost() {
+        return maxCost;
+    }
+
+    public long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    /**
+     * @return durata in microsecondi di una checkpw al costo scelto, -1 se non calibrato
+     */
+    public long getCalibratedMicros() {
+        return calibratedMicros;
+    }
+
+    public long getRehashes() {
+        return rehashes.get();
+    }
+
+    public boolean isRehashPending() {
+        return rehashPending.get();
+    }
+
+    public LatencyHistogram getLoginLatency() {
+        return loginLatency;
+    }
+}
@@ -0,0 +1,133 @@
+package com.rosanova.iot.timer.user.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Esecuzione dei login (verifica BCrypt) fuori dai thread di Tomcat: al massimo login.verify.threads verifiche
+ * contemporanee e una coda di login.verify.queue richieste in attesa.
+ * Oltre questo limite la richiesta è rifiutata subito invece di accodarsi, così un picco di tentativi
+ * non può occupare tutti i core e rallentare gli endpoint dei timer e del monitor.
+ * Chi attende il risultato lo fa al massimo login.verify.timeout.ms, poi la verifica è annullata.
+ */
+@Component
+public class LoginVerificationExecutor {
+
+    private final int threads;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    public LoginVerificationExecutor(@Value("${login.verify.threads:2}") int threads,
+                                     @Value("${login.verify.queue:4}") int queueCapacity,
+                                     @Value("${login.verify.timeout.ms:5000}") long timeoutMillis) {
+        this.threads = Math.max(1, threads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.timeoutMillis = Math.max(1, timeoutMillis);
+        AtomicInteger ids = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.threads, this.threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "login-verify-" + ids.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * @return il risultato del login, null se verifiche in corso e coda sono al completo
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> login) {
+        try {
+            CompletableFuture<T> result = CompletableFuture.supplyAsync(() -> {
+                int now = running.incrementAndGet();
+                maxRunning.accumulateAndGet(now, Math::max);
+                try {
+                    return login.get();
+                } finally {
+                    running.decrementAndGet();
+                }
+            }, executor);
+            accepted.incrementAndGet();
+            return result;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Attende il login al massimo timeoutMillis. Allo scadere la verifica è annullata:
+     * se è ancora in coda non viene più eseguita, se è già partita il risultato è scartato.
+     * @throws TimeoutException se la verifica non termina in tempo
+     */
+    public <T> T await(CompletableFuture<T> login) throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            return login.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            login.cancel(false);
+            timedOut.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getQueued() {
+        return executor.getQueue().size();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getTimedOut() {
+        return timedOut.get();
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @return il numero massimo di verifiche eseguite contemporaneamente dall'avvio
+     */
+    public int getMaxRunning() {
+        return maxRunning.get();
+    }
+}
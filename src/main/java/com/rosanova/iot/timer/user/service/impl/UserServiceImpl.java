@@ -6,23 +6,45 @@ import com.rosanova.iot.timer.user.dto.LoginReturnDto;
 import com.rosanova.iot.timer.user.repository.UserRepository;
 import com.rosanova.iot.timer.user.service.UserService;
 import com.rosanova.iot.timer.utils.HMACSHA256SignatureUtil;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
-@RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
     private final UserRepository repository;
     private final HMACSHA256SignatureUtil hashToken;
+    // null: costo predefinito di BCrypt, nessun ricalcolo e nessuna metrica di login
+    private final BCryptCostCalibrator costCalibrator;
     private final String USERNAME = "root";
 
+    public UserServiceImpl(UserRepository repository, HMACSHA256SignatureUtil hashToken) {
+        this(repository, hashToken, null);
+    }
+
+    @Autowired
+    public UserServiceImpl(UserRepository repository, HMACSHA256SignatureUtil hashToken, BCryptCostCalibrator costCalibrator) {
+        this.repository = repository;
+        this.hashToken = hashToken;
+        this.costCalibrator = costCalibrator;
+    }
+
     @Override
     @Transactional
     public LoginReturnDto login(String username, String password) {
 
+        long start = System.nanoTime();
+        try {
+            return authenticate(username, password);
+        } finally {
+            if (costCalibrator != null) costCalibrator.recordLogin((System.nanoTime() - start) / 1000);
+        }
+    }
+
+    private LoginReturnDto authenticate(String username, String password) {
+
             LoginReturnDto loginReturnDto = new LoginReturnDto();
 
             User login = repository.getByUsername(username);
@@ -37,6 +59,8 @@ public class UserServiceImpl implements UserService {
                 return loginReturnDto;
             }
 
+            rehashIfNeeded(login, password);
+
             String time = String.valueOf(System.currentTimeMillis());
             StringBuilder timeToken = new StringBuilder(13);
             int padding = 13 - time.length();
@@ -72,8 +96,18 @@ public class UserServiceImpl implements UserService {
 
     }
 
+    // l'hash salvato con un costo diverso da quello calibrato viene sostituito fuori dalla richiesta,
+    // solo se nel frattempo la password non è stata cambiata
+    private void rehashIfNeeded(User user, String password) {
+        if (costCalibrator == null || !costCalibrator.needsRehash(user.getPassword())) return;
+
+        long id = user.getId();
+        String storedHash = user.getPassword();
+        costCalibrator.rehashInBackground(() -> repository.updateUserIfUnchanged(id, storedHash, hashPassword(password)));
+    }
+
     public String hashPassword(String password){
-        return BCrypt.hashpw(password, BCrypt.gensalt());
+        return BCrypt.hashpw(password, costCalibrator == null ? BCrypt.gensalt() : costCalibrator.gensalt());
     }
 
     public boolean checkPassword(String password, String hashPassword){
@@ -1,5 +1,16 @@
 package com.rosanova.iot.timer.utils;
 
+import java.util.Base64;
+
 public interface HMACSHA256SignatureUtil {
     String computeHMACSHA256(String payload);
+
+    /**
+     * MAC grezzo dei caratteri payload[offset, offset + length) scritto in out[0, 32), per la verifica dei token senza String.
+     * Di default passa dalla versione testuale, le implementazioni possono evitare ogni allocazione.
+     */
+    default void computeHMACSHA256(CharSequence payload, int offset, int length, byte[] out) {
+        byte[] mac = Base64.getUrlDecoder().decode(computeHMACSHA256(payload.subSequence(offset, offset + length).toString()));
+        System.arraycopy(mac, 0, out, 0, mac.length);
+    }
 }
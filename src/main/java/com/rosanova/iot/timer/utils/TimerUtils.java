@@ -1,6 +1,11 @@
 package com.rosanova.iot.timer.utils;
 
 import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.utils.impl.UnitResults;
+import com.rosanova.iot.timer.utils.impl.UnitTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
 
 public interface TimerUtils {
 
@@ -11,4 +16,82 @@ public interface TimerUtils {
     Result activateSystemdTimer(String timerBaseName);
     Result deactivateSystemdTimer(String timerBaseName);
     Result reverseDeleteSystemdTimerUnit(String timerBaseName);
+
+    /**
+     * Variante con l'orario in millisecondi dalla mezzanotte (da 0 a 86_400_000), usata dai servizi.
+     * Di default passa dalla variante testuale, i backend su file scrivono HH:mm:ss direttamente nel buffer.
+     */
+    default Result createSystemdTimerUnit(String timerBaseName, int timeMillis, String parameter) {
+        return createSystemdTimerUnit(timerBaseName, UnitTemplate.formatOnCalendar(timeMillis), parameter);
+    }
+
+    // varianti su più unit: di default ripetono l'operazione singola, le implementazioni possono raggrupparle
+
+    default Result createSystemdTimerUnits(List<String> timerBaseNames, List<String> onCalendars, List<String> parameters) {
+        for (int i = 0; i < timerBaseNames.size(); i++) {
+            if (createSystemdTimerUnit(timerBaseNames.get(i), onCalendars.get(i), parameters.get(i)) == Result.ERROR) return Result.ERROR;
+        }
+        return Result.SUCCESS;
+    }
+
+    default Result createSystemdTimerUnits(List<String> timerBaseNames, int[] timesMillis, List<String> parameters) {
+        for (int i = 0; i < timerBaseNames.size(); i++) {
+            if (createSystemdTimerUnit(timerBaseNames.get(i), timesMillis[i], parameters.get(i)) == Result.ERROR) return Result.ERROR;
+        }
+        return Result.SUCCESS;
+    }
+
+    default Result reversSystemdTimerUnitInserts(List<String> timerBaseNames) {
+        Result result = Result.SUCCESS;
+        for (String timerBaseName : timerBaseNames) {
+            if (reversSystemdTimerUnitInsert(timerBaseName) == Result.ERROR) result = Result.ERROR;
+        }
+        return result;
+    }
+
+    default Result activateSystemdTimers(List<String> timerBaseNames) {
+        for (String timerBaseName : timerBaseNames) {
+            if (activateSystemdTimer(timerBaseName) == Result.ERROR) return Result.ERROR;
+        }
+        return Result.SUCCESS;
+    }
+
+    default Result deactivateSystemdTimers(List<String> timerBaseNames) {
+        Result result = Result.SUCCESS;
+        for (String timerBaseName : timerBaseNames) {
+            if (deactivateSystemdTimer(timerBaseName) == Result.ERROR) result = Result.ERROR;
+        }
+        return result;
+    }
+
+    // esito per singola unit: di default un'operazione per unit, le implementazioni systemctl usano un solo processo
+
+    default UnitResults activateSystemdTimersDetailed(List<String> timerBaseNames) {
+        LinkedHashMap<String, Result> results = new LinkedHashMap<>();
+        for (String timerBaseName : timerBaseNames) {
+            results.put(timerBaseName, activateSystemdTimer(timerBaseName));
+        }
+        return new UnitResults(results, "");
+    }
+
+    default UnitResults deactivateSystemdTimersDetailed(List<String> timerBaseNames) {
+        LinkedHashMap<String, Result> results = new LinkedHashMap<>();
+        for (String timerBaseName : timerBaseNames) {
+            results.put(timerBaseName, deactivateSystemdTimer(timerBaseName));
+        }
+        return new UnitResults(results, "");
+    }
+
+    /**
+     * Sostituzione di un timer attivo: disattiva oldBaseName e attiva newBaseName, entrambi i file devono essere già presenti.
+     * enable --now ricarica da solo la configurazione, il nuovo file non richiede un daemon-reload precedente.
+     * Di default le due operazioni sono eseguite una dopo l'altra.
+     * @return esito per unit, indicizzato per nome base
+     */
+    default UnitResults swapSystemdTimer(String oldBaseName, String newBaseName) {
+        LinkedHashMap<String, Result> results = new LinkedHashMap<>();
+        results.put(oldBaseName, deactivateSystemdTimer(oldBaseName));
+        results.put(newBaseName, activateSystemdTimer(newBaseName));
+        return new UnitResults(results, "");
+    }
 }
@@ -0,0 +1,310 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scheduler in processo per allarmi giornalieri espressi in millisecondi dal giorno (ora locale).
+ * Un solo thread dedicato attende il primo allarme di un min-heap indicizzato su array primitivi,
+ * lo consegna all'executor e lo riprogramma per il giorno successivo.
+ * Ogni allarme occupa uno slot riutilizzabile: la cancellazione è O(log n) e non alloca.
+ * Il ritardo di ogni scatto rispetto all'orario previsto è raccolto in un istogramma a potenze di due (µs).
+ */
+public class AlarmScheduler implements AutoCloseable {
+
+    private static final long MAX_WAIT_MICROS = 60_000_000L; // rivaluta almeno ogni minuto: cambi d'ora e correzioni NTP
+
+    private final Executor executor;
+
+    private final ZoneId zone;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition changed = lock.newCondition();
+
+    // dati per slot
+    private long[] fireAtMicros;
+    private int[] msOfDay;
+    private int[] heapIndex;
+    private Runnable[] actions;
+    private String[] keys;
+
+    // min-heap di slot ordinato per fireAtMicros
+    private int[] heap;
+    private int heapSize = 0;
+
+    private int[] freeSlots;
+    private int freeCount = 0;
+    private int slotCount = 0;
+
+    private final HashMap<String, Integer> slotsByKey = new HashMap<>();
+
+    private Thread worker;
+
+    private volatile boolean running = false;
+
+    private final LatencyHistogram lateness = new LatencyHistogram();
+
+    public AlarmScheduler(Executor executor, ZoneId zone) {
+        this.executor = executor;
+        this.zone = zone;
+        int capacity = 64;
+        fireAtMicros = new long[capacity];
+        msOfDay = new int[capacity];
+        heapIndex = new int[capacity];
+        actions = new Runnable[capacity];
+        keys = new String[capacity];
+        heap = new int[capacity];
+        freeSlots = new int[capacity];
+    }
+
+    public void start() {
+        lock.lock();
+        try {
+            if (running) return;
+            running = true;
+            worker = new Thread(this::loop, "alarm-scheduler");
+            worker.setDaemon(true);
+            worker.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            running = false;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Programma (o riprogramma) l'allarme giornaliero identificato da key.
+     * @param msOfDay millisecondi dalla mezzanotte locale, 0 - 86_399_999
+     */
+    public void schedule(String key, int msOfDay, Runnable action) {
+
+        if (msOfDay < 0 || msOfDay >= 86_400_000) throw new IllegalArgumentException("orario fuori dal giorno: " + msOfDay);
+
+        lock.lock();
+        try {
+            Integer existing = slotsByKey.get(key);
+            int slot = existing != null ? existing : allocateSlot();
+
+            this.msOfDay[slot] = msOfDay;
+            actions[slot] = action;
+            keys[slot] = key;
+            fireAtMicros[slot] = nextFire(msOfDay, nowMicros());
+
+            if (existing == null) {
+                slotsByKey.put(key, slot);
+                heap[heapSize] = slot;
+                heapIndex[slot] = heapSize;
+                heapSize++;
+                siftUp(heapSize - 1);
+            } else {
+                int position = heapIndex[slot];
+                siftUp(position);
+                siftDown(heapIndex[slot]);
+            }
+
+            if (heap[0] == slot) changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true se l'allarme era programmato
+     */
+    public boolean cancel(String key) {
+        lock.lock();
+        try {
+            Integer slot = slotsByKey.remove(key);
+            if (slot == null) return false;
+
+            int position = heapIndex[slot];
+            int last = heap[--heapSize];
+            if (position != heapSize) {
+                heap[position] = last;
+                heapIndex[last] = position;
+                siftUp(position);
+                siftDown(heapIndex[last]);
+            }
+
+            actions[slot] = null;
+            keys[slot] = null;
+            freeSlots[freeCount++] = slot;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean contains(String key) {
+        lock.lock();
+        try {
+            return slotsByKey.containsKey(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return il prossimo scatto in millisecondi epoch, -1 se l'allarme non è programmato
+     */
+    public long getNextFireEpochMillis(String key) {
+        lock.lock();
+        try {
+            Integer slot = slotsByKey.get(key);
+            return slot == null ? -1 : fireAtMicros[slot] / 1000;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return heapSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getFired() {
+        return lateness.getCount();
+    }
+
+    public long getMaxLatenessMicros() {
+        return lateness.getMaxMicros();
+    }
+
+    /**
+     * @param percentile tra 0 e 1
+     */
+    public long getLatenessPercentileMicros(double percentile) {
+        return lateness.getPercentileMicros(percentile);
+    }
+
+    private void loop() {
+        lock.lock();
+        try {
+            while (running) {
+                try {
+                    if (heapSize == 0) {
+                        changed.await();
+                        continue;
+                    }
+
+                    int slot = heap[0];
+                    long now = nowMicros();
+                    long wait = fireAtMicros[slot] - now;
+
+                    if (wait > 0) {
+                        changed.awaitNanos(TimeUnit.MICROSECONDS.toNanos(Math.min(wait, MAX_WAIT_MICROS)));
+                        continue;
+                    }
+
+                    lateness.record(-wait);
+
+                    Runnable action = actions[slot];
+                    fireAtMicros[slot] = nextFire(msOfDay[slot], now);
+                    siftDown(0);
+
+                    try {
+                        executor.execute(action);
+                    } catch (RejectedExecutionException e) {
+                        System.err.println("ERRORE ESECUZIONE ALLARME: " + keys[slot]);
+                    }
+
+                } catch (InterruptedException e) {
+                    running = false;
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // primo istante strettamente successivo a now in cui l'orario locale vale msOfDay
+    private long nextFire(int msOfDay, long nowMicros) {
+        Instant now = Instant.ofEpochSecond(nowMicros / 1_000_000, (nowMicros % 1_000_000) * 1000);
+        LocalTime time = LocalTime.ofNanoOfDay(msOfDay * 1_000_000L);
+        LocalDate day = LocalDate.ofInstant(now, zone);
+
+        Instant fire = day.atTime(time).atZone(zone).toInstant();
+        if (!fire.isAfter(now)) fire = day.plusDays(1).atTime(time).atZone(zone).toInstant();
+
+        return fire.getEpochSecond() * 1_000_000 + fire.getNano() / 1000;
+    }
+
+    protected long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000 + now.getNano() / 1000;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) return freeSlots[--freeCount];
+        if (slotCount == fireAtMicros.length) grow();
+        return slotCount++;
+    }
+
+    private void grow() {
+        int capacity = fireAtMicros.length << 1;
+        fireAtMicros = Arrays.copyOf(fireAtMicros, capacity);
+        msOfDay = Arrays.copyOf(msOfDay, capacity);
+        heapIndex = Arrays.copyOf(heapIndex, capacity);
+        actions = Arrays.copyOf(actions, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        heap = Arrays.copyOf(heap, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+
+    private void siftUp(int position) {
+        int slot = heap[position];
+        long value = fireAtMicros[slot];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            int parentSlot = heap[parent];
+            if (fireAtMicros[parentSlot] <= value) break;
+            heap[position] = parentSlot;
+            heapIndex[parentSlot] = position;
+            position = parent;
+        }
+        heap[position] = slot;
+        heapIndex[slot] = position;
+    }
+
+    private void siftDown(int position) {
+        int slot = heap[position];
+        long value = fireAtMicros[slot];
+        int half = heapSize >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < heapSize && fireAtMicros[heap[right]] < fireAtMicros[heap[child]]) child = right;
+            int childSlot = heap[child];
+            if (value <= fireAtMicros[childSlot]) break;
+            heap[position] = childSlot;
+            heapIndex[childSlot] = position;
+            position = child;
+        }
+        heap[position] = slot;
+        heapIndex[slot] = position;
+    }
+}
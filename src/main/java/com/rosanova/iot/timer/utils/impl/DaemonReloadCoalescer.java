@@ -0,0 +1,111 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import com.rosanova.iot.timer.error.Result;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Raggruppa le richieste di daemon-reload (group commit).
+ * Il primo chiamante apre un lotto ed esegue subito il reload; chi arriva mentre un reload è in corso
+ * si unisce al lotto successivo, che parte appena il precedente termina con un solo reload per tutti.
+ * Ognuno riceve l'esito reale del reload del proprio lotto.
+ * Un lotto viene chiuso solo quando il suo reload sta per partire, quindi ogni chiamante
+ * ottiene l'esito di un reload iniziato dopo la sua richiesta.
+ * systemd.reload.window.ms (default 0) fa attendere al primo chiamante una finestra prima di partire:
+ * serve solo se più scrittori indipendenti chiedono reload nello stesso istante, con le modifiche
+ * serializzate da ioLock e dalla coda delle operazioni sarebbe un ritardo fisso su ogni modifica.
+ */
+@Component
+public class DaemonReloadCoalescer {
+
+    private final long windowMillis;
+
+    // serializza i reload: un solo daemon-reload alla volta
+    private final ReentrantLock runLock = new ReentrantLock();
+
+    private final Object batchMonitor = new Object();
+
+    private CompletableFuture<Result> openBatch;
+
+    private final LongAdder requested = new LongAdder();
+    private final LongAdder executed = new LongAdder();
+
+    public DaemonReloadCoalescer(@Value("${systemd.reload.window.ms:0}") long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * @param reloadAction il daemon-reload vero e proprio, eseguito dal primo chiamante del lotto
+     * @return l'esito del reload condiviso
+     */
+    public Result reload(Supplier<Result> reloadAction) {
+
+        CompletableFuture<Result> batch;
+        boolean leader = false;
+
+        // contata insieme all'ingresso nel lotto: chi legge getRequested vede solo richieste già assegnate
+        synchronized (batchMonitor) {
+            requested.increment();
+            if (openBatch == null) {
+                openBatch = new CompletableFuture<>();
+                leader = true;
+            }
+            batch = openBatch;
+        }
+
+        if (!leader) return batch.join();
+
+        waitWindow();
+
+        runLock.lock();
+        try {
+            synchronized (batchMonitor) {
+                openBatch = null;
+            }
+
+            executed.increment();
+
+            Result result = Result.ERROR;
+            try {
+                result = reloadAction.get();
+            } catch (RuntimeException e) {
+                System.err.println("ERRORE DURANTE IL DAEMON RELOAD CONDIVISO: " + e.getMessage());
+            } finally {
+                batch.complete(result);
+            }
+
+            return result;
+
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    public long getRequested() {
+        return requested.sum();
+    }
+
+    public long getExecuted() {
+        return executed.sum();
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    private void waitWindow() {
+        if (windowMillis <= 0) return;
+        try {
+            TimeUnit.MILLISECONDS.sleep(windowMillis);
+        } catch (InterruptedException e) {
+            // il reload va comunque eseguito per chi è in attesa
+            Thread.currentThread().interrupt();
+        }
+    }
+}
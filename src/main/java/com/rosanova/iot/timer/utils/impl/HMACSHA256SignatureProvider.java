@@ -0,0 +1,159 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import com.rosanova.iot.timer.utils.HMACSHA256SignatureUtil;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Implementazione di HMACSHA256SignatureUtil usata dal filtro e dal login: delega a SHA-256 in Java (HMACSHA256SignatureUtilImpl)
+ * o a javax.crypto.Mac (JcaHMACSHA256SignatureUtil) secondo hmac.provider.
+ * Con auto all'avvio entrambe sono misurate sulla verifica di un token e viene scelta la più veloce.
+ * JCA è ammessa solo se produce gli stessi byte dell'implementazione in Java sui payload di prova,
+ * così i cookie già emessi restano validi qualunque sia la scelta.
+ */
+@Service
+@Primary
+public class HMACSHA256SignatureProvider implements HMACSHA256SignatureUtil {
+
+    public enum Provider { AUTO, JAVA, JCA }
+
+    private static final int MAC_LENGTH = 32;
+
+    // token di 13 cifre più payload di controllo su uno e due blocchi
+    private static final String[] SAMPLE_PAYLOADS = {"1734538070000", "0000000000000", "", "9".repeat(55), "8".repeat(56), "7".repeat(130)};
+
+    private final HMACSHA256SignatureUtilImpl javaUtil;
+    private final String secret;
+    private final Provider requested;
+    private final int iterations;
+
+    private HMACSHA256SignatureUtil jcaUtil;
+    private volatile HMACSHA256SignatureUtil selected;
+    private volatile Provider provider;
+
+    private boolean jcaIdentical = false;
+    private long javaNanosPerOperation = -1;
+    private long jcaNanosPerOperation = -1;
+
+    // tiene vivi i cicli di misura
+    private volatile int sink;
+
+    public HMACSHA256SignatureProvider(HMACSHA256SignatureUtilImpl javaUtil, @Value("${hmac.secret}") String secret,
+                                       @Value("${hmac.provider:auto}") String provider, @Value("${hmac.benchmark.iterations:20000}") int iterations) {
+        this.javaUtil = javaUtil;
+        this.secret = secret;
+        this.requested = Provider.valueOf(provider.trim().toUpperCase(Locale.ROOT));
+        this.iterations = iterations;
+        this.selected = javaUtil;
+        this.provider = Provider.JAVA;
+    }
+
+    @PostConstruct
+    public void selectProvider() {
+
+        try {
+            jcaUtil = new JcaHMACSHA256SignatureUtil(secret);
+            jcaIdentical = sameTokens(javaUtil, jcaUtil);
+            if (!jcaIdentical) System.err.println("HMAC JCA DIVERSO DALL'IMPLEMENTAZIONE JAVA, PROVIDER JCA ESCLUSO");
+        } catch (RuntimeException e) {
+            System.err.println("HMAC JCA NON DISPONIBILE: " + e.getMessage());
+            jcaUtil = null;
+        }
+
+        javaNanosPerOperation = measure(javaUtil);
+        if (jcaIdentical) jcaNanosPerOperation = measure(jcaUtil);
+
+        boolean useJca = switch (requested) {
+            case JAVA -> false;
+            case JCA -> jcaIdentical;
+            case AUTO -> jcaIdentical && jcaNanosPerOperation < javaNanosPerOperation;
+        };
+
+        if (requested == Provider.JCA && !jcaIdentical) System.err.println("HMAC JCA RICHIESTO MA NON UTILIZZABILE, USATA L'IMPLEMENTAZIONE JAVA");
+
+        selected = useJca ? jcaUtil : javaUtil;
+        provider = useJca ? Provider.JCA : Provider.JAVA;
+    }
+
+    @Override
+    public String computeHMACSHA256(String payload) {
+        return selected.computeHMACSHA256(payload);
+    }
+
+    @Override
+    public void computeHMACSHA256(CharSequence payload, int offset, int length, byte[] out) {
+        selected.computeHMACSHA256(payload, offset, length, out);
+    }
+
+    private static boolean sameTokens(HMACSHA256SignatureUtil expected, HMACSHA256SignatureUtil candidate) {
+        byte[] expectedMac = new byte[MAC_LENGTH];
+        byte[] candidateMac = new byte[MAC_LENGTH];
+
+        for (String payload : SAMPLE_PAYLOADS) {
+            if (!expected.computeHMACSHA256(payload).equals(candidate.computeHMACSHA256(payload))) return false;
+
+            // stesso payload a metà di una stringa più lunga, come nel cookie
+            String embedded = "x=" + payload + ";";
+            expected.computeHMACSHA256(embedded, 2, payload.length(), expectedMac);
+            candidate.computeHMACSHA256(embedded, 2, payload.length(), candidateMac);
+            if (!Arrays.equals(expectedMac, candidateMac)) return false;
+        }
+        return true;
+    }
+
+    // verifica di un token di 13 cifre: un giro di riscaldamento e uno misurato
+    private long measure(HMACSHA256SignatureUtil util) {
+        if (iterations <= 0) return -1;
+
+        byte[] mac = new byte[MAC_LENGTH];
+        String token = SAMPLE_PAYLOADS[0];
+        int checksum = 0;
+
+        for (int i = 0; i < iterations; i++) {
+            util.computeHMACSHA256(token, 0, token.length(), mac);
+            checksum += mac[i & (MAC_LENGTH - 1)];
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            util.computeHMACSHA256(token, 0, token.length(), mac);
+            checksum += mac[i & (MAC_LENGTH - 1)];
+        }
+        long elapsed = System.nanoTime() - start;
+
+        sink = checksum;
+        return elapsed / iterations;
+    }
+
+    public Provider getProvider() {
+        return provider;
+    }
+
+    public Provider getRequested() {
+        return requested;
+    }
+
+    public boolean isJcaIdentical() {
+        return jcaIdentical;
+    }
+
+    public long getJavaNanosPerOperation() {
+        return javaNanosPerOperation;
+    }
+
+    public long getJcaNanosPerOperation() {
+        return jcaNanosPerOperation;
+    }
+
+    /**
+     * @return ns per verifica del provider in uso, -1 se non misurato
+     */
+    public long getSelectedNanosPerOperation() {
+        return provider == Provider.JCA ? jcaNanosPerOperation : javaNanosPerOperation;
+    }
+}
@@ -10,9 +10,27 @@ import java.util.Base64;
 @Service
 public class HMACSHA256SignatureUtilImpl implements HMACSHA256SignatureUtil {
 
+    private static final int BLOCK_SIZE = 64;
+    private static final int HASH_SIZE = 32;
+
+    private static final int[] INITIAL_HASH = {0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a,
+            0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19};
+
     private final byte[] ipad = new byte[64];
     private final byte[] opad = new byte[64];
 
+    // stato SHA-256 dopo il blocco ipad e dopo il blocco opad: la chiave è fissa, si calcolano una volta sola
+    private final int[] innerMidstate = new int[8];
+    private final int[] outerMidstate = new int[8];
+
+    // spazio di lavoro per thread: la verifica dei token non alloca
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Scratch {
+        final int[] W = new int[64];
+        final int[] hash = new int[8];
+    }
+
     private final String secretKey;
 
     public static final int[] K = {
@@ -65,27 +83,118 @@ public class HMACSHA256SignatureUtilImpl implements HMACSHA256SignatureUtil {
             opad[i] = (byte) (secretKey.charAt(i) ^ 0x5c);
         }
 
+        int[] W = new int[64];
+        computeMidstate(ipad, innerMidstate, W);
+        computeMidstate(opad, outerMidstate, W);
     }
 
+    /**
+     * HMAC-SHA256 ripartendo dagli stati già calcolati dopo i blocchi della chiave:
+     * per un payload fino a 55 byte servono due compressioni (payload e hash interno) invece di quattro.
+     */
     public String computeHMACSHA256(String payload) {
 
-            byte[] internalHashData = new byte[128];
-            byte[] outerHashData = new byte[128];
-            System.arraycopy(ipad, 0, internalHashData, 0, 64);
+            int[] hash = computeMac(payload, 0, payload.length());
 
-            for(int i = 0; i < payload.length(); i++){
-                internalHashData[i+64] = (byte) payload.charAt(i);
-            }
+            return Base64.getUrlEncoder().encodeToString(toBytes(hash));
+
+    }
 
-            internalHashData = computeSHA256(internalHashData,77);
+    @Override
+    public void computeHMACSHA256(CharSequence payload, int offset, int length, byte[] out) {
 
-            System.arraycopy(opad, 0, outerHashData, 0, 64);
-            System.arraycopy(internalHashData, 0, outerHashData, 64, 32);
+        int[] hash = computeMac(payload, offset, length);
 
-            outerHashData = computeSHA256(outerHashData,96);
+        for (int i = 0; i < 8; i++) {
+            int pos = i * 4;
+            out[pos] = (byte) (hash[i] >>> 24);
+            out[pos + 1] = (byte) (hash[i] >>> 16);
+            out[pos + 2] = (byte) (hash[i] >>> 8);
+            out[pos + 3] = (byte) hash[i];
+        }
+    }
+
+    // lascia il MAC nello stato del thread corrente e lo restituisce
+    private int[] computeMac(CharSequence payload, int offset, int length) {
+
+        Scratch scratch = SCRATCH.get();
+        int[] W = scratch.W;
+        int[] hash = scratch.hash;
+
+        System.arraycopy(innerMidstate, 0, hash, 0, 8);
 
-            return Base64.getUrlEncoder().encodeToString(outerHashData);
+        compressPayload(payload, offset, length, hash, W);
+
+        // blocco esterno: hash interno, 0x80 e lunghezza di opad + hash, costruito direttamente in parole
+        System.arraycopy(hash, 0, W, 0, 8);
+        W[8] = 0x80000000;
+        for (int i = 9; i < 15; i++) W[i] = 0;
+        W[15] = (BLOCK_SIZE + HASH_SIZE) * 8;
+
+        System.arraycopy(outerMidstate, 0, hash, 0, 8);
+
+        computeWordsSHA256(W);
+        computeHashSHA256(W, hash);
+
+        return hash;
+    }
 
+    private void computeMidstate(byte[] pad, int[] state, int[] W) {
+        System.arraycopy(INITIAL_HASH, 0, state, 0, 8);
+        for (int i = 0; i < 16; i++) {
+            int pos = i * 4;
+            W[i] = ((pad[pos] & 0xFF) << 24) |
+                    ((pad[pos + 1] & 0xFF) << 16) |
+                    ((pad[pos + 2] & 0xFF) << 8) |
+                    (pad[pos + 3] & 0xFF);
+        }
+        computeWordsSHA256(W);
+        computeHashSHA256(W, state);
+    }
+
+    // blocchi del payload con padding e lunghezza totale (blocco chiave compreso), letti carattere per carattere senza array di appoggio
+    private void compressPayload(CharSequence payload, int start, int length, int[] hash, int[] W) {
+
+        long lengthInBits = (long) (BLOCK_SIZE + length) * 8;
+        int blocks = (length + 8) / BLOCK_SIZE + 1;
+
+        for (int block = 0; block < blocks; block++) {
+            int offset = block * BLOCK_SIZE;
+            int words = block == blocks - 1 ? 14 : 16;
+
+            for (int i = 0; i < words; i++) {
+                int pos = offset + i * 4;
+                W[i] = (messageByte(payload, start, length, pos) << 24) |
+                        (messageByte(payload, start, length, pos + 1) << 16) |
+                        (messageByte(payload, start, length, pos + 2) << 8) |
+                        messageByte(payload, start, length, pos + 3);
+            }
+
+            if (words == 14) {
+                W[14] = (int) (lengthInBits >>> 32);
+                W[15] = (int) lengthInBits;
+            }
+
+            computeWordsSHA256(W);
+            computeHashSHA256(W, hash);
+        }
+    }
+
+    private static int messageByte(CharSequence payload, int start, int length, int pos) {
+        if (pos < length) return payload.charAt(start + pos) & 0xFF;
+        return pos == length ? 0x80 : 0;
+    }
+
+    private static byte[] toBytes(int[] hash) {
+        byte[] result = new byte[HASH_SIZE];
+        for (int i = 0; i < 8; i++) {
+            int pos = i * 4;
+            result[pos] = (byte) (hash[i] >>> 24);
+            result[pos + 1] = (byte) (hash[i] >>> 16);
+            result[pos + 2] = (byte) (hash[i] >>> 8);
+            result[pos + 3] = (byte) hash[i];
+        }
+        return result;
     }
 
     public byte[] computeSHA256(byte[] message, int dataDimension) {
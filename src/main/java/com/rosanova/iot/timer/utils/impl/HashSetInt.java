@@ -0,0 +1,198 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Insieme di int ad indirizzamento aperto con scansione lineare su un array primitivo.
+ * La capacità è una potenza di 2 (bitwise AND come modulo) e raddoppia oltre metà riempimento.
+ * La cancellazione sposta all'indietro gli elementi successivi del gruppo invece di lasciare marcatori,
+ * così la ricerca si ferma sempre alla prima cella vuota e non degrada dopo molte rimozioni.
+ * 0 indica la cella vuota, il valore 0 è tenuto in un flag a parte.
+ * La ricerca non alloca. La classe non è thread safe, la sincronizzazione è a carico del chiamante.
+ */
+public class HashSetInt {
+
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+
+    private int mask;
+
+    // elementi nell'array, escluso lo 0
+    private int size = 0;
+
+    private boolean containsZero = false;
+
+    public HashSetInt() {
+        this(64);
+    }
+
+    public HashSetInt(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int size() {
+        return containsZero ? size + 1 : size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return true se il valore non era presente
+     */
+    public boolean add(int value) {
+
+        if (value == EMPTY) {
+            boolean added = !containsZero;
+            containsZero = true;
+            return added;
+        }
+
+        int index = slot(value);
+        int current;
+
+        while ((current = keys[index]) != EMPTY) {
+            if (current == value) return false;
+            index = (index + 1) & mask;
+        }
+
+        keys[index] = value;
+
+        if (++size > keys.length >>> 1) rehash(keys.length << 1);
+
+        return true;
+    }
+
+    public boolean contains(int value) {
+
+        if (value == EMPTY) return containsZero;
+
+        int index = slot(value);
+        int current;
+
+        while ((current = keys[index]) != EMPTY) {
+            if (current == value) return true;
+            index = (index + 1) & mask;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true se il valore era presente
+     */
+    public boolean remove(int value) {
+
+        if (value == EMPTY) {
+            boolean removed = containsZero;
+            containsZero = false;
+            return removed;
+        }
+
+        int index = slot(value);
+        int current;
+
+        while ((current = keys[index]) != value) {
+            if (current == EMPTY) return false;
+            index = (index + 1) & mask;
+        }
+
+        shiftBack(index);
+        size--;
+        return true;
+    }
+
+    /**
+     * Aggiunge la colonna indicata di tutte le righe rimanenti del ResultSet, i NULL sono ignorati.
+     * @return il numero di valori nuovi
+     */
+    public int addAll(ResultSet resultSet, int column) throws SQLException {
+
+        int added = 0;
+
+        while (resultSet.next()) {
+            int value = resultSet.getInt(column);
+            if (resultSet.wasNull()) continue;
+            if (add(value)) added++;
+        }
+
+        return added;
+    }
+
+    /**
+     * Visita ogni valore in ordine non specificato; l'azione non deve modificare l'insieme
+     */
+    public void forEach(IntConsumer action) {
+        if (containsZero) action.accept(EMPTY);
+        for (int value : keys) {
+            if (value != EMPTY) action.accept(value);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        containsZero = false;
+    }
+
+    // riempie la cella liberata con il primo elemento successivo che può occuparla, fino alla prima cella vuota
+    private void shiftBack(int free) {
+
+        int index = free;
+
+        while (true) {
+            index = (index + 1) & mask;
+            int current = keys[index];
+
+            if (current == EMPTY) break;
+
+            int home = slot(current);
+
+            // l'elemento si sposta se la sua posizione naturale non cade tra la cella liberata (esclusa) e quella attuale
+            if (((index - home) & mask) >= ((index - free) & mask)) {
+                keys[free] = current;
+                free = index;
+            }
+        }
+
+        keys[free] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+
+        int[] old = keys;
+        allocate(capacity);
+
+        for (int value : old) {
+            if (value == EMPTY) continue;
+            int index = slot(value);
+            while (keys[index] != EMPTY) index = (index + 1) & mask;
+            keys[index] = value;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    // i nomi dei timer sono millisecondi del giorno, multipli di 1000: la moltiplicazione distribuisce i bit bassi
+    private int slot(int value) {
+        int hash = value * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = Math.max(8, expectedSize) * 2;
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+}
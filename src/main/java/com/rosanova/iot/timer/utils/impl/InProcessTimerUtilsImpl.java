@@ -0,0 +1,155 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.utils.TimerUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backend dei timer che non delega a systemd la programmazione:
+ * gli allarmi vengono tenuti dall'AlarmScheduler in processo e allo scatto viene avviato direttamente
+ * il service configurato (systemctl --user start timer@sinfonia.service).
+ * Non esistono file .timer né daemon-reload; come per il backend transitorio i timer vengono
+ * ricreati dal database all'avvio (TimerStartup).
+ */
+@Service
+@Qualifier("timerDefault")
+@Profile("inprocess")
+public class InProcessTimerUtilsImpl implements TimerUtils {
+
+    private static final String SERVICE = ".service";
+
+    private static final int MILLIS_DAY = 86_400_000;
+
+    private static final String ERROR_UNKNOWN_TIMER = "ERROR: In-process timer not prepared ";
+    private static final String ERROR_ON_CALENDAR = "ERROR: Invalid OnCalendar time ";
+
+    private record Alarm(int msOfDay, String service) {}
+
+    private final AlarmScheduler scheduler;
+
+    private final String serviceFileName;
+
+    private final SystemctlExecutor systemctlExecutor;
+
+    private final ConcurrentHashMap<String, Alarm> prepared = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, Alarm> deleted = new ConcurrentHashMap<>();
+
+    public InProcessTimerUtilsImpl(AlarmScheduler scheduler, @Value("${systemd.service.name}") String serviceFileName, SystemctlExecutor systemctlExecutor) {
+        this.scheduler = scheduler;
+        this.serviceFileName = serviceFileName;
+        this.systemctlExecutor = systemctlExecutor;
+    }
+
+    @Override
+    public Result createSystemdTimerUnit(String timerBaseName, String onCalendar, String parameter) {
+
+        int msOfDay = parseOnCalendar(onCalendar);
+
+        if (msOfDay < 0) {
+            System.err.println(ERROR_ON_CALENDAR + onCalendar);
+            return Result.ERROR;
+        }
+
+        prepared.put(timerBaseName, new Alarm(msOfDay, serviceFileName + '@' + parameter + SERVICE));
+        return Result.SUCCESS;
+    }
+
+    /**
+     * orario già in millisecondi dalla mezzanotte: nessuna stringa da produrre e rileggere, i millisecondi sono troncati al secondo come in OnCalendar
+     */
+    @Override
+    public Result createSystemdTimerUnit(String timerBaseName, int timeMillis, String parameter) {
+
+        if (timeMillis < 0 || timeMillis >= MILLIS_DAY) {
+            System.err.println(ERROR_ON_CALENDAR + timeMillis);
+            return Result.ERROR;
+        }
+
+        prepared.put(timerBaseName, new Alarm(timeMillis - timeMillis % 1000, serviceFileName + '@' + parameter + SERVICE));
+        return Result.SUCCESS;
+    }
+
+    @Override
+    public Result reversSystemdTimerUnitInsert(String timerBaseName) {
+        prepared.remove(timerBaseName);
+        return Result.SUCCESS;
+    }
+
+    @Override
+    public Result deleteSystemdTimerUnit(String timerBaseName) {
+        Alarm alarm = prepared.remove(timerBaseName);
+        if (alarm != null) deleted.put(timerBaseName, alarm);
+        return Result.SUCCESS;
+    }
+
+    @Override
+    public Result reverseDeleteSystemdTimerUnit(String timerBaseName) {
+        Alarm alarm = deleted.remove(timerBaseName);
+        if (alarm != null) prepared.put(timerBaseName, alarm);
+        return Result.SUCCESS;
+    }
+
+    @Override
+    public Result timerReload() {
+        return Result.SUCCESS;
+    }
+
+    @Override
+    public Result activateSystemdTimer(String timerBaseName) {
+
+        Alarm alarm = prepared.get(timerBaseName);
+
+        if (alarm == null) {
+            System.err.println(ERROR_UNKNOWN_TIMER + timerBaseName);
+            return Result.ERROR;
+        }
+
+        String service = alarm.service();
+        scheduler.schedule(timerBaseName, alarm.msOfDay(), () -> startService(service));
+        return Result.SUCCESS;
+    }
+
+    @Override
+    public Result deactivateSystemdTimer(String timerBaseName) {
+        scheduler.cancel(timerBaseName);
+        return Result.SUCCESS;
+    }
+
+    /**
+     * azione eseguita allo scatto dell'allarme, sull'executor dello scheduler
+     * **/
+    public Result startService(String service) {
+        return systemctlExecutor.run(SystemctlExecutor.Command.START, List.of(service), this::getProcessBuilder);
+    }
+
+    public ProcessBuilder getProcessBuilder(String[] command) {
+        return new ProcessBuilder(command);
+    }
+
+    // "HH:mm:ss" in millisecondi dalla mezzanotte, -1 se il formato non è valido
+    static int parseOnCalendar(String onCalendar) {
+        if (onCalendar == null || onCalendar.length() != 8 || onCalendar.charAt(2) != ':' || onCalendar.charAt(5) != ':') return -1;
+
+        int hours = twoDigits(onCalendar, 0);
+        int minutes = twoDigits(onCalendar, 3);
+        int seconds = twoDigits(onCalendar, 6);
+
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) return -1;
+
+        return ((hours * 60 + minutes) * 60 + seconds) * 1000;
+    }
+
+    private static int twoDigits(String value, int offset) {
+        int high = value.charAt(offset) - '0';
+        int low = value.charAt(offset + 1) - '0';
+        if (high < 0 || high > 9 || low < 0 || low > 9) return -1;
+        return high * 10 + low;
+    }
+}
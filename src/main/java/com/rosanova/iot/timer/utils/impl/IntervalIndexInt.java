@@ -0,0 +1,140 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import java.util.Arrays;
+
+/**
+ * Indice in memoria degli intervalli [start, end] dei timer basato su array primitivi ordinati.
+ * Gli start (con id ed end associati) sono ordinati per start, gli end sono ordinati separatamente:
+ * il conteggio delle sovrapposizioni con [start, end] vale
+ * #(start_i <= end) - #(end_i < start), calcolato con due ricerche binarie in O(log n).
+ * La classe non è thread safe, la sincronizzazione è a carico del chiamante.
+ */
+public class IntervalIndexInt {
+
+    private long[] ids;
+
+    // ordinati per start, paralleli tra loro
+    private int[] starts;
+    private int[] endsByStart;
+
+    // ordinati in modo indipendente
+    private int[] ends;
+
+    private int size = 0;
+
+    public IntervalIndexInt(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 8);
+        ids = new long[capacity];
+        starts = new int[capacity];
+        endsByStart = new int[capacity];
+        ends = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(long id, int start, int end) {
+
+        if (size == starts.length) grow();
+
+        int position = upperBound(starts, size, start);
+        System.arraycopy(starts, position, starts, position + 1, size - position);
+        System.arraycopy(endsByStart, position, endsByStart, position + 1, size - position);
+        System.arraycopy(ids, position, ids, position + 1, size - position);
+        starts[position] = start;
+        endsByStart[position] = end;
+        ids[position] = id;
+
+        int endPosition = upperBound(ends, size, end);
+        System.arraycopy(ends, endPosition, ends, endPosition + 1, size - endPosition);
+        ends[endPosition] = end;
+
+        size++;
+    }
+
+    /**
+     * @return la posizione dell'intervallo con l'id indicato, -1 se non presente
+     */
+    public int find(long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) return i;
+        }
+        return -1;
+    }
+
+    public int startAt(int position) {
+        return starts[position];
+    }
+
+    public int endAt(int position) {
+        return endsByStart[position];
+    }
+
+    public void removeAt(int position) {
+
+        int end = endsByStart[position];
+
+        System.arraycopy(starts, position + 1, starts, position, size - position - 1);
+        System.arraycopy(endsByStart, position + 1, endsByStart, position, size - position - 1);
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+
+        // gli end uguali sono intercambiabili, basta rimuoverne uno
+        int endPosition = lowerBound(ends, size, end);
+        System.arraycopy(ends, endPosition + 1, ends, endPosition, size - endPosition - 1);
+
+        size--;
+    }
+
+    public boolean removeById(long id) {
+        int position = find(id);
+        if (position < 0) return false;
+        removeAt(position);
+        return true;
+    }
+
+    /**
+     * Conta gli intervalli che soddisfano start <= end_i AND end >= start_i,
+     * la stessa condizione usata dalla query SQL sulla tabella timer.
+     */
+    public int countOverlaps(int start, int end) {
+        if (start > end) return 0;
+        return upperBound(starts, size, end) - lowerBound(ends, size, start);
+    }
+
+    // primo indice con array[i] >= value
+    private static int lowerBound(int[] array, int length, int value) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < value) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // primo indice con array[i] > value
+    private static int upperBound(int[] array, int length, int value) {
+        int low = 0;
+        int high = length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] <= value) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private void grow() {
+        int capacity = starts.length << 1;
+        ids = Arrays.copyOf(ids, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        endsByStart = Arrays.copyOf(endsByStart, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+    }
+}
@@ -0,0 +1,72 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import com.rosanova.iot.timer.utils.HMACSHA256SignatureUtil;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * HMAC-SHA256 tramite javax.crypto.Mac, che su x86 e ARMv8 usa gli intrinseci SHA di HotSpot.
+ * Un Mac già inizializzato con la chiave per ogni thread; i caratteri del payload sono convertiti in byte
+ * come nell'implementazione in Java (troncamento a 8 bit), così i token prodotti sono identici.
+ */
+public class JcaHMACSHA256SignatureUtil implements HMACSHA256SignatureUtil {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int BUFFER_SIZE = 64;
+
+    private final SecretKeySpec key;
+
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    // payload convertito a blocchi, riutilizzato per thread
+    private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    public JcaHMACSHA256SignatureUtil(String secret) {
+        byte[] keyBytes = new byte[secret.length()];
+        for (int i = 0; i < keyBytes.length; i++) keyBytes[i] = (byte) secret.charAt(i);
+        key = new SecretKeySpec(keyBytes, ALGORITHM);
+        // fallisce subito se l'algoritmo non è disponibile sulla piattaforma
+        newMac();
+    }
+
+    @Override
+    public String computeHMACSHA256(String payload) {
+        byte[] mac = new byte[32];
+        computeHMACSHA256(payload, 0, payload.length(), mac);
+        return Base64.getUrlEncoder().encodeToString(mac);
+    }
+
+    @Override
+    public void computeHMACSHA256(CharSequence payload, int offset, int length, byte[] out) {
+
+        Mac mac = macs.get();
+        byte[] buffer = buffers.get();
+
+        for (int done = 0; done < length; ) {
+            int chunk = Math.min(BUFFER_SIZE, length - done);
+            for (int i = 0; i < chunk; i++) buffer[i] = (byte) payload.charAt(offset + done + i);
+            mac.update(buffer, 0, chunk);
+            done += chunk;
+        }
+
+        try {
+            mac.doFinal(out, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalArgumentException("buffer MAC troppo corto: " + out.length);
+        }
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 JCA non disponibile: " + e.getMessage());
+        }
+    }
+}
@@ -9,7 +9,7 @@ import org.springframework.stereotype.Service;
 @Qualifier("monitorShutdown")
 public class MonitorTimerShutdownUtilImpl extends TimerUtilsImpl implements TimerUtils {
 
-    public MonitorTimerShutdownUtilImpl(@Value("${tmp.directory}" )String tmpDir, @Value("${systemd.monitor.directory}") String systemdTimerDir, @Value("${systemd.monitorShutdown.service.name}") String serviceFileName) {
-        super(tmpDir, systemdTimerDir, serviceFileName,false);
+    public MonitorTimerShutdownUtilImpl(@Value("${tmp.directory}" )String tmpDir, @Value("${systemd.monitor.directory}") String systemdTimerDir, @Value("${systemd.monitorShutdown.service.name}") String serviceFileName, DaemonReloadCoalescer reloadCoalescer, SystemctlExecutor systemctlExecutor) {
+        super(tmpDir, systemdTimerDir, serviceFileName,false, reloadCoalescer, systemctlExecutor);
     }
 }
@@ -9,7 +9,7 @@ import org.springframework.stereotype.Service;
 @Qualifier("monitorOn")
 public class MonitorTimerUtilImpl extends TimerUtilsImpl implements TimerUtils {
 
-    public MonitorTimerUtilImpl(@Value("${tmp.directory}" )String tmpDir,@Value("${systemd.monitor.directory}" )String systemdTimerDir, @Value("${systemd.monitor.service.on.name}") String serviceFileName) {
-        super(tmpDir, systemdTimerDir, serviceFileName,false);
+    public MonitorTimerUtilImpl(@Value("${tmp.directory}" )String tmpDir,@Value("${systemd.monitor.directory}" )String systemdTimerDir, @Value("${systemd.monitor.service.on.name}") String serviceFileName, DaemonReloadCoalescer reloadCoalescer, SystemctlExecutor systemctlExecutor) {
+        super(tmpDir, systemdTimerDir, serviceFileName,false, reloadCoalescer, systemctlExecutor);
     }
 }
@@ -0,0 +1,84 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Coda limitata a più produttori e un solo consumatore su array circolare.
+ * Ogni cella ha un numero di sequenza: vale la posizione quando la cella è libera per quel giro
+ * e la posizione + 1 quando contiene un elemento pronto. I produttori si contendono la coda con una CAS,
+ * il consumatore non usa operazioni atomiche oltre alla pubblicazione della cella liberata.
+ * offer non blocca mai: con la coda piena restituisce false.
+ */
+public class MpscRingBuffer<T> {
+
+    private final int mask;
+
+    private final AtomicReferenceArray<T> elements;
+
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong tail = new AtomicLong();
+
+    // letto e scritto solo dal consumatore
+    private long head = 0;
+
+    /**
+     * @param capacity arrotondata alla potenza di due successiva
+     */
+    public MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    public boolean offer(T element) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long sequence = sequences.get(index);
+
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // la cella contiene ancora un elemento del giro precedente: coda piena
+                return false;
+            }
+            // un altro produttore ha preso la posizione, si riprova con la nuova coda
+        }
+    }
+
+    /**
+     * @return il prossimo elemento o null se la coda è vuota; da chiamare solo dal thread consumatore
+     */
+    public T poll() {
+        int index = (int) (head & mask);
+
+        if (sequences.get(index) != head + 1) return null;
+
+        T element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+        return element;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * numero approssimato di elementi in coda
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+}
@@ -0,0 +1,305 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Journal write-ahead delle saga di timer e monitor su un file preallocato mappato in memoria.
+ * Ogni operazione scrive un record BEGIN con i nomi delle unit coinvolte, un record STEP per ogni passo completato
+ * e un record END quando è terminata (con successo o dopo il rollback).
+ * Un record diventa visibile solo quando viene scritto il suo id, dopo il resto del record;
+ * prima di ogni record viene azzerato l'id della posizione successiva, così la lettura si ferma sempre all'ultimo record completo.
+ * Quando nessuna operazione è aperta la scrittura riparte dall'inizio del file.
+ * All'avvio le operazioni senza END vengono rese disponibili per il recupero.
+ * Un'operazione il cui rollback fallisce resta aperta e viene aggiunta alle operazioni da recuperare
+ * (failed): JournalRecovery la riprende periodicamente, così il conteggio delle aperte torna a zero
+ * e il file riparte dall'inizio anche senza un riavvio.
+ */
+@Component
+public class SagaJournal {
+
+    public enum Kind {
+        TIMER_INSERT,
+        TIMER_REMOVE,
+        MONITOR_START,
+        MONITOR_STOP,
+        // sostituzione con un solo daemon-reload: i passi hanno un significato diverso da MONITOR_START e MONITOR_STOP
+        MONITOR_START_SWAP,
+        MONITOR_STOP_SWAP,
+        // start e stop insieme con gli stessi passi della sostituzione, nomi: start precedente, start, stop precedente, stop
+        MONITOR_SCHEDULE_SWAP
+    }
+
+    /**
+     * operazione non terminata trovata all'avvio
+     * @param step ultimo passo completato registrato, 0 se nessuno
+     */
+    public record Entry(int id, Kind kind, int step, int[] names) {}
+
+    private static final int MAGIC = 0x53474A31; // "SGJ1"
+
+    private static final int HEADER = 16;
+
+    private static final byte BEGIN = 1;
+    private static final byte STEP = 2;
+    private static final byte END = 3;
+    private static final byte OVERFLOW = 4;
+
+    // id, tipo, kind, numero di nomi, step
+    private static final int RECORD_HEADER = 12;
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final MappedByteBuffer buffer;
+
+    private final boolean force;
+
+    private int position = HEADER;
+
+    private int nextId = 1;
+
+    private int open = 0;
+
+    private boolean overflowed = false;
+
+    private final List<Entry> pending = new ArrayList<>();
+
+    // operazioni in corso con l'ultimo passo registrato, per consegnarle al recupero se il rollback fallisce
+    private final LinkedHashMap<Integer, Entry> active = new LinkedHashMap<>();
+
+    private boolean cleanAtStartup = false;
+
+    // journal nuovo, illeggibile o pieno: lo stato delle operazioni precedenti non è noto
+    private boolean unknownAtStartup = false;
+
+    /**
+     * @param file percorso del journal, se vuoto il journal è disabilitato
+     * @param size dimensione preallocata del file in byte
+     * @param force forza su disco ogni record, necessario per sopravvivere anche a una caduta di corrente
+     */
+    public SagaJournal(@Value("${journal.file:}") String file,
+                       @Value("${journal.size.bytes:65536}") int size,
+                       @Value("${journal.force:true}") boolean force) {
+        this.force = force;
+        this.buffer = file == null || file.isBlank() ? null : open(Paths.get(file), size);
+        if (buffer != null) load();
+    }
+
+    /**
+     * journal che non registra nulla, per i componenti costruiti senza journal
+     */
+    public static SagaJournal disabled() {
+        return new SagaJournal("", 0, false);
+    }
+
+    public boolean isEnabled() {
+        return buffer != null;
+    }
+
+    /**
+     * @return l'id dell'operazione, 0 se il journal è disabilitato o pieno
+     */
+    public synchronized int begin(Kind kind, int... names) {
+        if (buffer == null) return 0;
+
+        int id = nextId++;
+        if (!append(id, BEGIN, kind, 0, names)) {
+            // ogni operazione persa va segnalata: senza record non potrà essere recuperata dopo un arresto
+            System.err.println("ERRORE JOURNAL OPERAZIONI PIENO: " + kind + " eseguita senza journal, operazioni aperte " + open
+                    + ", da recuperare " + pending.size());
+            return 0;
+        }
+
+        active.put(id, new Entry(id, kind, 0, names.clone()));
+        open++;
+        return id;
+    }
+
+    public synchronized void step(int id, int step) {
+        if (buffer == null || id == 0) return;
+        append(id, STEP, null, step, null);
+
+        Entry entry = active.get(id);
+        if (entry != null) active.put(id, new Entry(id, entry.kind(), step, entry.names()));
+    }
+
+    public synchronized void end(int id) {
+        if (buffer == null || id == 0) return;
+
+        append(id, END, null, 0, null);
+        active.remove(id);
+        open--;
+
+        if (open == 0) rewind();
+    }
+
+    /**
+     * Rollback fallito: l'operazione resta aperta nel file e passa tra quelle da recuperare,
+     * con l'ultimo passo registrato. Viene chiusa da recovered.
+     */
+    public synchronized void failed(int id) {
+        if (buffer == null || id == 0) return;
+
+        Entry entry = active.remove(id);
+        if (entry == null) return;
+
+        pending.add(entry);
+        System.err.println("OPERAZIONE " + entry.kind() + " " + id + " DA RECUPERARE, passo " + entry.step());
+    }
+
+    /**
+     * operazioni trovate aperte all'avvio, da recuperare prima di accettare richieste,
+     * e operazioni il cui rollback è fallito durante l'esecuzione
+     */
+    public synchronized List<Entry> getPending() {
+        return List.copyOf(pending);
+    }
+
+    /**
+     * l'operazione recuperata all'avvio viene chiusa
+     */
+    public synchronized void recovered(int id) {
+        if (pending.removeIf(entry -> entry.id() == id)) end(id);
+    }
+
+    /**
+     * true se all'avvio il journal esisteva, non era pieno e non conteneva operazioni aperte
+     */
+    public synchronized boolean isCleanAtStartup() {
+        return cleanAtStartup;
+    }
+
+    /**
+     * true se il journal era pulito all'avvio o se tutte le operazioni aperte sono state recuperate:
+     * in questo caso la scansione completa delle directory all'avvio non serve
+     */
+    public synchronized boolean isConsistent() {
+        return buffer != null && !unknownAtStartup && pending.isEmpty();
+    }
+
+    public synchronized int getOpen() {
+        return open;
+    }
+
+    private MappedByteBuffer open(Path path, int size) {
+        try {
+            boolean exists = Files.exists(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, HEADER + 1024));
+                if (!exists || mapped.getInt(0) != MAGIC) {
+                    mapped.putInt(HEADER, 0);
+                    mapped.putInt(0, MAGIC);
+                    mapped.force();
+                    unknownAtStartup = true;
+                }
+                return mapped;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("ERRORE APERTURA JOURNAL OPERAZIONI: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void load() {
+
+        LinkedHashMap<Integer, Entry> opened = new LinkedHashMap<>();
+        int maxId = 0;
+        int offset = HEADER;
+
+        while (offset + RECORD_HEADER <= buffer.limit()) {
+            int id = buffer.getInt(offset);
+            if (id == 0) break;
+
+            byte type = buffer.get(offset + 4);
+            int kind = buffer.get(offset + 5);
+            int count = buffer.getShort(offset + 6);
+            int step = buffer.getInt(offset + 8);
+
+            if (kind < 0 || kind >= KINDS.length || count < 0 || offset + RECORD_HEADER + 4 * count > buffer.limit()) {
+                unknownAtStartup = true;
+                break;
+            }
+
+            maxId = Math.max(maxId, id);
+
+            if (type == BEGIN) {
+                int[] names = new int[count];
+                for (int i = 0; i < count; i++) names[i] = buffer.getInt(offset + RECORD_HEADER + 4 * i);
+                opened.put(id, new Entry(id, KINDS[kind], 0, names));
+            } else if (type == STEP) {
+                Entry entry = opened.get(id);
+                if (entry != null) opened.put(id, new Entry(id, entry.kind(), step, entry.names()));
+            } else if (type == END) {
+                opened.remove(id);
+            } else if (type == OVERFLOW) {
+                unknownAtStartup = true;
+            }
+
+            offset += RECORD_HEADER + 4 * count;
+        }
+
+        pending.addAll(opened.values());
+        cleanAtStartup = !unknownAtStartup && pending.isEmpty();
+        nextId = maxId + 1;
+
+        // le operazioni aperte restano nel file finché non vengono recuperate
+        position = offset;
+        open = pending.size();
+        if (open == 0) rewind();
+    }
+
+    private boolean append(int id, byte type, Kind kind, int step, int[] names) {
+
+        int count = names == null ? 0 : names.length;
+        int length = RECORD_HEADER + 4 * count;
+
+        // resta sempre spazio per il record di overflow e per il terminatore
+        if (overflowed || position + length + RECORD_HEADER + 4 > buffer.limit()) {
+            if (!overflowed) {
+                overflowed = true;
+                write(id, OVERFLOW, 0, 0, null, RECORD_HEADER);
+            }
+            return false;
+        }
+
+        write(id, type, kind == null ? 0 : kind.ordinal(), step, names, length);
+        return true;
+    }
+
+    private void write(int id, byte type, int kind, int step, int[] names, int length) {
+
+        int start = position;
+        int count = names == null ? 0 : names.length;
+
+        buffer.putInt(start + length, 0);
+        buffer.put(start + 4, type);
+        buffer.put(start + 5, (byte) kind);
+        buffer.putShort(start + 6, (short) count);
+        buffer.putInt(start + 8, step);
+        for (int i = 0; i < count; i++) buffer.putInt(start + RECORD_HEADER + 4 * i, names[i]);
+        buffer.putInt(start, id);
+
+        if (force) buffer.force(start, length + 4);
+
+        position = start + length;
+    }
+
+    // nessuna operazione aperta: il prossimo record riparte dall'inizio
+    private void rewind() {
+        buffer.putInt(HEADER, 0);
+        if (force) buffer.force(HEADER, 4);
+        position = HEADER;
+        overflowed = false;
+    }
+}
@@ -0,0 +1,284 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import com.rosanova.iot.timer.error.Result;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Esecuzione dei comandi systemctl --user senza shell intermedia.
+ * Ogni comando gira su un virtual thread, al massimo maxConcurrent processi alla volta;
+ * stdout e stderr vengono svuotati da virtual thread dedicati (un processo con la pipe piena non termina mai)
+ * e un processo che supera il timeout viene terminato e restituisce ERROR.
+ * Per ogni tipo di comando viene tenuto un istogramma delle latenze.
+ */
+@Component
+public class SystemctlExecutor {
+
+    public enum Command {
+        DAEMON_RELOAD("daemon-reload"),
+        ENABLE("enable", "--now"),
+        DISABLE("disable", "--now"),
+        START("start"),
+        STOP("stop"),
+        // comando completo fornito dal chiamante, esempio systemd-run per i timer transitori
+        SYSTEMD_RUN();
+
+        private final String[] args;
+
+        Command(String... args) {
+            this.args = args;
+        }
+    }
+
+    private static final int MAX_CAPTURED_OUTPUT = 8192;
+
+    // exit code convenzionale per processi non avviati, interrotti o terminati per timeout
+    private static final int NOT_COMPLETED = -1;
+
+    private record Outcome(int exitCode, String output) {}
+
+    private static final String ERROR_SYSTEMCTL = "ERROR: Systemctl sequence failed. ";
+    private static final String ERROR_SYSTEMCTL_TIMEOUT = "ERROR: Systemctl timeout, process killed ";
+    private static final String ERROR_SYSTEMCTL_SHUTDOWN = "ERROR: Systemctl executor shut down, command not started ";
+    private static final String ERROR_SYSTEMCTL_IO = "ERROR: IOException during process execution ";
+    private static final String ERROR_SYSTEMCTL_THREAD = "ERROR: Process execution interrupted for process command ";
+
+    private final String systemctl;
+
+    private final long timeoutMillis;
+
+    private final Semaphore permits;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final EnumMap<Command, LatencyHistogram> latencies = new EnumMap<>(Command.class);
+
+    private final EnumMap<Command, LongAdder> failures = new EnumMap<>(Command.class);
+
+    private final EnumMap<Command, LongAdder> timeouts = new EnumMap<>(Command.class);
+
+    public SystemctlExecutor() {
+        this("", 10_000, 4);
+    }
+
+    // istanza comune ai TimerUtilsImpl costruiti fuori da Spring, così condividono lo stesso limite di processi
+    private static final class Standalone {
+        private static final SystemctlExecutor INSTANCE = new SystemctlExecutor();
+    }
+
+    /**
+     * Esecutore condiviso per le istanze create senza iniezione; nell'applicazione si usa il bean.
+     */
+    public static SystemctlExecutor standalone() {
+        return Standalone.INSTANCE;
+    }
+
+    /**
+     * @param binDirectory directory di systemctl, se vuota viene cercato nel PATH
+     * @param timeoutMillis tempo massimo di un singolo comando
+     * @param maxConcurrent processi systemctl contemporanei
+     * **/
+    @Autowired
+    public SystemctlExecutor(@Value("${systemd.bin.directory:}") String binDirectory,
+                             @Value("${systemctl.timeout.ms:10000}") long timeoutMillis,
+                             @Value("${systemctl.max.concurrent:4}") int maxConcurrent) {
+        this.systemctl = binDirectory == null || binDirectory.isBlank() ? "systemctl" : Paths.get(binDirectory).resolve("systemctl").toString();
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxConcurrent, true);
+        for (Command command : Command.values()) {
+            latencies.put(command, new LatencyHistogram());
+            failures.put(command, new LongAdder());
+            timeouts.put(command, new LongAdder());
+        }
+    }
+
+    /**
+     * I comandi già avviati terminano o scadono per timeout, i nuovi vengono rifiutati.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) executor.shutdownNow();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public CompletableFuture<Result> submit(Command command, List<String> units) {
+        return submit(command, units, ProcessBuilder::new);
+    }
+
+    /**
+     * @param processFactory costruzione del ProcessBuilder a partire dagli argomenti, sostituibile nei test
+     */
+    public CompletableFuture<Result> submit(Command command, List<String> units, Function<String[], ProcessBuilder> processFactory) {
+        return submit(command, argv(command, units), processFactory);
+    }
+
+    /**
+     * Esegue un comando già completo con lo stesso timeout, limite di processi e metriche dei comandi systemctl.
+     * @param command tipo con cui vengono registrate latenza, fallimenti e timeout
+     * @param argv eseguibile e argomenti
+     */
+    public CompletableFuture<Result> submit(Command command, String[] argv, Function<String[], ProcessBuilder> processFactory) {
+        try {
+            return CompletableFuture.supplyAsync(() -> execute(command, argv, processFactory).exitCode() == 0 ? Result.SUCCESS : Result.ERROR, executor);
+        } catch (RejectedExecutionException e) {
+            return rejected(command, argv, Result.ERROR);
+        }
+    }
+
+    /**
+     * Un solo processo per tutte le unit, con l'esito per singola unit ricavato dall'output di systemctl.
+     * @param baseNames nomi delle unit senza estensione
+     * @param extension estensione delle unit, esempio ".timer"
+     */
+    public CompletableFuture<UnitResults> submitUnits(Command command, List<String> baseNames, String extension, Function<String[], ProcessBuilder> processFactory) {
+        if (baseNames.isEmpty()) return CompletableFuture.completedFuture(UnitResults.allOf(baseNames, Result.SUCCESS));
+
+        List<String> units = new ArrayList<>(baseNames.size());
+        for (String baseName : baseNames) units.add(baseName + extension);
+
+        String[] argv = argv(command, units);
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                Outcome outcome = execute(command, argv, processFactory);
+                return UnitResults.parse(baseNames, extension, outcome.exitCode(), outcome.output());
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return rejected(command, argv, UnitResults.allOf(baseNames, Result.ERROR));
+        }
+    }
+
+    // esecutore già chiuso (arresto dell'applicazione): il comando non parte
+    private <T> CompletableFuture<T> rejected(Command command, String[] argv, T result) {
+        failures.get(command).increment();
+        System.err.println(ERROR_SYSTEMCTL_SHUTDOWN + String.join(" ", argv));
+        return CompletableFuture.completedFuture(result);
+    }
+
+    /**
+     * variante bloccante per i chiamanti sincroni
+     * **/
+    public Result run(Command command, List<String> units, Function<String[], ProcessBuilder> processFactory) {
+        return submit(command, units, processFactory).join();
+    }
+
+    public Result run(Command command, String[] argv, Function<String[], ProcessBuilder> processFactory) {
+        return submit(command, argv, processFactory).join();
+    }
+
+    public String[] argv(Command command, List<String> units) {
+        String[] argv = new String[2 + command.args.length + units.size()];
+        argv[0] = systemctl;
+        argv[1] = "--user";
+        System.arraycopy(command.args, 0, argv, 2, command.args.length);
+        for (int i = 0; i < units.size(); i++) argv[2 + command.args.length + i] = units.get(i);
+        return argv;
+    }
+
+    public LatencyHistogram getLatency(Command command) {
+        return latencies.get(command);
+    }
+
+    public long getFailures(Command command) {
+        return failures.get(command).sum();
+    }
+
+    public long getTimeouts(Command command) {
+        return timeouts.get(command).sum();
+    }
+
+    private Outcome execute(Command command, String[] argv, Function<String[], ProcessBuilder> processFactory) {
+
+        long start = System.nanoTime();
+        boolean acquired = false;
+        Outcome outcome = new Outcome(NOT_COMPLETED, null);
+
+        try {
+            permits.acquire();
+            acquired = true;
+
+            ProcessBuilder pb = processFactory.apply(argv);
+
+            pb.environment().put("XDG_RUNTIME_DIR", "/run/user/1000");
+
+            Process process = pb.start();
+
+            CompletableFuture<String> stdout = drain(process.getInputStream());
+            CompletableFuture<String> stderr = drain(process.getErrorStream());
+
+            if (!process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                timeouts.get(command).increment();
+                System.err.println(ERROR_SYSTEMCTL_TIMEOUT + String.join(" ", argv));
+                return outcome;
+            }
+
+            int exitCode = process.exitValue();
+
+            if (exitCode != 0) {
+                String output = stderr.join() + stdout.join();
+                System.err.println(ERROR_SYSTEMCTL + String.join(" ", argv) + " " + output);
+                outcome = new Outcome(exitCode, output);
+                return outcome;
+            }
+
+            outcome = new Outcome(0, "");
+            return outcome;
+
+        } catch (IOException e) {
+            System.err.println(ERROR_SYSTEMCTL_IO + e.getMessage());
+            return outcome;
+        } catch (InterruptedException e) {
+            System.err.println(ERROR_SYSTEMCTL_THREAD + String.join(" ", argv));
+            Thread.currentThread().interrupt();
+            return outcome;
+        } finally {
+            if (acquired) permits.release();
+            if (outcome.exitCode() != 0) failures.get(command).increment();
+            latencies.get(command).record((System.nanoTime() - start) / 1000);
+        }
+    }
+
+    // legge lo stream fino alla chiusura, conserva al massimo MAX_CAPTURED_OUTPUT byte per i messaggi di errore
+    private CompletableFuture<String> drain(InputStream stream) {
+        if (stream == null) return CompletableFuture.completedFuture("");
+
+        return CompletableFuture.supplyAsync(() -> {
+            ByteArrayOutputStream captured = new ByteArrayOutputStream(256);
+            byte[] buffer = new byte[1024];
+            try (stream) {
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    int room = MAX_CAPTURED_OUTPUT - captured.size();
+                    if (room > 0) captured.write(buffer, 0, Math.min(room, read));
+                }
+            } catch (IOException e) {
+                // processo terminato forzatamente: lo stream viene chiuso sotto di noi
+            }
+            return captured.toString(StandardCharsets.UTF_8);
+        }, executor);
+    }
+}
@@ -10,36 +10,25 @@ import org.springframework.stereotype.Service;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 
 public class TimerUtilsImpl implements TimerUtils {
 
 
     private static final String TIMER_FILE_EXTENSION = ".timer";
-    private static final String[] COMMAND_PREFIX = {"/bin/sh", "-c"};
-
-    //file
-    private static final String[] FILE_STATIC = {"[Unit]\nDescription=Custom Timer for ", "\n\n[Timer]\nOnCalendar= *-*-* ","\nPersistent=true\nUnit=", "\nUnit=", "\n\n[Install]\nWantedBy=timers.target\n"};
-
-    private static final String DAEMON_RELOAD = "systemctl --user daemon-reload";
-
-    //command
-    private static final String[] COMMAND = {"systemctl --user enable --now "};
-
-    //deactivate-command
-    private static final String[] COMMAND_DEACTIVATION = { "systemctl --user disable --now "};
-
-    private static final String SERVICE = ".service";
 
     //Errors
     private static final String ERROR_IO_TIMER_WRITE = "ERROR: Failed to create or move timer file";
-    private static final String ERROR_SYSTEMCTL = "ERROR: Systemctl sequence failed.";
-    private static final String ERROR_SYSTEMCTL_IO = "ERROR: IOException during process execution ";
-    private static final String ERROR_SYSTEMCTL_THREAD= "ERROR: Process execution interrupted for process command ";
 
     private final Path tempDir;
 
@@ -47,7 +36,13 @@ public class TimerUtilsImpl implements TimerUtils {
 
     private final String serviceFileName;
 
-    private final int activeOnStartup;
+    private final UnitTemplate template;
+
+    private final DaemonReloadCoalescer reloadCoalescer;
+
+    private final SystemctlExecutor systemctlExecutor;
+
+    private final UnitFileWriter unitWriter = new UnitFileWriter();
 
     /**
      * @param systemdTimerDir directory di sistema per i file .timer, esempio: /etc/systemd/system/
@@ -57,52 +52,125 @@ public class TimerUtilsImpl implements TimerUtils {
 
 
     public TimerUtilsImpl(@Value("${tmp.directory}" )String tmpDir,@Value("${systemd.directory}" )String systemdTimerDir, @Value("${systemd.service.name}") String serviceFileName,boolean activeOnStartup){
+        this(tmpDir, systemdTimerDir, serviceFileName, activeOnStartup, null);
+    }
+
+    /**
+     * @param reloadCoalescer se presente i daemon-reload vengono condivisi con le altre istanze, se null ogni reload è eseguito direttamente
+     * Senza esecutore iniettato si usa SystemctlExecutor.standalone(), comune a tutte le istanze costruite così.
+     * **/
+    public TimerUtilsImpl(String tmpDir, String systemdTimerDir, String serviceFileName, boolean activeOnStartup, DaemonReloadCoalescer reloadCoalescer){
+        this(tmpDir, systemdTimerDir, serviceFileName, activeOnStartup, reloadCoalescer, SystemctlExecutor.standalone());
+    }
+
+    /**
+     * @param systemctlExecutor esecutore condiviso dei comandi systemctl, con timeout e istogrammi di latenza
+     * **/
+    public TimerUtilsImpl(String tmpDir, String systemdTimerDir, String serviceFileName, boolean activeOnStartup, DaemonReloadCoalescer reloadCoalescer, SystemctlExecutor systemctlExecutor){
         tempDir = Paths.get(tmpDir);
         targetDir = Paths.get(systemdTimerDir);
         this.serviceFileName = serviceFileName;
-        this.activeOnStartup = activeOnStartup ? 2 : 3;
-
-
+        this.template = new UnitTemplate(serviceFileName, activeOnStartup);
+        this.reloadCoalescer = reloadCoalescer;
+        this.systemctlExecutor = systemctlExecutor;
     }
 
     /**
-     * Crea il contenuto per un file unit Systemd .timer, lo scrive in temporanea
-     * e simula lo spostamento nella cartella di sistema.
+     * Crea il contenuto per un file unit Systemd .timer e lo scrive in modo atomico nella cartella di sistema.
      * @param timerBaseName Il nome base del file (es. "myjob").
      * @param onCalendar L'orario di esecuzione configurabile.
      * @return Codice di stato: 0 (SUCCESS), 1 (ERROR).
      */
     public Result createSystemdTimerUnit(String timerBaseName, String onCalendar, String parameter) {
 
-        String fullTimerName = timerBaseName + TIMER_FILE_EXTENSION;
+        Path targetTimerFile = targetDir.resolve(timerBaseName + TIMER_FILE_EXTENSION);
 
-        StringBuilder timerContent = new StringBuilder(150);
+        return renderUnitFiles(List.of(targetTimerFile), List.of(onCalendar), List.of(parameter));
 
-        StringBuilder service = new StringBuilder(3);
+    }
 
-        service.append(serviceFileName).append('@')
-                .append(parameter)
-                .append(SERVICE);
+    /**
+     * Come la variante testuale, ma l'orario è scritto dal modello direttamente nel buffer del writer.
+     * @param timeMillis millisecondi dalla mezzanotte
+     */
+    @Override
+    public Result createSystemdTimerUnit(String timerBaseName, int timeMillis, String parameter) {
 
-        timerContent.append(FILE_STATIC[0]).append(service)
-                .append(FILE_STATIC[1]).append(onCalendar)
-                .append(FILE_STATIC[activeOnStartup]).append(service)
-                .append(FILE_STATIC[4]);
+        Path targetTimerFile = targetDir.resolve(timerBaseName + TIMER_FILE_EXTENSION);
 
+        return writeUnits(List.of(targetTimerFile), (index, buffer) -> template.render(buffer, timeMillis, parameter));
+    }
 
-            Path tempTimerFile = tempDir.resolve(fullTimerName);
-            Path targetTimerFile = targetDir.resolve(fullTimerName);
+    /**
+     * Crea più file .timer con una sola barriera di sincronizzazione e un solo fsync della directory.
+     * In caso di errore i file già al loro posto vanno rimossi con reversSystemdTimerUnitInserts.
+     * @return Codice di stato: 0 (SUCCESS), 1 (ERROR).
+     */
+    @Override
+    public Result createSystemdTimerUnits(List<String> timerBaseNames, List<String> onCalendars, List<String> parameters) {
 
-             if(writeTimer(tempTimerFile,timerContent.toString()) != Result.SUCCESS) {
-                return Result.ERROR;
-            }
+        List<Path> targetTimerFiles = new ArrayList<>(timerBaseNames.size());
 
-            if(moveTimer(tempTimerFile, targetTimerFile) != Result.SUCCESS) {
-                return Result.ERROR;
-            }
+        for (String timerBaseName : timerBaseNames) targetTimerFiles.add(targetDir.resolve(timerBaseName + TIMER_FILE_EXTENSION));
 
-            return Result.SUCCESS;
+        return renderUnitFiles(targetTimerFiles, onCalendars, parameters);
+    }
+
+    /**
+     * Come la variante testuale, con gli orari in millisecondi dalla mezzanotte scritti direttamente nel buffer.
+     */
+    @Override
+    public Result createSystemdTimerUnits(List<String> timerBaseNames, int[] timesMillis, List<String> parameters) {
 
+        List<Path> targetTimerFiles = new ArrayList<>(timerBaseNames.size());
+
+        for (String timerBaseName : timerBaseNames) targetTimerFiles.add(targetDir.resolve(timerBaseName + TIMER_FILE_EXTENSION));
+
+        return writeUnits(targetTimerFiles, (index, buffer) -> template.render(buffer, timesMillis[index], parameters.get(index)));
+    }
+
+    /**
+     * Scrive i file .timer producendo ogni contenuto con il modello precompilato direttamente nel buffer del writer.
+     * @return SUCCESS solo se tutti i file sono al loro posto
+     */
+    public Result renderUnitFiles(List<Path> targetFiles, List<String> onCalendars, List<String> parameters) {
+        return writeUnits(targetFiles, (index, buffer) -> template.render(buffer, onCalendars.get(index), parameters.get(index)));
+    }
+
+    /**
+     * Scrive i file tramite UnitFileWriter: nome temporaneo nella directory finale, sync dei dati, rename, sync della directory.
+     * @return SUCCESS solo se tutti i file sono al loro posto
+     */
+    public Result writeUnitFiles(List<Path> targetFiles, List<String> contents) {
+
+        List<byte[]> bytes = new ArrayList<>(contents.size());
+        for (String content : contents) bytes.add(content.getBytes(StandardCharsets.UTF_8));
+
+        return writeUnits(targetFiles, (index, buffer) -> buffer.put(bytes.get(index)));
+    }
+
+    private Result writeUnits(List<Path> targetFiles, UnitFileWriter.Renderer renderer) {
+
+        if (unitWriter.writeAll(targetFiles, renderer) == targetFiles.size()) return Result.SUCCESS;
+
+        System.err.println(ERROR_IO_TIMER_WRITE);
+        return Result.ERROR;
+    }
+
+    /**
+     * Contenuto testuale del file .timer, prodotto dallo stesso modello usato per la scrittura
+     */
+    public String buildTimerContent(String onCalendar, String parameter) {
+
+        ByteBuffer buffer = ByteBuffer.allocate(512);
+
+        template.render(buffer, onCalendar, parameter);
+
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+    }
+
+    public UnitTemplate getTemplate() {
+        return template;
     }
 
     /**
@@ -149,8 +217,8 @@ public class TimerUtilsImpl implements TimerUtils {
         String fullTimerName = timerBaseName + TIMER_FILE_EXTENSION;
 
 
-        Path tempTimerFile = targetDir.resolve(fullTimerName);
-        Path targetTimerFile = tempDir.resolve(fullTimerName);
+        Path tempTimerFile = tempDir.resolve(fullTimerName);
+        Path targetTimerFile = targetDir.resolve(fullTimerName);
 
         return moveTimer(targetTimerFile, tempTimerFile);
 
@@ -158,23 +226,24 @@ public class TimerUtilsImpl implements TimerUtils {
 
 
 
-    public Result writeTimer(Path tempTimerFile, String timerContent) {
-        try (java.io.FileOutputStream fos = new java.io.FileOutputStream(tempTimerFile.toFile())) {
-            fos.write(timerContent.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-            fos.flush();
-            fos.getFD().sync(); // Forza il passaggio RAM -> Disco (SD Card)
-            return Result.SUCCESS;
-        } catch (IOException e) {
-            System.err.println(ERROR_IO_TIMER_WRITE);
-            return Result.ERROR;
-        }
+    public Result writeTimer(Path timerFile, String timerContent) {
+        return writeUnitFiles(List.of(timerFile), List.of(timerContent));
     }
 
+    /**
+     * Sposta il file con una sola rename(2), senza controllarne prima l'esistenza.
+     * Solo se la rename fallisce il disco viene interrogato: sorgente assente significa spostamento già avvenuto
+     * (rollback o recupero ripetuti, SUCCESS), altrimenti Files.move gestisce gli altri casi (altro filesystem) e l'errore.
+     * Dopo lo spostamento le directory di origine e di destinazione sono sincronizzate come nelle scritture di UnitFileWriter;
+     * anche lo spostamento già avvenuto le sincronizza, potrebbe non essere mai arrivato su disco prima di un crash.
+     */
     public Result moveTimer(Path source,Path destination) {
         try {
-            if(Files.exists(source)) {
+            if (!source.toFile().renameTo(destination.toFile()) && Files.exists(source))
                 Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
-            }
+
+            unitWriter.syncDirectories(List.of(source.getParent(), destination.getParent()));
+
             return Result.SUCCESS;
 
         } catch (IOException e) {
@@ -182,90 +251,91 @@ public class TimerUtilsImpl implements TimerUtils {
         }
     }
 
+    public SystemctlExecutor getSystemctlExecutor() {
+        return systemctlExecutor;
+    }
+
+    public UnitFileWriter getUnitWriter() {
+        return unitWriter;
+    }
+
     /**
-     * timer daemon reload per mostrare il .timer aggiunto a systemctl
+     * timer daemon reload per mostrare il .timer aggiunto a systemctl,
+     * le richieste concorrenti vengono raggruppate in un solo reload dal coalescer
     * **/
     public Result timerReload() {
 
-        String[] fullCommand = new String[3];
-        fullCommand[0] = COMMAND_PREFIX[0]; // /bin/sh
-        fullCommand[1] = COMMAND_PREFIX[1]; // -c
-        fullCommand[2] = DAEMON_RELOAD;
-
-        try {
-            ProcessBuilder pb = getProcessBuilder(fullCommand);
-
-            Process process = pb.start();
-
-            int exitCode = process.waitFor();
-
-            if (exitCode != 0) {
-                System.err.println(ERROR_SYSTEMCTL);
-                return Result.ERROR;
-            }
+        if (reloadCoalescer == null) return daemonReload();
 
-        } catch (IOException e) {
-            System.err.println(ERROR_SYSTEMCTL_IO);
-            return Result.ERROR;
-        } catch (InterruptedException e) {
-            System.err.println(ERROR_SYSTEMCTL_THREAD);
-            return Result.ERROR;
-        }
+        return reloadCoalescer.reload(this::daemonReload);
+    }
 
-        return Result.SUCCESS;
+    /**
+     * esecuzione diretta di systemctl --user daemon-reload
+     * **/
+    public Result daemonReload() {
+        return systemctlExecutor.run(SystemctlExecutor.Command.DAEMON_RELOAD, List.of(), this::getProcessBuilder);
     }
 
 
 
     /**
-     * Attivazione del .timer
-     * Esegue tutti i comandi 'systemctl' concatenati con '&&' in una singola shell.
-     * I comandi vengono eseguiti con 'sudo' e l'output di errore è reindirizzato al Journald.
+     * Attivazione del .timer con systemctl --user enable --now, senza shell intermedia.
      *
      * @param timerBaseName Il nome base del file .timer senza estensione (es. "myjob").
      * @return Codice di stato: 0 (SUCCESS), 1 (ERROR).
      */
     public Result activateSystemdTimer(String timerBaseName) {
+        return systemctlExecutor.run(SystemctlExecutor.Command.ENABLE, List.of(timerBaseName + TIMER_FILE_EXTENSION), this::getProcessBuilder);
+    }
 
-        final String fullTimerName = timerBaseName + TIMER_FILE_EXTENSION;
-
-
-        StringBuilder commandBuilder = new StringBuilder(150);
-
-        commandBuilder.append(COMMAND[0]).append(fullTimerName);
-
-        String[] fullCommand = new String[3];
-        fullCommand[0] = COMMAND_PREFIX[0]; // /bin/sh
-        fullCommand[1] = COMMAND_PREFIX[1]; // -c
-        fullCommand[2] = commandBuilder.toString();
-
-        System.out.println(fullCommand[0] + fullCommand[1]+fullCommand[2]);
-
-        try {
-            ProcessBuilder pb = getProcessBuilder(fullCommand);
-
-            pb.environment().put("XDG_RUNTIME_DIR", "/run/user/1000");
-
-            Process process = pb.start();
+    /**
+     * Attivazione di più .timer con un solo systemctl --user enable --now a.timer b.timer ...
+     * @return Codice di stato: 0 (SUCCESS), 1 (ERROR).
+     */
+    @Override
+    public Result activateSystemdTimers(List<String> timerBaseNames) {
+        return activateSystemdTimersDetailed(timerBaseNames).overall();
+    }
 
-            int exitCode = process.waitFor();
+    /**
+     * Disattivazione di più .timer con un solo systemctl --user disable --now a.timer b.timer ...
+     * @return Codice di stato: 0 (SUCCESS), 1 (ERROR).
+     */
+    @Override
+    public Result deactivateSystemdTimers(List<String> timerBaseNames) {
+        return deactivateSystemdTimersDetailed(timerBaseNames).overall();
+    }
 
+    /**
+     * Attivazione di più .timer con un solo processo, con l'esito di ogni unit ricavato dall'output di systemctl
+     */
+    @Override
+    public UnitResults activateSystemdTimersDetailed(List<String> timerBaseNames) {
+        return systemctlExecutor.submitUnits(SystemctlExecutor.Command.ENABLE, timerBaseNames, TIMER_FILE_EXTENSION, this::getProcessBuilder).join();
+    }
 
+    @Override
+    public UnitResults deactivateSystemdTimersDetailed(List<String> timerBaseNames) {
+        return systemctlExecutor.submitUnits(SystemctlExecutor.Command.DISABLE, timerBaseNames, TIMER_FILE_EXTENSION, this::getProcessBuilder).join();
+    }
 
-            if (exitCode != 0) {
-                System.err.println(ERROR_SYSTEMCTL);
-                return Result.ERROR;
-            }
+    /**
+     * systemctl non ha un comando che disattivi una unit e ne attivi un'altra: restano due processi,
+     * disable --now del vecchio .timer e enable --now del nuovo partono insieme, l'attesa è quella di un solo processo.
+     * Le due unit sono distinte, il manager di systemd serializza le due richieste.
+     * Il vecchio file resta caricato finché un daemon-reload successivo alla sua rimozione non lo scarica.
+     */
+    @Override
+    public UnitResults swapSystemdTimer(String oldBaseName, String newBaseName) {
 
-        } catch (IOException e) {
-            System.err.println(ERROR_SYSTEMCTL_IO);
-            return Result.ERROR;
-        } catch (InterruptedException e) {
-            System.err.println(ERROR_SYSTEMCTL_THREAD);
-            return Result.ERROR;
-        }
+        CompletableFuture<UnitResults> disabled = systemctlExecutor.submitUnits(SystemctlExecutor.Command.DISABLE, List.of(oldBaseName), TIMER_FILE_EXTENSION, this::getProcessBuilder);
+        CompletableFuture<UnitResults> enabled = systemctlExecutor.submitUnits(SystemctlExecutor.Command.ENABLE, List.of(newBaseName), TIMER_FILE_EXTENSION, this::getProcessBuilder);
 
-        return Result.SUCCESS;
+        LinkedHashMap<String, Result> results = new LinkedHashMap<>();
+        results.put(oldBaseName, disabled.join().get(oldBaseName));
+        results.put(newBaseName, enabled.join().get(newBaseName));
+        return new UnitResults(results, "");
     }
 
     public ProcessBuilder getProcessBuilder(String[] command){
@@ -273,47 +343,12 @@ public class TimerUtilsImpl implements TimerUtils {
     }
 
     /**
-     * Disattivazione del .timer
-     * Esegue tutti i comandi 'systemctl' concatenati con '&&' in una singola shell.
-     * I comandi vengono eseguiti con 'sudo' e l'output di errore è reindirizzato al Journald.
+     * Disattivazione del .timer con systemctl --user disable --now, senza shell intermedia.
      *
-     * @param timerBaseName Il nome baIO_ERROR), 2 (INVALID_PARAM_se del file .timer senza estensione (es. "myjob").
+     * @param timerBaseName Il nome base del file .timer senza estensione (es. "myjob").
      * @return Codice di stato: 0 (SUCCESS), 1 (ERROR).
      */
     public Result deactivateSystemdTimer(String timerBaseName) {
-
-        final String fullTimerName = timerBaseName + TIMER_FILE_EXTENSION;
-
-
-        StringBuilder commandBuilder = new StringBuilder(150);
-
-        commandBuilder.append(COMMAND_DEACTIVATION[0]).append(fullTimerName);
-
-        String[] fullCommand = new String[3];
-        fullCommand[0] = COMMAND_PREFIX[0]; // /bin/sh
-        fullCommand[1] = COMMAND_PREFIX[1]; // -c
-        fullCommand[2] = commandBuilder.toString();
-
-        try {
-            ProcessBuilder pb = getProcessBuilder(fullCommand);
-
-            Process process = pb.start();
-
-            int exitCode = process.waitFor();
-
-            if (exitCode != 0) {
-                System.err.println(ERROR_SYSTEMCTL);
-                return Result.ERROR;
-            }
-
-        } catch (IOException e) {
-            System.err.println(ERROR_SYSTEMCTL_IO);
-            return Result.ERROR;
-        } catch (InterruptedException e) {
-            System.err.println(ERROR_SYSTEMCTL_THREAD);
-            return Result.ERROR;
-        }
-
-        return Result.SUCCESS;
+        return systemctlExecutor.run(SystemctlExecutor.Command.DISABLE, List.of(timerBaseName + TIMER_FILE_EXTENSION), this::getProcessBuilder);
     }
 }
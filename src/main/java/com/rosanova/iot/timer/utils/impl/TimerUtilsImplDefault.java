@@ -3,13 +3,15 @@ package com.rosanova.iot.timer.utils.impl;
 import com.rosanova.iot.timer.utils.TimerUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 
 @Service
 @Qualifier("timerDefault")
+@Profile("!transient & !inprocess")
 public class TimerUtilsImplDefault extends TimerUtilsImpl implements TimerUtils {
 
-    public TimerUtilsImplDefault(@Value("${tmp.directory}" )String tmpDir, @Value("${systemd.directory}") String systemdTimerDir, @Value("${systemd.service.name}") String serviceFileName) {
-        super(tmpDir, systemdTimerDir, serviceFileName,false);
+    public TimerUtilsImplDefault(@Value("${tmp.directory}" )String tmpDir, @Value("${systemd.directory}") String systemdTimerDir, @Value("${systemd.service.name}") String serviceFileName, DaemonReloadCoalescer reloadCoalescer, SystemctlExecutor systemctlExecutor) {
+        super(tmpDir, systemdTimerDir, serviceFileName,false, reloadCoalescer, systemctlExecutor);
     }
 }
@@ -0,0 +1,159 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.utils.TimerUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backend dei timer basato su unit transitorie create con systemd-run.
+ * Non scrive file .timer e non richiede daemon-reload: l'unit esiste solo nel manager systemd dell'utente
+ * e scompare al riavvio, per questo i timer vengono ricreati dal database all'avvio (TimerStartup).
+ * La creazione prepara solo il comando, l'unit nasce con activateSystemdTimer;
+ * la cancellazione conserva il comando per poter ricreare il timer in caso di rollback.
+ * systemd-run passa da SystemctlExecutor come lo stop: un processo bloccato viene terminato allo scadere del timeout
+ * invece di fermare il thread che applica le operazioni sui timer.
+ * Con systemd.transient.persistent (default true) il timer nasce con Persistent=true, così un orario
+ * perso mentre il sistema era sospeso viene eseguito al risveglio.
+ */
+@Service
+@Qualifier("timerDefault")
+@Profile("transient")
+public class TransientTimerUtilsImpl implements TimerUtils {
+
+    private static final String TIMER_EXTENSION = ".timer";
+    private static final String SERVICE = ".service";
+
+    private static final String ERROR_UNKNOWN_TIMER = "ERROR: Transient timer not prepared ";
+
+    private final String serviceFileName;
+
+    private final String systemdRun;
+
+    private final String systemctl;
+
+    private final SystemctlExecutor systemctlExecutor;
+
+    private final boolean persistent;
+
+    // comandi systemd-run pronti per l'attivazione, per nome del timer
+    private final ConcurrentHashMap<String, String[]> prepared = new ConcurrentHashMap<>();
+
+    // comandi dei timer cancellati, conservati per reverseDeleteSystemdTimerUnit
+    private final ConcurrentHashMap<String, String[]> deleted = new ConcurrentHashMap<>();
+
+    /**
+     * @param serviceFileName nome del service template da far partire con il timer
+     * @param binDirectory directory che contiene systemd-run e systemctl, se vuota vengono cercati nel PATH
+     * @param systemctlExecutor esecutore di systemd-run e systemctl, con timeout e limite di processi contemporanei
+     * **/
+    public TransientTimerUtilsImpl(String serviceFileName, String binDirectory, SystemctlExecutor systemctlExecutor) {
+        this(serviceFileName, binDirectory, systemctlExecutor, true);
+    }
+
+    /**
+     * @param persistent se true il timer viene creato con --timer-property=Persistent=true
+     * **/
+    @Autowired
+    public TransientTimerUtilsImpl(@Value("${systemd.service.name}") String serviceFileName, @Value("${systemd.bin.directory:}") String binDirectory, SystemctlExecutor systemctlExecutor,
+                                   @Value("${systemd.transient.persistent:true}") boolean persistent) {
+        this.serviceFileName = serviceFileName;
+        this.systemdRun = resolve(binDirectory, "systemd-run");
+        this.systemctl = resolve(binDirectory, "systemctl");
+        this.systemctlExecutor = systemctlExecutor;
+        this.persistent = persistent;
+    }
+
+    @Override
+    public Result createSystemdTimerUnit(String timerBaseName, String onCalendar, String parameter) {
+
+        String service = serviceFileName + '@' + parameter + SERVICE;
+
+        String[] command = persistent
+                ? new String[]{
+                        systemdRun, "--user", "--collect",
+                        "--unit=" + timerBaseName,
+                        "--on-calendar=*-*-* " + onCalendar,
+                        "--timer-property=Persistent=true",
+                        "--description=Custom Timer for " + service,
+                        systemctl, "--user", "start", service}
+                : new String[]{
+                        systemdRun, "--user", "--collect",
+                        "--unit=" + timerBaseName,
+                        "--on-calendar=*-*-* " + onCalendar,
+                        "--description=Custom Timer for " + service,
+                        systemctl, "--user", "start", service};
+
+        prepared.put(timerBaseName, command);
+        return Result.SUCCESS;
+    }
+
+    @Override
+    public Result reversSystemdTimerUnitInsert(String timerBaseName) {
+        prepared.remove(timerBaseName);
+        return Result.SUCCESS;
+    }
+
+    @Override
+    public Result deleteSystemdTimerUnit(String timerBaseName) {
+        String[] command = prepared.remove(timerBaseName);
+        if (command != null) deleted.put(timerBaseName, command);
+        return Result.SUCCESS;
+    }
+
+    @Override
+    public Result reverseDeleteSystemdTimerUnit(String timerBaseName) {
+        String[] command = deleted.remove(timerBaseName);
+        if (command != null) prepared.put(timerBaseName, command);
+        return Result.SUCCESS;
+    }
+
+    /**
+     * le unit transitorie sono già note al manager, non serve nessun daemon-reload
+     * **/
+    @Override
+    public Result timerReload() {
+        return Result.SUCCESS;
+    }
+
+    @Override
+    public Result activateSystemdTimer(String timerBaseName) {
+
+        String[] command = prepared.get(timerBaseName);
+
+        if (command == null) {
+            System.err.println(ERROR_UNKNOWN_TIMER + timerBaseName);
+            return Result.ERROR;
+        }
+
+        return systemctlExecutor.run(SystemctlExecutor.Command.SYSTEMD_RUN, command, this::getProcessBuilder);
+    }
+
+    /**
+     * lo stop di un timer transitorio lo rimuove dal manager insieme al suo service
+     * **/
+    @Override
+    public Result deactivateSystemdTimer(String timerBaseName) {
+        return systemctlExecutor.run(SystemctlExecutor.Command.STOP, List.of(timerBaseName + TIMER_EXTENSION), this::getProcessBuilder);
+    }
+
+    public boolean isPrepared(String timerBaseName) {
+        return prepared.containsKey(timerBaseName);
+    }
+
+    public ProcessBuilder getProcessBuilder(String[] command) {
+        return new ProcessBuilder(command);
+    }
+
+    private static String resolve(String binDirectory, String executable) {
+        if (binDirectory == null || binDirectory.isBlank()) return executable;
+        return Paths.get(binDirectory).resolve(executable).toString();
+    }
+}
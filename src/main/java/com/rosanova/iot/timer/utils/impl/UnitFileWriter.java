@@ -0,0 +1,158 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scrittura atomica e durevole di un gruppo di file unit:
+ * ogni file viene scritto con un nome temporaneo nella sua directory finale, i dati di tutti i file vengono
+ * forzati su disco uno dopo l'altro, poi i file sono rinominati al loro posto e ogni directory coinvolta
+ * viene sincronizzata una sola volta per gruppo, così anche le rename sopravvivono a un crash.
+ * Un file finale non è mai visibile a metà: esiste nella versione vecchia o in quella nuova completa.
+ * In caso di errore i file temporanei vengono cancellati; i file già rinominati restano al chiamante.
+ * Il contenuto viene prodotto in un ByteBuffer diretto riutilizzato e scritto da lì nel FileChannel,
+ * per questo le scritture di una stessa istanza sono serializzate.
+ */
+public class UnitFileWriter {
+
+    private static final String TEMP_PREFIX = ".";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * Produce il contenuto del file di indice index scrivendolo nel buffer a partire dalla posizione corrente
+     */
+    @FunctionalInterface
+    public interface Renderer {
+        void render(int index, ByteBuffer buffer);
+    }
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private final AtomicLong fileSyncs = new AtomicLong();
+    private final AtomicLong directorySyncs = new AtomicLong();
+
+    /**
+     * @return true per i file temporanei rimasti da una scrittura interrotta
+     */
+    public static boolean isTempFile(String filename) {
+        return filename.startsWith(TEMP_PREFIX) && filename.endsWith(TEMP_SUFFIX);
+    }
+
+    public static Path tempFileOf(Path target) {
+        return target.resolveSibling(TEMP_PREFIX + target.getFileName() + TEMP_SUFFIX);
+    }
+
+    /**
+     * @return il numero di file rinominati al loro posto; uguale a targets.size() solo se tutto è andato a buon fine
+     */
+    public int writeAll(List<Path> targets, List<byte[]> contents) {
+        return writeAll(targets, (index, buffer) -> buffer.put(contents.get(index)));
+    }
+
+    /**
+     * Come writeAll con i contenuti già pronti, ma ogni file è prodotto dal renderer direttamente nel buffer diretto.
+     * Un contenuto più grande del buffer fa fallire la scrittura del gruppo.
+     * @return il numero di file rinominati al loro posto; uguale a targets.size() solo se tutto è andato a buon fine
+     */
+    public synchronized int writeAll(List<Path> targets, Renderer renderer) {
+
+        int size = targets.size();
+        List<Path> tempFiles = new ArrayList<>(size);
+        List<FileChannel> channels = new ArrayList<>(size);
+        int renamed = 0;
+
+        try {
+            for (int i = 0; i < size; i++) {
+                Path tempFile = tempFileOf(targets.get(i));
+                FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                channels.add(channel);
+                tempFiles.add(tempFile);
+
+                buffer.clear();
+                renderer.render(i, buffer);
+                buffer.flip();
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+
+            // fdatasync: per un file appena scritto sincronizza anche la dimensione, i tempi di accesso non servono
+            for (FileChannel channel : channels) {
+                channel.force(false);
+                fileSyncs.incrementAndGet();
+            }
+
+            closeAll(channels);
+
+            Set<Path> directories = new LinkedHashSet<>();
+
+            for (int i = 0; i < size; i++) {
+                Files.move(tempFiles.get(i), targets.get(i), StandardCopyOption.ATOMIC_MOVE);
+                directories.add(targets.get(i).getParent());
+                renamed++;
+            }
+
+            syncDirectories(directories);
+
+            return renamed;
+
+        } catch (IOException | BufferOverflowException e) {
+            System.err.println("ERRORE SCRITTURA FILE UNIT: " + e.getMessage());
+            return renamed;
+        } finally {
+            closeAll(channels);
+            for (int i = renamed; i < tempFiles.size(); i++) {
+                try {
+                    Files.deleteIfExists(tempFiles.get(i));
+                } catch (IOException e) {
+                    System.err.println("ERRORE CANCELLAZIONE FILE TEMPORANEO: " + tempFiles.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Sincronizza una sola volta ogni directory distinta, così le rename fatte al loro interno sopravvivono a un crash
+     */
+    public void syncDirectories(Iterable<Path> directories) throws IOException {
+        Set<Path> distinct = new LinkedHashSet<>();
+        for (Path directory : directories) distinct.add(directory);
+        for (Path directory : distinct) syncDirectory(directory);
+    }
+
+    private void syncDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+            directorySyncs.incrementAndGet();
+        }
+    }
+
+    private static void closeAll(List<FileChannel> channels) {
+        for (FileChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("ERRORE CHIUSURA FILE UNIT: " + e.getMessage());
+            }
+        }
+    }
+
+    public long getFileSyncs() {
+        return fileSyncs.get();
+    }
+
+    public long getDirectorySyncs() {
+        return directorySyncs.get();
+    }
+}
@@ -0,0 +1,106 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import com.rosanova.iot.timer.error.Result;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esito per singola unit di un comando systemctl eseguito su più unit, indicizzato per nome base (senza estensione).
+ */
+public class UnitResults {
+
+    private final LinkedHashMap<String, Result> results;
+
+    private final String output;
+
+    public UnitResults(LinkedHashMap<String, Result> results, String output) {
+        this.results = results;
+        this.output = output;
+    }
+
+    public static UnitResults allOf(List<String> baseNames, Result result) {
+        return allOf(baseNames, result, "");
+    }
+
+    private static UnitResults allOf(List<String> baseNames, Result result, String output) {
+        LinkedHashMap<String, Result> results = new LinkedHashMap<>();
+        for (String baseName : baseNames) results.put(baseName, result);
+        return new UnitResults(results, output);
+    }
+
+    /**
+     * Ricava l'esito per unit dall'exit code e dall'output di systemctl.
+     * enable/disable controllano tutti i file prima di modificare qualcosa: un "Failed to enable/disable unit"
+     * significa che nessuna unit del comando è stata toccata. Gli errori dei job (--now) citano invece la singola unit
+     * ("Job for x.timer failed", "Failed to start x.timer"): solo le unit citate sono fallite.
+     * Se l'errore non è attribuibile a nessuna unit tutte vengono considerate fallite.
+     */
+    public static UnitResults parse(List<String> baseNames, String extension, int exitCode, String output) {
+
+        if (exitCode == 0) return allOf(baseNames, Result.SUCCESS);
+
+        if (output == null) return allOf(baseNames, Result.ERROR, "");
+
+        if (output.contains("Failed to enable") || output.contains("Failed to disable")) return allOf(baseNames, Result.ERROR, output);
+
+        LinkedHashMap<String, Result> results = new LinkedHashMap<>();
+        boolean attributed = false;
+
+        for (String baseName : baseNames) {
+            boolean failed = mentionsFailure(output, baseName + extension);
+            attributed |= failed;
+            results.put(baseName, failed ? Result.ERROR : Result.SUCCESS);
+        }
+
+        if (!attributed) return allOf(baseNames, Result.ERROR, output);
+
+        return new UnitResults(results, output);
+    }
+
+    public Result get(String baseName) {
+        return results.getOrDefault(baseName, Result.ERROR);
+    }
+
+    public Result overall() {
+        for (Result result : results.values()) {
+            if (result != Result.SUCCESS) return Result.ERROR;
+        }
+        return Result.SUCCESS;
+    }
+
+    public List<String> failed() {
+        List<String> failed = new ArrayList<>();
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            if (entry.getValue() != Result.SUCCESS) failed.add(entry.getKey());
+        }
+        return failed;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    // una riga di errore che cita la unit: il nome deve essere delimitato per non confondere 1000.timer con 11000.timer
+    private static boolean mentionsFailure(String output, String unit) {
+        int from = 0;
+        while (true) {
+            int index = output.indexOf(unit, from);
+            if (index < 0) return false;
+
+            boolean delimited = (index == 0 || !Character.isLetterOrDigit(output.charAt(index - 1)))
+                    && (index + unit.length() == output.length() || !Character.isLetterOrDigit(output.charAt(index + unit.length())));
+
+            if (delimited) {
+                int lineStart = output.lastIndexOf('\n', index) + 1;
+                int lineEnd = output.indexOf('\n', index);
+                String line = output.substring(lineStart, lineEnd < 0 ? output.length() : lineEnd);
+                if (line.contains("Failed") || line.contains("failed") || line.contains("not found") || line.contains("not loaded")) return true;
+            }
+
+            from = index + unit.length();
+        }
+    }
+}
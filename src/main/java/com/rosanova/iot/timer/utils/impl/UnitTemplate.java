@@ -0,0 +1,118 @@
+package com.rosanova.iot.timer.utils.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Modello precompilato di un file unit .timer.
+ * Le parti fisse, compreso il nome del service e la riga Persistent scelta all'avvio, sono convertite in byte una sola volta;
+ * il rendering copia i segmenti e i caratteri di orario e parametro direttamente nel buffer, senza StringBuilder né conversioni di charset.
+ * Con un buffer riutilizzato il rendering non alloca. Il modello è immutabile, il buffer è a carico del chiamante.
+ */
+public class UnitTemplate {
+
+    private static final int MILLIS_HOUR = 3_600_000;
+    private static final int MILLIS_MINUTE = 60_000;
+    private static final int MILLIS_SECOND = 1000;
+
+    // lunghezza di HH:mm:ss
+    public static final int ON_CALENDAR_LENGTH = 8;
+
+    //file
+    private static final String[] FILE_STATIC = {"[Unit]\nDescription=Custom Timer for ", "\n\n[Timer]\nOnCalendar= *-*-* ","\nPersistent=true\nUnit=", "\nUnit=", "\n\n[Install]\nWantedBy=timers.target\n"};
+
+    private static final String SERVICE = ".service";
+
+    // [Unit] ... alarm@ | parametro | .service [Timer] OnCalendar | orario | Unit= alarm@ | parametro | .service [Install]
+    private final byte[] head;
+    private final byte[] calendar;
+    private final byte[] unit;
+    private final byte[] tail;
+
+    public UnitTemplate(String serviceFileName, boolean activeOnStartup) {
+        head = bytes(FILE_STATIC[0] + serviceFileName + '@');
+        calendar = bytes(SERVICE + FILE_STATIC[1]);
+        unit = bytes(FILE_STATIC[activeOnStartup ? 2 : 3] + serviceFileName + '@');
+        tail = bytes(SERVICE + FILE_STATIC[4]);
+    }
+
+    /**
+     * Scrive il file unit a partire dalla posizione corrente del buffer, i caratteri di orario e parametro sono copiati come ASCII.
+     * @param onCalendar orario HH:mm:ss, vedi formatOnCalendar
+     * @param parameter parametro del service (alarm@parameter.service)
+     * @return il numero di byte scritti
+     */
+    public int render(ByteBuffer buffer, CharSequence onCalendar, CharSequence parameter) {
+        int start = buffer.position();
+        buffer.put(head);
+        putAscii(buffer, parameter);
+        buffer.put(calendar);
+        putAscii(buffer, onCalendar);
+        buffer.put(unit);
+        putAscii(buffer, parameter);
+        buffer.put(tail);
+        return buffer.position() - start;
+    }
+
+    /**
+     * Come render con orario testuale, ma HH:mm:ss è scritto cifra per cifra nel buffer senza String intermedie.
+     * @param timeMillis millisecondi dalla mezzanotte, da 0 a 86_400_000
+     * @return il numero di byte scritti
+     */
+    public int render(ByteBuffer buffer, int timeMillis, CharSequence parameter) {
+        int start = buffer.position();
+        buffer.put(head);
+        putAscii(buffer, parameter);
+        buffer.put(calendar);
+        putOnCalendar(buffer, timeMillis);
+        buffer.put(unit);
+        putAscii(buffer, parameter);
+        buffer.put(tail);
+        return buffer.position() - start;
+    }
+
+    /**
+     * HH:mm:ss in una String per le API testuali: un solo char[] al posto di Duration e String.format.
+     * @param timeMillis millisecondi dalla mezzanotte, da 0 a 86_400_000
+     */
+    public static String formatOnCalendar(int timeMillis) {
+        int hours = timeMillis / MILLIS_HOUR;
+
+        int minutes = (timeMillis / MILLIS_MINUTE) % 60;
+        int seconds = (timeMillis / MILLIS_SECOND) % 60;
+
+        char[] chars = new char[ON_CALENDAR_LENGTH];
+        chars[0] = (char) ('0' + hours / 10);
+        chars[1] = (char) ('0' + hours % 10);
+        chars[2] = ':';
+        chars[3] = (char) ('0' + minutes / 10);
+        chars[4] = (char) ('0' + minutes % 10);
+        chars[5] = ':';
+        chars[6] = (char) ('0' + seconds / 10);
+        chars[7] = (char) ('0' + seconds % 10);
+        return new String(chars);
+    }
+
+    private static void putOnCalendar(ByteBuffer buffer, int timeMillis) {
+        int hours = timeMillis / MILLIS_HOUR;
+        int minutes = (timeMillis / MILLIS_MINUTE) % 60;
+        int seconds = (timeMillis / MILLIS_SECOND) % 60;
+
+        buffer.put((byte) ('0' + hours / 10));
+        buffer.put((byte) ('0' + hours % 10));
+        buffer.put((byte) ':');
+        buffer.put((byte) ('0' + minutes / 10));
+        buffer.put((byte) ('0' + minutes % 10));
+        buffer.put((byte) ':');
+        buffer.put((byte) ('0' + seconds / 10));
+        buffer.put((byte) ('0' + seconds % 10));
+    }
+
+    private static void putAscii(ByteBuffer buffer, CharSequence chars) {
+        for (int i = 0, length = chars.length(); i < length; i++) buffer.put((byte) chars.charAt(i));
+    }
+
+    private static byte[] bytes(String segment) {
+        return segment.getBytes(StandardCharsets.US_ASCII);
+    }
+}
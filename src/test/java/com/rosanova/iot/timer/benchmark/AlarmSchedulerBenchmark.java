@@ -0,0 +1,87 @@
+package com.rosanova.iot.timer.benchmark;
+
+import com.rosanova.iot.timer.utils.impl.AlarmScheduler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo di programmazione e cancellazione di un allarme nello scheduler in processo con molti allarmi già presenti,
+ * seguito (dal main) da una misura del ritardo reale degli scatti.
+ * Per confronto: le unit .timer generate non impostano AccuracySec, quindi systemd può far scattare
+ * un timer fino a 1 minuto dopo l'orario (AccuracySec=1min di default) per accorpare i risvegli;
+ * quel ritardo non è misurabile in questa sandbox senza un manager systemd utente.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlarmSchedulerBenchmark {
+
+    @Param({"40", "10000", "100000"})
+    public int timers;
+
+    private AlarmScheduler scheduler;
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // scheduler non avviato: si misura solo la struttura dati
+        scheduler = new AlarmScheduler(Runnable::run, ZoneId.systemDefault());
+        for (int i = 0; i < timers; i++) {
+            scheduler.schedule("t" + i, (int) ((long) i * 86_400_000 / timers), () -> {});
+        }
+    }
+
+    @Benchmark
+    public boolean scheduleAndCancel() {
+        String key = "t" + next;
+        next = (next + 1) % timers;
+        scheduler.cancel(key);
+        scheduler.schedule(key, (next * 7919) % 86_400_000, () -> {});
+        return true;
+    }
+
+    /**
+     * Programma alarms allarmi distanziati di spacingMillis e riporta il ritardo degli scatti.
+     */
+    public static void measureFiringLatency(int alarms, int spacingMillis) throws InterruptedException {
+        ZoneId zone = ZoneId.systemDefault();
+        AlarmScheduler scheduler = new AlarmScheduler(Executors.newVirtualThreadPerTaskExecutor(), zone);
+        scheduler.start();
+
+        CountDownLatch latch = new CountDownLatch(alarms);
+        int base = (int) (LocalTime.now(zone).toNanoOfDay() / 1_000_000) + 500;
+        for (int i = 0; i < alarms; i++) {
+            scheduler.schedule("l" + i, (base + i * spacingMillis) % 86_400_000, latch::countDown);
+        }
+
+        latch.await(alarms * (long) spacingMillis + 10_000, TimeUnit.MILLISECONDS);
+        scheduler.close();
+
+        System.out.printf("scatti=%d p50=%dus p99=%dus max=%dus%n",
+                scheduler.getFired(),
+                scheduler.getLatenessPercentileMicros(0.5),
+                scheduler.getLatenessPercentileMicros(0.99),
+                scheduler.getMaxLatenessMicros());
+    }
+
+    public static void main(String[] args) throws RunnerException, InterruptedException {
+        Options options = new OptionsBuilder()
+                .include(AlarmSchedulerBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+
+        measureFiringLatency(500, 10);
+    }
+}
@@ -0,0 +1,92 @@
+package com.rosanova.iot.timer.benchmark;
+
+import com.rosanova.iot.timer.utils.impl.HashSetInt;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HashSetInt contro HashSet<Integer> sugli stessi valori (multipli di 1000 come i nomi delle unit).
+ * contains: metà delle sonde è presente, metà no. build: costruzione dell'insieme partendo vuoto.
+ * Avvio: mvn test-compile, poi eseguire il main con il classpath di test (aggiungere -prof gc per le allocazioni).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashSetIntBenchmark {
+
+    @Param({"40", "10000", "1000000"})
+    public int size;
+
+    private int[] values;
+    private int[] probes;
+    private int probe = 0;
+
+    private HashSetInt primitive;
+    private HashSet<Integer> boxed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+
+        values = new int[size];
+        for (int i = 0; i < size; i++) values[i] = (i + 1) * 1000;
+
+        probes = new int[4096];
+        for (int i = 0; i < probes.length; i++) {
+            int index = random.nextInt(size);
+            probes[i] = (i & 1) == 0 ? values[index] : values[index] + 500;
+        }
+
+        primitive = new HashSetInt();
+        boxed = new HashSet<>();
+        for (int value : values) {
+            primitive.add(value);
+            boxed.add(value);
+        }
+    }
+
+    private int nextProbe() {
+        return probes[probe++ & (probes.length - 1)];
+    }
+
+    @Benchmark
+    public boolean containsHashSetInt() {
+        return primitive.contains(nextProbe());
+    }
+
+    @Benchmark
+    public boolean containsHashSet() {
+        return boxed.contains(nextProbe());
+    }
+
+    @Benchmark
+    public HashSetInt buildHashSetInt() {
+        HashSetInt set = new HashSetInt();
+        for (int value : values) set.add(value);
+        return set;
+    }
+
+    @Benchmark
+    public HashSet<Integer> buildHashSet() {
+        HashSet<Integer> set = new HashSet<>();
+        for (int value : values) set.add(value);
+        return set;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(HashSetIntBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
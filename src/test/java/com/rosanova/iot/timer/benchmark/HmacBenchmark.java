@@ -0,0 +1,110 @@
+package com.rosanova.iot.timer.benchmark;
+
+import com.rosanova.iot.timer.utils.impl.HMACSHA256SignatureUtilImpl;
+import com.rosanova.iot.timer.utils.impl.JcaHMACSHA256SignatureUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Firma di un token di 13 cifre:
+ * fullKey ripete i blocchi ipad/opad a ogni chiamata (quattro compressioni, implementazione precedente),
+ * midstate riparte dagli stati calcolati in computeSecretKey (due compressioni),
+ * jca usa javax.crypto.Mac, che sulla piattaforma può sfruttare gli intrinseci SHA della CPU.
+ * midstateRaw e jcaPooledRaw sono i due provider sul percorso di verifica del filtro (MAC grezzo, senza Base64).
+ * Avvio: mvn test-compile, poi eseguire il main con il classpath di test (aggiungere -prof gc per le allocazioni).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HmacBenchmark {
+
+    private static final String SECRET = "4vE9tZ2mP7qL5xR1nB8yW3kS6jD0hF4gA7sC2vN9mQ1pL8zX5rT3bY6nK0jH2wM4";
+
+    private final String payload = "1734538070000";
+
+    private final byte[] ipad = new byte[64];
+    private final byte[] opad = new byte[64];
+
+    private HMACSHA256SignatureUtilImpl util;
+    private Mac mac;
+    private JcaHMACSHA256SignatureUtil jcaUtil;
+    private final byte[] raw = new byte[32];
+
+    @Setup(Level.Trial)
+    public void setUp() throws GeneralSecurityException {
+        util = new HMACSHA256SignatureUtilImpl(SECRET);
+        util.computeSecretKey();
+
+        for (int i = 0; i < 64; i++) {
+            ipad[i] = (byte) (SECRET.charAt(i) ^ 0x36);
+            opad[i] = (byte) (SECRET.charAt(i) ^ 0x5c);
+        }
+
+        mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.US_ASCII), "HmacSHA256"));
+
+        jcaUtil = new JcaHMACSHA256SignatureUtil(SECRET);
+    }
+
+    @Benchmark
+    public String fullKey() {
+        byte[] internalHashData = new byte[128];
+        byte[] outerHashData = new byte[128];
+        System.arraycopy(ipad, 0, internalHashData, 0, 64);
+
+        for (int i = 0; i < payload.length(); i++) {
+            internalHashData[i + 64] = (byte) payload.charAt(i);
+        }
+
+        internalHashData = util.computeSHA256(internalHashData, 77);
+
+        System.arraycopy(opad, 0, outerHashData, 0, 64);
+        System.arraycopy(internalHashData, 0, outerHashData, 64, 32);
+
+        outerHashData = util.computeSHA256(outerHashData, 96);
+
+        return Base64.getUrlEncoder().encodeToString(outerHashData);
+    }
+
+    @Benchmark
+    public String midstate() {
+        return util.computeHMACSHA256(payload);
+    }
+
+    @Benchmark
+    public String jca() {
+        return Base64.getUrlEncoder().encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Benchmark
+    public byte[] midstateRaw() {
+        util.computeHMACSHA256(payload, 0, payload.length(), raw);
+        return raw;
+    }
+
+    @Benchmark
+    public byte[] jcaPooledRaw() {
+        jcaUtil.computeHMACSHA256(payload, 0, payload.length(), raw);
+        return raw;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(HmacBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
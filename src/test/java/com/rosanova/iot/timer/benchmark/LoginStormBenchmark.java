@@ -0,0 +1,130 @@
+package com.rosanova.iot.timer.benchmark;
+
+import com.rosanova.iot.timer.security.LoginRateLimiter;
+import com.rosanova.iot.timer.security.VerifiedTokenCache;
+import com.rosanova.iot.timer.user.service.impl.LoginVerificationExecutor;
+import com.rosanova.iot.timer.utils.impl.HMACSHA256SignatureUtilImpl;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latenza della verifica del token di sessione (percorso di ogni richiesta autenticata) mentre altri thread
+ * tentano login con password errata su un hash di costo 10. Il risultato da leggere sono i percentili di authenticated.
+ * off: nessuna raffica; limited: ogni client passa da LoginRateLimiter e LoginVerificationExecutor come nel controller;
+ * unbounded: ogni tentativo calcola BCrypt sul proprio thread, senza limiti.
+ * Avvio: mvn test-compile, poi eseguire il main con il classpath di test.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginStormBenchmark {
+
+    private static final String SECRET = "4vE9tZ2mP7qL5xR1nB8yW3kS6jD0hF4gA7sC2vN9mQ1pL8zX5rT3bY6nK0jH2wM4";
+    private static final int COST = 10;
+
+    @State(Scope.Group)
+    public static class Server {
+
+        @Param({"off", "limited", "unbounded"})
+        public String storm;
+
+        private SecurityFilterBenchmark.Harness filter;
+        private HttpServletRequest request;
+        private final MockHttpServletResponse response = new MockHttpServletResponse();
+        private int passed;
+        private final FilterChain chain = (request, response) -> passed++;
+
+        private LoginRateLimiter rateLimiter;
+        private LoginVerificationExecutor verificationExecutor;
+        private String hash;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            HMACSHA256SignatureUtilImpl hashingUtil = new HMACSHA256SignatureUtilImpl(SECRET);
+            hashingUtil.computeSecretKey();
+
+            String timestamp = String.valueOf(System.currentTimeMillis());
+            String token = timestamp + hashingUtil.computeHMACSHA256(timestamp);
+            filter = new SecurityFilterBenchmark.Harness(hashingUtil, new VerifiedTokenCache(64), Long.parseLong(timestamp) + 1000);
+
+            MockHttpServletRequest mock = new MockHttpServletRequest("GET", "/authenticated/api/v1/timer");
+            request = new SecurityFilterBenchmark.Request(mock, "TIMER_SESSION_TOKEN=" + token, new Cookie[]{new Cookie("TIMER_SESSION_TOKEN", token)});
+
+            rateLimiter = new LoginRateLimiter(256, 5, 10_000);
+            verificationExecutor = new LoginVerificationExecutor(2, 4, 5_000);
+            hash = BCrypt.hashpw("passwordGiusta", BCrypt.gensalt(COST));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            verificationExecutor.shutdown();
+        }
+
+        int authenticated() {
+            filter.filter(request, response, chain);
+            return passed;
+        }
+
+        boolean login(String address) throws Exception {
+            switch (storm) {
+                case "limited": {
+                    if (rateLimiter.tryAcquire(address) > 0) return false;
+                    CompletableFuture<Boolean> login = verificationExecutor.submit(() -> BCrypt.checkpw("sbagliata", hash));
+                    return login != null && verificationExecutor.await(login);
+                }
+                case "unbounded":
+                    return BCrypt.checkpw("sbagliata", hash);
+                default: {
+                    // senza raffica il thread resta fermo e non toglie CPU alle richieste autenticate
+                    Thread.sleep(1);
+                    return false;
+                }
+            }
+        }
+    }
+
+    // un indirizzo remoto diverso per ogni thread della raffica
+    @State(Scope.Thread)
+    public static class Client {
+
+        private static final AtomicInteger IDS = new AtomicInteger();
+
+        private final String address = "10.0.0." + IDS.incrementAndGet();
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(1)
+    public int authenticated(Server server) {
+        return server.authenticated();
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(8)
+    public boolean login(Server server, Client client) throws Exception {
+        return server.login(client.address);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(LoginStormBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
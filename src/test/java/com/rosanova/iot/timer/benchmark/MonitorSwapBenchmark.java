@@ -0,0 +1,123 @@
+package com.rosanova.iot.timer.benchmark;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.monitor.Monitor;
+import com.rosanova.iot.timer.monitor.MonitorSnapshot;
+import com.rosanova.iot.timer.monitor.repository.MonitorRepository;
+import com.rosanova.iot.timer.monitor.service.MonitorServiceImpl;
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
+import com.rosanova.iot.timer.utils.impl.SystemctlExecutor;
+import com.rosanova.iot.timer.utils.impl.TimerUtilsImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Aggiornamento dello start del monitor: percorso in sequenza (disattivazione, cancellazione, creazione, reload, attivazione)
+ * contro la sostituzione con disable/enable lanciati insieme e un solo daemon-reload dopo la rimozione del vecchio file.
+ * I processi systemctl sono tre in entrambi i percorsi: la differenza misurata è l'attesa di disable ed enable in parallelo.
+ * systemctl è uno script finto che attende -Dbenchmark.systemctl.sleep secondi (default 0.05, il costo di un comando
+ * verso il manager di systemd su un Raspberry): la misura comprende avvii di processo, attese e scritture con fsync.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MonitorSwapBenchmark {
+
+    private static final int FIRST = 8 * 60 * 60 * 1000;
+    private static final int SECOND = 9 * 60 * 60 * 1000;
+    private static final int STOP = 20 * 60 * 60 * 1000;
+
+    // monitor in memoria, basta al servizio per leggere e aggiornare start e stop
+    static class InMemoryMonitorRepository implements MonitorRepository {
+        private final Monitor monitor = new Monitor(1, FIRST, STOP);
+        public int save(Monitor monitor) { return 1; }
+        public int count() { return 1; }
+        public Monitor getMonitor() { return new Monitor(monitor.getId(), monitor.getStart(), monitor.getStop()); }
+        public MonitorSnapshot getMonitorSnapshot() { return MonitorSnapshot.of(monitor, 0); }
+        public int updateStart(long id, int newStart) { monitor.setStart(newStart); return 1; }
+        public int updateStop(long id, int newStop) { monitor.setStop(newStop); return 1; }
+        public int updateSchedule(long id, int newStart, int newStop) { monitor.setStart(newStart); monitor.setStop(newStop); return 1; }
+        public int deleteById(long id) { return 0; }
+        public boolean existsMonitor() { return true; }
+        public boolean isStartBeforeStop(long id) { return true; }
+        public boolean isStopAfterStart(long id) { return true; }
+        public void deleteAll() { }
+    }
+
+    private Path root;
+    private MonitorServiceImpl sequential;
+    private MonitorServiceImpl swap;
+    private InMemoryMonitorRepository sequentialRepository;
+    private InMemoryMonitorRepository swapRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String baseDir = System.getProperty("benchmark.dir");
+        root = baseDir == null ? Files.createTempDirectory("monitor-swap") : Files.createTempDirectory(Path.of(baseDir), "monitor-swap");
+
+        Path bin = Files.createDirectories(root.resolve("bin"));
+        Path script = bin.resolve("systemctl");
+        Files.writeString(script, "#!/bin/sh\nsleep " + System.getProperty("benchmark.systemctl.sleep", "0.05") + "\nexit 0\n");
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+
+        SystemctlExecutor systemctlExecutor = new SystemctlExecutor(bin.toString(), 10_000, 4);
+
+        sequentialRepository = new InMemoryMonitorRepository();
+        swapRepository = new InMemoryMonitorRepository();
+
+        sequential = new MonitorServiceImpl(new ReentrantLock(), sequentialRepository, utils("sequential", systemctlExecutor), null, SagaJournal.disabled(), false);
+        swap = new MonitorServiceImpl(new ReentrantLock(), swapRepository, utils("swap", systemctlExecutor), null, SagaJournal.disabled(), true);
+    }
+
+    private TimerUtilsImpl utils(String name, SystemctlExecutor systemctlExecutor) throws IOException {
+        Path tmp = Files.createDirectories(root.resolve(name).resolve("tmp"));
+        Path systemd = Files.createDirectories(root.resolve(name).resolve("systemd"));
+        TimerUtilsImpl utils = new TimerUtilsImpl(tmp.toString(), systemd.toString(), "monitor_on", false, null, systemctlExecutor);
+        utils.createSystemdTimerUnit(String.valueOf(FIRST), "08:00:00", String.valueOf(FIRST / 1000));
+        return utils;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Result sequentialSteps() {
+        return sequential.updateMonitorStart(next(sequentialRepository));
+    }
+
+    @Benchmark
+    public Result singleReloadSwap() {
+        return swap.updateMonitorStart(next(swapRepository));
+    }
+
+    // alterna tra due orari, ogni operazione è una sostituzione reale
+    private static int next(InMemoryMonitorRepository repository) {
+        return repository.getMonitor().getStart() == FIRST ? SECOND : FIRST;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MonitorSwapBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,145 @@
+package com.rosanova.iot.timer.benchmark;
+
+import com.rosanova.iot.timer.security.SecurityFilter;
+import com.rosanova.iot.timer.security.VerifiedTokenCache;
+import com.rosanova.iot.timer.utils.impl.HMACSHA256SignatureUtilImpl;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifica del token di sessione nel filtro su una richiesta a /authenticated con un token valido.
+ * header: percorso diretto dall'header Cookie; cookies: stesso token letto da Cookie[] (percorso precedente);
+ * headerCached: percorso diretto con la cache dei token verificati, dopo il primo passaggio ogni richiesta è un hit.
+ * La MockHttpServletRequest è avvolta per restituire header, URI e cookie da campi: i metodi del mock cercano
+ * in mappe case-insensitive e allocherebbero da soli, il conteggio deve misurare solo il filtro.
+ * Avvio: mvn test-compile, poi eseguire il main con il classpath di test; il main aggiunge -prof gc
+ * e gc.alloc.rate.norm riporta i byte allocati per richiesta.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityFilterBenchmark {
+
+    private static final String SECRET = "4vE9tZ2mP7qL5xR1nB8yW3kS6jD0hF4gA7sC2vN9mQ1pL8zX5rT3bY6nK0jH2wM4";
+
+    // accesso a doFilterInternal senza il giro di attributi di OncePerRequestFilter
+    static class Harness extends SecurityFilter {
+        private final long now;
+
+        Harness(HMACSHA256SignatureUtilImpl hashingUtil, VerifiedTokenCache tokenCache, long now) {
+            super(hashingUtil, tokenCache);
+            this.now = now;
+        }
+
+        // il token resta valido per tutta la misura
+        @Override
+        public long getCurrentTimeMillis() {
+            return now;
+        }
+
+        void filter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) {
+            doFilterInternal(request, response, chain);
+        }
+    }
+
+    static class Request extends HttpServletRequestWrapper {
+        private final String uri;
+        private final String cookieHeader;
+        private final Cookie[] cookies;
+
+        Request(MockHttpServletRequest request, String cookieHeader, Cookie[] cookies) {
+            super(request);
+            this.uri = request.getRequestURI();
+            this.cookieHeader = cookieHeader;
+            this.cookies = cookies;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return uri;
+        }
+
+        @Override
+        public String getContextPath() {
+            return "";
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return "Cookie".equals(name) ? cookieHeader : null;
+        }
+
+        @Override
+        public Cookie[] getCookies() {
+            return cookies;
+        }
+    }
+
+    private Harness filter;
+    private Harness cachedFilter;
+    private HttpServletRequest headerRequest;
+    private HttpServletRequest cookiesRequest;
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private int passed;
+    private final FilterChain chain = (request, response) -> passed++;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        HMACSHA256SignatureUtilImpl hashingUtil = new HMACSHA256SignatureUtilImpl(SECRET);
+        hashingUtil.computeSecretKey();
+
+        String timestamp = String.valueOf(System.currentTimeMillis());
+        String token = timestamp + hashingUtil.computeHMACSHA256(timestamp);
+
+        long now = Long.parseLong(timestamp) + 1000;
+        filter = new Harness(hashingUtil, null, now);
+        cachedFilter = new Harness(hashingUtil, new VerifiedTokenCache(64), now);
+
+        MockHttpServletRequest mock = new MockHttpServletRequest("GET", "/authenticated/api/v1/timer");
+        Cookie[] cookies = {new Cookie("lang", "it"), new Cookie("TIMER_SESSION_TOKEN", token)};
+
+        headerRequest = new Request(mock, "lang=it; TIMER_SESSION_TOKEN=" + token, cookies);
+        cookiesRequest = new Request(mock, null, cookies);
+    }
+
+    @Benchmark
+    public int header() {
+        filter.filter(headerRequest, response, chain);
+        return passed;
+    }
+
+    @Benchmark
+    public int headerCached() {
+        cachedFilter.filter(headerRequest, response, chain);
+        return passed;
+    }
+
+    @Benchmark
+    public int cookies() {
+        filter.filter(cookiesRequest, response, chain);
+        return passed;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SecurityFilterBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
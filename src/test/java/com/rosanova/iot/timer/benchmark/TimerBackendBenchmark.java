@@ -0,0 +1,98 @@
+package com.rosanova.iot.timer.benchmark;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.utils.TimerUtils;
+import com.rosanova.iot.timer.utils.impl.SystemctlExecutor;
+import com.rosanova.iot.timer.utils.impl.TimerUtilsImpl;
+import com.rosanova.iot.timer.utils.impl.TransientTimerUtilsImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Latenza di un inserimento (creazione, reload, attivazione) con il backend a file .timer
+ * e con il backend transitorio basato su systemd-run.
+ * systemctl e systemd-run sono script finti in una directory temporanea che terminano subito:
+ * la misura comprende le scritture con fsync e gli avvii di processo, non il lavoro di systemd.
+ * Per una misura sulla SD card impostare -Dbenchmark.dir su una directory della scheda.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimerBackendBenchmark {
+
+    private Path root;
+    private TimerUtils fileBackend;
+    private TimerUtils transientBackend;
+    private int time = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String baseDir = System.getProperty("benchmark.dir");
+        root = baseDir == null ? Files.createTempDirectory("timer-backend") : Files.createTempDirectory(Path.of(baseDir), "timer-backend");
+
+        Path bin = Files.createDirectories(root.resolve("bin"));
+        Path tmp = Files.createDirectories(root.resolve("tmp"));
+        Path systemd = Files.createDirectories(root.resolve("systemd"));
+
+        for (String name : new String[]{"systemctl", "systemd-run"}) {
+            Path script = bin.resolve(name);
+            Files.writeString(script, "#!/bin/sh\nexit 0\n");
+            Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        }
+
+        SystemctlExecutor systemctlExecutor = new SystemctlExecutor(bin.toString(), 10_000, 4);
+
+        fileBackend = new TimerUtilsImpl(tmp.toString(), systemd.toString(), "alarm", false, null, systemctlExecutor);
+
+        transientBackend = new TransientTimerUtilsImpl("alarm", bin.toString(), systemctlExecutor);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Result fileUnit() {
+        return insert(fileBackend);
+    }
+
+    @Benchmark
+    public Result transientUnit() {
+        return insert(transientBackend);
+    }
+
+    private Result insert(TimerUtils timerUtils) {
+        String name = String.valueOf(time);
+        time = (time + 1000) % 86_400_000;
+
+        timerUtils.createSystemdTimerUnit(name, "12:00:00", "30");
+        timerUtils.timerReload();
+        Result result = timerUtils.activateSystemdTimer(name);
+        timerUtils.reversSystemdTimerUnitInsert(name);
+        return result;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TimerBackendBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
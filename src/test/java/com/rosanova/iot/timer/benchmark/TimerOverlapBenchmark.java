@@ -0,0 +1,89 @@
+package com.rosanova.iot.timer.benchmark;
+
+import com.rosanova.iot.timer.timer.dto.CheckTimerInsertValidity;
+import com.rosanova.iot.timer.timer.repository.impl.TimerRepositoryImpl;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confronto tra il controllo di sovrapposizione via SQL (scansione della tabella timer su SQLite)
+ * e l'indice in memoria del repository.
+ * Avvio: mvn test-compile, poi eseguire il main con il classpath di test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerOverlapBenchmark {
+
+    private static final int MAX_MILLS_DAY = 86_400_000;
+    private static final int PILLOW_TIME = 20_000;
+
+    @Param({"40", "1000", "100000"})
+    public int timers;
+
+    private SingleConnectionDataSource dataSource;
+    private TimerRepositoryImpl repository;
+    private int[] probes;
+    private int probe = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:sqlite::memory:", true);
+        new ResourceDatabasePopulator(new ClassPathResource("schema-sqlite.sql")).execute(dataSource);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        int step = MAX_MILLS_DAY / timers;
+        List<Object[]> rows = new ArrayList<>(timers);
+        for (int i = 0; i < timers; i++) {
+            int start = i * step;
+            rows.add(new Object[]{"bench-" + i, start, start + 2 * PILLOW_TIME});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO timer (timer_name, start_time, end_time) VALUES (?, ?, ?)", rows);
+
+        repository = new TimerRepositoryImpl(jdbcTemplate);
+        repository.loadIndex();
+
+        probes = new int[1024];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = (int) ((i * 7_919L * 10_007L) % MAX_MILLS_DAY);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public CheckTimerInsertValidity sqlQuery() {
+        int time = probes[probe++ & 1023];
+        return repository.countOverlapsAndMaxTimersFromDatabase(time - PILLOW_TIME, time + PILLOW_TIME);
+    }
+
+    @Benchmark
+    public CheckTimerInsertValidity inMemoryIndex() {
+        int time = probes[probe++ & 1023];
+        return repository.countOverlapsAndMaxTimers(time - PILLOW_TIME, time + PILLOW_TIME);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TimerOverlapBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,163 @@
+package com.rosanova.iot.timer.benchmark;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.timer.repository.impl.TimerRepositoryImpl;
+import com.rosanova.iot.timer.timer.service.impl.TimerServiceImpl;
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
+import com.rosanova.iot.timer.utils.impl.SystemctlExecutor;
+import com.rosanova.iot.timer.utils.impl.TimerUtilsImpl;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Throughput degli altri scrittori SQLite mentre un thread esegue inserimenti e cancellazioni di timer.
+ * held: tutta la saga gira dentro una transazione (il comportamento di @Transactional sul metodo),
+ * il lock di scrittura di SQLite resta preso durante fsync e processi systemctl.
+ * short: prenotazione e conferma in transazioni brevi, effetti su systemd fuori da ogni transazione.
+ * systemctl è uno script finto che termina subito; il risultato da leggere è writer nel gruppo.
+ * Ogni scrittore attende 1 ms tra due scritture, come richieste API indipendenti, per non affamare la saga.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TimerTransactionBenchmark {
+
+    @State(Scope.Group)
+    public static class Database {
+
+        @Param({"held", "short"})
+        public String mode;
+
+        private Path root;
+        private HikariDataSource dataSource;
+        private JdbcTemplate jdbcTemplate;
+        private TransactionTemplate outer;
+        private TransactionTemplate writerTransaction;
+        private TimerServiceImpl timerService;
+        private TimerRepositoryImpl repository;
+        private int time = 0;
+        private int stop = 0;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            root = Files.createTempDirectory("timer-transaction");
+            Path bin = Files.createDirectories(root.resolve("bin"));
+            Path tmp = Files.createDirectories(root.resolve("tmp"));
+            Path systemd = Files.createDirectories(root.resolve("systemd"));
+
+            Path script = bin.resolve("systemctl");
+            Files.writeString(script, "#!/bin/sh\nexit 0\n");
+            Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+
+            SQLiteConfig sqliteConfig = new SQLiteConfig();
+            sqliteConfig.setBusyTimeout(30_000);
+            // con le transazioni DEFERRED una saga che legge e poi scrive riceve SQLITE_BUSY invece di attendere
+            sqliteConfig.setTransactionMode(SQLiteConfig.TransactionMode.IMMEDIATE);
+            SQLiteDataSource sqlite = new SQLiteDataSource(sqliteConfig);
+            sqlite.setUrl("jdbc:sqlite:" + root.resolve("bench.db"));
+
+            HikariConfig hikari = new HikariConfig();
+            hikari.setDataSource(sqlite);
+            // connessioni aperte tutte prima della misura: l'apertura durante la contesa fallisce con SQLITE_BUSY
+            hikari.setMaximumPoolSize(8);
+            hikari.setMinimumIdle(8);
+            dataSource = new HikariDataSource(hikari);
+            while (dataSource.getHikariPoolMXBean().getIdleConnections() < 8) Thread.onSpinWait();
+
+            new ResourceDatabasePopulator(new ClassPathResource("schema-sqlite.sql")).execute(dataSource);
+            jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.update("INSERT INTO monitor_timer (id, start, stop) VALUES (1, 0, 1)");
+
+            repository = new TimerRepositoryImpl(jdbcTemplate);
+            repository.init();
+
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+            outer = new TransactionTemplate(transactionManager);
+            writerTransaction = new TransactionTemplate(transactionManager);
+
+            TimerUtilsImpl timerUtils = new TimerUtilsImpl(tmp.toString(), systemd.toString(), "alarm", false, null,
+                    new SystemctlExecutor(bin.toString(), 10_000, 4));
+
+            TransactionTemplate phases = new TransactionTemplate(transactionManager);
+            // held: le fasi partecipano alla transazione esterna; short: ogni fase è confermata subito
+            phases.setPropagationBehavior("held".equals(mode) ? TransactionDefinition.PROPAGATION_REQUIRED : TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+            timerService = new TimerServiceImpl(repository, timerUtils, new ReentrantLock(), SagaJournal.disabled(), phases);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            dataSource.close();
+            try (Stream<Path> files = Files.walk(root)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+
+        Result insertAndRemove() {
+            int value = 600_000 + (time++ % 1000) * 60_000;
+            insert(value);
+            long id = repository.findAll().stream().filter(timer -> timer.getStartTime() == value - 20_000).findFirst().orElseThrow().getId();
+            return run(() -> timerService.removeTimer(id));
+        }
+
+        private void insert(int value) {
+            run(() -> timerService.insertTimer("bench", value, 30));
+        }
+
+        private Result run(java.util.function.Supplier<Result> saga) {
+            return "held".equals(mode) ? outer.execute(status -> saga.get()) : saga.get();
+        }
+
+        int write() throws InterruptedException {
+            Thread.sleep(1);
+            int value = ++stop;
+            return writerTransaction.execute(status -> jdbcTemplate.update("UPDATE monitor_timer SET stop = ? WHERE id = 1", value));
+        }
+    }
+
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(1)
+    public Result saga(Database database) {
+        return database.insertAndRemove();
+    }
+
+    @Benchmark
+    @Group("contention")
+    @GroupThreads(3)
+    public int writer(Database database) throws InterruptedException {
+        return database.write();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TimerTransactionBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,102 @@
+package com.rosanova.iot.timer.benchmark;
+
+import com.rosanova.iot.timer.utils.impl.UnitTemplate;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contenuto di un file .timer: costruzione precedente (Duration, String.format, StringBuilder, getBytes)
+ * contro il modello precompilato che scrive orario e parametro in un ByteBuffer diretto riutilizzato.
+ * template è il percorso dei servizi (millisecondi scritti nel buffer), templateFormatted passa da formatOnCalendar.
+ * Avvio: mvn test-compile, poi eseguire il main con il classpath di test; il main aggiunge -prof gc
+ * e gc.alloc.rate.norm riporta i byte allocati per operazione.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnitTemplateBenchmark {
+
+    private static final String SERVICE_FILE_NAME = "alarm";
+
+    private static final String[] FILE_STATIC = {"[Unit]\nDescription=Custom Timer for ", "\n\n[Timer]\nOnCalendar= *-*-* ","\nPersistent=true\nUnit=", "\nUnit=", "\n\n[Install]\nWantedBy=timers.target\n"};
+
+    private final UnitTemplate template = new UnitTemplate(SERVICE_FILE_NAME, false);
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+
+    private int time = 0;
+
+    private int nextTime() {
+        time = (time + 61_000) % 86_400_000;
+        return time;
+    }
+
+    @Benchmark
+    public byte[] stringBuilder() {
+        int millis = nextTime();
+        Duration duration = Duration.ofMillis(millis);
+        String onCalendar = String.format("%02d:%02d:%02d", duration.toHours(), duration.toMinutesPart(), duration.toSecondsPart());
+
+        StringBuilder timerContent = new StringBuilder(150);
+        StringBuilder service = new StringBuilder(3);
+
+        service.append(SERVICE_FILE_NAME).append('@').append(String.valueOf(30)).append(".service");
+
+        timerContent.append(FILE_STATIC[0]).append(service)
+                .append(FILE_STATIC[1]).append(onCalendar)
+                .append(FILE_STATIC[3]).append(service)
+                .append(FILE_STATIC[4]);
+
+        return timerContent.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // percorso di produzione: i millisecondi dalla mezzanotte arrivano a TimerUtilsImpl e sono scritti nel buffer
+    @Benchmark
+    public int template() {
+        buffer.clear();
+        return template.render(buffer, nextTime(), "30");
+    }
+
+    // API testuale: orario formattato in una String e poi copiato nel buffer
+    @Benchmark
+    public int templateFormatted() {
+        buffer.clear();
+        return template.render(buffer, UnitTemplate.formatOnCalendar(nextTime()), "30");
+    }
+
+    // solo rendering, orario già formattato
+    @Benchmark
+    public int templateFromStrings() {
+        buffer.clear();
+        return template.render(buffer, "10:00:00", "30");
+    }
+
+    @Benchmark
+    public String formatOnCalendar() {
+        return UnitTemplate.formatOnCalendar(nextTime());
+    }
+
+    @Benchmark
+    public String formatDuration() {
+        Duration duration = Duration.ofMillis(nextTime());
+        return String.format("%02d:%02d:%02d", duration.toHours(), duration.toMinutesPart(), duration.toSecondsPart());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(UnitTemplateBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -80,7 +80,7 @@ class CleanUpIntegrationTest {
         // --- PREPARA DATI TIMER (20 validi + 10 spazzatura) ---
         for (int i = 0; i < 20; i++) {
             int timeId = 1000 + i;
-            // Salva nel DB: endTime deve corrispondere al nome file per la logica HashMapInt
+            // Salva nel DB: endTime deve corrispondere al nome file per la logica HashSetInt
             Timer t = new Timer(random.nextLong(), "Timer-" + i, timeId - 20000, timeId + 20000);
             timerRepository.insert(t);
             // Crea file corrispondente
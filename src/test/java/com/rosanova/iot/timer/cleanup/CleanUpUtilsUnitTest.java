@@ -5,7 +5,7 @@ import com.rosanova.iot.timer.monitor.Monitor;
 import com.rosanova.iot.timer.monitor.repository.MonitorRepository;
 import com.rosanova.iot.timer.timer.repository.TimerRepository;
 import com.rosanova.iot.timer.utils.TimerUtils;
-import com.rosanova.iot.timer.utils.impl.HashMapInt;
+import com.rosanova.iot.timer.utils.impl.HashSetInt;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -259,7 +259,7 @@ class CleanUpUtilsUnitTest {
         // Simuliamo un errore Runtime (es. DataAccessException) sul repository dei timer
         // Usiamo doThrow se il metodo è void o when().thenThrow() se restituisce qualcosa
         doThrow(new RuntimeException("DB ERROR: Connection refused"))
-                .when(timerRepository).addEndTimesToMap(any(HashMapInt.class));
+                .when(timerRepository).addEndTimesToMap(any(HashSetInt.class));
 
         // --- 2. ACT ---
         // Il metodo lancerà l'eccezione internamente (o la catturerà se hai un try-catch largo)
@@ -313,7 +313,7 @@ class CleanUpUtilsUnitTest {
         // --- 3. ASSERT (ORCHESTRAZIONE) ---
 
         // Verifichiamo l'ordine logico delle chiamate
-        verify(timerRepository).addEndTimesToMap(any(HashMapInt.class));
+        verify(timerRepository).addEndTimesToMap(any(HashSetInt.class));
         verify(monitorRepository).getMonitor();
         verify(ioLock).tryLock(10L, TimeUnit.SECONDS);
 
@@ -331,12 +331,12 @@ class CleanUpUtilsUnitTest {
 
         // Analisi Task 1: Timer Directory
         capturedRunnables.get(0).run();
-        verify(cleanUp).deleteFiledFromTimerDirectory(eq(Path.of("/timer")), any(HashMapInt.class), anyString());
+        verify(cleanUp).deleteFiledFromTimerDirectory(eq(Path.of("/timer")), any(HashSetInt.class), anyString());
          // Verifica che il task segnali la fine
 
         // Analisi Task 2: Monitor Directory
         capturedRunnables.get(1).run();
-        verify(cleanUp).deleteFiledFromTimerDirectory(eq(Path.of("/monitor")), any(HashMapInt.class), anyString());
+        verify(cleanUp).deleteFiledFromTimerDirectory(eq(Path.of("/monitor")), any(HashSetInt.class), anyString());
 
 
         // Analisi Task 3: Tmp Directory
@@ -490,7 +490,7 @@ class CleanUpUtilsUnitTest {
         Path tmp = directory.resolve("tmp");
         Files.createDirectory(tmp);
 
-        HashMapInt fileToControl = new HashMapInt();
+        HashSetInt fileToControl = new HashSetInt();
 
         fileToControl.add(1);
         fileToControl.add(2);
@@ -498,6 +498,26 @@ class CleanUpUtilsUnitTest {
         cleanUp.deleteFiledFromTimerDirectory(tmp,fileToControl,extension);
     }
 
+    @Test
+    void deleteTimerDirRemovesInterruptedWriteLeftovers() throws IOException {
+        String extension = ".timer";
+        Path tmp = directory.resolve("tmp");
+        Files.createDirectory(tmp);
+        Path live = tmp.resolve("1.timer");
+        Path leftover = tmp.resolve(".2.timer.tmp");
+        Files.createFile(live);
+        Files.createFile(leftover);
+
+        HashSetInt fileToControl = new HashSetInt();
+        fileToControl.add(1);
+
+        cleanUp.deleteFiledFromTimerDirectory(tmp,fileToControl,extension);
+
+        Assertions.assertTrue(Files.exists(live));
+        Assertions.assertFalse(Files.exists(leftover));
+        verify(fileSystemUtils, never()).deactivateSystemdTimers(any());
+    }
+
     @Test
     void deleteTimerDirThreadInterrupted() throws IOException {
         String extension = ".timer";
@@ -514,13 +534,14 @@ class CleanUpUtilsUnitTest {
         Assertions.assertTrue(Files.exists(file1));
         Assertions.assertTrue(Files.exists(file2));
 
-        HashMapInt fileToControl = new HashMapInt();
+        HashSetInt fileToControl = new HashSetInt();
 
 
         cleanUp.deleteFiledFromTimerDirectory(tmp,fileToControl,extension);
 
         Assertions.assertTrue(Files.exists(file1));
         Assertions.assertTrue(Files.exists(file2));
+        verify(fileSystemUtils, never()).deactivateSystemdTimers(anyList());
     }
 
     @Test
@@ -537,7 +558,7 @@ class CleanUpUtilsUnitTest {
         Assertions.assertTrue(Files.exists(file1));
         Assertions.assertTrue(Files.exists(file2));
 
-        HashMapInt fileToControl = new HashMapInt();
+        HashSetInt fileToControl = new HashSetInt();
 
         fileToControl.add(1);
         fileToControl.add(2);
@@ -546,6 +567,7 @@ class CleanUpUtilsUnitTest {
 
         Assertions.assertTrue(Files.exists(file1));
         Assertions.assertTrue(Files.exists(file2));
+        verify(fileSystemUtils, never()).deactivateSystemdTimers(anyList());
     }
 
     @Test
@@ -568,7 +590,7 @@ class CleanUpUtilsUnitTest {
         Assertions.assertTrue(Files.exists(file3));
         Assertions.assertTrue(Files.exists(file4));
 
-        HashMapInt fileToControl = new HashMapInt();
+        HashSetInt fileToControl = new HashSetInt();
 
         fileToControl.add(1);
         fileToControl.add(2);
@@ -579,6 +601,10 @@ class CleanUpUtilsUnitTest {
         Assertions.assertTrue(Files.exists(file2));
         Assertions.assertFalse(Files.exists(file3));
         Assertions.assertFalse(Files.exists(file4));
+
+        // un solo comando systemctl per tutti i timer orfani
+        verify(fileSystemUtils, times(1)).deactivateSystemdTimers(argThat(names -> names.size() == 2 && names.containsAll(List.of("0003", "0004"))));
+        verify(fileSystemUtils, never()).deactivateSystemdTimer(anyString());
     }
 
     @Test
@@ -607,7 +633,7 @@ class CleanUpUtilsUnitTest {
         Assertions.assertTrue(Files.exists(file5));
         Assertions.assertTrue(Files.exists(subTmp));
 
-        HashMapInt fileToControl = new HashMapInt();
+        HashSetInt fileToControl = new HashSetInt();
 
         fileToControl.add(1);
         fileToControl.add(2);
@@ -0,0 +1,193 @@
+package com.rosanova.iot.timer.cleanup;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.monitor.Monitor;
+import com.rosanova.iot.timer.monitor.repository.MonitorRepository;
+import com.rosanova.iot.timer.timer.repository.TimerRepository;
+import com.rosanova.iot.timer.utils.TimerUtils;
+import com.rosanova.iot.timer.utils.impl.HashSetInt;
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class UnitDirectoryReconcilerUnitTest {
+
+    @TempDir
+    Path directory;
+
+    private Path tmpDir;
+    private Path timerDir;
+    private Path monitorDir;
+
+    private TimerRepository timerRepository;
+    private MonitorRepository monitorRepository;
+    private TimerUtils fileSystemUtils;
+    private SagaJournal journal;
+    private CleanUp cleanUp;
+    private final ReentrantLock ioLock = new ReentrantLock();
+
+    private UnitDirectoryReconciler reconciler;
+
+    @BeforeEach
+    void init() throws IOException {
+        tmpDir = Files.createDirectories(directory.resolve("tmp"));
+        timerDir = Files.createDirectories(directory.resolve("timer"));
+        monitorDir = Files.createDirectories(directory.resolve("monitor"));
+
+        timerRepository = Mockito.mock(TimerRepository.class);
+        monitorRepository = Mockito.mock(MonitorRepository.class);
+        fileSystemUtils = Mockito.mock(TimerUtils.class);
+        journal = Mockito.mock(SagaJournal.class);
+
+        // nel database un solo timer (mediano 600000) e il monitor 28800000 / 72000000
+        doAnswer(invocation -> {
+            HashSetInt set = invocation.getArgument(0);
+            set.add(600_000);
+            return null;
+        }).when(timerRepository).addEndTimesToMap(any(HashSetInt.class));
+        when(monitorRepository.getMonitor()).thenReturn(new Monitor(1, 28_800_000, 72_000_000));
+        when(fileSystemUtils.deactivateSystemdTimers(any())).thenReturn(Result.SUCCESS);
+
+        cleanUp = spy(new CleanUp(ioLock, monitorRepository, timerRepository,
+                tmpDir.toString(), timerDir.toString(), monitorDir.toString(), null, fileSystemUtils));
+
+        reconciler = new UnitDirectoryReconciler(cleanUp, timerRepository, monitorRepository, fileSystemUtils, ioLock, journal,
+                tmpDir.toString(), timerDir.toString(), monitorDir.toString(), 50);
+    }
+
+    @AfterEach
+    void close() {
+        reconciler.stop();
+    }
+
+    private Path unit(Path dir, int name) throws IOException {
+        Path file = dir.resolve(name + ".timer");
+        Files.writeString(file, "[Timer]");
+        return file;
+    }
+
+    @Test
+    void createdOrphan_ShouldBeDeactivatedAndDeleted() throws IOException {
+        Path live = unit(timerDir, 600_000);
+        Path orphan = unit(timerDir, 1_200_000);
+        Path monitorOrphan = unit(monitorDir, 30_000_000);
+
+        reconciler.onEvent(timerDir, ENTRY_CREATE, live.getFileName());
+        reconciler.onEvent(timerDir, ENTRY_CREATE, orphan.getFileName());
+        reconciler.onEvent(monitorDir, ENTRY_CREATE, monitorOrphan.getFileName());
+
+        assertTrue(reconciler.reconcile());
+
+        assertTrue(Files.exists(live));
+        assertFalse(Files.exists(orphan));
+        assertFalse(Files.exists(monitorOrphan));
+        verify(fileSystemUtils).deactivateSystemdTimers(List.of("1200000"));
+        verify(fileSystemUtils).deactivateSystemdTimers(List.of("30000000"));
+        verify(fileSystemUtils).timerReload();
+        assertEquals(2, reconciler.getOrphansRemoved());
+        verify(cleanUp, never()).cleanUpMethod();
+    }
+
+    @Test
+    void operationInProgress_ShouldDeferUntilLockIsFree() throws Exception {
+        Path orphan = unit(timerDir, 1_200_000);
+        reconciler.onEvent(timerDir, ENTRY_CREATE, orphan.getFileName());
+
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread saga = new Thread(() -> {
+            ioLock.lock();
+            try {
+                held.countDown();
+                release.await();
+            } catch (InterruptedException ignored) {
+            } finally {
+                ioLock.unlock();
+            }
+        });
+        saga.start();
+        held.await();
+
+        Thread.currentThread().interrupt();
+        assertFalse(reconciler.reconcile());
+        assertTrue(Thread.interrupted());
+        assertTrue(Files.exists(orphan));
+
+        release.countDown();
+        saga.join();
+
+        assertTrue(reconciler.reconcile());
+        assertFalse(Files.exists(orphan));
+    }
+
+    @Test
+    void tmpFiles_ShouldBeKeptWhileJournalHasOpenOperations() throws IOException {
+        Path backup = unit(tmpDir, 600_000);
+        reconciler.onEvent(tmpDir, ENTRY_CREATE, backup.getFileName());
+
+        when(journal.getOpen()).thenReturn(1);
+        reconciler.reconcile();
+        assertTrue(Files.exists(backup));
+
+        reconciler.onEvent(tmpDir, ENTRY_MODIFY, backup.getFileName());
+        when(journal.getOpen()).thenReturn(0);
+        reconciler.reconcile();
+        assertFalse(Files.exists(backup));
+    }
+
+    @Test
+    void overflow_ShouldFallBackToFullSweep() {
+        doNothing().when(cleanUp).cleanUpMethod();
+
+        reconciler.onEvent(timerDir, OVERFLOW, null);
+        reconciler.reconcile();
+
+        verify(cleanUp).cleanUpMethod();
+        assertEquals(1, reconciler.getSweeps());
+        verify(fileSystemUtils, never()).deactivateSystemdTimers(any());
+    }
+
+    @Test
+    void nightlySweep_ShouldRunOnlyWithoutWatcher() {
+        doNothing().when(cleanUp).cleanUpMethod();
+
+        reconciler.start();
+        reconciler.fallbackSweep();
+        verify(cleanUp, never()).cleanUpMethod();
+
+        reconciler.stop();
+        reconciler.fallbackSweep();
+        verify(cleanUp).cleanUpMethod();
+    }
+
+    @Test
+    void watcher_ShouldRemoveOrphanWithinSeconds() throws Exception {
+        Path live = unit(timerDir, 600_000);
+        reconciler.start();
+
+        Path orphan = unit(timerDir, 1_800_000);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (Files.exists(orphan) && System.nanoTime() < deadline) Thread.sleep(20);
+
+        assertFalse(Files.exists(orphan));
+        assertTrue(Files.exists(live));
+        assertTrue(reconciler.getEvents() > 0);
+    }
+}
@@ -31,8 +31,8 @@ class MonitorStartupUnitTest {
 
     int start = 8 * 60 * 60 * 1000;
     int stop = 20 * 60 * 60 * 1000;
-    String literalStart = "08:00:00";
-    String literalStop = "20:00:00";
+    int startMillis = 8 * 60 * 60 * 1000;
+    int stopMillis = 20 * 60 * 60 * 1000;
     String startString = String.valueOf(start);
     String stopString = String.valueOf(stop);
     String startStringSecond = startString.substring(0,startString.length()-3);
@@ -50,8 +50,8 @@ class MonitorStartupUnitTest {
         ArgumentCaptor<Monitor> captor = ArgumentCaptor.forClass(Monitor.class);
 
         Mockito.doReturn(false).when(repository).existsMonitor();
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.anyString());
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.anyString());
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).activateSystemdTimer(Mockito.anyString());
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).activateSystemdTimer(Mockito.anyString());
@@ -59,8 +59,8 @@ class MonitorStartupUnitTest {
 
         Assertions.assertEquals(Result.SUCCESS,monitorStartup.createMonitor());
 
-        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(literalStart),Mockito.eq(startStringSecond));
-        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(literalStop),Mockito.eq(stopStringSecond));
+        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(startMillis),Mockito.eq(startStringSecond));
+        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(stopMillis),Mockito.eq(stopStringSecond));
         Mockito.verify(monitorTurnOnUtils).timerReload();
         Mockito.verify(monitorTurnOnUtils).activateSystemdTimer(Mockito.eq(String.valueOf(start)));
         Mockito.verify(monitorTurnOffUtils).activateSystemdTimer(Mockito.eq(String.valueOf(stop)));
@@ -104,16 +104,16 @@ class MonitorStartupUnitTest {
 
         int start = 8 * 60 * 60 * 1000;
         int stop = 20 * 60 * 60 * 1000;
-        String literalStart = "08:00:00";
-        String literalStop = "20:00:00";
+        int startMillis = 8 * 60 * 60 * 1000;
+        int stopMillis = 20 * 60 * 60 * 1000;
 
         Mockito.doReturn(false).when(repository).existsMonitor();
-        Mockito.doReturn(Result.ERROR).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.any());
+        Mockito.doReturn(Result.ERROR).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.any());
 
         Assertions.assertThrows(MonitorServiceException.class,()->{monitorStartup.createMonitor();});
 
-        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(literalStart),Mockito.eq(startStringSecond));
-        Mockito.verify(monitorTurnOffUtils,Mockito.times(0)).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(literalStop),Mockito.eq(stopStringSecond));
+        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(startMillis),Mockito.eq(startStringSecond));
+        Mockito.verify(monitorTurnOffUtils,Mockito.times(0)).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(stopMillis),Mockito.eq(stopStringSecond));
         Mockito.verify(monitorTurnOnUtils,Mockito.times(1)).timerReload();
         Mockito.verify(monitorTurnOnUtils,Mockito.times(0)).activateSystemdTimer(Mockito.eq(String.valueOf(start)));
         Mockito.verify(monitorTurnOffUtils,Mockito.times(0)).activateSystemdTimer(Mockito.eq(String.valueOf(stop)));
@@ -130,17 +130,17 @@ class MonitorStartupUnitTest {
 
         int start = 8 * 60 * 60 * 1000;
         int stop = 20 * 60 * 60 * 1000;
-        String literalStart = "08:00:00";
-        String literalStop = "20:00:00";
+        int startMillis = 8 * 60 * 60 * 1000;
+        int stopMillis = 20 * 60 * 60 * 1000;
 
         Mockito.doReturn(false).when(repository).existsMonitor();
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.anyString());
-        Mockito.doReturn(Result.ERROR).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.anyString());
+        Mockito.doReturn(Result.ERROR).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.anyString());
 
         Assertions.assertThrows(MonitorServiceException.class,()->{monitorStartup.createMonitor();});
 
-        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(literalStart),Mockito.eq(startStringSecond));
-        Mockito.verify(monitorTurnOffUtils,Mockito.times(1)).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(literalStop),Mockito.eq(stopStringSecond));
+        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(startMillis),Mockito.eq(startStringSecond));
+        Mockito.verify(monitorTurnOffUtils,Mockito.times(1)).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(stopMillis),Mockito.eq(stopStringSecond));
         Mockito.verify(monitorTurnOnUtils,Mockito.times(1)).timerReload();
         Mockito.verify(monitorTurnOnUtils,Mockito.times(0)).activateSystemdTimer(Mockito.eq(String.valueOf(start)));
         Mockito.verify(monitorTurnOffUtils,Mockito.times(0)).activateSystemdTimer(Mockito.eq(String.valueOf(stop)));
@@ -158,18 +158,18 @@ class MonitorStartupUnitTest {
 
         int start = 8 * 60 * 60 * 1000;
         int stop = 20 * 60 * 60 * 1000;
-        String literalStart = "08:00:00";
-        String literalStop = "20:00:00";
+        int startMillis = 8 * 60 * 60 * 1000;
+        int stopMillis = 20 * 60 * 60 * 1000;
 
         Mockito.doReturn(false).when(repository).existsMonitor();
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.any());
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.any());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.any());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.any());
         Mockito.doReturn(Result.ERROR).when(monitorTurnOnUtils).timerReload();
 
         Assertions.assertThrows(MonitorServiceException.class,()->{monitorStartup.createMonitor();});
 
-        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(literalStart),Mockito.eq(startStringSecond));
-        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(literalStop),Mockito.eq(stopStringSecond));
+        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(startMillis),Mockito.eq(startStringSecond));
+        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(stopMillis),Mockito.eq(stopStringSecond));
         Mockito.verify(monitorTurnOnUtils,Mockito.times(2)).timerReload();
         Mockito.verify(monitorTurnOnUtils,Mockito.times(0)).activateSystemdTimer(Mockito.eq(String.valueOf(start)));
         Mockito.verify(monitorTurnOffUtils,Mockito.times(0)).activateSystemdTimer(Mockito.eq(String.valueOf(stop)));
@@ -186,20 +186,20 @@ class MonitorStartupUnitTest {
 
         int start = 8 * 60 * 60 * 1000;
         int stop = 20 * 60 * 60 * 1000;
-        String literalStart = "08:00:00";
-        String literalStop = "20:00:00";
+        int startMillis = 8 * 60 * 60 * 1000;
+        int stopMillis = 20 * 60 * 60 * 1000;
 
         Mockito.doReturn(false).when(repository).existsMonitor();
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.any());
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.any());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.any());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.any());
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
         Mockito.doReturn(Result.ERROR).when(monitorTurnOnUtils).activateSystemdTimer(Mockito.anyString());
 
 
         Assertions.assertThrows(MonitorServiceException.class,()->{monitorStartup.createMonitor();});
 
-        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(literalStart),Mockito.eq(startStringSecond));
-        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(literalStop),Mockito.eq(stopStringSecond));
+        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(startMillis),Mockito.eq(startStringSecond));
+        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(stopMillis),Mockito.eq(stopStringSecond));
         Mockito.verify(monitorTurnOnUtils,Mockito.times(2)).timerReload();
         Mockito.verify(monitorTurnOnUtils,Mockito.times(1)).activateSystemdTimer(Mockito.eq(String.valueOf(start)));
         Mockito.verify(monitorTurnOffUtils,Mockito.times(0)).activateSystemdTimer(Mockito.eq(String.valueOf(stop)));
@@ -216,12 +216,12 @@ class MonitorStartupUnitTest {
 
         int start = 8 * 60 * 60 * 1000;
         int stop = 20 * 60 * 60 * 1000;
-        String literalStart = "08:00:00";
-        String literalStop = "20:00:00";
+        int startMillis = 8 * 60 * 60 * 1000;
+        int stopMillis = 20 * 60 * 60 * 1000;
 
         Mockito.doReturn(false).when(repository).existsMonitor();
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.anyString());
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.anyString());
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).activateSystemdTimer(Mockito.anyString());
         Mockito.doReturn(Result.ERROR).when(monitorTurnOffUtils).activateSystemdTimer(Mockito.anyString());
@@ -229,8 +229,8 @@ class MonitorStartupUnitTest {
 
         Assertions.assertThrows(MonitorServiceException.class,()->{monitorStartup.createMonitor();});
 
-        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(literalStart),Mockito.eq(startStringSecond));
-        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(literalStop),Mockito.eq(stopStringSecond));
+        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(startMillis),Mockito.eq(startStringSecond));
+        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(stopMillis),Mockito.eq(stopStringSecond));
         Mockito.verify(monitorTurnOnUtils,Mockito.times(2)).timerReload();
         Mockito.verify(monitorTurnOnUtils,Mockito.times(1)).activateSystemdTimer(Mockito.eq(String.valueOf(start)));
         Mockito.verify(monitorTurnOffUtils,Mockito.times(1)).activateSystemdTimer(Mockito.eq(String.valueOf(stop)));
@@ -247,12 +247,12 @@ class MonitorStartupUnitTest {
 
         int start = 8 * 60 * 60 * 1000;
         int stop = 20 * 60 * 60 * 1000;
-        String literalStart = "08:00:00";
-        String literalStop = "20:00:00";
+        int startMillis = 8 * 60 * 60 * 1000;
+        int stopMillis = 20 * 60 * 60 * 1000;
 
         Mockito.doReturn(false).when(repository).existsMonitor();
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.any());
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.any());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.any());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.any());
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).activateSystemdTimer(Mockito.anyString());
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).activateSystemdTimer(Mockito.anyString());
@@ -260,8 +260,8 @@ class MonitorStartupUnitTest {
 
         Assertions.assertThrows(MonitorServiceException.class,()->{monitorStartup.createMonitor();});
 
-        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(literalStart),Mockito.eq(startStringSecond));
-        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(literalStop),Mockito.eq(stopStringSecond));
+        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(startMillis),Mockito.eq(startStringSecond));
+        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(stopMillis),Mockito.eq(stopStringSecond));
         Mockito.verify(monitorTurnOnUtils,Mockito.times(2)).timerReload();
         Mockito.verify(monitorTurnOnUtils,Mockito.times(1)).activateSystemdTimer(Mockito.eq(String.valueOf(start)));
         Mockito.verify(monitorTurnOffUtils,Mockito.times(1)).activateSystemdTimer(Mockito.eq(String.valueOf(stop)));
@@ -279,12 +279,12 @@ class MonitorStartupUnitTest {
 
         int start = 8 * 60 * 60 * 1000;
         int stop = 20 * 60 * 60 * 1000;
-        String literalStart = "08:00:00";
-        String literalStop = "20:00:00";
+        int startMillis = 8 * 60 * 60 * 1000;
+        int stopMillis = 20 * 60 * 60 * 1000;
 
         Mockito.doReturn(false).when(repository).existsMonitor();
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.anyString());
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.anyString());
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).activateSystemdTimer(Mockito.anyString());
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).activateSystemdTimer(Mockito.anyString());
@@ -293,8 +293,8 @@ class MonitorStartupUnitTest {
 
         Assertions.assertThrows(MonitorServiceException.class,()->{monitorStartup.createMonitor();});
 
-        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(literalStart),Mockito.eq(startStringSecond));
-        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(literalStop),Mockito.eq(stopStringSecond));
+        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(startMillis),Mockito.eq(startStringSecond));
+        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(stopMillis),Mockito.eq(stopStringSecond));
         Mockito.verify(monitorTurnOnUtils,Mockito.times(1)).timerReload();
         Mockito.verify(monitorTurnOnUtils,Mockito.times(1)).activateSystemdTimer(Mockito.eq(String.valueOf(start)));
         Mockito.verify(monitorTurnOffUtils,Mockito.times(1)).activateSystemdTimer(Mockito.eq(String.valueOf(stop)));
@@ -312,12 +312,12 @@ class MonitorStartupUnitTest {
 
         int start = 8 * 60 * 60 * 1000;
         int stop = 20 * 60 * 60 * 1000;
-        String literalStart = "08:00:00";
-        String literalStop = "20:00:00";
+        int startMillis = 8 * 60 * 60 * 1000;
+        int stopMillis = 20 * 60 * 60 * 1000;
 
         Mockito.doReturn(false).when(repository).existsMonitor();
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.anyString());
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyString(),Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(),Mockito.anyInt(),Mockito.anyString());
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).activateSystemdTimer(Mockito.anyString());
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).activateSystemdTimer(Mockito.anyString());
@@ -326,8 +326,8 @@ class MonitorStartupUnitTest {
 
         Assertions.assertThrows(MonitorServiceException.class,()->{monitorStartup.createMonitor();});
 
-        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(literalStart),Mockito.eq(startStringSecond));
-        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(literalStop),Mockito.eq(stopStringSecond));
+        Mockito.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(startString),Mockito.eq(startMillis),Mockito.eq(startStringSecond));
+        Mockito.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(stopString),Mockito.eq(stopMillis),Mockito.eq(stopStringSecond));
         Mockito.verify(monitorTurnOnUtils,Mockito.times(1)).timerReload();
         Mockito.verify(monitorTurnOnUtils,Mockito.times(1)).activateSystemdTimer(Mockito.eq(String.valueOf(start)));
         Mockito.verify(monitorTurnOffUtils,Mockito.times(1)).activateSystemdTimer(Mockito.eq(String.valueOf(stop)));
@@ -0,0 +1,83 @@
+package com.rosanova.iot.timer.monitor.controller;
+
+import com.rosanova.iot.timer.monitor.Monitor;
+import com.rosanova.iot.timer.monitor.repository.MonitorRepository;
+import com.rosanova.iot.timer.security.SecurityFilter;
+import com.rosanova.iot.timer.utils.HMACSHA256SignatureUtil;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MonitorControllerIntegrationTest {
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private SecurityFilter securityFilter;
+
+    @Autowired
+    private HMACSHA256SignatureUtil hashingUtil;
+
+    @Autowired
+    private MonitorRepository repository;
+
+    private MockMvc mockMvc;
+
+    private Cookie session;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).addFilters(securityFilter).build();
+
+        String timestamp = String.valueOf(System.currentTimeMillis());
+        session = new Cookie("TIMER_SESSION_TOKEN", timestamp + hashingUtil.computeHMACSHA256(timestamp));
+
+        repository.deleteAll();
+        repository.save(new Monitor(0, 5000, 15000));
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("GET condizionale sul monitor: 304 finché la versione non cambia, poi 200 con il nuovo ETag")
+    void conditionalGet() throws Exception {
+        MvcResult first = mockMvc.perform(get("/authenticated/api/monitor/monitor").cookie(session))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.start").value(5000))
+                .andReturn();
+        String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(eTag);
+
+        mockMvc.perform(get("/authenticated/api/monitor/monitor").cookie(session).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        repository.updateStart(repository.getMonitor().getId(), 6000);
+
+        MvcResult changed = mockMvc.perform(get("/authenticated/api/monitor/monitor").cookie(session).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.start").value(6000))
+                .andReturn();
+        assertNotEquals(eTag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+}
@@ -0,0 +1,309 @@
+package com.rosanova.iot.timer.monitor.service;
+
+import com.rosanova.iot.timer.error.MonitorServiceException;
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.monitor.Monitor;
+import com.rosanova.iot.timer.monitor.repository.MonitorRepository;
+import com.rosanova.iot.timer.utils.impl.MonitorTimerShutdownUtilImpl;
+import com.rosanova.iot.timer.utils.impl.MonitorTimerUtilImpl;
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
+import com.rosanova.iot.timer.utils.impl.UnitResults;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Aggiornamento di start e stop con un solo daemon-reload (monitor.swap.single.reload=true e updateMonitor)
+ */
+@ExtendWith(MockitoExtension.class)
+class MonitorServiceSwapUnitTest {
+
+    @Mock
+    MonitorRepository repository;
+
+    @Mock
+    MonitorTimerUtilImpl monitorTurnOnUtils;
+
+    @Mock
+    MonitorTimerShutdownUtilImpl monitorTurnOffUtils;
+
+    MonitorServiceImpl monitorService;
+
+    final int prevStart = 8 * 60 * 60 * 1000;
+    final int newStart = 10 * 60 * 60 * 1000;
+    final String prev = String.valueOf(prevStart);
+    final String now = String.valueOf(newStart);
+
+    @BeforeEach
+    void setUp() {
+        monitorService = new MonitorServiceImpl(Mockito.mock(ReentrantLock.class), repository, monitorTurnOnUtils, monitorTurnOffUtils, SagaJournal.disabled(), true);
+    }
+
+    private static UnitResults results(String first, Result firstResult, String second, Result secondResult) {
+        LinkedHashMap<String, Result> results = new LinkedHashMap<>();
+        results.put(first, firstResult);
+        results.put(second, secondResult);
+        return new UnitResults(results, "");
+    }
+
+    @Test
+    void swapStartHappyPath() {
+        Mockito.doReturn(new Monitor(1, prevStart, 20 * 60 * 60 * 1000)).when(repository).getMonitor();
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(now, 10 * 60 * 60 * 1000, now.substring(0, now.length() - 3));
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
+        Mockito.doReturn(results(prev, Result.SUCCESS, now, Result.SUCCESS)).when(monitorTurnOnUtils).swapSystemdTimer(prev, now);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).deleteSystemdTimerUnit(prev);
+
+        Assertions.assertEquals(Result.SUCCESS, monitorService.updateMonitorStart(newStart));
+
+        // nuovo file accanto al vecchio, una sola sostituzione, il vecchio file esce e solo dopo il reload lo scarica
+        InOrder order = Mockito.inOrder(monitorTurnOnUtils, repository);
+        order.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(now), Mockito.anyInt(), Mockito.anyString());
+        order.verify(monitorTurnOnUtils).swapSystemdTimer(prev, now);
+        order.verify(monitorTurnOnUtils).deleteSystemdTimerUnit(prev);
+        order.verify(monitorTurnOnUtils).timerReload();
+        order.verify(repository).updateStart(1, newStart);
+
+        Mockito.verify(monitorTurnOnUtils, Mockito.times(1)).timerReload();
+        Mockito.verify(monitorTurnOnUtils, Mockito.never()).activateSystemdTimer(Mockito.anyString());
+        Mockito.verify(monitorTurnOnUtils, Mockito.never()).deactivateSystemdTimer(Mockito.anyString());
+        Mockito.verifyNoInteractions(monitorTurnOffUtils);
+    }
+
+    @Test
+    void swapStopUsesShutdownUtils() {
+        int prevStop = 20 * 60 * 60 * 1000;
+        int newStop = 21 * 60 * 60 * 1000;
+        String prevStr = String.valueOf(prevStop);
+        String nowStr = String.valueOf(newStop);
+        Mockito.doReturn(new Monitor(1, prevStart, prevStop)).when(repository).getMonitor();
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(nowStr, 21 * 60 * 60 * 1000, nowStr.substring(0, nowStr.length() - 3));
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).timerReload();
+        Mockito.doReturn(results(prevStr, Result.SUCCESS, nowStr, Result.SUCCESS)).when(monitorTurnOffUtils).swapSystemdTimer(prevStr, nowStr);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).deleteSystemdTimerUnit(prevStr);
+
+        Assertions.assertEquals(Result.SUCCESS, monitorService.updateMonitorStop(newStop));
+
+        Mockito.verify(repository).updateStop(1, newStop);
+        Mockito.verifyNoInteractions(monitorTurnOnUtils);
+    }
+
+    @Test
+    void swapFailureRestoresOldTimer() {
+        Mockito.doReturn(new Monitor(1, prevStart, 20 * 60 * 60 * 1000)).when(repository).getMonitor();
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
+        // il vecchio è stato disattivato, il nuovo non si attiva
+        Mockito.doReturn(results(prev, Result.SUCCESS, now, Result.ERROR)).when(monitorTurnOnUtils).swapSystemdTimer(prev, now);
+        Mockito.doReturn(results(now, Result.SUCCESS, prev, Result.SUCCESS)).when(monitorTurnOnUtils).swapSystemdTimer(now, prev);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).reversSystemdTimerUnitInsert(now);
+
+        Assertions.assertThrows(MonitorServiceException.class, () -> monitorService.updateMonitorStart(newStart));
+
+        InOrder order = Mockito.inOrder(monitorTurnOnUtils);
+        order.verify(monitorTurnOnUtils).swapSystemdTimer(now, prev);
+        order.verify(monitorTurnOnUtils).reversSystemdTimerUnitInsert(now);
+        order.verify(monitorTurnOnUtils).timerReload();
+        Mockito.verify(monitorTurnOnUtils, Mockito.never()).deleteSystemdTimerUnit(Mockito.anyString());
+        Mockito.verify(monitorTurnOnUtils, Mockito.never()).reverseDeleteSystemdTimerUnit(Mockito.anyString());
+        Mockito.verify(repository, Mockito.never()).updateStart(Mockito.anyLong(), Mockito.anyInt());
+    }
+
+    @Test
+    void creationFailureNeedsNoReload() {
+        Mockito.doReturn(new Monitor(1, prevStart, 20 * 60 * 60 * 1000)).when(repository).getMonitor();
+        Mockito.doReturn(Result.ERROR).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).reversSystemdTimerUnitInsert(now);
+
+        Assertions.assertThrows(MonitorServiceException.class, () -> monitorService.updateMonitorStart(newStart));
+
+        Mockito.verify(monitorTurnOnUtils).reversSystemdTimerUnitInsert(now);
+        Mockito.verify(monitorTurnOnUtils, Mockito.never()).timerReload();
+        Mockito.verify(monitorTurnOnUtils, Mockito.never()).swapSystemdTimer(Mockito.anyString(), Mockito.anyString());
+    }
+
+    @Test
+    void databaseFailureUndoesEveryStep() {
+        Mockito.doReturn(new Monitor(1, prevStart, 20 * 60 * 60 * 1000)).when(repository).getMonitor();
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
+        Mockito.doReturn(results(prev, Result.SUCCESS, now, Result.SUCCESS)).when(monitorTurnOnUtils).swapSystemdTimer(prev, now);
+        Mockito.doReturn(results(now, Result.SUCCESS, prev, Result.SUCCESS)).when(monitorTurnOnUtils).swapSystemdTimer(now, prev);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).deleteSystemdTimerUnit(prev);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).reverseDeleteSystemdTimerUnit(prev);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).reversSystemdTimerUnitInsert(now);
+        Mockito.doThrow(new RuntimeException("DB Update Failure")).when(repository).updateStart(1, newStart);
+
+        Assertions.assertThrows(MonitorServiceException.class, () -> monitorService.updateMonitorStart(newStart));
+
+        // il vecchio file torna al suo posto prima di riattivarlo
+        InOrder order = Mockito.inOrder(monitorTurnOnUtils);
+        order.verify(monitorTurnOnUtils).reverseDeleteSystemdTimerUnit(prev);
+        order.verify(monitorTurnOnUtils).swapSystemdTimer(now, prev);
+        order.verify(monitorTurnOnUtils).reversSystemdTimerUnitInsert(now);
+        order.verify(monitorTurnOnUtils).timerReload();
+    }
+
+    @Test
+    void recoverSwapInterruptedAfterCreation() {
+        Mockito.doReturn(new Monitor(1, prevStart, 20 * 60 * 60 * 1000)).when(repository).getMonitor();
+        Mockito.doReturn(results(now, Result.SUCCESS, prev, Result.SUCCESS)).when(monitorTurnOnUtils).swapSystemdTimer(now, prev);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).reversSystemdTimerUnitInsert(now);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
+
+        // registrata la creazione (passo 1): la sostituzione potrebbe essere avvenuta
+        Result result = monitorService.recover(new SagaJournal.Entry(1, SagaJournal.Kind.MONITOR_START_SWAP, 1, new int[]{prevStart, newStart}));
+
+        Assertions.assertEquals(Result.SUCCESS, result);
+        Mockito.verify(monitorTurnOnUtils).swapSystemdTimer(now, prev);
+        Mockito.verify(monitorTurnOnUtils, Mockito.never()).reverseDeleteSystemdTimerUnit(Mockito.anyString());
+        Mockito.verifyNoInteractions(monitorTurnOffUtils);
+    }
+
+    @Test
+    void recoverSwapAlreadyCommitted() {
+        Mockito.doReturn(new Monitor(1, newStart, 20 * 60 * 60 * 1000)).when(repository).getMonitor();
+
+        Result result = monitorService.recover(new SagaJournal.Entry(1, SagaJournal.Kind.MONITOR_START_SWAP, 4, new int[]{prevStart, newStart}));
+
+        Assertions.assertEquals(Result.SUCCESS, result);
+        Mockito.verifyNoInteractions(monitorTurnOnUtils);
+    }
+
+    // --- start e stop insieme ---
+
+    final int prevStop = 20 * 60 * 60 * 1000;
+    final int newStop = 22 * 60 * 60 * 1000;
+    final String prevStopStr = String.valueOf(prevStop);
+    final String newStopStr = String.valueOf(newStop);
+
+    @Test
+    void scheduleHappyPathOneReload() {
+        Mockito.doReturn(new Monitor(1, prevStart, prevStop)).when(repository).getMonitor();
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(now, 10 * 60 * 60 * 1000, now.substring(0, now.length() - 3));
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(newStopStr, 22 * 60 * 60 * 1000, newStopStr.substring(0, newStopStr.length() - 3));
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
+        Mockito.doReturn(results(prev, Result.SUCCESS, now, Result.SUCCESS)).when(monitorTurnOnUtils).swapSystemdTimer(prev, now);
+        Mockito.doReturn(results(prevStopStr, Result.SUCCESS, newStopStr, Result.SUCCESS)).when(monitorTurnOffUtils).swapSystemdTimer(prevStopStr, newStopStr);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).deleteSystemdTimerUnit(prev);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).deleteSystemdTimerUnit(prevStopStr);
+
+        Assertions.assertEquals(Result.SUCCESS, monitorService.updateMonitor(newStart, newStop));
+
+        InOrder order = Mockito.inOrder(monitorTurnOnUtils, monitorTurnOffUtils, repository);
+        order.verify(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.eq(now), Mockito.anyInt(), Mockito.anyString());
+        order.verify(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.eq(newStopStr), Mockito.anyInt(), Mockito.anyString());
+        order.verify(monitorTurnOnUtils).swapSystemdTimer(prev, now);
+        order.verify(monitorTurnOffUtils).swapSystemdTimer(prevStopStr, newStopStr);
+        order.verify(monitorTurnOnUtils).deleteSystemdTimerUnit(prev);
+        order.verify(monitorTurnOffUtils).deleteSystemdTimerUnit(prevStopStr);
+        order.verify(monitorTurnOnUtils).timerReload();
+        order.verify(repository).updateSchedule(1, newStart, newStop);
+
+        Mockito.verify(monitorTurnOffUtils, Mockito.never()).timerReload();
+        Mockito.verify(repository, Mockito.never()).updateStart(Mockito.anyLong(), Mockito.anyInt());
+        Mockito.verify(repository, Mockito.never()).updateStop(Mockito.anyLong(), Mockito.anyInt());
+    }
+
+    @Test
+    void scheduleValidatesThePair() {
+        // lo stop nuovo è prima dello start attuale: ammesso solo perché anche lo start si sposta prima
+        int earlyStart = 6 * 60 * 60 * 1000;
+        int earlyStop = 7 * 60 * 60 * 1000;
+        Mockito.doReturn(new Monitor(1, prevStart, prevStop)).when(repository).getMonitor();
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
+        Mockito.doReturn(results(prev, Result.SUCCESS, String.valueOf(earlyStart), Result.SUCCESS)).when(monitorTurnOnUtils).swapSystemdTimer(Mockito.anyString(), Mockito.anyString());
+        Mockito.doReturn(results(prevStopStr, Result.SUCCESS, String.valueOf(earlyStop), Result.SUCCESS)).when(monitorTurnOffUtils).swapSystemdTimer(Mockito.anyString(), Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).deleteSystemdTimerUnit(Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).deleteSystemdTimerUnit(Mockito.anyString());
+
+        Assertions.assertEquals(Result.SUCCESS, monitorService.updateMonitor(earlyStart, earlyStop));
+        Mockito.verify(repository).updateSchedule(1, earlyStart, earlyStop);
+
+        Assertions.assertThrows(MonitorServiceException.class, () -> monitorService.updateMonitor(newStop, newStart));
+        Assertions.assertThrows(MonitorServiceException.class, () -> monitorService.updateMonitor(newStart, newStart));
+    }
+
+    @Test
+    void scheduleUnchangedValueLeavesItsUnitAlone() {
+        Mockito.doReturn(new Monitor(1, prevStart, prevStop)).when(repository).getMonitor();
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).timerReload();
+        Mockito.doReturn(results(prevStopStr, Result.SUCCESS, newStopStr, Result.SUCCESS)).when(monitorTurnOffUtils).swapSystemdTimer(prevStopStr, newStopStr);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).deleteSystemdTimerUnit(prevStopStr);
+
+        Assertions.assertEquals(Result.SUCCESS, monitorService.updateMonitor(prevStart, newStop));
+
+        Mockito.verify(repository).updateSchedule(1, prevStart, newStop);
+        Mockito.verifyNoInteractions(monitorTurnOnUtils);
+
+        Mockito.doReturn(new Monitor(1, prevStart, newStop)).when(repository).getMonitor();
+        Assertions.assertEquals(Result.SUCCESS, monitorService.updateMonitor(prevStart, newStop));
+        Mockito.verify(monitorTurnOffUtils, Mockito.times(1)).timerReload();
+    }
+
+    @Test
+    void scheduleStopSwapFailureUndoesBoth() {
+        Mockito.doReturn(new Monitor(1, prevStart, prevStop)).when(repository).getMonitor();
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
+        Mockito.doReturn(results(prev, Result.SUCCESS, now, Result.SUCCESS)).when(monitorTurnOnUtils).swapSystemdTimer(prev, now);
+        Mockito.doReturn(results(now, Result.SUCCESS, prev, Result.SUCCESS)).when(monitorTurnOnUtils).swapSystemdTimer(now, prev);
+        Mockito.doReturn(results(prevStopStr, Result.ERROR, newStopStr, Result.SUCCESS)).when(monitorTurnOffUtils).swapSystemdTimer(prevStopStr, newStopStr);
+        Mockito.doReturn(results(newStopStr, Result.SUCCESS, prevStopStr, Result.SUCCESS)).when(monitorTurnOffUtils).swapSystemdTimer(newStopStr, prevStopStr);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).reversSystemdTimerUnitInsert(now);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).reversSystemdTimerUnitInsert(newStopStr);
+
+        Assertions.assertThrows(MonitorServiceException.class, () -> monitorService.updateMonitor(newStart, newStop));
+
+        // la sostituzione dello start era riuscita: viene annullata insieme a quella dello stop, poi un solo reload
+        Mockito.verify(monitorTurnOnUtils).swapSystemdTimer(now, prev);
+        Mockito.verify(monitorTurnOffUtils).swapSystemdTimer(newStopStr, prevStopStr);
+        Mockito.verify(monitorTurnOnUtils).reversSystemdTimerUnitInsert(now);
+        Mockito.verify(monitorTurnOffUtils).reversSystemdTimerUnitInsert(newStopStr);
+        Mockito.verify(monitorTurnOnUtils, Mockito.times(1)).timerReload();
+        Mockito.verify(monitorTurnOffUtils, Mockito.never()).timerReload();
+        Mockito.verify(repository, Mockito.never()).updateSchedule(Mockito.anyLong(), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    void recoverScheduleUndoesBothUnits() {
+        Mockito.doReturn(new Monitor(1, prevStart, prevStop)).when(repository).getMonitor();
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).reverseDeleteSystemdTimerUnit(prev);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).reverseDeleteSystemdTimerUnit(prevStopStr);
+        Mockito.doReturn(results(now, Result.SUCCESS, prev, Result.SUCCESS)).when(monitorTurnOnUtils).swapSystemdTimer(now, prev);
+        Mockito.doReturn(results(newStopStr, Result.SUCCESS, prevStopStr, Result.SUCCESS)).when(monitorTurnOffUtils).swapSystemdTimer(newStopStr, prevStopStr);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).reversSystemdTimerUnitInsert(now);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).reversSystemdTimerUnitInsert(newStopStr);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
+
+        // registrato il reload finale (passo 4), il database non è stato aggiornato
+        Result result = monitorService.recover(new SagaJournal.Entry(1, SagaJournal.Kind.MONITOR_SCHEDULE_SWAP, 4, new int[]{prevStart, newStart, prevStop, newStop}));
+
+        Assertions.assertEquals(Result.SUCCESS, result);
+        Mockito.verify(monitorTurnOnUtils).reverseDeleteSystemdTimerUnit(prev);
+        Mockito.verify(monitorTurnOffUtils).reverseDeleteSystemdTimerUnit(prevStopStr);
+        Mockito.verify(monitorTurnOnUtils, Mockito.times(1)).timerReload();
+    }
+
+    @Test
+    void recoverScheduleAlreadyCommitted() {
+        Mockito.doReturn(new Monitor(1, newStart, newStop)).when(repository).getMonitor();
+
+        Result result = monitorService.recover(new SagaJournal.Entry(1, SagaJournal.Kind.MONITOR_SCHEDULE_SWAP, 4, new int[]{prevStart, newStart, prevStop, newStop}));
+
+        Assertions.assertEquals(Result.SUCCESS, result);
+        Mockito.verifyNoInteractions(monitorTurnOnUtils, monitorTurnOffUtils);
+    }
+}
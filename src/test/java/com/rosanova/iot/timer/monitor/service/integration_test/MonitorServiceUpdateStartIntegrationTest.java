@@ -6,6 +6,8 @@ import com.rosanova.iot.timer.monitor.Monitor;
 import com.rosanova.iot.timer.monitor.repository.MonitorRepository;
 import com.rosanova.iot.timer.monitor.service.MonitorServiceImpl;
 import com.rosanova.iot.timer.utils.TimerUtils;
+import com.rosanova.iot.timer.utils.impl.DaemonReloadCoalescer;
+import com.rosanova.iot.timer.utils.impl.SystemctlExecutor;
 import com.rosanova.iot.timer.utils.impl.MonitorTimerShutdownUtilImpl;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
@@ -64,7 +66,9 @@ public class MonitorServiceUpdateStartIntegrationTest {
         MonitorTimerShutdownUtilImpl realUtil = new MonitorTimerShutdownUtilImpl(
                 tmpDirectory.toString(),
                 monitorDirectory.toString(),
-                "monitor-on"
+                "monitor-on",
+                new DaemonReloadCoalescer(0),
+                new SystemctlExecutor()
         );
 
         monitorTurnOnUtilsSpy = Mockito.spy(realUtil);
@@ -128,6 +132,6 @@ public class MonitorServiceUpdateStartIntegrationTest {
         assertEquals(5000, notUpdated.getStart());
 
         // Verifica che non siano stati chiamati i metodi di utilità
-        verify(monitorTurnOnUtilsSpy, never()).createSystemdTimerUnit(anyString(), anyString(), anyString());
+        verify(monitorTurnOnUtilsSpy, never()).createSystemdTimerUnit(anyString(), anyInt(), anyString());
     }
 }
@@ -7,6 +7,7 @@ import com.rosanova.iot.timer.monitor.Monitor;
 import com.rosanova.iot.timer.monitor.repository.MonitorRepository;
 import com.rosanova.iot.timer.utils.impl.MonitorTimerShutdownUtilImpl;
 import com.rosanova.iot.timer.utils.impl.MonitorTimerUtilImpl;
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -94,7 +95,7 @@ class monitorServiceImplUnitTestUpdateStart {
         int stop = 20 * 60 * 60 * 1000;
         String prevStartStr = String.valueOf(prevStart);
         String newStartStr = String.valueOf(newStart);
-        String newStartLiteral = "10:00:00";
+        int newStartMillis = 10 * 60 * 60 * 1000;
         String newStartSec = newStartStr.substring(0, newStartStr.length() - 3);
 
         Monitor monitor = new Monitor(id, prevStart, stop);
@@ -103,7 +104,7 @@ class monitorServiceImplUnitTestUpdateStart {
         Mockito.doReturn(monitor).when(repository).getMonitor();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).deactivateSystemdTimer(prevStartStr);
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).deleteSystemdTimerUnit(prevStartStr);
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(newStartStr, newStartLiteral, newStartSec);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(newStartStr, newStartMillis, newStartSec);
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).activateSystemdTimer(newStartStr);
         Mockito.doReturn(1).when(repository).updateStart(id, newStart);
@@ -124,7 +125,7 @@ class monitorServiceImplUnitTestUpdateStart {
         int newStart = 9 * 60 * 60 * 1000;
         String prevStartStr = String.valueOf(prevStart);
         String newStartStr = String.valueOf(newStart);
-        String newStartLiteral = "09:00:00";
+        int newStartMillis = 9 * 60 * 60 * 1000;
         String newStartSec = newStartStr.substring(0, newStartStr.length() - 3);
 
         Monitor monitor = new Monitor(1, prevStart, 20 * 60 * 60 * 1000);
@@ -134,7 +135,7 @@ class monitorServiceImplUnitTestUpdateStart {
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).deleteSystemdTimerUnit(prevStartStr);
 
         // Errore al passo 3 (creazione unità)
-        Mockito.doReturn(Result.ERROR).when(monitorTurnOnUtils).createSystemdTimerUnit(newStartStr, newStartLiteral, newStartSec);
+        Mockito.doReturn(Result.ERROR).when(monitorTurnOnUtils).createSystemdTimerUnit(newStartStr, newStartMillis, newStartSec);
 
         // Mocks per il Rollback (step 1, 2,3)
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).reverseDeleteSystemdTimerUnit(prevStartStr);
@@ -164,7 +165,7 @@ class monitorServiceImplUnitTestUpdateStart {
         Mockito.doReturn(monitor).when(repository).getMonitor();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).deactivateSystemdTimer(Mockito.anyString());
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).deleteSystemdTimerUnit(Mockito.anyString());
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
         Mockito.doReturn(Result.SUCCESS,Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).activateSystemdTimer(Mockito.anyString());
 
@@ -258,7 +259,7 @@ class monitorServiceImplUnitTestUpdateStart {
 
         // Verifica che non sia stata tentata alcuna operazione sui timer o sul database
         Mockito.verify(monitorTurnOnUtils, Mockito.times(0)).deactivateSystemdTimer(Mockito.anyString());
-        Mockito.verify(monitorTurnOnUtils, Mockito.times(0)).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
+        Mockito.verify(monitorTurnOnUtils, Mockito.times(0)).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
         Mockito.verify(repository, Mockito.times(0)).updateStart(Mockito.anyInt(), Mockito.anyInt());
     }
 
@@ -279,4 +280,39 @@ class monitorServiceImplUnitTestUpdateStart {
 
         Mockito.verifyNoInteractions(monitorTurnOnUtils);
     }
-}
\ No newline at end of file
+
+    @Test
+    void recoverStartAlreadyUpdatedInDatabase() {
+        int prevStart = 8 * 60 * 60 * 1000;
+        int newStart = 7 * 60 * 60 * 1000;
+        Mockito.doReturn(new Monitor(1, newStart, 20 * 60 * 60 * 1000)).when(repository).getMonitor();
+
+        Result result = monitorService.recover(new SagaJournal.Entry(1, SagaJournal.Kind.MONITOR_START, 5, new int[]{prevStart, newStart}));
+
+        Assertions.assertEquals(Result.SUCCESS, result);
+        Mockito.verifyNoInteractions(monitorTurnOnUtils);
+    }
+
+    @Test
+    void recoverStartInterruptedAfterDelete() {
+        int prevStart = 8 * 60 * 60 * 1000;
+        int newStart = 7 * 60 * 60 * 1000;
+        String prev = String.valueOf(prevStart);
+        String now = String.valueOf(newStart);
+        Mockito.doReturn(new Monitor(1, prevStart, 20 * 60 * 60 * 1000)).when(repository).getMonitor();
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).reversSystemdTimerUnitInsert(now);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).reverseDeleteSystemdTimerUnit(prev);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).activateSystemdTimer(prev);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOnUtils).timerReload();
+
+        // registrata la cancellazione (passo 2): la creazione del nuovo timer potrebbe essere avvenuta
+        Result result = monitorService.recover(new SagaJournal.Entry(1, SagaJournal.Kind.MONITOR_START, 2, new int[]{prevStart, newStart}));
+
+        Assertions.assertEquals(Result.SUCCESS, result);
+        Mockito.verify(monitorTurnOnUtils, Mockito.never()).deactivateSystemdTimer(now);
+        Mockito.verify(monitorTurnOnUtils).reversSystemdTimerUnitInsert(now);
+        Mockito.verify(monitorTurnOnUtils).reverseDeleteSystemdTimerUnit(prev);
+        Mockito.verify(monitorTurnOnUtils).activateSystemdTimer(prev);
+        Mockito.verifyNoInteractions(monitorTurnOffUtils);
+    }
+}
@@ -95,7 +95,7 @@ class monitorServiceImplUnitTestUpdateStop {
         int stop = 20 * 60 * 60 * 1000;
         String prevStopStr = String.valueOf(stop);
         String newStopStr = String.valueOf(newStop);
-        String newStopLiteral = "22:00:00";
+        int newStopMillis = 22 * 60 * 60 * 1000;
         String newStopSec = newStopStr.substring(0, newStopStr.length() - 3);
 
         Monitor monitor = new Monitor(id, start, stop);
@@ -104,7 +104,7 @@ class monitorServiceImplUnitTestUpdateStop {
         Mockito.doReturn(monitor).when(repository).getMonitor();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).deactivateSystemdTimer(prevStopStr);
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).deleteSystemdTimerUnit(prevStopStr);
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(newStopStr, newStopLiteral, newStopSec);
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(newStopStr, newStopMillis, newStopSec);
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).timerReload();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).activateSystemdTimer(newStopStr);
         Mockito.doReturn(1).when(repository).updateStop(id, newStop);
@@ -125,7 +125,7 @@ class monitorServiceImplUnitTestUpdateStop {
         int newStop = 22 * 60 * 60 * 1000;
         String prevStopStr = String.valueOf(prevStop);
         String newStopStr = String.valueOf(newStop);
-        String newStopLiteral = "09:00:00";
+        int newStopMillis = 9 * 60 * 60 * 1000;
         String newStopSec = newStopStr.substring(0, newStopStr.length() - 3);
 
         Monitor monitor = new Monitor(1, 8 * 60 * 60 * 1000, prevStop);
@@ -135,7 +135,7 @@ class monitorServiceImplUnitTestUpdateStop {
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).deleteSystemdTimerUnit(prevStopStr);
 
         // Errore al passo 3 (creazione unità)
-        Mockito.doReturn(Result.ERROR).when(monitorTurnOffUtils).createSystemdTimerUnit(newStopStr, newStopLiteral, newStopSec);
+        Mockito.doReturn(Result.ERROR).when(monitorTurnOffUtils).createSystemdTimerUnit(newStopStr, newStopMillis, newStopSec);
 
         // Mocks per il Rollback (step 1, 2,3)
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).reverseDeleteSystemdTimerUnit(prevStopStr);
@@ -165,7 +165,7 @@ class monitorServiceImplUnitTestUpdateStop {
         Mockito.doReturn(monitor).when(repository).getMonitor();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).deactivateSystemdTimer(Mockito.anyString());
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).deleteSystemdTimerUnit(Mockito.anyString());
-        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
         Mockito.doReturn(Result.SUCCESS,Result.SUCCESS).when(monitorTurnOffUtils).timerReload();
         Mockito.doReturn(Result.SUCCESS).when(monitorTurnOffUtils).activateSystemdTimer(Mockito.anyString());
 
@@ -258,7 +258,7 @@ class monitorServiceImplUnitTestUpdateStop {
 
         // Verifica che non sia stata tentata alcuna operazione sui timer o sul database
         Mockito.verify(monitorTurnOffUtils, Mockito.times(0)).deactivateSystemdTimer(Mockito.anyString());
-        Mockito.verify(monitorTurnOffUtils, Mockito.times(0)).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyString(), Mockito.anyString());
+        Mockito.verify(monitorTurnOffUtils, Mockito.times(0)).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
         Mockito.verify(repository, Mockito.times(0)).updateStop(Mockito.anyInt(), Mockito.anyInt());
     }
 
@@ -0,0 +1,120 @@
+package com.rosanova.iot.timer.monitor_repository;
+
+import com.rosanova.iot.timer.monitor.Monitor;
+import com.rosanova.iot.timer.monitor.MonitorSnapshot;
+import com.rosanova.iot.timer.monitor.repository.MonitorRepositoryImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@ActiveProfiles("test")
+@Import(MonitorRepositoryImpl.class)
+// lo snapshot si aggiorna al commit: i test non girano nella transazione annullata di @JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class MonitorRepositoryTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MonitorRepositoryImpl monitorRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        monitorRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Il monitor salvato è subito leggibile dallo snapshot")
+    void saveThenGetMonitor() {
+        assertNull(monitorRepository.getMonitor());
+
+        monitorRepository.save(new Monitor(0, 5000, 15000));
+
+        Monitor monitor = monitorRepository.getMonitor();
+        assertNotNull(monitor);
+        assertEquals(5000, monitor.getStart());
+        assertEquals(15000, monitor.getStop());
+        assertTrue(monitor.getId() > 0);
+    }
+
+    @Test
+    @DisplayName("Le letture usano lo snapshot e non il database")
+    void readsDoNotQueryDatabase() {
+        monitorRepository.save(new Monitor(0, 5000, 15000));
+        long id = monitorRepository.getMonitor().getId();
+
+        // modifica che non passa dal repository: lo snapshot resta quello pubblicato
+        jdbcTemplate.update("UPDATE monitor_timer SET start = 9999 WHERE id = ?", id);
+        assertEquals(5000, monitorRepository.getMonitor().getStart());
+
+        // l'istanza restituita è una copia
+        monitorRepository.getMonitor().setStart(1);
+        assertEquals(5000, monitorRepository.getMonitor().getStart());
+
+        monitorRepository.loadSnapshot();
+        assertEquals(9999, monitorRepository.getMonitor().getStart());
+    }
+
+    @Test
+    @DisplayName("Ogni aggiornamento scrive nello snapshot e incrementa la versione")
+    void updatesWriteThrough() {
+        monitorRepository.save(new Monitor(0, 5000, 15000));
+        MonitorSnapshot initial = monitorRepository.getMonitorSnapshot();
+
+        assertEquals(1, monitorRepository.updateStart(initial.id(), 6000));
+        MonitorSnapshot afterStart = monitorRepository.getMonitorSnapshot();
+        assertEquals(6000, afterStart.start());
+        assertEquals(15000, afterStart.stop());
+        assertEquals(initial.version() + 1, afterStart.version());
+
+        monitorRepository.updateStop(initial.id(), 16000);
+        monitorRepository.updateSchedule(initial.id(), 7000, 17000);
+        MonitorSnapshot last = monitorRepository.getMonitorSnapshot();
+        assertEquals(7000, last.start());
+        assertEquals(17000, last.stop());
+        assertEquals(initial.version() + 3, last.version());
+        assertNotEquals(initial.eTag(), last.eTag());
+
+        // id inesistente: nessuna riga modificata, snapshot invariato
+        assertEquals(0, monitorRepository.updateStart(initial.id() + 100, 1000));
+        assertSame(last, monitorRepository.getMonitorSnapshot());
+
+        Integer start = jdbcTemplate.queryForObject("SELECT start FROM monitor_timer WHERE id = ?", Integer.class, initial.id());
+        assertEquals(7000, start);
+    }
+
+    @Test
+    @DisplayName("Lo snapshot cambia solo dopo il commit")
+    void snapshotFollowsCommit() {
+        monitorRepository.save(new Monitor(0, 5000, 15000));
+        MonitorSnapshot initial = monitorRepository.getMonitorSnapshot();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        transaction.executeWithoutResult(status -> {
+            monitorRepository.updateStart(initial.id(), 6000);
+            // dentro la transazione lo snapshot è ancora quello confermato
+            assertSame(initial, monitorRepository.getMonitorSnapshot());
+            status.setRollbackOnly();
+        });
+        assertSame(initial, monitorRepository.getMonitorSnapshot());
+
+        transaction.executeWithoutResult(status -> monitorRepository.updateStart(initial.id(), 6000));
+        assertEquals(6000, monitorRepository.getMonitor().getStart());
+    }
+}
@@ -0,0 +1,134 @@
+package com.rosanova.iot.timer.operation;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.error.TimerServiceException;
+import com.rosanova.iot.timer.operation.service.OperationQueue;
+import com.rosanova.iot.timer.timer.dto.TimerInsertDto;
+import com.rosanova.iot.timer.timer.service.TimerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OperationQueueUnitTest {
+
+    @Mock
+    private TimerService timerService;
+
+    private final ReentrantLock sharedLock = new ReentrantLock();
+
+    private OperationQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        // senza start(): drain() viene chiamato dal test al posto del thread scrittore
+        queue = new OperationQueue(timerService, sharedLock, 4, 8);
+    }
+
+    private static TimerInsertDto timer(String name, int time) {
+        TimerInsertDto dto = new TimerInsertDto();
+        dto.setName(name);
+        dto.setTime(time);
+        dto.setSymphonyDuration(30);
+        return dto;
+    }
+
+    @Test
+    void consecutiveInserts_ShouldRunAsOneBatch() {
+        when(timerService.insertTimers(anyList())).thenReturn(Result.SUCCESS);
+
+        Operation first = queue.submitInsert(timer("a", 600_000));
+        Operation second = queue.submitInsert(timer("b", 1_200_000));
+
+        assertFalse(first.isDone());
+        assertEquals(2, queue.drain());
+
+        verify(timerService).insertTimers(argThat(list -> list.size() == 2));
+        verify(timerService, never()).insertTimer(anyString(), anyInt(), anyInt());
+        assertEquals(Result.SUCCESS, first.getResult());
+        assertEquals(Result.SUCCESS, second.getResult());
+        assertEquals(2, queue.getCoalesced());
+        assertFalse(sharedLock.isLocked());
+    }
+
+    @Test
+    void failedBatch_ShouldFallBackToSingleInserts() {
+        when(timerService.insertTimers(anyList())).thenThrow(new TimerServiceException("timer sovrapposto a uno esistente"));
+        when(timerService.insertTimer("a", 600_000, 30)).thenReturn(Result.SUCCESS);
+        when(timerService.insertTimer("b", 600_000, 30)).thenThrow(new TimerServiceException("timer sovrapposto"));
+
+        Operation first = queue.submitInsert(timer("a", 600_000));
+        Operation second = queue.submitInsert(timer("b", 600_000));
+        queue.drain();
+
+        assertEquals(Result.SUCCESS, first.getResult());
+        assertEquals(Result.ERROR, second.getResult());
+        assertEquals("timer sovrapposto", second.getMessage());
+        assertEquals(0, queue.getCoalesced());
+    }
+
+    @Test
+    void removeBetweenInserts_ShouldKeepOrder() {
+        when(timerService.insertTimer(anyString(), anyInt(), anyInt())).thenReturn(Result.SUCCESS);
+        when(timerService.removeTimer(7L)).thenReturn(Result.SUCCESS);
+
+        queue.submitInsert(timer("a", 600_000));
+        Operation remove = queue.submitRemove(7L);
+        queue.submitInsert(timer("b", 1_200_000));
+        queue.drain();
+
+        var order = inOrder(timerService);
+        order.verify(timerService).insertTimer("a", 600_000, 30);
+        order.verify(timerService).removeTimer(7L);
+        order.verify(timerService).insertTimer("b", 1_200_000, 30);
+        assertEquals(Result.SUCCESS, remove.getResult());
+    }
+
+    @Test
+    void fullQueue_ShouldRejectSubmit() {
+        for (int i = 0; i < 4; i++) assertNotNull(queue.submitRemove(i));
+
+        assertNull(queue.submitRemove(99));
+        assertEquals(1, queue.getRejected());
+    }
+
+    @Test
+    void find_ShouldForgetOperationsOverwrittenInHistory() {
+        when(timerService.removeTimer(anyLong())).thenReturn(Result.SUCCESS);
+
+        Operation first = queue.submitRemove(1);
+        assertSame(first, queue.find(first.getId()));
+
+        for (int i = 0; i < 8; i++) {
+            queue.submitRemove(i);
+            queue.drain();
+        }
+
+        assertNull(queue.find(first.getId()));
+        assertNull(queue.find(12345));
+    }
+
+    @Test
+    void writerThread_ShouldCompleteSubmittedOperations() throws Exception {
+        when(timerService.removeTimer(3L)).thenReturn(Result.SUCCESS);
+        queue.start();
+        try {
+            Operation operation = queue.submitRemove(3L);
+
+            assertSame(operation, operation.getCompletion().get(5, TimeUnit.SECONDS));
+            assertEquals(Result.SUCCESS, operation.getResult());
+        } finally {
+            queue.stop();
+        }
+    }
+}
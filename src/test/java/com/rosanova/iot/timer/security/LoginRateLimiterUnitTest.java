@@ -0,0 +1,90 @@
+package com.rosanova.iot.timer.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginRateLimiterUnitTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    @DisplayName("Il client consuma il burst, poi riceve i secondi di attesa fino al gettone successivo")
+    void burstThenRetryAfter() {
+        LoginRateLimiter limiter = new LoginRateLimiter(16, 3, 10_000);
+        long now = 5 * SECOND;
+
+        for (int i = 0; i < 3; i++) assertEquals(0, limiter.tryAcquire("192.168.1.10", now));
+
+        assertEquals(10, limiter.tryAcquire("192.168.1.10", now));
+        assertEquals(7, limiter.tryAcquire("192.168.1.10", now + 3 * SECOND));
+        // il rifiuto non consuma gettoni
+        assertEquals(0, limiter.tryAcquire("192.168.1.10", now + 10 * SECOND));
+        assertEquals(10, limiter.tryAcquire("192.168.1.10", now + 10 * SECOND));
+
+        assertEquals(4, limiter.getAllowed());
+        assertEquals(3, limiter.getLimited());
+    }
+
+    @Test
+    @DisplayName("Dopo la ricarica completa il burst torna disponibile")
+    void refillsToBurst() {
+        LoginRateLimiter limiter = new LoginRateLimiter(16, 2, 1_000);
+        long now = -3 * SECOND; // System.nanoTime può essere negativo
+
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", now));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", now));
+        assertTrue(limiter.tryAcquire("10.0.0.1", now) > 0);
+
+        now += 60 * SECOND;
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", now));
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", now));
+        assertTrue(limiter.tryAcquire("10.0.0.1", now) > 0);
+    }
+
+    @Test
+    @DisplayName("Client diversi hanno bucket indipendenti")
+    void clientsAreIndependent() {
+        LoginRateLimiter limiter = new LoginRateLimiter(16, 1, 10_000);
+
+        assertEquals(0, limiter.tryAcquire("10.0.0.1", 0));
+        assertTrue(limiter.tryAcquire("10.0.0.1", 0) > 0);
+        assertEquals(0, limiter.tryAcquire("10.0.0.2", 0));
+        assertEquals(0, limiter.tryAcquire("0:0:0:0:0:0:0:1", 0));
+        assertTrue(limiter.tryAcquire("0:0:0:0:0:0:0:1", 0) > 0);
+    }
+
+    @Test
+    @DisplayName("keyOf: IPv4 come intero, altri indirizzi con hash, mai la chiave vuota")
+    void keys() {
+        assertEquals((1L << 32) | 0xC0A8010AL, LoginRateLimiter.keyOf("192.168.1.10"));
+        assertEquals(1L << 32, LoginRateLimiter.keyOf("0.0.0.0"));
+        assertNotEquals(LoginRateLimiter.keyOf("10.0.0.1"), LoginRateLimiter.keyOf("10.0.0.10"));
+
+        long ipv6 = LoginRateLimiter.keyOf("0:0:0:0:0:0:0:1");
+        assertTrue(ipv6 < 0);
+        assertEquals(ipv6, LoginRateLimiter.keyOf("0:0:0:0:0:0:0:1"));
+        assertTrue(LoginRateLimiter.keyOf("256.1.1.1") < 0);
+        assertTrue(LoginRateLimiter.keyOf("1.2.3") < 0);
+        assertTrue(LoginRateLimiter.keyOf("1.2.3.4.5") < 0);
+        assertNotEquals(0, LoginRateLimiter.keyOf(null));
+    }
+
+    @Test
+    @DisplayName("Tabella piena: la dimensione resta fissa e i client oltre la capacità sostituiscono voci esistenti")
+    void fixedSizeTable() {
+        LoginRateLimiter limiter = new LoginRateLimiter(8, 1, 10_000);
+        assertEquals(8, limiter.getCapacity());
+
+        for (int i = 0; i < 100; i++) assertEquals(0, limiter.tryAcquire("10.0.1." + i, i));
+
+        assertEquals(8, limiter.getCapacity());
+        assertEquals(92, limiter.getEvictions());
+
+        // a bucket ricaricati le voci sono riusate senza sostituzioni
+        long later = 20 * SECOND;
+        for (int i = 0; i < 8; i++) assertEquals(0, limiter.tryAcquire("10.0.2." + i, later));
+        assertEquals(92, limiter.getEvictions());
+    }
+}
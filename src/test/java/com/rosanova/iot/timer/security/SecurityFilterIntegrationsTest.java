@@ -10,8 +10,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
 import java.io.IOException;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class SecurityFilterIntegrationsTest {
@@ -175,4 +179,131 @@ class SecurityFilterIntegrationsTest {
         // Verifica: il catch del NumberFormatException deve gestire l'errore
         verify(response).sendError(HttpServletResponse.SC_UNAUTHORIZED);
     }
+
+    private static final String BASE64_URL = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+
+    private MockHttpServletRequest headerRequest(String cookieHeader) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/authenticated/data");
+        request.addHeader("Cookie", cookieHeader);
+        return request;
+    }
+
+    @Test
+    void headerPath_ValidTokenAmongOtherCookies() throws ServletException, IOException {
+        String timestamp = String.valueOf(System.currentTimeMillis());
+        String validToken = timestamp + hashingUtil.computeHMACSHA256(timestamp);
+        FilterChain filterChain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockHttpServletRequest request = headerRequest("theme=dark; TIMER_SESSION_TOKEN=" + validToken + " ;lang=it");
+        clearInvocations(hashingUtil);
+
+        securityFilter.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        assertEquals(200, response.getStatus());
+        // nessuna String del MAC ricalcolato
+        verify(hashingUtil, never()).computeHMACSHA256(Mockito.anyString());
+    }
+
+    @Test
+    void headerPath_NonCanonicalBase64_ShouldReturnUnauthorized() throws ServletException, IOException {
+        String timestamp = String.valueOf(System.currentTimeMillis());
+        String hash = hashingUtil.computeHMACSHA256(timestamp);
+        // stessi 32 byte decodificati ma bit di riempimento non nulli: la stringa è diversa dal token emesso
+        char last = hash.charAt(42);
+        String altered = hash.substring(0, 42) + BASE64_URL.charAt(BASE64_URL.indexOf(last) + 1) + "=";
+        FilterChain filterChain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        securityFilter.doFilter(headerRequest("TIMER_SESSION_TOKEN=" + timestamp + altered), response, filterChain);
+
+        assertEquals(HttpServletResponse.SC_UNAUTHORIZED, response.getStatus());
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    void headerPath_ExpiredToken_ShouldReturnForbidden() throws ServletException, IOException {
+        String timestamp = String.valueOf(System.currentTimeMillis() - 600_000);
+        String expiredToken = timestamp + hashingUtil.computeHMACSHA256(timestamp);
+        FilterChain filterChain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        securityFilter.doFilter(headerRequest("TIMER_SESSION_TOKEN=" + expiredToken), response, filterChain);
+
+        assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+        verify(filterChain, never()).doFilter(any(), any());
+    }
+
+    @Test
+    void findToken_OnlyExactCookieNameAndLength() {
+        String token = "1".repeat(13) + "A".repeat(43) + "=";
+
+        assertEquals(20, SecurityFilter.findToken("TIMER_SESSION_TOKEN=" + token));
+        assertEquals(-1, SecurityFilter.findToken(null));
+        assertEquals(-1, SecurityFilter.findToken("X_TIMER_SESSION_TOKEN=" + token));
+        assertEquals(-1, SecurityFilter.findToken("TIMER_SESSION_TOKEN=" + token + "A"));
+        assertEquals(-1, SecurityFilter.findToken("TIMER_SESSION_TOKEN=\"" + token + "\""));
+        assertEquals(25, SecurityFilter.findToken("a=b; TIMER_SESSION_TOKEN=" + token));
+    }
+
+    @Test
+    void headerPath_AgingToken_IsRenewedWithSetCookie() throws ServletException, IOException {
+        SecurityFilter renewingFilter = new SecurityFilter(hashingUtil, null, 0.5);
+        long issued = System.currentTimeMillis() - 200_000;
+        String timestamp = String.valueOf(issued);
+        String agingToken = timestamp + hashingUtil.computeHMACSHA256(timestamp);
+        FilterChain filterChain = mock(FilterChain.class);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockHttpServletRequest request = headerRequest("TIMER_SESSION_TOKEN=" + agingToken);
+
+        renewingFilter.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        String setCookie = response.getHeader("Set-Cookie");
+        assertNotNull(setCookie);
+        assertTrue(setCookie.contains("Max-Age=300"));
+        assertTrue(setCookie.contains("HttpOnly"));
+
+        // il nuovo token è valido, più giovane del precedente e non viene rinnovato a sua volta
+        String renewed = setCookie.substring("TIMER_SESSION_TOKEN=".length(), setCookie.indexOf(';'));
+        assertEquals(57, renewed.length());
+        assertTrue(Long.parseLong(renewed.substring(0, 13)) > issued);
+
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        FilterChain secondChain = mock(FilterChain.class);
+        renewingFilter.doFilter(headerRequest("TIMER_SESSION_TOKEN=" + renewed), second, secondChain);
+
+        verify(secondChain).doFilter(any(), any());
+        assertNull(second.getHeader("Set-Cookie"));
+    }
+
+    @Test
+    void cookiesPath_AgingToken_IsRenewed() throws ServletException, IOException {
+        SecurityFilter renewingFilter = new SecurityFilter(hashingUtil, null, 0.5);
+        String timestamp = String.valueOf(System.currentTimeMillis() - 200_000);
+        String agingToken = timestamp + hashingUtil.computeHMACSHA256(timestamp);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        FilterChain filterChain = mock(FilterChain.class);
+
+        when(request.getRequestURI()).thenReturn("/authenticated/data");
+        when(request.getCookies()).thenReturn(new Cookie[]{new Cookie("TIMER_SESSION_TOKEN", agingToken)});
+
+        renewingFilter.doFilter(request, response, filterChain);
+
+        verify(response).addHeader(eq("Set-Cookie"), Mockito.startsWith("TIMER_SESSION_TOKEN="));
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+    void youngToken_IsNotRenewed() throws ServletException, IOException {
+        SecurityFilter renewingFilter = new SecurityFilter(hashingUtil, null, 0.5);
+        String timestamp = String.valueOf(System.currentTimeMillis() - 10_000);
+        String youngToken = timestamp + hashingUtil.computeHMACSHA256(timestamp);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        renewingFilter.doFilter(headerRequest("TIMER_SESSION_TOKEN=" + youngToken), response, mock(FilterChain.class));
+
+        assertNull(response.getHeader("Set-Cookie"));
+    }
 }
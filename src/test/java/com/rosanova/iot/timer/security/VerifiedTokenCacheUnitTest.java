@@ -0,0 +1,99 @@
+package com.rosanova.iot.timer.security;
+
+import com.rosanova.iot.timer.utils.impl.HMACSHA256SignatureUtilImpl;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VerifiedTokenCacheUnitTest {
+
+    private final String secretKey = "1234567890123456789012345678901234567890123456789012345678901234";
+
+    private static byte[] mac(int seed) {
+        byte[] mac = new byte[32];
+        for (int i = 0; i < mac.length; i++) mac[i] = (byte) (seed * 31 + i);
+        return mac;
+    }
+
+    @Test
+    @DisplayName("La voce si trova con lo stesso timestamp e lo stesso MAC, un byte diverso è un miss")
+    void findsOnlyExactToken() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(4);
+        cache.put(1_000L, mac(1), 301_000L, 1_000L);
+
+        assertEquals(301_000L, cache.find(1_000L, mac(1)));
+        assertEquals(-1, cache.find(1_001L, mac(1)));
+
+        byte[] altered = mac(1);
+        altered[31] ^= 1;
+        assertEquals(-1, cache.find(1_000L, altered));
+
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1.0 / 3, cache.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Piena, la cache sostituisce prima le voci scadute, poi quelle senza bit di riferimento")
+    void clockEviction() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(3);
+        long now = 10_000L;
+
+        cache.put(1, mac(1), 5_000L, now);      // già scaduta
+        cache.put(2, mac(2), 400_000L, now);
+        cache.put(3, mac(3), 400_000L, now);
+        assertEquals(3, cache.size());
+
+        // 2 e 3 usati: la lancetta salta i riferiti e prende la voce scaduta
+        cache.find(2, mac(2));
+        cache.find(3, mac(3));
+        cache.put(4, mac(4), 400_000L, now);
+
+        assertEquals(-1, cache.find(1, mac(1)));
+        assertTrue(cache.find(2, mac(2)) > 0);
+        assertTrue(cache.find(3, mac(3)) > 0);
+        assertTrue(cache.find(4, mac(4)) > 0);
+        assertEquals(1, cache.getEvictions());
+        assertEquals(3, cache.size());
+
+        // nessuna voce scaduta: esce la prima senza seconda possibilità
+        cache.find(2, mac(2));
+        cache.find(3, mac(3));
+        cache.put(5, mac(5), 400_000L, now);
+
+        assertTrue(cache.find(5, mac(5)) > 0);
+        assertEquals(2, cache.getEvictions());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    @DisplayName("Il filtro calcola l'HMAC solo al primo passaggio del token, poi controlla solo la scadenza")
+    void filterSkipsHmacOnHit() {
+        HMACSHA256SignatureUtilImpl hashingUtil = Mockito.spy(new HMACSHA256SignatureUtilImpl(secretKey));
+        hashingUtil.computeSecretKey();
+        VerifiedTokenCache cache = new VerifiedTokenCache(8);
+        SecurityFilter filter = Mockito.spy(new SecurityFilter(hashingUtil, cache));
+
+        long issued = 1_737_719_000_000L;
+        String token = issued + hashingUtil.computeHMACSHA256(String.valueOf(issued));
+        String forged = token.substring(0, 13) + "A".repeat(43) + "=";
+
+        doReturn(issued + 1_000).when(filter).getCurrentTimeMillis();
+        assertEquals(SecurityFilter.TOKEN_VALID, filter.verifyToken(token, 0));
+        assertEquals(SecurityFilter.TOKEN_VALID, filter.verifyToken(token, 0));
+        assertEquals(HttpServletResponse.SC_UNAUTHORIZED, filter.verifyToken(forged, 0));
+
+        // scaduto anche se presente in cache
+        doReturn(issued + 300_001).when(filter).getCurrentTimeMillis();
+        assertEquals(HttpServletResponse.SC_FORBIDDEN, filter.verifyToken(token, 0));
+
+        // primo passaggio del token valido e token falso: due calcoli, gli altri sono hit
+        verify(hashingUtil, times(2)).computeHMACSHA256(any(CharSequence.class), anyInt(), anyInt(), any(byte[].class));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.size());
+    }
+}
@@ -0,0 +1,78 @@
+package com.rosanova.iot.timer.timer;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.timer.repository.TimerRepository;
+import com.rosanova.iot.timer.utils.impl.TransientTimerUtilsImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+class TimerStartupUnitTest {
+
+    @Mock
+    TimerRepository repository;
+
+    @Mock
+    TransientTimerUtilsImpl timerUtils;
+
+    TimerStartup timerStartup;
+
+    @BeforeEach
+    void setUp() {
+        timerStartup = new TimerStartup(repository, timerUtils);
+    }
+
+    @Test
+    void restoreTimersAllRight() {
+
+        // 12:00:00 con sinfonia da 45 secondi e un timer a mezzanotte (start troncato a 0)
+        Timer noon = new Timer(1, "pranzo", 43_200_000 - 20_000, 43_200_000 + 20_000, 45);
+        Timer midnight = new Timer(2, "mezzanotte", 0, 30_000, 30);
+
+        Mockito.doReturn(List.of(noon, midnight)).when(repository).findAll();
+        Mockito.doReturn(Result.SUCCESS).when(timerUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
+        Mockito.doReturn(Result.SUCCESS).when(timerUtils).activateSystemdTimer(Mockito.anyString());
+
+        Assertions.assertEquals(0, timerStartup.restoreTimers());
+
+        Mockito.verify(timerUtils).deactivateSystemdTimer("43200000");
+        Mockito.verify(timerUtils).createSystemdTimerUnit("43200000", 43_200_000, "45");
+        Mockito.verify(timerUtils).activateSystemdTimer("43200000");
+
+        Mockito.verify(timerUtils).createSystemdTimerUnit("10000", 10_000, "30");
+        Mockito.verify(timerUtils).activateSystemdTimer("10000");
+    }
+
+    @Test
+    void restoreTimersContinuesAfterError() {
+
+        Timer first = new Timer(1, "primo", 43_200_000 - 20_000, 43_200_000 + 20_000, 30);
+        Timer second = new Timer(2, "secondo", 50_000_000 - 20_000, 50_000_000 + 20_000, 30);
+
+        Mockito.doReturn(List.of(first, second)).when(repository).findAll();
+        Mockito.doReturn(Result.SUCCESS).when(timerUtils).createSystemdTimerUnit(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString());
+        Mockito.doReturn(Result.ERROR).when(timerUtils).activateSystemdTimer("43200000");
+        Mockito.doReturn(Result.SUCCESS).when(timerUtils).activateSystemdTimer("50000000");
+
+        Assertions.assertEquals(1, timerStartup.restoreTimers());
+
+        Mockito.verify(timerUtils).activateSystemdTimer("50000000");
+    }
+
+    @Test
+    void restoreTimersDatabaseError() {
+
+        Mockito.doThrow(new RuntimeException("database non disponibile")).when(repository).findAll();
+
+        Assertions.assertEquals(-1, timerStartup.restoreTimers());
+
+        Mockito.verifyNoInteractions(timerUtils);
+    }
+}
@@ -4,9 +4,12 @@ import com.rosanova.iot.timer.error.Result;
 import com.rosanova.iot.timer.error.TimerServiceException;
 import com.rosanova.iot.timer.timer.Timer;
 import com.rosanova.iot.timer.timer.dto.CheckTimerInsertValidity;
+import com.rosanova.iot.timer.timer.dto.TimerInsertDto;
 import com.rosanova.iot.timer.timer.repository.TimerRepository;
 import com.rosanova.iot.timer.timer.service.impl.TimerServiceImpl;
 import com.rosanova.iot.timer.utils.TimerUtils;
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
+import com.rosanova.iot.timer.utils.impl.UnitResults;
 import org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,12 +17,16 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.Mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -115,7 +122,7 @@ public class TimerServiceImplUnitTest {
         // GIVEN
         CheckTimerInsertValidity ok = new CheckTimerInsertValidity(5, 0);
         when(repository.countOverlapsAndMaxTimers(anyInt(), anyInt())).thenReturn(ok);
-        when(timerUtils.createSystemdTimerUnit(anyString(), anyString(),anyString())).thenReturn(Result.SUCCESS);
+        when(timerUtils.createSystemdTimerUnit(anyString(), anyInt(),anyString())).thenReturn(Result.SUCCESS);
         when(timerUtils.timerReload()).thenReturn(Result.SUCCESS);
         when(timerUtils.activateSystemdTimer(anyString())).thenReturn(Result.SUCCESS);
 
@@ -155,7 +162,7 @@ public class TimerServiceImplUnitTest {
         // GIVEN
         setupValidDbCheck();
         // Fallisce la creazione del file (Step 1)
-        when(timerUtils.createSystemdTimerUnit(anyString(), anyString(),anyString())).thenReturn(Result.ERROR);
+        when(timerUtils.createSystemdTimerUnit(anyString(), anyInt(),anyString())).thenReturn(Result.ERROR);
 
         // WHEN & THEN
         assertThrows(TimerServiceException.class, () -> timerService.insertTimer(NAME, TIME,30));
@@ -170,7 +177,7 @@ public class TimerServiceImplUnitTest {
     void insertTimer_FailStep2_ShouldRollbackFileAndReload() {
         // GIVEN
         setupValidDbCheck();
-        when(timerUtils.createSystemdTimerUnit(anyString(), anyString(),anyString())).thenReturn(Result.SUCCESS);
+        when(timerUtils.createSystemdTimerUnit(anyString(), anyInt(),anyString())).thenReturn(Result.SUCCESS);
         // Fallisce il reload (Step 2)
         when(timerUtils.timerReload()).thenReturn(Result.ERROR);
 
@@ -187,7 +194,7 @@ public class TimerServiceImplUnitTest {
     void insertTimer_FailStep3_ShouldRollbackAll() {
         // GIVEN
         setupValidDbCheck();
-        when(timerUtils.createSystemdTimerUnit(anyString(), anyString(),anyString())).thenReturn(Result.SUCCESS);
+        when(timerUtils.createSystemdTimerUnit(anyString(), anyInt(),anyString())).thenReturn(Result.SUCCESS);
         when(timerUtils.timerReload()).thenReturn(Result.SUCCESS);
         // Fallisce attivazione (Step 3)
         when(timerUtils.activateSystemdTimer(anyString())).thenReturn(Result.ERROR);
@@ -297,7 +304,7 @@ public class TimerServiceImplUnitTest {
         setupValidDbCheck();
 
         // Mockiamo le risposte di successo per arrivare alla fine
-        when(timerUtils.createSystemdTimerUnit(anyString(), anyString(), anyString())).thenReturn(Result.SUCCESS);
+        when(timerUtils.createSystemdTimerUnit(anyString(), anyInt(), anyString())).thenReturn(Result.SUCCESS);
         when(timerUtils.timerReload()).thenReturn(Result.SUCCESS);
         when(timerUtils.activateSystemdTimer(anyString())).thenReturn(Result.SUCCESS);
 
@@ -319,7 +326,7 @@ public class TimerServiceImplUnitTest {
         int highTime = 86_390_000;
         setupValidDbCheck();
 
-        when(timerUtils.createSystemdTimerUnit(anyString(), anyString(), anyString())).thenReturn(Result.SUCCESS);
+        when(timerUtils.createSystemdTimerUnit(anyString(), anyInt(), anyString())).thenReturn(Result.SUCCESS);
         when(timerUtils.timerReload()).thenReturn(Result.SUCCESS);
         when(timerUtils.activateSystemdTimer(anyString())).thenReturn(Result.SUCCESS);
 
@@ -376,4 +383,277 @@ public class TimerServiceImplUnitTest {
         verify(timerUtils, atLeastOnce()).timerReload();
     }
 
+
+    private TimerInsertDto dto(String name, int time) {
+        TimerInsertDto dto = new TimerInsertDto();
+        dto.setName(name);
+        dto.setTime(time);
+        dto.setSymphonyDuration(30);
+        return dto;
+    }
+
+    @Test
+    void insertTimers_Success_ShouldUseOneReloadAndOneActivation() {
+        setupValidDbCheck();
+        when(timerUtils.createSystemdTimerUnits(anyList(), any(int[].class), anyList())).thenReturn(Result.SUCCESS);
+        when(timerUtils.timerReload()).thenReturn(Result.SUCCESS);
+        when(timerUtils.activateSystemdTimersDetailed(anyList())).thenAnswer(invocation -> UnitResults.allOf(invocation.getArgument(0), Result.SUCCESS));
+
+        Result res = timerService.insertTimers(List.of(dto("A", 600_000), dto("B", 700_000), dto("C", 800_000)));
+
+        assertEquals(Result.SUCCESS, res);
+        verify(repository, times(3)).insert(any(Timer.class));
+        verify(timerUtils).createSystemdTimerUnits(eq(List.of("600000", "700000", "800000")), aryEq(new int[]{600000, 700000, 800000}), eq(List.of("30", "30", "30")));
+        verify(timerUtils, times(1)).timerReload();
+        verify(timerUtils).activateSystemdTimersDetailed(List.of("600000", "700000", "800000"));
+        verify(timerUtils, never()).activateSystemdTimer(anyString());
+    }
+
+    @Test
+    void insertTimers_OverlapInsideBatch_ShouldThrowAndNotTouchUtils() {
+        setupValidDbCheck();
+
+        assertThrows(TimerServiceException.class, () -> timerService.insertTimers(List.of(dto("A", 600_000), dto("B", 630_000))));
+
+        verify(repository, never()).insert(any());
+        verifyNoInteractions(timerUtils);
+    }
+
+    @Test
+    void insertTimers_MaxLimitReached_ShouldThrow() {
+        when(repository.countOverlapsAndMaxTimers(anyInt(), anyInt())).thenReturn(new CheckTimerInsertValidity(39, 0));
+
+        assertThrows(TimerServiceException.class, () -> timerService.insertTimers(List.of(dto("A", 600_000), dto("B", 700_000))));
+
+        verify(repository, never()).insert(any());
+        verifyNoInteractions(timerUtils);
+    }
+
+    @Test
+    void insertTimers_FailActivation_ShouldRollbackEverything() {
+        setupValidDbCheck();
+        doAnswer(invocation -> {
+            Timer timer = invocation.getArgument(0);
+            timer.setId(timer.getEndTime());
+            return null;
+        }).when(repository).insert(any(Timer.class));
+        when(timerUtils.createSystemdTimerUnits(anyList(), any(int[].class), anyList())).thenReturn(Result.SUCCESS);
+        when(timerUtils.timerReload()).thenReturn(Result.SUCCESS);
+        when(timerUtils.activateSystemdTimersDetailed(anyList())).thenAnswer(invocation -> UnitResults.allOf(invocation.getArgument(0), Result.ERROR));
+        when(timerUtils.deactivateSystemdTimers(anyList())).thenReturn(Result.SUCCESS);
+        when(timerUtils.reversSystemdTimerUnitInserts(anyList())).thenReturn(Result.SUCCESS);
+
+        assertThrows(TimerServiceException.class, () -> timerService.insertTimers(List.of(dto("A", 600_000), dto("B", 700_000))));
+
+        List<String> names = List.of("600000", "700000");
+        verify(timerUtils).deactivateSystemdTimers(names);
+        verify(timerUtils).reversSystemdTimerUnitInserts(names);
+        verify(timerUtils, times(2)).timerReload();
+        verify(repository).deleteById(620_000);
+        verify(repository).deleteById(720_000);
+    }
+
+    @Test
+    void insertTimers_FailWrite_ShouldRemoveFilesAndRecordsWithoutReload() {
+        setupValidDbCheck();
+        when(timerUtils.createSystemdTimerUnits(anyList(), any(int[].class), anyList())).thenReturn(Result.ERROR);
+        when(timerUtils.reversSystemdTimerUnitInserts(anyList())).thenReturn(Result.SUCCESS);
+
+        assertThrows(TimerServiceException.class, () -> timerService.insertTimers(List.of(dto("A", 600_000))));
+
+        verify(timerUtils).reversSystemdTimerUnitInserts(List.of("600000"));
+        verify(timerUtils, never()).timerReload();
+        verify(repository).deleteById(anyLong());
+    }
+
+    @Test
+    void insertTimer_FailStep1_ShouldCloseJournalAfterRollback() {
+        SagaJournal journal = mock(SagaJournal.class);
+        when(journal.begin(SagaJournal.Kind.TIMER_INSERT, TIME)).thenReturn(7);
+        timerService = new TimerServiceImpl(repository, timerUtils, sharedLock, journal);
+        setupValidDbCheck();
+        when(timerUtils.createSystemdTimerUnit(anyString(), anyInt(), anyString())).thenReturn(Result.ERROR);
+        when(timerUtils.reversSystemdTimerUnitInsert(FILE_NAME)).thenReturn(Result.SUCCESS);
+
+        assertThrows(TimerServiceException.class, () -> timerService.insertTimer(NAME, TIME, 30));
+
+        InOrder order = inOrder(journal, repository, timerUtils);
+        order.verify(journal).begin(SagaJournal.Kind.TIMER_INSERT, TIME);
+        order.verify(repository).insert(any(Timer.class));
+        order.verify(timerUtils).createSystemdTimerUnit(anyString(), anyInt(), anyString());
+        order.verify(journal).step(7, 1);
+        order.verify(timerUtils).reversSystemdTimerUnitInsert(FILE_NAME);
+        order.verify(journal).end(7);
+    }
+
+    @Test
+    void insertTimer_UtilsThrowAfterReservation_ShouldCompensateAndCloseJournal() {
+        SagaJournal journal = mock(SagaJournal.class);
+        when(journal.begin(SagaJournal.Kind.TIMER_INSERT, TIME)).thenReturn(7);
+        timerService = new TimerServiceImpl(repository, timerUtils, sharedLock, journal);
+        setupValidDbCheck();
+        when(timerUtils.createSystemdTimerUnit(anyString(), anyInt(), anyString())).thenReturn(Result.SUCCESS);
+        // il reload lancia invece di restituire ERROR
+        when(timerUtils.timerReload()).thenThrow(new IllegalStateException("systemctl non disponibile"));
+        when(timerUtils.reversSystemdTimerUnitInsert(FILE_NAME)).thenReturn(Result.SUCCESS);
+
+        assertThrows(TimerServiceException.class, () -> timerService.insertTimer(NAME, TIME, 30));
+
+        // la prenotazione confermata e il file vengono annullati
+        verify(timerUtils).reversSystemdTimerUnitInsert(FILE_NAME);
+        verify(repository).deleteById(anyLong());
+        verify(timerUtils, never()).activateSystemdTimer(anyString());
+        // il reload non è registrato come passo completato: la compensazione non lo ripete
+        verify(timerUtils, times(1)).timerReload();
+        verify(journal).end(7);
+        verify(journal, never()).failed(anyInt());
+    }
+
+    @Test
+    void insertTimer_ActivationThrows_ShouldRollbackAll() {
+        setupValidDbCheck();
+        when(timerUtils.createSystemdTimerUnit(anyString(), anyInt(), anyString())).thenReturn(Result.SUCCESS);
+        when(timerUtils.timerReload()).thenReturn(Result.SUCCESS);
+        when(timerUtils.activateSystemdTimer(FILE_NAME)).thenThrow(new IllegalStateException("processo interrotto"));
+
+        assertThrows(TimerServiceException.class, () -> timerService.insertTimer(NAME, TIME, 30));
+
+        // step = 2: file rimosso, reload di compensazione, prenotazione cancellata
+        verify(timerUtils).reversSystemdTimerUnitInsert(FILE_NAME);
+        verify(timerUtils, times(2)).timerReload();
+        verify(repository).deleteById(anyLong());
+    }
+
+    @Test
+    void recover_OpenInsert_ShouldRollbackUnitsAndRecords() {
+        Timer stored = new Timer(5L, NAME, 580_000, 620_000, 30);
+        when(repository.findAll()).thenReturn(List.of(stored));
+        when(timerUtils.reversSystemdTimerUnitInserts(List.of(FILE_NAME))).thenReturn(Result.SUCCESS);
+        when(timerUtils.timerReload()).thenReturn(Result.SUCCESS);
+
+        // registrato il passo 2 (reload): l'attivazione potrebbe essere avvenuta
+        Result res = timerService.recover(new SagaJournal.Entry(1, SagaJournal.Kind.TIMER_INSERT, 2, new int[]{TIME}));
+
+        assertEquals(Result.SUCCESS, res);
+        verify(timerUtils).deactivateSystemdTimers(List.of(FILE_NAME));
+        verify(timerUtils).reversSystemdTimerUnitInserts(List.of(FILE_NAME));
+        verify(repository).deleteById(5L);
+    }
+
+    @Test
+    void recover_RemoveAlreadyDeletedFromDatabase_ShouldCompleteForward() {
+        when(repository.findAll()).thenReturn(List.of());
+        when(timerUtils.deleteSystemdTimerUnit(FILE_NAME)).thenReturn(Result.SUCCESS);
+        when(timerUtils.timerReload()).thenReturn(Result.SUCCESS);
+
+        Result res = timerService.recover(new SagaJournal.Entry(1, SagaJournal.Kind.TIMER_REMOVE, 0, new int[]{TIME}));
+
+        assertEquals(Result.SUCCESS, res);
+        verify(timerUtils).deactivateSystemdTimer(FILE_NAME);
+        verify(timerUtils).deleteSystemdTimerUnit(FILE_NAME);
+        verify(timerUtils, never()).activateSystemdTimer(anyString());
+    }
+
+    /**
+     * esecutore di transazioni finto che registra le fasi e se una transazione è aperta
+     */
+    private static class RecordingTransactions implements TransactionOperations {
+        boolean open = false;
+        int executed = 0;
+
+        @Override
+        public <T> T execute(org.springframework.transaction.support.TransactionCallback<T> action) {
+            open = true;
+            executed++;
+            try {
+                return action.doInTransaction(null);
+            } finally {
+                open = false;
+            }
+        }
+    }
+
+    @Test
+    void insertTimer_Success_ShouldRunSystemdOutsideTransaction() {
+        RecordingTransactions transactions = new RecordingTransactions();
+        timerService = new TimerServiceImpl(repository, timerUtils, sharedLock, SagaJournal.disabled(), transactions);
+        setupValidDbCheck();
+        List<Boolean> openDuringSystemd = new ArrayList<>();
+        doAnswer(invocation -> { openDuringSystemd.add(transactions.open); return Result.SUCCESS; }).when(timerUtils).createSystemdTimerUnit(anyString(), anyInt(), anyString());
+        doAnswer(invocation -> { openDuringSystemd.add(transactions.open); return Result.SUCCESS; }).when(timerUtils).timerReload();
+        doAnswer(invocation -> { openDuringSystemd.add(transactions.open); return Result.SUCCESS; }).when(timerUtils).activateSystemdTimer(FILE_NAME);
+
+        assertEquals(Result.SUCCESS, timerService.insertTimer(NAME, TIME, 30));
+
+        assertEquals(List.of(false, false, false), openDuringSystemd);
+        // solo la prenotazione: il record inserito è già quello definitivo
+        assertEquals(1, transactions.executed);
+        verify(repository).insert(any(Timer.class));
+    }
+
+    @Test
+    void removeTimer_DeleteUnitThrows_ShouldReactivateTimer() {
+        Timer timerToDelete = new Timer(1, "alarm", 80_000, 120_000);
+        String filename = "100000";
+        doReturn(timerToDelete).when(repository).findById(1);
+        doReturn(Result.SUCCESS).when(timerUtils).deactivateSystemdTimer(filename);
+        doThrow(new IllegalStateException("errore I/O")).when(timerUtils).deleteSystemdTimerUnit(filename);
+        doReturn(Result.SUCCESS).when(timerUtils).activateSystemdTimer(filename);
+        doReturn(Result.SUCCESS).when(timerUtils).timerReload();
+
+        assertThrows(TimerServiceException.class, () -> timerService.removeTimer(1));
+
+        verify(timerUtils).activateSystemdTimer(filename);
+        verify(timerUtils).timerReload();
+        verify(repository, never()).deleteById(anyLong());
+    }
+
+    @Test
+    void removeTimer_Success_ShouldDeleteRecordAfterSystemd() {
+        RecordingTransactions transactions = new RecordingTransactions();
+        timerService = new TimerServiceImpl(repository, timerUtils, sharedLock, SagaJournal.disabled(), transactions);
+        Timer timerToDelete = new Timer(1, "alarm", 80_000, 120_000);
+        String filename = "100000";
+        doReturn(timerToDelete).when(repository).findById(1);
+        doReturn(Result.SUCCESS).when(timerUtils).deactivateSystemdTimer(filename);
+        doReturn(Result.SUCCESS).when(timerUtils).deleteSystemdTimerUnit(filename);
+        doReturn(Result.SUCCESS).when(timerUtils).timerReload();
+
+        assertEquals(Result.SUCCESS, timerService.removeTimer(1));
+
+        InOrder order = inOrder(timerUtils, repository);
+        order.verify(timerUtils).deactivateSystemdTimer(filename);
+        order.verify(timerUtils).deleteSystemdTimerUnit(filename);
+        order.verify(timerUtils).timerReload();
+        order.verify(repository).deleteById(1);
+        assertEquals(1, transactions.executed);
+    }
+
+    @Test
+    void removeTimer_FailAtDeactivate_ShouldKeepRecord() {
+        doReturn(new Timer(1, "alarm", 80_000, 120_000)).when(repository).findById(1);
+        doReturn(Result.ERROR).when(timerUtils).deactivateSystemdTimer("100000");
+        doReturn(Result.SUCCESS).when(timerUtils).timerReload();
+
+        assertThrows(TimerServiceException.class, () -> timerService.removeTimer(1));
+
+        verify(repository, never()).deleteById(anyLong());
+    }
+
+    @Test
+    void removeTimer_FailConfirm_ShouldRestoreUnit() {
+        String filename = "100000";
+        doReturn(new Timer(1, "alarm", 80_000, 120_000)).when(repository).findById(1);
+        doReturn(Result.SUCCESS).when(timerUtils).deactivateSystemdTimer(filename);
+        doReturn(Result.SUCCESS).when(timerUtils).deleteSystemdTimerUnit(filename);
+        doReturn(Result.SUCCESS).when(timerUtils).timerReload();
+        doReturn(Result.SUCCESS).when(timerUtils).reverseDeleteSystemdTimerUnit(filename);
+        doReturn(Result.SUCCESS).when(timerUtils).activateSystemdTimer(filename);
+        doThrow(new RuntimeException("database bloccato")).when(repository).deleteById(1);
+
+        assertThrows(TimerServiceException.class, () -> timerService.removeTimer(1));
+
+        verify(timerUtils).reverseDeleteSystemdTimerUnit(filename);
+        verify(timerUtils).activateSystemdTimer(filename);
+    }
 }
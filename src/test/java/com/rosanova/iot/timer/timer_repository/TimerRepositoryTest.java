@@ -3,7 +3,7 @@ package com.rosanova.iot.timer.timer_repository;
 import com.rosanova.iot.timer.timer.Timer;
 import com.rosanova.iot.timer.timer.dto.CheckTimerInsertValidity;
 import com.rosanova.iot.timer.timer.repository.impl.TimerRepositoryImpl;
-import com.rosanova.iot.timer.utils.impl.HashMapInt;
+import com.rosanova.iot.timer.utils.impl.HashSetInt;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -45,6 +45,8 @@ public class TimerRepositoryTest {
     void setUp() {
         // Pulisce il database prima di ogni test
         jdbcTemplate.execute("DELETE FROM timer");
+        // la DELETE diretta non passa dal repository: riallineiamo l'indice in memoria
+        timerRepository.loadIndex();
     }
 
     @Test
@@ -119,19 +121,52 @@ public class TimerRepositoryTest {
     }
 
     @Test
-    @DisplayName("Dovrebbe aggiungere correttamente i tempi mediani alla HashMapInt")
+    @DisplayName("Dovrebbe aggiungere correttamente i tempi mediani alla HashSetInt")
     void testAddEndTimesToMap() {
         timerRepository.insert(new Timer(0, "T1", 0, 150_000));
         timerRepository.insert(new Timer(0, "T2", 200_000, 450_000));
 
-        HashMapInt customMap = new HashMapInt();
+        HashSetInt customMap = new HashSetInt();
         timerRepository.addEndTimesToMap(customMap);
 
-        // Verifica basata sull'implementazione della tua HashMapInt
-        // Se HashMapInt stampa i valori o ha un metodo size/get:
+        // Verifica basata sull'implementazione della tua HashSetInt
+        // Se HashSetInt stampa i valori o ha un metodo size/get:
         assertNotNull(customMap);
-        assertTrue(customMap.search(130_000));
-        assertTrue(customMap.search(220_000));
-        // Nota: Assicurati che HashMapInt funzioni come previsto dal test
+        assertTrue(customMap.contains(130_000));
+        assertTrue(customMap.contains(220_000));
+        // Nota: Assicurati che HashSetInt funzioni come previsto dal test
+    }
+
+    @Test
+    @DisplayName("L'indice in memoria deve dare lo stesso risultato della query SQL")
+    void testIndexMatchesDatabaseQuery() {
+        timerRepository.insert(new Timer(0, "T1", 0, 40_000));
+        timerRepository.insert(new Timer(0, "T2", 100_000, 140_000));
+        timerRepository.insert(new Timer(0, "T3", 500_000, 540_000));
+
+        int[][] probes = {{0, 10}, {40_000, 60_000}, {40_001, 99_999}, {90_000, 600_000}, {540_000, 580_000}, {700_000, 740_000}};
+
+        for (int[] probe : probes) {
+            CheckTimerInsertValidity fromIndex = timerRepository.countOverlapsAndMaxTimers(probe[0], probe[1]);
+            CheckTimerInsertValidity fromDatabase = timerRepository.countOverlapsAndMaxTimersFromDatabase(probe[0], probe[1]);
+            assertEquals(fromDatabase.getTotal(), fromIndex.getTotal());
+            assertEquals(fromDatabase.getOverlaps(), fromIndex.getOverlaps(), "probe " + probe[0] + "-" + probe[1]);
+        }
+    }
+
+    @Test
+    @DisplayName("insert e deleteById devono aggiornare l'indice in memoria")
+    void testIndexFollowsInsertAndDelete() {
+        Timer timer = new Timer(0, "Indicizzato", 200_000, 240_000);
+        timerRepository.insert(timer);
+
+        assertTrue(timer.getId() > 0, "l'id generato deve essere assegnato al timer");
+        assertEquals(1, timerRepository.countOverlapsAndMaxTimers(210_000, 250_000).getOverlaps());
+
+        timerRepository.deleteById(timer.getId());
+
+        CheckTimerInsertValidity afterDelete = timerRepository.countOverlapsAndMaxTimers(210_000, 250_000);
+        assertEquals(0, afterDelete.getTotal());
+        assertEquals(0, afterDelete.getOverlaps());
     }
 }
@@ -0,0 +1,125 @@
+package com.rosanova.iot.timer.user.controller;
+
+import com.rosanova.iot.timer.security.SecurityFilter;
+import com.rosanova.iot.timer.user.User;
+import com.rosanova.iot.timer.user.repository.UserRepository;
+import com.rosanova.iot.timer.user.service.impl.LoginVerificationExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Raffica di login con password errata da più indirizzi: i tentativi oltre il limite ricevono 429 con Retry-After
+ * e le verifiche BCrypt contemporanee non superano login.verify.threads.
+ * L'hash salvato ha costo 10, così ogni verifica ammessa occupa davvero la CPU.
+ * La latenza delle richieste autenticate durante la raffica è misurata da LoginStormBenchmark.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class LoginStormIntegrationTest {
+
+    private static final int STORM_CLIENTS = 8;
+    private static final int ATTEMPTS = 20;
+    private static final int COST = 10;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    @Autowired
+    private SecurityFilter securityFilter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoginVerificationExecutor verificationExecutor;
+
+    private MockMvc mockMvc;
+
+    // utenti presenti prima del test, il contesto è condiviso con le altre classi
+    private List<User> previousUsers;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).addFilters(securityFilter).build();
+
+        previousUsers = userRepository.findAllUsers();
+        userRepository.deleteAllUsers();
+        User root = new User();
+        root.setUsername("root");
+        root.setPassword(BCrypt.hashpw("passwordGiusta", BCrypt.gensalt(COST)));
+        userRepository.insertUser(root);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAllUsers();
+        for (User user : previousUsers) userRepository.insertUser(user);
+    }
+
+    @Test
+    @DisplayName("Durante una raffica di login i tentativi in eccesso ricevono 429 e le verifiche restano entro il limite dei thread")
+    void loginStormIsRejectedWithinVerificationLimit() throws Exception {
+
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger verified = new AtomicInteger();
+        ExecutorService storm = Executors.newFixedThreadPool(STORM_CLIENTS);
+        List<Future<?>> clients = new ArrayList<>();
+
+        for (int client = 0; client < STORM_CLIENTS; client++) {
+            String address = "10.0.0." + (client + 1);
+            clients.add(storm.submit(() -> {
+                for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+                    MvcResult result = mockMvc.perform(post("/api/auth/login")
+                                    .with(request -> {
+                                        request.setRemoteAddr(address);
+                                        return request;
+                                    })
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content("{\"username\":\"root\",\"password\":\"sbagliata\"}"))
+                            .andReturn();
+                    int status = result.getResponse().getStatus();
+                    if (status == 429) {
+                        assertNotNull(result.getResponse().getHeader(HttpHeaders.RETRY_AFTER));
+                        rejected.incrementAndGet();
+                    } else {
+                        assertEquals(400, status);
+                        verified.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        storm.shutdown();
+        assertTrue(storm.awaitTermination(60, TimeUnit.SECONDS));
+        for (Future<?> client : clients) client.get();
+
+        // ogni client ha un burst di 5 tentativi, il resto è respinto senza calcolare BCrypt
+        assertTrue(rejected.get() > 0);
+        assertTrue(verified.get() <= STORM_CLIENTS * 5 + STORM_CLIENTS);
+        assertTrue(verificationExecutor.getMaxRunning() <= verificationExecutor.getThreads());
+    }
+}
@@ -0,0 +1,105 @@
+package com.rosanova.iot.timer.user.service.unit_test;
+
+import com.rosanova.iot.timer.user.service.impl.BCryptCostCalibrator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BCryptCostCalibratorUnitTest {
+
+    @Test
+    @DisplayName("costOf: legge il costo dagli hash BCrypt e rifiuta gli altri formati")
+    void costOf() {
+        assertEquals(4, BCryptCostCalibrator.costOf(BCrypt.hashpw("password", BCrypt.gensalt(4))));
+        assertEquals(12, BCryptCostCalibrator.costOf("$2a$12$abcdefghijklmnopqrstuv"));
+        assertEquals(-1, BCryptCostCalibrator.costOf("encoded_password_hash"));
+        assertEquals(-1, BCryptCostCalibrator.costOf("$2a$1x$"));
+        assertEquals(-1, BCryptCostCalibrator.costOf(null));
+    }
+
+    @Test
+    @DisplayName("Calibrazione: con budget nullo resta il costo minimo")
+    void calibrate_ZeroBudgetKeepsMinimum() {
+        BCryptCostCalibrator calibrator = new BCryptCostCalibrator(0, 5, 12);
+
+        assertEquals(5, calibrator.calibrate());
+        assertEquals(5, calibrator.getTargetCost());
+        assertTrue(calibrator.getCalibratedMicros() >= 0);
+        assertEquals(5, BCryptCostCalibrator.costOf(BCrypt.hashpw("password", calibrator.gensalt())));
+    }
+
+    @Test
+    @DisplayName("Calibrazione: con budget ampio si ferma al costo massimo")
+    void calibrate_LargeBudgetStopsAtMaximum() {
+        BCryptCostCalibrator calibrator = new BCryptCostCalibrator(60_000, 4, 6);
+
+        assertEquals(6, calibrator.calibrate());
+    }
+
+    @Test
+    @DisplayName("Costi fuori dai limiti di BCrypt vengono riportati nell'intervallo 4-31")
+    void bounds() {
+        BCryptCostCalibrator calibrator = new BCryptCostCalibrator(0, 1, 40);
+
+        assertEquals(4, calibrator.getMinCost());
+        assertEquals(31, calibrator.getMaxCost());
+        assertEquals(BCryptCostCalibrator.DEFAULT_COST, calibrator.getTargetCost());
+    }
+
+    @Test
+    @DisplayName("needsRehash: solo per hash BCrypt con costo lontano più di uno da quello calibrato")
+    void needsRehash() {
+        BCryptCostCalibrator calibrator = new BCryptCostCalibrator(0, 4, 4);
+        calibrator.calibrate();
+
+        assertFalse(calibrator.needsRehash("$2a$04$abcdefghijklmnopqrstuv"));
+        assertTrue(calibrator.needsRehash("$2a$10$abcdefghijklmnopqrstuv"));
+        assertFalse(calibrator.needsRehash("encoded_password_hash"));
+    }
+
+    @Test
+    @DisplayName("needsRehash: un costo che cambia di uno tra due avvii non riscrive l'hash, sotto il minimo sì")
+    void needsRehash_Hysteresis() {
+        // senza calibrazione il costo scelto è quello di default, 10
+        BCryptCostCalibrator calibrator = new BCryptCostCalibrator(0, 10, 14);
+
+        assertFalse(calibrator.needsRehash("$2a$11$abcdefghijklmnopqrstuv"));
+        assertTrue(calibrator.needsRehash("$2a$12$abcdefghijklmnopqrstuv"));
+        assertTrue(calibrator.needsRehash("$2a$08$abcdefghijklmnopqrstuv"));
+        // 9 è entro la tolleranza ma sotto il minimo configurato
+        assertTrue(calibrator.needsRehash("$2a$09$abcdefghijklmnopqrstuv"));
+    }
+
+    @Test
+    @DisplayName("Un solo ricalcolo in background alla volta")
+    void rehashInBackground_OneAtATime() throws InterruptedException {
+        BCryptCostCalibrator calibrator = new BCryptCostCalibrator(0, 4, 4);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        assertTrue(calibrator.rehashInBackground(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        }));
+        assertFalse(calibrator.rehashInBackground(() -> fail("ricalcolo concorrente eseguito")));
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (calibrator.isRehashPending() && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(1, calibrator.getRehashes());
+        assertTrue(calibrator.rehashInBackground(() -> { }));
+
+        calibrator.shutdown();
+    }
+}
@@ -0,0 +1,63 @@
+package com.rosanova.iot.timer.user.service.unit_test;
+
+import com.rosanova.iot.timer.user.service.impl.LoginVerificationExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginVerificationExecutorUnitTest {
+
+    private final LoginVerificationExecutor executor = new LoginVerificationExecutor(1, 1, 50);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("await: restituisce il risultato della verifica conclusa in tempo")
+    void await_ReturnsResult() throws Exception {
+        CompletableFuture<Boolean> login = executor.submit(() -> true);
+
+        assertTrue(executor.await(login));
+        assertEquals(0, executor.getTimedOut());
+    }
+
+    @Test
+    @DisplayName("await: oltre il timeout lancia TimeoutException e la verifica ancora in coda non viene eseguita")
+    void await_TimeoutCancelsQueuedVerification() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean queuedRan = new AtomicBoolean();
+
+        CompletableFuture<Boolean> running = executor.submit(() -> {
+            try {
+                return release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        CompletableFuture<Boolean> queued = executor.submit(() -> queuedRan.getAndSet(true));
+        assertNotNull(queued);
+
+        assertThrows(TimeoutException.class, () -> executor.await(queued));
+        assertTrue(queued.isCancelled());
+        assertEquals(1, executor.getTimedOut());
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        // il worker libero prende la verifica annullata dalla coda e la scarta
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getQueued() > 0 && System.nanoTime() < deadline) Thread.onSpinWait();
+        CompletableFuture<Boolean> next = executor.submit(() -> true);
+        assertTrue(next.get(5, TimeUnit.SECONDS));
+        assertFalse(queuedRan.get());
+    }
+}
@@ -4,6 +4,7 @@ import com.rosanova.iot.timer.error.Result;
 import com.rosanova.iot.timer.user.User;
 import com.rosanova.iot.timer.user.dto.LoginReturnDto;
 import com.rosanova.iot.timer.user.repository.UserRepository;
+import com.rosanova.iot.timer.user.service.impl.BCryptCostCalibrator;
 import com.rosanova.iot.timer.user.service.impl.UserServiceImpl;
 import com.rosanova.iot.timer.utils.HMACSHA256SignatureUtil;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,9 +15,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.bcrypt.BCrypt;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -86,6 +89,43 @@ class UserServiceUnitTest {
         verify(hashToken).computeHMACSHA256(argThat(payload -> payload.length() == 13));
     }
 
+    @Test
+    @DisplayName("Login: l'hash con un costo diverso da quello calibrato viene ricalcolato in background")
+    void login_RehashesWithCalibratedCost() {
+        BCryptCostCalibrator calibrator = new BCryptCostCalibrator(0, 5, 5);
+        assertEquals(5, calibrator.calibrate());
+
+        String oldHash = BCrypt.hashpw(rawPassword, BCrypt.gensalt(4));
+        testUser.setPassword(oldHash);
+        when(repository.getByUsername(username)).thenReturn(testUser);
+        when(hashToken.computeHMACSHA256(anyString())).thenReturn("hmac");
+
+        UserServiceImpl service = new UserServiceImpl(repository, hashToken, calibrator);
+        LoginReturnDto result = service.login(username, rawPassword);
+
+        assertEquals(Result.SUCCESS, result.getResult());
+        verify(repository, timeout(5000)).updateUserIfUnchanged(eq(100L), eq(oldHash),
+                argThat(hash -> BCryptCostCalibrator.costOf(hash) == 5 && BCrypt.checkpw(rawPassword, hash)));
+        assertEquals(1, calibrator.getLoginLatency().getCount());
+    }
+
+    @Test
+    @DisplayName("Login: nessun ricalcolo se il costo dell'hash è già quello calibrato")
+    void login_NoRehashWithTargetCost() {
+        BCryptCostCalibrator calibrator = new BCryptCostCalibrator(0, 4, 4);
+        calibrator.calibrate();
+
+        testUser.setPassword(BCrypt.hashpw(rawPassword, BCrypt.gensalt(4)));
+        when(repository.getByUsername(username)).thenReturn(testUser);
+        when(hashToken.computeHMACSHA256(anyString())).thenReturn("hmac");
+
+        LoginReturnDto result = new UserServiceImpl(repository, hashToken, calibrator).login(username, rawPassword);
+
+        assertEquals(Result.SUCCESS, result.getResult());
+        assertFalse(calibrator.isRehashPending());
+        verify(repository, never()).updateUserIfUnchanged(anyLong(), anyString(), anyString());
+    }
+
     // --- TEST METODO changePassword() ---
 
     @Test
@@ -0,0 +1,103 @@
+package com.rosanova.iot.timer.utils.integration_test;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.utils.impl.SystemctlExecutor;
+import com.rosanova.iot.timer.utils.impl.TimerUtilsImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SystemctlExecutorIntegrationTest {
+
+    @TempDir
+    Path binDir;
+
+    @Test
+    @DisplayName("systemctl viene lanciato con argv esplicito e la latenza registrata per tipo di comando")
+    void runsWithExplicitArgv() throws Exception {
+        Path log = binDir.resolve("calls.log");
+        writeSystemctl("echo \"$*\" >> \"" + log + "\"\nexit 0");
+        SystemctlExecutor executor = new SystemctlExecutor(binDir.toString(), 5000, 2);
+
+        CompletableFuture<Result> future = executor.submit(SystemctlExecutor.Command.ENABLE, List.of("1.timer", "2 spazi.timer"));
+
+        assertEquals(Result.SUCCESS, future.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("--user enable --now 1.timer 2 spazi.timer"), Files.readAllLines(log));
+        assertEquals(1, executor.getLatency(SystemctlExecutor.Command.ENABLE).getCount());
+        assertEquals(0, executor.getLatency(SystemctlExecutor.Command.DAEMON_RELOAD).getCount());
+    }
+
+    @Test
+    @DisplayName("Exit code diverso da zero: ERROR e contatore dei fallimenti")
+    void failingCommandIsCounted() throws Exception {
+        writeSystemctl("echo 'Failed to reload' >&2\nexit 1");
+        SystemctlExecutor executor = new SystemctlExecutor(binDir.toString(), 5000, 2);
+
+        assertEquals(Result.ERROR, executor.submit(SystemctlExecutor.Command.DAEMON_RELOAD, List.of()).get(5, TimeUnit.SECONDS));
+        assertEquals(1, executor.getFailures(SystemctlExecutor.Command.DAEMON_RELOAD));
+    }
+
+    @Test
+    @DisplayName("Un processo bloccato viene terminato allo scadere del timeout")
+    void timeoutKillsProcess() throws Exception {
+        writeSystemctl("sleep 30");
+        SystemctlExecutor executor = new SystemctlExecutor(binDir.toString(), 200, 2);
+
+        long start = System.nanoTime();
+        Result result = executor.submit(SystemctlExecutor.Command.STOP, List.of("1.timer")).get(10, TimeUnit.SECONDS);
+
+        assertEquals(Result.ERROR, result);
+        assertEquals(1, executor.getTimeouts(SystemctlExecutor.Command.STOP));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    }
+
+    @Test
+    @DisplayName("Un output più grande del buffer della pipe non blocca il processo")
+    void largeOutputIsDrained() throws Exception {
+        writeSystemctl("head -c 1048576 /dev/zero\nhead -c 1048576 /dev/zero >&2\nexit 0");
+        SystemctlExecutor executor = new SystemctlExecutor(binDir.toString(), 5000, 2);
+
+        assertEquals(Result.SUCCESS, executor.submit(SystemctlExecutor.Command.START, List.of("a.service")).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Dopo lo shutdown i comandi non partono e restituiscono ERROR")
+    void shutdownRejectsNewCommands() throws Exception {
+        Path log = binDir.resolve("calls.log");
+        writeSystemctl("echo \"$*\" >> \"" + log + "\"\nexit 0");
+        SystemctlExecutor executor = new SystemctlExecutor(binDir.toString(), 5000, 2);
+
+        executor.shutdown();
+
+        assertEquals(Result.ERROR, executor.submit(SystemctlExecutor.Command.START, List.of("1.timer")).get(5, TimeUnit.SECONDS));
+        assertEquals(Result.ERROR, executor.submitUnits(SystemctlExecutor.Command.ENABLE, List.of("1"), ".timer", ProcessBuilder::new).get(5, TimeUnit.SECONDS).get("1"));
+        assertFalse(Files.exists(log));
+        assertEquals(1, executor.getFailures(SystemctlExecutor.Command.START));
+    }
+
+    @Test
+    @DisplayName("Le istanze di TimerUtilsImpl senza esecutore iniettato condividono lo stesso limite di processi")
+    void standaloneInstancesShareExecutor() {
+        TimerUtilsImpl first = new TimerUtilsImpl(binDir.toString(), binDir.toString(), "alarm", false);
+        TimerUtilsImpl second = new TimerUtilsImpl(binDir.toString(), binDir.toString(), "monitor_on", false, null);
+
+        assertSame(SystemctlExecutor.standalone(), first.getSystemctlExecutor());
+        assertSame(first.getSystemctlExecutor(), second.getSystemctlExecutor());
+    }
+
+    private void writeSystemctl(String body) throws IOException {
+        Path script = binDir.resolve("systemctl");
+        Files.writeString(script, "#!/bin/sh\n" + body + "\n");
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+}
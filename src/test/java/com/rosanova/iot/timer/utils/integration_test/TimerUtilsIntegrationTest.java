@@ -1,7 +1,9 @@
 package com.rosanova.iot.timer.utils.integration_test;
 
 import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.utils.impl.SystemctlExecutor;
 import com.rosanova.iot.timer.utils.impl.TimerUtilsImpl;
+import com.rosanova.iot.timer.utils.impl.UnitResults;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,6 +12,9 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -97,4 +102,132 @@ class TimerUtilsIntegrationTest {
         assertEquals(Result.SUCCESS, result);
         assertEquals("nuovo contenuto", Files.readString(file));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Creazione multipla: tutti i file devono essere spostati nella destinazione")
+    void testBatchTimerCreationFlow() throws IOException {
+        List<String> names = List.of("600000", "700000");
+
+        Result result = timerUtils.createSystemdTimerUnits(names, List.of("00:10:00", "00:11:40"), List.of("30", "15"));
+
+        assertEquals(Result.SUCCESS, result);
+        for (String name : names) {
+            assertFalse(Files.exists(tmpDir.resolve(name + ".timer")));
+            assertTrue(Files.exists(systemDir.resolve(name + ".timer")));
+        }
+        assertTrue(Files.readString(systemDir.resolve("700000.timer")).contains("OnCalendar= *-*-* 00:11:40"));
+        assertTrue(Files.readString(systemDir.resolve("700000.timer")).contains(SERVICE_NAME + "@15.service"));
+
+        assertEquals(Result.SUCCESS, timerUtils.reversSystemdTimerUnitInserts(names));
+        assertFalse(Files.exists(systemDir.resolve("600000.timer")));
+    }
+
+    @Test
+    @DisplayName("Creazione dai millisecondi: stesso contenuto della variante testuale")
+    void millisCreationMatchesTextCreation() throws IOException {
+        List<String> names = List.of("600000", "700000");
+
+        assertEquals(Result.SUCCESS, timerUtils.createSystemdTimerUnits(names, new int[]{600_000, 700_000}, List.of("30", "15")));
+        assertEquals(timerUtils.buildTimerContent("00:11:40", "15"), Files.readString(systemDir.resolve("700000.timer")));
+
+        assertEquals(Result.SUCCESS, timerUtils.createSystemdTimerUnit("800000", 800_000, "30"));
+        assertEquals(timerUtils.buildTimerContent("00:13:20", "30"), Files.readString(systemDir.resolve("800000.timer")));
+    }
+
+    @Test
+    @DisplayName("Destinazione mancante con sorgente presente: errore")
+    void moveToMissingDirectoryFails() throws IOException {
+        Path source = tmpDir.resolve("600000.timer");
+        Files.writeString(source, "[Timer]");
+
+        assertEquals(Result.ERROR, timerUtils.moveTimer(source, tempFolder.resolve("missing").resolve("600000.timer")));
+        assertTrue(Files.exists(source));
+    }
+
+    @Test
+    @DisplayName("Spostamento: sincronizza la directory di origine e quella di destinazione")
+    void moveSyncsBothDirectories() throws IOException {
+        Path source = tmpDir.resolve("600000.timer");
+        Files.writeString(source, "[Timer]");
+        Path destination = systemDir.resolve("600000.timer");
+
+        assertEquals(Result.SUCCESS, timerUtils.moveTimer(source, destination));
+        assertTrue(Files.exists(destination));
+        assertEquals(2, timerUtils.getUnitWriter().getDirectorySyncs());
+
+        // spostamento già avvenuto: le directory vengono sincronizzate di nuovo
+        assertEquals(Result.SUCCESS, timerUtils.moveTimer(source, destination));
+        assertEquals(4, timerUtils.getUnitWriter().getDirectorySyncs());
+    }
+
+    @Test
+    @DisplayName("Creazione multipla: un sync per file e un solo sync della directory, nessun file temporaneo residuo")
+    void batchCreationSyncsDirectoryOnce() throws IOException {
+        List<String> names = List.of("600000", "700000", "800000");
+
+        assertEquals(Result.SUCCESS, timerUtils.createSystemdTimerUnits(names, List.of("00:10:00", "00:11:40", "00:13:20"), List.of("30", "30", "30")));
+
+        assertEquals(3, timerUtils.getUnitWriter().getFileSyncs());
+        assertEquals(1, timerUtils.getUnitWriter().getDirectorySyncs());
+        try (var files = Files.list(systemDir)) {
+            assertEquals(3, files.count());
+        }
+        try (var files = Files.list(tmpDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Scrittura fallita: nessun file temporaneo resta nella directory")
+    void failedWriteLeavesNoTempFiles() throws IOException {
+        Files.createDirectory(systemDir.resolve("700000.timer"));
+
+        assertEquals(Result.ERROR, timerUtils.createSystemdTimerUnits(List.of("600000", "700000"), List.of("00:10:00", "00:11:40"), List.of("30", "30")));
+
+        // il primo file è già al suo posto e resta al chiamante da annullare, il secondo non ha lasciato temporanei
+        assertTrue(Files.exists(systemDir.resolve("600000.timer")));
+        assertFalse(Files.exists(systemDir.resolve(".700000.timer.tmp")));
+        assertEquals(0, timerUtils.getUnitWriter().getDirectorySyncs());
+    }
+
+    @Test
+    @DisplayName("Swap: disable del vecchio e enable del nuovo partono insieme, esito per unit")
+    void swapRunsDisableAndEnableTogether() throws IOException {
+        Path bin = Files.createDirectories(tempFolder.resolve("bin"));
+        Path log = tempFolder.resolve("calls.log");
+        writeSystemctl(bin, "sleep 0.5\necho \"$*\" >> \"" + log + "\"\nexit 0");
+        TimerUtilsImpl utils = new TimerUtilsImpl(tmpDir.toString(), systemDir.toString(), SERVICE_NAME, false, null, new SystemctlExecutor(bin.toString(), 5000, 4));
+
+        long start = System.nanoTime();
+        UnitResults results = utils.swapSystemdTimer("100000", "200000");
+        long elapsed = System.nanoTime() - start;
+
+        assertEquals(Result.SUCCESS, results.overall());
+        List<String> calls = Files.readAllLines(log);
+        assertEquals(2, calls.size());
+        assertTrue(calls.contains("--user disable --now 100000.timer"));
+        assertTrue(calls.contains("--user enable --now 200000.timer"));
+        // due processi da 0.5 s in parallelo
+        assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(950), "durata swap: " + elapsed / 1_000_000 + " ms");
+    }
+
+    @Test
+    @DisplayName("Swap: il fallimento dell'enable è attribuito solo alla nuova unit")
+    void swapReportsFailurePerUnit() throws IOException {
+        Path bin = Files.createDirectories(tempFolder.resolve("bin"));
+        writeSystemctl(bin, "if [ \"$2\" = enable ]; then echo 'Failed to enable unit' >&2; exit 1; fi\nexit 0");
+        TimerUtilsImpl utils = new TimerUtilsImpl(tmpDir.toString(), systemDir.toString(), SERVICE_NAME, false, null, new SystemctlExecutor(bin.toString(), 5000, 4));
+
+        UnitResults results = utils.swapSystemdTimer("100000", "200000");
+
+        assertEquals(Result.SUCCESS, results.get("100000"));
+        assertEquals(Result.ERROR, results.get("200000"));
+        assertEquals(List.of("200000"), results.failed());
+    }
+
+    private static void writeSystemctl(Path bin, String body) throws IOException {
+        Path script = bin.resolve("systemctl");
+        Files.writeString(script, "#!/bin/sh\n" + body + "\n");
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+}
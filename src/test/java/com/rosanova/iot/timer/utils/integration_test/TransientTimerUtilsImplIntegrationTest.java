@@ -0,0 +1,144 @@
+package com.rosanova.iot.timer.utils.integration_test;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.utils.impl.SystemctlExecutor;
+import com.rosanova.iot.timer.utils.impl.TransientTimerUtilsImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransientTimerUtilsImplIntegrationTest {
+
+    @TempDir
+    Path binDir;
+
+    private Path log;
+
+    private TransientTimerUtilsImpl timerUtils;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        log = binDir.resolve("calls.log");
+        // script finti che registrano gli argomenti ricevuti, una riga per invocazione
+        writeScript("systemd-run", 0);
+        writeScript("systemctl", 0);
+        timerUtils = new TransientTimerUtilsImpl("alarm", binDir.toString(), new SystemctlExecutor(binDir.toString(), 5000, 1));
+    }
+
+    @Test
+    @DisplayName("L'attivazione esegue systemd-run senza file e senza daemon-reload")
+    void createAndActivateRunsSystemdRun() throws IOException {
+
+        assertEquals(Result.SUCCESS, timerUtils.createSystemdTimerUnit("43200000", "12:00:00", "30"));
+        assertEquals(Result.SUCCESS, timerUtils.timerReload());
+        assertFalse(Files.exists(log), "creazione e reload non devono lanciare processi");
+
+        assertEquals(Result.SUCCESS, timerUtils.activateSystemdTimer("43200000"));
+
+        List<String> calls = Files.readAllLines(log);
+        assertEquals(1, calls.size());
+        assertEquals("systemd-run --user --collect --unit=43200000 --on-calendar=*-*-* 12:00:00 "
+                + "--timer-property=Persistent=true --description=Custom Timer for alarm@30.service "
+                + binDir.resolve("systemctl") + " --user start alarm@30.service", calls.get(0));
+    }
+
+    @Test
+    @DisplayName("Senza persistenza il comando non contiene Persistent=true")
+    void nonPersistentOmitsTimerProperty() throws IOException {
+
+        TransientTimerUtilsImpl volatileTimers = new TransientTimerUtilsImpl("alarm", binDir.toString(), new SystemctlExecutor(binDir.toString(), 5000, 1), false);
+        volatileTimers.createSystemdTimerUnit("43200000", "12:00:00", "30");
+
+        assertEquals(Result.SUCCESS, volatileTimers.activateSystemdTimer("43200000"));
+
+        assertFalse(Files.readAllLines(log).get(0).contains("Persistent"));
+    }
+
+    @Test
+    @DisplayName("La disattivazione ferma il .timer transitorio")
+    void deactivateStopsTimer() throws IOException {
+
+        assertEquals(Result.SUCCESS, timerUtils.deactivateSystemdTimer("43200000"));
+
+        assertEquals(List.of("systemctl --user stop 43200000.timer"), Files.readAllLines(log));
+    }
+
+    @Test
+    @DisplayName("Un timer cancellato può essere riattivato solo dopo il reverse della cancellazione")
+    void deleteAndReverseDelete() {
+
+        timerUtils.createSystemdTimerUnit("43200000", "12:00:00", "30");
+
+        assertEquals(Result.SUCCESS, timerUtils.deleteSystemdTimerUnit("43200000"));
+        assertEquals(Result.ERROR, timerUtils.activateSystemdTimer("43200000"));
+
+        assertEquals(Result.SUCCESS, timerUtils.reverseDeleteSystemdTimerUnit("43200000"));
+        assertEquals(Result.SUCCESS, timerUtils.activateSystemdTimer("43200000"));
+    }
+
+    @Test
+    @DisplayName("Il reverse dell'inserimento scarta il comando preparato")
+    void reverseInsertDiscardsCommand() {
+
+        timerUtils.createSystemdTimerUnit("43200000", "12:00:00", "30");
+
+        assertEquals(Result.SUCCESS, timerUtils.reversSystemdTimerUnitInsert("43200000"));
+
+        assertFalse(timerUtils.isPrepared("43200000"));
+        assertEquals(Result.ERROR, timerUtils.activateSystemdTimer("43200000"));
+    }
+
+    @Test
+    @DisplayName("Un exit code diverso da zero di systemd-run diventa ERROR")
+    void failingSystemdRunReturnsError() throws IOException {
+
+        writeScript("systemd-run", 1);
+        timerUtils.createSystemdTimerUnit("43200000", "12:00:00", "30");
+
+        assertEquals(Result.ERROR, timerUtils.activateSystemdTimer("43200000"));
+    }
+
+    @Test
+    @DisplayName("systemd-run bloccato viene terminato allo scadere del timeout e conta nelle metriche")
+    void hangingSystemdRunTimesOut() throws IOException {
+
+        Path script = binDir.resolve("systemd-run");
+        Files.writeString(script, "#!/bin/sh\nexec sleep 30\n");
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        SystemctlExecutor executor = new SystemctlExecutor(binDir.toString(), 200, 1);
+        TransientTimerUtilsImpl hanging = new TransientTimerUtilsImpl("alarm", binDir.toString(), executor);
+        hanging.createSystemdTimerUnit("43200000", "12:00:00", "30");
+
+        long start = System.nanoTime();
+        assertEquals(Result.ERROR, hanging.activateSystemdTimer("43200000"));
+
+        assertTrue(System.nanoTime() - start < 10_000_000_000L);
+        assertEquals(1, executor.getTimeouts(SystemctlExecutor.Command.SYSTEMD_RUN));
+        assertEquals(1, executor.getLatency(SystemctlExecutor.Command.SYSTEMD_RUN).getCount());
+    }
+
+    @Test
+    @DisplayName("Eseguibile mancante: ERROR senza eccezioni")
+    void missingExecutableReturnsError() {
+
+        TransientTimerUtilsImpl missing = new TransientTimerUtilsImpl("alarm", binDir.resolve("missing").toString(), new SystemctlExecutor());
+        missing.createSystemdTimerUnit("43200000", "12:00:00", "30");
+
+        assertEquals(Result.ERROR, missing.activateSystemdTimer("43200000"));
+    }
+
+    private void writeScript(String name, int exitCode) throws IOException {
+        Path script = binDir.resolve(name);
+        Files.writeString(script, "#!/bin/sh\necho \"$(basename \"$0\") $*\" >> \"" + log + "\"\nexit " + exitCode + "\n");
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+}
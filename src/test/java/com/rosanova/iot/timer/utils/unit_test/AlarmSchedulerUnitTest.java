@@ -0,0 +1,106 @@
+package com.rosanova.iot.timer.utils.unit_test;
+
+import com.rosanova.iot.timer.utils.impl.AlarmScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlarmSchedulerUnitTest {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private AlarmScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new AlarmScheduler(Runnable::run, ZONE);
+        scheduler.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    @DisplayName("L'allarme scatta all'orario e viene riprogrammato per il giorno dopo")
+    void firesAndReschedulesNextDay() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        scheduler.schedule("a", inMillis(200), latch::countDown);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS), "l'allarme doveva scattare");
+        assertEquals(1, scheduler.getFired());
+        assertTrue(scheduler.contains("a"));
+        assertTrue(scheduler.getNextFireEpochMillis("a") > System.currentTimeMillis() + TimeUnit.HOURS.toMillis(22));
+        assertTrue(scheduler.getLatenessPercentileMicros(0.99) <= scheduler.getMaxLatenessMicros());
+    }
+
+    @Test
+    @DisplayName("Un allarme cancellato non scatta")
+    void cancelledAlarmDoesNotFire() throws InterruptedException {
+        AtomicInteger fired = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+
+        scheduler.schedule("cancel", inMillis(100), fired::incrementAndGet);
+        scheduler.schedule("keep", inMillis(300), later::countDown);
+
+        assertTrue(scheduler.cancel("cancel"));
+        assertFalse(scheduler.cancel("cancel"));
+
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+        assertEquals(0, fired.get());
+        assertEquals(1, scheduler.size());
+    }
+
+    @Test
+    @DisplayName("Riprogrammare la stessa chiave sostituisce l'allarme")
+    void rescheduleReplacesAlarm() {
+        scheduler.schedule("a", 43_200_000, () -> {});
+        long first = scheduler.getNextFireEpochMillis("a");
+
+        scheduler.schedule("a", 43_201_000, () -> {});
+
+        assertEquals(1, scheduler.size());
+        assertEquals(1000, Math.floorMod(scheduler.getNextFireEpochMillis("a") - first, TimeUnit.DAYS.toMillis(1)));
+    }
+
+    @Test
+    @DisplayName("Migliaia di allarmi: l'heap resta ordinato dopo inserimenti e cancellazioni")
+    void manyAlarmsKeepHeapOrder() {
+        AlarmScheduler idle = new AlarmScheduler(Runnable::run, ZONE);
+
+        for (int i = 0; i < 10_000; i++) {
+            idle.schedule("t" + i, (i * 7919) % 86_400_000, () -> {});
+        }
+        for (int i = 0; i < 10_000; i += 2) {
+            assertTrue(idle.cancel("t" + i));
+        }
+        for (int i = 0; i < 1_000; i++) {
+            idle.schedule("n" + i, (i * 104_729) % 86_400_000, () -> {});
+        }
+
+        assertEquals(6_000, idle.size());
+        assertEquals(-1, idle.getNextFireEpochMillis("t0"));
+        assertTrue(idle.getNextFireEpochMillis("t1") > 0);
+    }
+
+    @Test
+    @DisplayName("Orario fuori dal giorno rifiutato")
+    void rejectsInvalidTime() {
+        assertThrows(IllegalArgumentException.class, () -> scheduler.schedule("x", 86_400_000, () -> {}));
+    }
+
+    private static int inMillis(int delay) {
+        return (int) ((LocalTime.now(ZONE).toNanoOfDay() / 1_000_000 + delay) % 86_400_000);
+    }
+}
@@ -0,0 +1,136 @@
+package com.rosanova.iot.timer.utils.unit_test;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.utils.impl.DaemonReloadCoalescer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DaemonReloadCoalescerUnitTest {
+
+    @Test
+    @DisplayName("Richieste concorrenti nella stessa finestra condividono un solo reload")
+    void concurrentRequestsShareOneReload() throws Exception {
+        DaemonReloadCoalescer coalescer = new DaemonReloadCoalescer(100);
+        AtomicInteger runs = new AtomicInteger();
+        int callers = 8;
+
+        List<Result> results = runConcurrently(callers, () -> coalescer.reload(() -> {
+            runs.incrementAndGet();
+            return Result.SUCCESS;
+        }));
+
+        assertEquals(callers, results.size());
+        assertTrue(results.stream().allMatch(r -> r == Result.SUCCESS));
+        assertEquals(callers, coalescer.getRequested());
+        assertEquals(runs.get(), coalescer.getExecuted());
+        assertTrue(coalescer.getExecuted() < callers, "i reload eseguiti devono essere meno di quelli richiesti");
+    }
+
+    @Test
+    @DisplayName("Senza finestra il reload parte subito e chi arriva durante l'esecuzione condivide un solo reload successivo")
+    void requestsDuringReloadShareOneFollowUp() throws Exception {
+        DaemonReloadCoalescer coalescer = new DaemonReloadCoalescer(0);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        int waiting = 6;
+
+        ExecutorService pool = Executors.newFixedThreadPool(waiting + 1);
+        try {
+            Future<Result> first = pool.submit(() -> coalescer.reload(() -> {
+                runs.incrementAndGet();
+                running.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return Result.SUCCESS;
+            }));
+            assertTrue(running.await(5, TimeUnit.SECONDS));
+
+            List<Future<Result>> followers = new ArrayList<>();
+            for (int i = 0; i < waiting; i++) {
+                followers.add(pool.submit(() -> coalescer.reload(() -> {
+                    runs.incrementAndGet();
+                    return Result.SUCCESS;
+                })));
+            }
+            while (coalescer.getRequested() < waiting + 1) Thread.sleep(1);
+            release.countDown();
+
+            assertEquals(Result.SUCCESS, first.get(5, TimeUnit.SECONDS));
+            for (Future<Result> follower : followers) assertEquals(Result.SUCCESS, follower.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(2, runs.get());
+        assertEquals(2, coalescer.getExecuted());
+    }
+
+    @Test
+    @DisplayName("Ogni chiamante del lotto riceve l'errore reale del reload")
+    void failureIsPropagatedToEveryCaller() throws Exception {
+        DaemonReloadCoalescer coalescer = new DaemonReloadCoalescer(100);
+
+        List<Result> results = runConcurrently(4, () -> coalescer.reload(() -> Result.ERROR));
+
+        assertTrue(results.stream().allMatch(r -> r == Result.ERROR));
+    }
+
+    @Test
+    @DisplayName("Un'eccezione nel reload diventa ERROR per tutti")
+    void exceptionBecomesError() {
+        DaemonReloadCoalescer coalescer = new DaemonReloadCoalescer(0);
+
+        Result result = coalescer.reload(() -> {
+            throw new IllegalStateException("systemctl non trovato");
+        });
+
+        assertEquals(Result.ERROR, result);
+        assertEquals(1, coalescer.getExecuted());
+    }
+
+    @Test
+    @DisplayName("Richieste sequenziali eseguono ognuna il proprio reload")
+    void sequentialRequestsAreNotMerged() {
+        DaemonReloadCoalescer coalescer = new DaemonReloadCoalescer(0);
+
+        coalescer.reload(() -> Result.SUCCESS);
+        coalescer.reload(() -> Result.SUCCESS);
+
+        assertEquals(2, coalescer.getRequested());
+        assertEquals(2, coalescer.getExecuted());
+    }
+
+    private List<Result> runConcurrently(int callers, Callable<Result> call) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return call.call();
+                }));
+            }
+            start.countDown();
+
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> future : futures) {
+                results.add(future.get(5, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
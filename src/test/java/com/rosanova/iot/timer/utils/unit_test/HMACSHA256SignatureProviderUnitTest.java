@@ -0,0 +1,76 @@
+package com.rosanova.iot.timer.utils.unit_test;
+
+import com.rosanova.iot.timer.utils.impl.HMACSHA256SignatureProvider;
+import com.rosanova.iot.timer.utils.impl.HMACSHA256SignatureUtilImpl;
+import com.rosanova.iot.timer.utils.impl.JcaHMACSHA256SignatureUtil;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HMACSHA256SignatureProviderUnitTest {
+
+    final String testSecretKey = "4vE9tZ2mP7qL5xR1nB8yW3kS6jD0hF4gA7sC2vN9mQ1pL8zX5rT3bY6nK0jH2wM4";
+
+    private HMACSHA256SignatureUtilImpl javaUtil() {
+        HMACSHA256SignatureUtilImpl util = new HMACSHA256SignatureUtilImpl(testSecretKey);
+        util.computeSecretKey();
+        return util;
+    }
+
+    private HMACSHA256SignatureProvider provider(String requested) {
+        HMACSHA256SignatureProvider provider = new HMACSHA256SignatureProvider(javaUtil(), testSecretKey, requested, 2000);
+        provider.selectProvider();
+        return provider;
+    }
+
+    @Test
+    @DisplayName("JCA e implementazione Java producono gli stessi token, anche dal MAC grezzo")
+    void jcaTokensAreIdentical() {
+        HMACSHA256SignatureUtilImpl javaUtil = javaUtil();
+        JcaHMACSHA256SignatureUtil jcaUtil = new JcaHMACSHA256SignatureUtil(testSecretKey);
+
+        assertEquals("0ffPZJNO98zXi7kXI8POhIRStpv1C7L4PuIxWlkKZ0E=", jcaUtil.computeHMACSHA256("1734538070000"));
+
+        Random random = new Random(18);
+        byte[] raw = new byte[32];
+
+        for (int length = 0; length <= 150; length++) {
+            StringBuilder payload = new StringBuilder("TOKEN=");
+            for (int i = 0; i < length; i++) payload.append((char) ('0' + random.nextInt(10)));
+            String token = payload.substring(6);
+
+            String expected = javaUtil.computeHMACSHA256(token);
+            assertEquals(expected, jcaUtil.computeHMACSHA256(token), "lunghezza " + length);
+
+            jcaUtil.computeHMACSHA256(payload, 6, length, raw);
+            assertEquals(expected, Base64.getUrlEncoder().encodeToString(raw), "lunghezza " + length);
+        }
+    }
+
+    @Test
+    @DisplayName("Il provider richiesto viene usato, auto sceglie dopo aver misurato entrambi")
+    void selectsRequestedProvider() {
+        HMACSHA256SignatureProvider java = provider("java");
+        assertEquals(HMACSHA256SignatureProvider.Provider.JAVA, java.getProvider());
+
+        HMACSHA256SignatureProvider jca = provider("JCA");
+        assertEquals(HMACSHA256SignatureProvider.Provider.JCA, jca.getProvider());
+        assertTrue(jca.isJcaIdentical());
+
+        HMACSHA256SignatureProvider auto = provider("auto");
+        assertEquals(HMACSHA256SignatureProvider.Provider.AUTO, auto.getRequested());
+        assertTrue(auto.getJavaNanosPerOperation() > 0);
+        assertTrue(auto.getJcaNanosPerOperation() > 0);
+        assertEquals(auto.getProvider() == HMACSHA256SignatureProvider.Provider.JCA ? auto.getJcaNanosPerOperation() : auto.getJavaNanosPerOperation(),
+                auto.getSelectedNanosPerOperation());
+
+        // qualunque sia la scelta, i token già emessi restano validi
+        for (HMACSHA256SignatureProvider provider : new HMACSHA256SignatureProvider[]{java, jca, auto}) {
+            assertEquals("0ffPZJNO98zXi7kXI8POhIRStpv1C7L4PuIxWlkKZ0E=", provider.computeHMACSHA256("1734538070000"));
+        }
+    }
+}
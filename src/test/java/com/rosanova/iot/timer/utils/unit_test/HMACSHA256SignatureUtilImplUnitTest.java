@@ -4,7 +4,11 @@ import com.rosanova.iot.timer.utils.impl.HMACSHA256SignatureUtilImpl;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Random;
 
 class HMACSHA256SignatureUtilImplUnitTest {
 
@@ -41,6 +45,27 @@ class HMACSHA256SignatureUtilImplUnitTest {
 
     }
 
+    @Test
+    void midstateMatchesJcaForEveryPayloadLength() throws Exception {
+        HMACSHA256SignatureUtilImpl test = new HMACSHA256SignatureUtilImpl(testSecretKey);
+        test.computeSecretKey();
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(testSecretKey.getBytes(StandardCharsets.US_ASCII), "HmacSHA256"));
+
+        Random random = new Random(13);
+
+        // da 0 a 3 blocchi di payload, compresi i confini 55/56 e 119/120 del padding
+        for (int length = 0; length <= 130; length++) {
+            StringBuilder payload = new StringBuilder(length);
+            for (int i = 0; i < length; i++) payload.append((char) ('0' + random.nextInt(10)));
+
+            String expected = Base64.getUrlEncoder().encodeToString(mac.doFinal(payload.toString().getBytes(StandardCharsets.US_ASCII)));
+
+            Assertions.assertEquals(expected, test.computeHMACSHA256(payload.toString()), "lunghezza " + length);
+        }
+    }
+
     @Test
     void testPerformance() {
         HMACSHA256SignatureUtilImpl util = new HMACSHA256SignatureUtilImpl(testSecretKey);
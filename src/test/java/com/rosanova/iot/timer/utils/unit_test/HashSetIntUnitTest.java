@@ -0,0 +1,84 @@
+package com.rosanova.iot.timer.utils.unit_test;
+
+import com.rosanova.iot.timer.utils.impl.HashSetInt;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class HashSetIntUnitTest {
+
+    @Test
+    @DisplayName("Oltre 40 elementi l'insieme cresce invece di rifiutare i valori")
+    void growsPastFortyElements() {
+        HashSetInt set = new HashSetInt();
+
+        for (int i = 1; i <= 10_000; i++) assertTrue(set.add(i * 60_000));
+
+        assertEquals(10_000, set.size());
+        assertTrue(set.capacity() >= 20_000);
+        for (int i = 1; i <= 10_000; i++) assertTrue(set.contains(i * 60_000));
+        assertFalse(set.contains(30_000));
+        assertFalse(set.add(60_000));
+    }
+
+    @Test
+    @DisplayName("Lo 0 è un valore come gli altri")
+    void zeroIsStored() {
+        HashSetInt set = new HashSetInt();
+
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+        assertTrue(set.remove(0));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Inserimenti e rimozioni casuali restano allineati a HashSet, anche con molte collisioni")
+    void randomOperationsMatchHashSet() {
+        Random random = new Random(42);
+        HashSetInt set = new HashSetInt(8);
+        Set<Integer> expected = new HashSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            // pochi valori distinti: gruppi lunghi e spostamenti all'indietro frequenti
+            int value = random.nextInt(2_000) * 1000 - 100_000;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+        }
+
+        assertEquals(expected.size(), set.size());
+        for (int value = -100_000; value < 1_900_000; value += 1000)
+            assertEquals(expected.contains(value), set.contains(value), "valore " + value);
+    }
+
+    @Test
+    @DisplayName("addAll legge la colonna di tutte le righe e salta i NULL")
+    void addAllFromResultSet() throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true, true, true, true, false);
+        when(resultSet.getInt(1)).thenReturn(130_000, 220_000, 0, 130_000);
+        when(resultSet.wasNull()).thenReturn(false, false, true, false);
+
+        HashSetInt set = new HashSetInt();
+
+        assertEquals(2, set.addAll(resultSet, 1));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(130_000));
+        assertTrue(set.contains(220_000));
+        assertFalse(set.contains(0));
+    }
+}
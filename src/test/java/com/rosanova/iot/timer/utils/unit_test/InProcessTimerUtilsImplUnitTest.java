@@ -0,0 +1,88 @@
+package com.rosanova.iot.timer.utils.unit_test;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.utils.impl.AlarmScheduler;
+import com.rosanova.iot.timer.utils.impl.InProcessTimerUtilsImpl;
+import com.rosanova.iot.timer.utils.impl.SystemctlExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class InProcessTimerUtilsImplUnitTest {
+
+    @Mock
+    AlarmScheduler scheduler;
+
+    InProcessTimerUtilsImpl timerUtils;
+
+    @BeforeEach
+    void setUp() {
+        timerUtils = Mockito.spy(new InProcessTimerUtilsImpl(scheduler, "timer", new SystemctlExecutor("/opt/bin", 1000, 1)));
+    }
+
+    @Test
+    void activateSchedulesAlarmAndFiresService() throws Exception {
+        ProcessBuilder pb = Mockito.mock(ProcessBuilder.class);
+        Process process = Mockito.mock(Process.class);
+        Mockito.doReturn(new HashMap<String, String>()).when(pb).environment();
+        Mockito.doReturn(process).when(pb).start();
+        Mockito.doReturn(true).when(process).waitFor(Mockito.anyLong(), Mockito.any());
+        Mockito.doReturn(0).when(process).exitValue();
+        Mockito.doReturn(pb).when(timerUtils).getProcessBuilder(Mockito.any());
+
+        assertEquals(Result.SUCCESS, timerUtils.createSystemdTimerUnit("43200000", "12:00:00", "30"));
+        assertEquals(Result.SUCCESS, timerUtils.timerReload());
+        assertEquals(Result.SUCCESS, timerUtils.activateSystemdTimer("43200000"));
+
+        ArgumentCaptor<Runnable> action = ArgumentCaptor.forClass(Runnable.class);
+        Mockito.verify(scheduler).schedule(Mockito.eq("43200000"), Mockito.eq(43_200_000), action.capture());
+
+        action.getValue().run();
+
+        Mockito.verify(timerUtils).getProcessBuilder(new String[]{"/opt/bin/systemctl", "--user", "start", "timer@30.service"});
+    }
+
+    @Test
+    void deleteAndReverseDelete() {
+        timerUtils.createSystemdTimerUnit("43200000", "12:00:00", "30");
+
+        assertEquals(Result.SUCCESS, timerUtils.deactivateSystemdTimer("43200000"));
+        assertEquals(Result.SUCCESS, timerUtils.deleteSystemdTimerUnit("43200000"));
+        assertEquals(Result.ERROR, timerUtils.activateSystemdTimer("43200000"));
+
+        assertEquals(Result.SUCCESS, timerUtils.reverseDeleteSystemdTimerUnit("43200000"));
+        assertEquals(Result.SUCCESS, timerUtils.activateSystemdTimer("43200000"));
+
+        Mockito.verify(scheduler).cancel("43200000");
+        Mockito.verify(scheduler, Mockito.times(1)).schedule(Mockito.eq("43200000"), Mockito.anyInt(), Mockito.any());
+    }
+
+    @Test
+    void millisOfDayAreScheduledWithoutParsing() {
+        assertEquals(Result.SUCCESS, timerUtils.createSystemdTimerUnit("43200500", 43_200_500, "30"));
+        assertEquals(Result.SUCCESS, timerUtils.activateSystemdTimer("43200500"));
+
+        // come OnCalendar, i millisecondi sono troncati al secondo
+        Mockito.verify(scheduler).schedule(Mockito.eq("43200500"), Mockito.eq(43_200_000), Mockito.any());
+
+        assertEquals(Result.ERROR, timerUtils.createSystemdTimerUnit("1", 86_400_000, "30"));
+        assertEquals(Result.ERROR, timerUtils.createSystemdTimerUnit("1", -1, "30"));
+    }
+
+    @Test
+    void invalidOnCalendarIsRejected() {
+        assertEquals(Result.ERROR, timerUtils.createSystemdTimerUnit("1", "24:00:00", "30"));
+        assertEquals(Result.ERROR, timerUtils.createSystemdTimerUnit("1", "12:0a:00", "30"));
+        assertEquals(Result.ERROR, timerUtils.activateSystemdTimer("1"));
+        Mockito.verifyNoInteractions(scheduler);
+    }
+}
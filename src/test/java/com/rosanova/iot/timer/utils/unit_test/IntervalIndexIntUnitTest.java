@@ -0,0 +1,73 @@
+package com.rosanova.iot.timer.utils.unit_test;
+
+import com.rosanova.iot.timer.utils.impl.IntervalIndexInt;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalIndexIntUnitTest {
+
+    @Test
+    @DisplayName("Conteggio sovrapposizioni con la stessa semantica della query SQL")
+    void countOverlapsBoundaries() {
+        IntervalIndexInt index = new IntervalIndexInt(4);
+        index.add(1, 100, 200);
+        index.add(2, 300, 400);
+
+        assertEquals(1, index.countOverlaps(200, 250), "estremo end incluso");
+        assertEquals(1, index.countOverlaps(50, 100), "estremo start incluso");
+        assertEquals(0, index.countOverlaps(201, 299));
+        assertEquals(2, index.countOverlaps(0, 1000));
+        assertEquals(0, index.countOverlaps(500, 400), "intervallo invertito");
+    }
+
+    @Test
+    @DisplayName("Rimozione per id e crescita oltre la capacità iniziale")
+    void removeAndGrow() {
+        IntervalIndexInt index = new IntervalIndexInt(1);
+
+        for (int i = 0; i < 100; i++) {
+            index.add(i, i * 1000, i * 1000 + 500);
+        }
+
+        assertEquals(100, index.size());
+        assertTrue(index.removeById(42));
+        assertFalse(index.removeById(42));
+        assertEquals(99, index.size());
+        assertEquals(0, index.countOverlaps(42_000, 42_500));
+        assertEquals(1, index.countOverlaps(43_000, 43_000));
+        assertEquals(-1, index.find(42));
+    }
+
+    @Test
+    @DisplayName("Confronto con un conteggio lineare su intervalli casuali anche sovrapposti")
+    void matchesLinearScan() {
+        Random random = new Random(7);
+        IntervalIndexInt index = new IntervalIndexInt(8);
+        int[][] intervals = new int[500][];
+
+        for (int i = 0; i < intervals.length; i++) {
+            int start = random.nextInt(86_400_000);
+            intervals[i] = new int[]{start, start + random.nextInt(100_000)};
+            index.add(i, intervals[i][0], intervals[i][1]);
+        }
+
+        for (int i = 0; i < intervals.length; i += 3) {
+            index.removeById(i);
+            intervals[i] = null;
+        }
+
+        for (int probe = 0; probe < 1000; probe++) {
+            int start = random.nextInt(86_400_000);
+            int end = start + random.nextInt(200_000);
+            int expected = 0;
+            for (int[] interval : intervals) {
+                if (interval != null && start <= interval[1] && end >= interval[0]) expected++;
+            }
+            assertEquals(expected, index.countOverlaps(start, end));
+        }
+    }
+}
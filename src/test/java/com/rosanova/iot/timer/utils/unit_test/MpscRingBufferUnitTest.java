@@ -0,0 +1,85 @@
+package com.rosanova.iot.timer.utils.unit_test;
+
+import com.rosanova.iot.timer.utils.impl.MpscRingBuffer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingBufferUnitTest {
+
+    @Test
+    @DisplayName("Ordine FIFO e offer rifiutata con la coda piena")
+    void fifoAndFull() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(3);
+
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) assertTrue(buffer.offer(i));
+        assertFalse(buffer.offer(4));
+        assertEquals(4, buffer.size());
+
+        for (int i = 0; i < 4; i++) assertEquals(i, buffer.poll());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    @DisplayName("Le celle liberate sono riutilizzate nei giri successivi")
+    void wrapsAround() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(buffer.offer(i));
+            assertTrue(buffer.offer(-i));
+            assertEquals(i, buffer.poll());
+            assertEquals(-i, buffer.poll());
+        }
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    @DisplayName("Più produttori concorrenti: ogni elemento è consegnato una sola volta, in ordine per produttore")
+    void concurrentProducers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 50_000;
+        MpscRingBuffer<int[]> buffer = new MpscRingBuffer<>(64);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    int[] element = {producer, i};
+                    while (!buffer.offer(element)) Thread.yield();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        start.countDown();
+
+        int[] next = new int[producers];
+        int received = 0;
+        long deadline = System.nanoTime() + 30_000_000_000L;
+
+        while (received < producers * perProducer && System.nanoTime() < deadline) {
+            int[] element = buffer.poll();
+            if (element == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals(next[element[0]]++, element[1]);
+            received++;
+        }
+
+        assertEquals(producers * perProducer, received);
+        assertNull(buffer.poll());
+    }
+}
@@ -0,0 +1,142 @@
+package com.rosanova.iot.timer.utils.unit_test;
+
+import com.rosanova.iot.timer.utils.impl.SagaJournal;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SagaJournalUnitTest {
+
+    @TempDir
+    Path directory;
+
+    private SagaJournal open(int size) {
+        return new SagaJournal(directory.resolve("timer.journal").toString(), size, false);
+    }
+
+    @Test
+    @DisplayName("Un journal appena creato non dice nulla sullo stato precedente")
+    void newJournalIsNotConsistent() {
+        SagaJournal journal = open(4096);
+
+        assertTrue(journal.isEnabled());
+        assertFalse(journal.isCleanAtStartup());
+        assertFalse(journal.isConsistent());
+    }
+
+    @Test
+    @DisplayName("Operazioni terminate: al riavvio il journal è pulito")
+    void endedOperationsLeaveCleanJournal() {
+        SagaJournal journal = open(4096);
+        int id = journal.begin(SagaJournal.Kind.TIMER_INSERT, 600_000, 700_000);
+        journal.step(id, 1);
+        journal.end(id);
+
+        SagaJournal reopened = open(4096);
+
+        assertTrue(reopened.isCleanAtStartup());
+        assertTrue(reopened.isConsistent());
+        assertTrue(reopened.getPending().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Un'operazione senza END viene riproposta con l'ultimo passo registrato")
+    void openOperationIsPendingAfterRestart() {
+        open(4096);
+        SagaJournal journal = open(4096);
+        int done = journal.begin(SagaJournal.Kind.TIMER_REMOVE, 600_000);
+        journal.end(done);
+        int id = journal.begin(SagaJournal.Kind.MONITOR_START, 28_800_000, 25_200_000);
+        journal.step(id, 1);
+        journal.step(id, 2);
+
+        SagaJournal reopened = open(4096);
+        List<SagaJournal.Entry> pending = reopened.getPending();
+
+        assertFalse(reopened.isConsistent());
+        assertEquals(1, pending.size());
+        assertEquals(SagaJournal.Kind.MONITOR_START, pending.get(0).kind());
+        assertEquals(2, pending.get(0).step());
+        assertArrayEquals(new int[]{28_800_000, 25_200_000}, pending.get(0).names());
+
+        reopened.recovered(pending.get(0).id());
+
+        assertTrue(reopened.isConsistent());
+        assertTrue(open(4096).isCleanAtStartup());
+    }
+
+    @Test
+    @DisplayName("Senza operazioni aperte la scrittura riparte dall'inizio: il file non si riempie mai")
+    void rewindKeepsJournalBounded() {
+        open(2048);
+        SagaJournal journal = open(2048);
+
+        for (int i = 0; i < 10_000; i++) {
+            int id = journal.begin(SagaJournal.Kind.TIMER_INSERT, i);
+            journal.step(id, 1);
+            journal.end(id);
+        }
+
+        assertTrue(open(2048).isCleanAtStartup());
+    }
+
+    @Test
+    @DisplayName("Journal pieno: le nuove operazioni non sono registrate e all'avvio serve la scansione completa")
+    void overflowIsReportedAtStartup() {
+        open(2048);
+        SagaJournal journal = open(2048);
+
+        int id = 1;
+        for (int i = 0; i < 200 && id != 0; i++) id = journal.begin(SagaJournal.Kind.TIMER_INSERT, i);
+
+        assertEquals(0, id);
+        assertFalse(open(2048).isConsistent());
+    }
+
+    @Test
+    @DisplayName("Rollback fallito: l'operazione passa tra quelle da recuperare e dopo il recupero il journal riparte dall'inizio")
+    void failedRollbackIsRecoveredWithoutRestart() {
+        open(2048);
+        SagaJournal journal = open(2048);
+
+        int stuck = journal.begin(SagaJournal.Kind.TIMER_INSERT, 600_000);
+        journal.step(stuck, 2);
+        journal.failed(stuck);
+
+        List<SagaJournal.Entry> pending = journal.getPending();
+        assertEquals(1, pending.size());
+        assertEquals(SagaJournal.Kind.TIMER_INSERT, pending.get(0).kind());
+        assertEquals(2, pending.get(0).step());
+        assertArrayEquals(new int[]{600_000}, pending.get(0).names());
+        assertFalse(journal.isConsistent());
+
+        // con l'operazione aperta il file non riparte e prima o poi si riempie
+        int id = 1;
+        for (int i = 0; i < 200 && id != 0; i++) {
+            id = journal.begin(SagaJournal.Kind.TIMER_REMOVE, i);
+            journal.end(id);
+        }
+        assertEquals(0, id);
+
+        journal.recovered(stuck);
+
+        assertEquals(0, journal.getOpen());
+        assertTrue(journal.getPending().isEmpty());
+        assertNotEquals(0, journal.begin(SagaJournal.Kind.TIMER_REMOVE, 1));
+    }
+
+    @Test
+    @DisplayName("Journal disabilitato: nessuna registrazione e nessuna garanzia all'avvio")
+    void disabledJournal() {
+        SagaJournal journal = SagaJournal.disabled();
+
+        assertFalse(journal.isEnabled());
+        assertEquals(0, journal.begin(SagaJournal.Kind.TIMER_INSERT, 1));
+        assertFalse(journal.isConsistent());
+    }
+}
@@ -12,6 +12,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.List;
 
 import static org.mockito.Mockito.*;
 
@@ -24,8 +25,8 @@ class TimerUtilsImplUnitTest {
     private static final String DAEMON_RELOAD = "systemctl --user daemon-reload";
     final String[] FILE_STATIC = {"[Unit]\nDescription=Custom Timer for ", "\n\n[Timer]\nOnCalendar= *-*-* ", "\nUnit=", "\n\n[Install]\nWantedBy=timers.target\n"};
 
-    final String CMD_ACTIVATE = "systemctl --user enable --now 123.timer";
-    final String CMD_DEACTIVATE = "systemctl --user disable --now 123.timer";
+    final String[] CMD_ACTIVATE = {"systemctl", "--user", "enable", "--now", "123.timer"};
+    final String[] CMD_DEACTIVATE = {"systemctl", "--user", "disable", "--now", "123.timer"};
 
     @Spy
     TimerUtilsImpl timerUtilsImpl = new TimerUtilsImpl(TMP_DIR,SYSTEM_DIR,SERVICE_FILE_NAME,false);
@@ -33,56 +34,36 @@ class TimerUtilsImplUnitTest {
     @Test
     void createTimerTest() {
         String timerName ="123000";
-        Path tmpTargetFile = Paths.get(TMP_DIR).resolve(timerName+".timer");
         Path targetTimerFile = Paths.get(SYSTEM_DIR).resolve(timerName+".timer");
 
-        doReturn(Result.SUCCESS).when(timerUtilsImpl).writeTimer( Mockito.any(),Mockito.any());
-        doReturn(Result.SUCCESS).when(timerUtilsImpl).moveTimer(Mockito.any(),Mockito.any());
+        doReturn(Result.SUCCESS).when(timerUtilsImpl).renderUnitFiles(Mockito.any(),Mockito.any(),Mockito.any());
 
         String onCalendar = "10:00:00";
         String tempFile = FILE_STATIC[0]+SERVICE_FILE_NAME+"@"+timerName.substring(0,timerName.length()-3)+".service"+FILE_STATIC[1]+onCalendar+FILE_STATIC[2]+SERVICE_FILE_NAME+"@"+timerName.substring(0,timerName.length()-3)+".service"+ FILE_STATIC[3];
 
-        timerUtilsImpl.createSystemdTimerUnit(timerName,onCalendar,timerName.substring(0,timerName.length()-3));
+        Assertions.assertEquals(Result.SUCCESS, timerUtilsImpl.createSystemdTimerUnit(timerName,onCalendar,timerName.substring(0,timerName.length()-3)));
 
-        verify(timerUtilsImpl).writeTimer(Mockito.eq(tmpTargetFile),Mockito.eq(tempFile));
-        verify(timerUtilsImpl).moveTimer(Mockito.eq(tmpTargetFile),Mockito.eq(targetTimerFile));
+        // scrittura diretta nella cartella di sistema, senza passare dalla temporanea, con il contenuto prodotto dal modello
+        verify(timerUtilsImpl).renderUnitFiles(Mockito.eq(List.of(targetTimerFile)),Mockito.eq(List.of(onCalendar)),Mockito.eq(List.of("123")));
+        Assertions.assertEquals(tempFile, timerUtilsImpl.buildTimerContent(onCalendar, "123"));
+        verify(timerUtilsImpl,Mockito.times(0)).moveTimer(Mockito.any(),Mockito.any());
     }
 
     @Test
     void createTimerErrorWriteTest() {
         String timerName ="123000";
-        Path tmpTargetFile = Paths.get(TMP_DIR).resolve(timerName+".timer");
         Path targetTimerFile = Paths.get(SYSTEM_DIR).resolve(timerName+".timer");
 
-        doReturn(Result.ERROR).when(timerUtilsImpl).writeTimer( Mockito.any(),Mockito.any());
+        doReturn(Result.ERROR).when(timerUtilsImpl).renderUnitFiles(Mockito.any(),Mockito.any(),Mockito.any());
 
         String onCalendar = "10:00:00";
-        String tempFile = FILE_STATIC[0]+SERVICE_FILE_NAME+"@"+timerName.substring(0,timerName.length()-3)+".service"+FILE_STATIC[1]+onCalendar+FILE_STATIC[2]+SERVICE_FILE_NAME+"@"+timerName.substring(0,timerName.length()-3)+".service"+ FILE_STATIC[3];
 
         Assertions.assertEquals(Result.ERROR, timerUtilsImpl.createSystemdTimerUnit(timerName,onCalendar,"123"));
 
-        verify(timerUtilsImpl).writeTimer(Mockito.eq(tmpTargetFile),Mockito.eq(tempFile));
+        verify(timerUtilsImpl).renderUnitFiles(Mockito.eq(List.of(targetTimerFile)),Mockito.eq(List.of(onCalendar)),Mockito.eq(List.of("123")));
         verify(timerUtilsImpl,Mockito.times(0)).moveTimer(Mockito.any(),Mockito.any());
     }
 
-    @Test
-    void createTimerErrorMoveTest() {
-        String timerName ="123000";
-        Path tmpTargetFile = Paths.get(TMP_DIR).resolve(timerName+".timer");
-        Path targetTimerFile = Paths.get(SYSTEM_DIR).resolve(timerName+".timer");
-
-        doReturn(Result.SUCCESS).when(timerUtilsImpl).writeTimer( Mockito.any(),Mockito.any());
-        doReturn(Result.ERROR).when(timerUtilsImpl).moveTimer(Mockito.any(),Mockito.any());
-
-        String onCalendar = "10:00:00";
-        String tempFile = FILE_STATIC[0]+SERVICE_FILE_NAME+"@"+timerName.substring(0,timerName.length()-3)+".service"+FILE_STATIC[1]+onCalendar+FILE_STATIC[2]+SERVICE_FILE_NAME+"@"+timerName.substring(0,timerName.length()-3)+".service"+ FILE_STATIC[3];
-
-        Assertions.assertEquals(Result.ERROR, timerUtilsImpl.createSystemdTimerUnit(timerName,onCalendar,timerName.substring(0,timerName.length()-3)));
-
-        verify(timerUtilsImpl).writeTimer(Mockito.eq(tmpTargetFile),Mockito.eq(tempFile));
-        verify(timerUtilsImpl).moveTimer(Mockito.eq(tmpTargetFile),Mockito.eq(targetTimerFile));
-    }
-
     @Test
     void activateSystemdTimerSuccessTest() throws Exception {
         String timerName = "123";
@@ -92,18 +73,19 @@ class TimerUtilsImplUnitTest {
         Process mockProcess = mock(Process.class);
 
         doReturn(mockPb).when(timerUtilsImpl).getProcessBuilder(any());
+        when(mockPb.environment()).thenReturn(new java.util.HashMap<>());
         when(mockPb.start()).thenReturn(mockProcess);
-        when(mockProcess.waitFor()).thenReturn(0); // Successo
+        when(mockProcess.waitFor(anyLong(), any())).thenReturn(true);
+        when(mockProcess.exitValue()).thenReturn(0); // Successo
 
         // Esecuzione
         Result result = timerUtilsImpl.activateSystemdTimer(timerName);
 
         Assertions.assertEquals(Result.SUCCESS, result);
 
-        // Verifica dei parametri passati al ProcessBuilder (Array di 3 stringhe)
-        String[] expectedFullCommand = {"/bin/sh", "-c", CMD_ACTIVATE};
-        verify(timerUtilsImpl).getProcessBuilder(eq(expectedFullCommand));
-        verify(mockProcess).waitFor();
+        // Verifica degli argomenti passati al ProcessBuilder: systemctl diretto, senza /bin/sh -c
+        verify(timerUtilsImpl).getProcessBuilder(eq(CMD_ACTIVATE));
+        verify(mockProcess).waitFor(anyLong(), any());
     }
 
     @Test
@@ -113,8 +95,10 @@ class TimerUtilsImplUnitTest {
         Process mockProcess = mock(Process.class);
 
         doReturn(mockPb).when(timerUtilsImpl).getProcessBuilder(any());
+        when(mockPb.environment()).thenReturn(new java.util.HashMap<>());
         when(mockPb.start()).thenReturn(mockProcess);
-        when(mockProcess.waitFor()).thenReturn(1); // Errore di sistema
+        when(mockProcess.waitFor(anyLong(), any())).thenReturn(true);
+        when(mockProcess.exitValue()).thenReturn(1); // Errore di sistema
 
         Result result = timerUtilsImpl.activateSystemdTimer(timerName);
 
@@ -128,6 +112,7 @@ class TimerUtilsImplUnitTest {
         ProcessBuilder mockPb = mock(ProcessBuilder.class);
 
         doReturn(mockPb).when(timerUtilsImpl).getProcessBuilder(any());
+        when(mockPb.environment()).thenReturn(new java.util.HashMap<>());
         // Simuliamo un fallimento fisico dell'esecuzione (es. comando non trovato)
         when(mockPb.start()).thenThrow(new IOException("Simulated IO Error"));
 
@@ -144,16 +129,17 @@ class TimerUtilsImplUnitTest {
         Process mockProcess = mock(Process.class);
 
         doReturn(mockPb).when(timerUtilsImpl).getProcessBuilder(any());
+        when(mockPb.environment()).thenReturn(new java.util.HashMap<>());
         when(mockPb.start()).thenReturn(mockProcess);
-        when(mockProcess.waitFor()).thenReturn(0);
+        when(mockProcess.waitFor(anyLong(), any())).thenReturn(true);
+        when(mockProcess.exitValue()).thenReturn(0);
 
         Result result = timerUtilsImpl.deactivateSystemdTimer(timerName);
 
         Assertions.assertEquals(Result.SUCCESS, result);
 
         // Verifica specifica del comando di disattivazione
-        String[] expectedFullCommand = {"/bin/sh", "-c", CMD_DEACTIVATE};
-        verify(timerUtilsImpl).getProcessBuilder(eq(expectedFullCommand));
+        verify(timerUtilsImpl).getProcessBuilder(eq(CMD_DEACTIVATE));
     }
 
     @Test
@@ -163,13 +149,33 @@ class TimerUtilsImplUnitTest {
         Process mockProcess = mock(Process.class);
 
         doReturn(mockPb).when(timerUtilsImpl).getProcessBuilder(any());
+        when(mockPb.environment()).thenReturn(new java.util.HashMap<>());
         when(mockPb.start()).thenReturn(mockProcess);
         // Simuliamo l'interruzione del thread durante l'attesa del processo
-        when(mockProcess.waitFor()).thenThrow(new InterruptedException());
+        when(mockProcess.waitFor(anyLong(), any())).thenThrow(new InterruptedException());
 
         Result result = timerUtilsImpl.deactivateSystemdTimer(timerName);
 
         Assertions.assertEquals(Result.ERROR, result);
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void activateSystemdTimersSingleCommandTest() throws Exception {
+        ProcessBuilder mockPb = mock(ProcessBuilder.class);
+        Process mockProcess = mock(Process.class);
+
+        doReturn(mockPb).when(timerUtilsImpl).getProcessBuilder(any());
+        when(mockPb.environment()).thenReturn(new java.util.HashMap<>());
+        when(mockPb.start()).thenReturn(mockProcess);
+        when(mockProcess.waitFor(anyLong(), any())).thenReturn(true);
+        when(mockProcess.exitValue()).thenReturn(0);
+
+        Result result = timerUtilsImpl.activateSystemdTimers(List.of("123", "456"));
+
+        Assertions.assertEquals(Result.SUCCESS, result);
+        String[] expectedFullCommand = {"systemctl", "--user", "enable", "--now", "123.timer", "456.timer"};
+        verify(timerUtilsImpl, times(1)).getProcessBuilder(eq(expectedFullCommand));
+    }
+
+}
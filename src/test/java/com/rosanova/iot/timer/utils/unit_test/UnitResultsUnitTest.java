@@ -0,0 +1,53 @@
+package com.rosanova.iot.timer.utils.unit_test;
+
+import com.rosanova.iot.timer.error.Result;
+import com.rosanova.iot.timer.utils.impl.UnitResults;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitResultsUnitTest {
+
+    private static final List<String> NAMES = List.of("1000", "11000", "21000");
+
+    @Test
+    @DisplayName("Exit code zero: tutte le unit hanno successo")
+    void exitZeroIsSuccessForAll() {
+        UnitResults results = UnitResults.parse(NAMES, ".timer", 0, "");
+
+        assertEquals(Result.SUCCESS, results.overall());
+        assertTrue(results.failed().isEmpty());
+    }
+
+    @Test
+    @DisplayName("enable fallito in fase di verifica dei file: nessuna unit è stata toccata")
+    void failedToEnableFailsAll() {
+        UnitResults results = UnitResults.parse(NAMES, ".timer", 1, "Failed to enable unit: Unit file 11000.timer does not exist.\n");
+
+        assertEquals(Result.ERROR, results.overall());
+        assertEquals(NAMES, results.failed());
+    }
+
+    @Test
+    @DisplayName("Errore di un job: fallisce solo la unit citata, senza confondere nomi con lo stesso suffisso")
+    void jobFailureIsAttributedToItsUnit() {
+        UnitResults results = UnitResults.parse(NAMES, ".timer", 1,
+                "Created symlink ...\nJob for 11000.timer failed because the control process exited with error code.\n");
+
+        assertEquals(Result.SUCCESS, results.get("1000"));
+        assertEquals(Result.ERROR, results.get("11000"));
+        assertEquals(Result.SUCCESS, results.get("21000"));
+        assertEquals(List.of("11000"), results.failed());
+        assertEquals(Result.ERROR, results.overall());
+    }
+
+    @Test
+    @DisplayName("Errore non attribuibile o processo non completato: tutte le unit falliscono")
+    void unattributedFailureFailsAll() {
+        assertEquals(NAMES, UnitResults.parse(NAMES, ".timer", 1, "Access denied\n").failed());
+        assertEquals(NAMES, UnitResults.parse(NAMES, ".timer", -1, null).failed());
+    }
+}
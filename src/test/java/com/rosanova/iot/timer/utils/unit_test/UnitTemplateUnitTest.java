@@ -0,0 +1,110 @@
+package com.rosanova.iot.timer.utils.unit_test;
+
+import com.rosanova.iot.timer.utils.impl.UnitTemplate;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnitTemplateUnitTest {
+
+    private static final String SERVICE_FILE_NAME = "alarm";
+
+    // contenuto prodotto dalla vecchia costruzione con StringBuilder, riferimento per il modello
+    private static String legacy(String onCalendar, String parameter, boolean activeOnStartup) {
+        String service = SERVICE_FILE_NAME + "@" + parameter + ".service";
+        return "[Unit]\nDescription=Custom Timer for " + service
+                + "\n\n[Timer]\nOnCalendar= *-*-* " + onCalendar
+                + (activeOnStartup ? "\nPersistent=true\nUnit=" : "\nUnit=") + service
+                + "\n\n[Install]\nWantedBy=timers.target\n";
+    }
+
+    private static String legacyOnCalendar(int time) {
+        Duration duration = Duration.ofMillis(time);
+        return String.format("%02d:%02d:%02d", duration.toHours(), duration.toMinutesPart(), duration.toSecondsPart());
+    }
+
+    private static String rendered(ByteBuffer buffer) {
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    @DisplayName("Il modello produce gli stessi byte della costruzione con stringhe")
+    void rendersSameContentAsStringBuilder() {
+        for (boolean activeOnStartup : new boolean[]{true, false}) {
+            UnitTemplate template = new UnitTemplate(SERVICE_FILE_NAME, activeOnStartup);
+
+            ByteBuffer buffer = ByteBuffer.allocate(512);
+            int length = template.render(buffer, UnitTemplate.formatOnCalendar(36_000_000), "30");
+            String expected = legacy("10:00:00", "30", activeOnStartup);
+            assertEquals(expected.length(), length);
+            assertEquals(expected, rendered(buffer));
+
+            buffer = ByteBuffer.allocateDirect(512);
+            template.render(buffer, "07:05:09", "123");
+            assertEquals(legacy("07:05:09", "123", activeOnStartup), rendered(buffer));
+        }
+    }
+
+    @Test
+    @DisplayName("L'orario in millisecondi è formattato come HH:mm:ss senza Duration")
+    void formatsMillisOfDay() {
+        int[] times = {0, 999, 1000, 59_999, 60_000, 3_599_000, 3_600_000, 36_061_000, 43_200_000, 86_399_999, 86_400_000};
+
+        UnitTemplate template = new UnitTemplate(SERVICE_FILE_NAME, false);
+
+        for (int time : times) {
+            assertEquals(legacyOnCalendar(time), UnitTemplate.formatOnCalendar(time));
+
+            ByteBuffer buffer = ByteBuffer.allocate(512);
+            template.render(buffer, UnitTemplate.formatOnCalendar(time), "0");
+            assertEquals(legacy(legacyOnCalendar(time), "0", false), rendered(buffer));
+
+            // stesso contenuto con l'orario scritto direttamente nel buffer
+            buffer = ByteBuffer.allocate(512);
+            template.render(buffer, time, "0");
+            assertEquals(legacy(legacyOnCalendar(time), "0", false), rendered(buffer));
+        }
+    }
+
+    @Test
+    @DisplayName("Il rendering dai millisecondi in un buffer riutilizzato non alloca")
+    void renderDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        UnitTemplate template = new UnitTemplate(SERVICE_FILE_NAME, true);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(512);
+        String parameter = "30";
+        int renders = 200_000;
+        long checksum = 0;
+
+        // riscaldamento: compilazione JIT dei percorsi misurati
+        for (int i = 0; i < renders; i++) {
+            buffer.clear();
+            checksum += template.render(buffer, (i % 86_400) * 1000, parameter);
+        }
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+
+        for (int i = 0; i < renders; i++) {
+            buffer.clear();
+            checksum += template.render(buffer, (i % 86_400) * 1000, parameter);
+        }
+
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(checksum > 0);
+        // meno di un byte per rendering: la sola misura può allocare qualche byte, nessun rendering alloca
+        assertTrue(allocated < renders, "byte allocati: " + allocated);
+    }
+}
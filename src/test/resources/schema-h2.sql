@@ -3,6 +3,7 @@ id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
 timer_name VARCHAR(100) NOT NULL,
 start_time INTEGER NOT NULL,
 end_time INTEGER NOT NULL,
+symphony INTEGER NOT NULL DEFAULT 30,
 CONSTRAINT uk_start_time UNIQUE (start_time),
 CONSTRAINT uk_end_time UNIQUE (end_time)
 );